@@ -18,6 +18,10 @@
 package net.floodlightcontroller.forwarding;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.floodlightcontroller.core.*;
 import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
@@ -49,6 +53,8 @@ import org.python.google.common.collect.ImmutableList;
 import org.python.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.sszwaczyk.classifier.IPacketClassifierService;
+import pl.sszwaczyk.classifier.PacketClassification;
 import pl.sszwaczyk.filter.IDuplicatedPacketInFilter;
 import pl.sszwaczyk.path.IPathPropertiesService;
 import pl.sszwaczyk.repository.flow.Flow;
@@ -76,7 +82,12 @@ import javax.annotation.Nonnull;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class Forwarding extends ForwardingBase implements IFloodlightModule, IOFSwitchListener, ILinkDiscoveryListener,
         IRoutingDecisionChangedListener, IGatewayService, ISecurityPropertiesChangedListener {
@@ -114,6 +125,11 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
     private static final long FLOWSET_MAX = (long) (Math.pow(2, FLOWSET_BITS) - 1);
 
     private static boolean ONLY_SHORTEST;
+    private static boolean PROACTIVE_REROUTE = false;
+
+    private static final int DEFAULT_DECISION_QUEUE_SIZE = 1024;
+    /* null when secure decisions are computed on the I/O thread */
+    private ExecutorService decisionExecutor;
 
     protected static FlowSetIdRegistry flowSetIdRegistry;
 
@@ -126,6 +142,7 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
     //Secure routing
     private IServiceService serviceService;
     private IUserService userService;
+    private IPacketClassifierService packetClassifierService;
     private ISecurityPropertiesService securityPropertiesService;
     private IRiskCalculationService riskService;
     private IDTSPService dtspService;
@@ -728,17 +745,61 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
             return;
         }
 
+        PacketClassification classification = packetClassifierService.getClassification(cntx);
+        /* built here, the context is cleared and reused once the PACKET_IN has been handled */
+        Match m = createMatchFromPacket(sw, srcPort, pi, cntx);
+        if(classification.isSecured() && decisionExecutor != null) {
+            AddressesAndPorts ap = classification.getAp();
+            /* Buffering right away drops further PACKET_INs of this flow until the decision is done */
+            if(!duplicatedPacketInFilter.tryAddToBuffering(ap)) {
+                log.debug("Secure decision for {} already pending. Dropping packet", ap);
+                return;
+            }
+            final SwitchPort secureDstAp = dstAp;
+            try {
+                decisionExecutor.execute(() -> {
+                    boolean decided = false;
+                    try {
+                        decided = doForwardFlowOnPath(sw, pi, decision, m, requestFlowRemovedNotifn, srcPort, secureDstAp, classification);
+                    } catch (Exception e) {
+                        log.error("Secure decision for " + ap + " failed", e);
+                    } finally {
+                        if(!decided) {
+                            duplicatedPacketInFilter.deleteFromBuffering(ap);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("Secure decision queue full. Dropping packet of {}", ap);
+                duplicatedPacketInFilter.deleteFromBuffering(ap);
+            }
+            return;
+        }
+
+        doForwardFlowOnPath(sw, pi, decision, m, requestFlowRemovedNotifn, srcPort, dstAp, classification);
+    }
+
+    /**
+     * Computes the path (secure one if packet belongs to a service) from srcPort to dstAp and installs flows on it.
+     * Runs on a decision executor thread when asynchronous secure decisions are enabled, so it must not
+     * use the FloodlightContext of the PACKET_IN.
+     * @return false if no decision could be made for the flow
+     */
+    private boolean doForwardFlowOnPath(IOFSwitch sw, OFPacketIn pi, IRoutingDecision decision, Match m,
+                                        boolean requestFlowRemovedNotifn, OFPort srcPort, SwitchPort dstAp,
+                                        PacketClassification classification) {
+        DatapathId srcSw = sw.getId();
+        Service service = classification.getService();
         U64 flowSetId = flowSetIdRegistry.generateFlowSetId();
         U64 cookie = makeForwardingCookie(decision, flowSetId);
 
         Decision secureDecison = null;
         Path path = new Path(null, ImmutableList.of());
-        Service service = serviceService.getServiceFromCntx(cntx);
         if(service != null) {
-            User user = userService.getUserFromCntx(cntx);
+            User user = classification.getUser();
             if(user == null) {
                 log.error("Cannot get user from server response context");
-                return;
+                return false;
             }
             if(ONLY_SHORTEST) {
                 log.info("Shortests security routing for service {} to user {}", service, user);
@@ -767,28 +828,9 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
                     dstAp.getPortId());
         }
 
-        Match m = createMatchFromPacket(sw, srcPort, pi, cntx);
-
         if (! path.getPath().isEmpty()) {
             log.debug("Path to push " + path.getPath());
-            //Don't know why src npt and dst can be doubled so check it befour pushing
-            List<NodePortTuple> npts = path.getPath();
-            if(npts.size() >= 4) {
-                log.debug("Checking for duplicated src and dst npts");
-                NodePortTuple npt0 = npts.get(0);
-                NodePortTuple npt1 = npts.get(1);
-                if(npt0.equals(npt1)) {
-                    log.warn("Filtering duplicated src npt");
-                    npts.remove(0);
-                }
-
-                NodePortTuple oneBeforeLast = npts.get(npts.size() - 2);
-                NodePortTuple last = npts.get(npts.size() - 1);
-                if(oneBeforeLast.equals(last)) {
-                    log.warn("Filtering duplicated dst npt");
-                    npts.remove(npts.size() - 1);
-                }
-            }
+            filterDuplicatedEndpoints(path);
 
             if (log.isDebugEnabled()) {
                 log.debug("pushRoute inPort={} route={} " +
@@ -800,7 +842,7 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
             }
 
             pushRoute(path, m, pi, sw.getId(), cookie,
-                    cntx, requestFlowRemovedNotifn,
+                    null, requestFlowRemovedNotifn,
                     OFFlowModCommand.ADD, false);
 
             /*
@@ -814,23 +856,51 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
 
         if(service != null) {
             log.debug("Registering path to secure paths registry");
-            AddressesAndPorts ap = AddressesAndPorts.fromCntx(cntx);
+            AddressesAndPorts ap = classification.getAp();
             Flow pendingFlow = secureFlowsRepository.getPendingFlow(ap);
             if(pendingFlow == null) {
                 Flow flow = Flow.builder()
                         .startTime(LocalTime.now())
                         .service(service)
-                        .user(userService.getUserFromCntx(cntx))
-                        .ap(AddressesAndPorts.fromCntx(cntx))
+                        .user(classification.getUser())
+                        .ap(ap)
                         .flowStatus(FlowStatus.PENDING)
                         .decisions(Lists.newArrayList(secureDecison))
+                        .match(m)
+                        .cookie(cookie)
                         .build();
                 secureFlowsRepository.registerFlow(flow);
             } else {
+                pendingFlow.setMatch(m);
+                pendingFlow.setCookie(cookie);
                 secureFlowsRepository.addDecision(ap, secureDecison);
             }
             duplicatedPacketInFilter.addToBuffering(ap);
         }
+        return true;
+    }
+
+    /**
+     * Don't know why src npt and dst can be doubled so check it before pushing
+     */
+    private void filterDuplicatedEndpoints(Path path) {
+        List<NodePortTuple> npts = path.getPath();
+        if(npts.size() >= 4) {
+            log.debug("Checking for duplicated src and dst npts");
+            NodePortTuple npt0 = npts.get(0);
+            NodePortTuple npt1 = npts.get(1);
+            if(npt0.equals(npt1)) {
+                log.warn("Filtering duplicated src npt");
+                npts.remove(0);
+            }
+
+            NodePortTuple oneBeforeLast = npts.get(npts.size() - 2);
+            NodePortTuple last = npts.get(npts.size() - 1);
+            if(oneBeforeLast.equals(last)) {
+                log.warn("Filtering duplicated dst npt");
+                npts.remove(npts.size() - 1);
+            }
+        }
     }
 
     /**
@@ -1437,6 +1507,7 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
         //Secure routing
         l.add(IServiceService.class);
         l.add(IUserService.class);
+        l.add(IPacketClassifierService.class);
         l.add(ISecurityPropertiesService.class);
         l.add(IDTSPService.class);
         l.add(IRiskCalculationService.class);
@@ -1460,6 +1531,7 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
 
         this.serviceService = context.getServiceImpl(IServiceService.class);
         this.userService = context.getServiceImpl(IUserService.class);
+        this.packetClassifierService = context.getServiceImpl(IPacketClassifierService.class);
         this.securityPropertiesService = context.getServiceImpl(ISecurityPropertiesService.class);
         this.riskService = context.getServiceImpl(IRiskCalculationService.class);
         this.dtspService = context.getServiceImpl(IDTSPService.class);
@@ -1583,6 +1655,36 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
         } else {
             throw new FloodlightModuleException("only-shortest parameter not specified");
         }
+
+        tmp = configParameters.get("proactive-reroute");
+        if(tmp != null) {
+            PROACTIVE_REROUTE = Boolean.parseBoolean(tmp);
+        }
+        if(PROACTIVE_REROUTE) {
+            log.info("Transfers with risk over DTSP range will be rerouted proactively");
+        } else {
+            log.info("Transfers with risk over DTSP range will be deleted and rerouted on next PACKET_IN");
+        }
+
+        tmp = configParameters.get("decision-threads");
+        int decisionThreads = 0;
+        if(tmp != null && !tmp.isEmpty()) {
+            decisionThreads = Integer.parseInt(tmp);
+        }
+        if(decisionThreads > 0) {
+            tmp = configParameters.get("decision-queue-size");
+            int decisionQueueSize = DEFAULT_DECISION_QUEUE_SIZE;
+            if(tmp != null && !tmp.isEmpty()) {
+                decisionQueueSize = Integer.parseInt(tmp);
+            }
+            decisionExecutor = new ThreadPoolExecutor(decisionThreads, decisionThreads,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(decisionQueueSize),
+                    new ThreadFactoryBuilder().setNameFormat("secure-decision-%d").setDaemon(true).build());
+            log.info("Secure decisions computed asynchronously by {} threads with queue of {}", decisionThreads, decisionQueueSize);
+        } else {
+            log.info("Secure decisions computed synchronously on the switch I/O thread");
+        }
     }
 
     @Override
@@ -2029,57 +2131,200 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule, IOF
     @Override
     public void securityPropertiesChanged(SecurityPropertiesUpdate update) {
         log.debug("Received security properties changed update {}", update);
-        Map<AddressesAndPorts, Path> paths = secureFlowsRepository.getActualPaths();
+        /* LINK_UTILIZATION updates are left out, transfers would react to their own traffic */
         if(update.getType().equals(SecurityPropertiesUpdateType.PROPERTIES_DOWN)) {
-            List<IOFSwitch> affectedSwitches = update.getSwitches();
+            List<DatapathId> affectedSwitches = new ArrayList<>();
+            if(update.getSwitches() != null) {
+                update.getSwitches().forEach(s -> affectedSwitches.add(s.getId()));
+            }
+            Set<AddressesAndPorts> affectedTransfers = secureFlowsRepository.getActualTransfersThrough(affectedSwitches, update.getLinks());
+            log.debug("{} transfers traverse switches or links with changed security properties", affectedTransfers.size());
 
-            paths.forEach((ap, p) -> {
+            Map<AddressesAndPorts, Path> degraded = new LinkedHashMap<>();
+            for(AddressesAndPorts ap: affectedTransfers) {
+                Path p = secureFlowsRepository.getActualPath(ap);
+                if(p == null) {
+                    continue;
+                }
+
+                log.info("Security properties changed in path {} for transfer {}", p, ap);
+                Service service = serviceService.getServiceByAddrAndPort(ap.getSrc().getAddress(), ap.getSrc().getPort());
+                DTSP dtsp = dtspService.getDTSPForService(service);
+                Risks risks = calculateRisks(service);
+                Map<SecurityDimension, Float> maxRisks = risks.getMaxRisks();
 
-                List<NodePortTuple> npts = p.getPath();
-                List<IOFSwitch> switches = new ArrayList<>();
-                for(int i = 0; i < npts.size() - 1; i = i + 2) {
-                    IOFSwitch s1 = switchService.getSwitch(npts.get(i).getNodeId());
-                    switches.add(s1);
+                Map<SecurityDimension, Float> pathProperties = pathPropertiesService.calculatePathProperties(p);
+                Map<SecurityDimension, Float> pathRisks = riskService.calculateRisk(pathProperties, dtsp.getConsequences());
+
+                if(!isPathRiskInRange(maxRisks, pathRisks)) {
+                    log.warn("Risk increased over DTSP range for transfer {}", ap);
+                    degraded.put(ap, p);
+                } else {
+                    log.info("Risk still in DTSP range.");
                 }
+            }
 
-                if(switches.stream().anyMatch(affectedSwitches::contains)) {
-                    log.info("Security properties changed in path {} for transfer {}", p, ap);
-                    Service service = serviceService.getServiceByAddrAndPort(ap.getSrc().getAddress(), ap.getSrc().getPort());
-                    DTSP dtsp = dtspService.getDTSPForService(service);
-                    Risks risks = calculateRisks(service);
-                    Map<SecurityDimension, Float> acceptableRisks = risks.getAcceptableRisks();
-                    Map<SecurityDimension, Float> maxRisks = risks.getMaxRisks();
-
-                    Map<SecurityDimension, Float> pathProperties = pathPropertiesService.calculatePathProperties(p);
-                    Map<SecurityDimension, Float> pathRisks = riskService.calculateRisk(pathProperties, dtsp.getConsequences());
-
-                    if(!isPathRiskInRange(maxRisks, pathRisks)) {
-                        log.warn("Risk increased over DTSP range. Deleting path from switches");
-
-                        secureFlowsRepository.deleteActualPath(ap);
-                        duplicatedPacketInFilter.deleteFromBuffering(ap);
-
-                        for(IOFSwitch sw: switches) {
-                            OFFlowDelete flowDelete = sw.getOFFactory().buildFlowDelete()
-                                    .setMatch(sw.getOFFactory().buildMatch()
-                                            .setExact(MatchField.ETH_TYPE, EthType.IPv4)
-                                            .setExact(MatchField.IPV4_SRC, IPv4Address.of(ap.getSrc().getAddress()))
-                                            .setExact(MatchField.IPV4_DST, IPv4Address.of(ap.getDst().getAddress()))
-                                            .setExact(MatchField.IP_PROTO, IpProtocol.TCP)
-                                            .setExact(MatchField.TCP_SRC, TransportPort.of(ap.getSrc().getPort()))
-                                            .setExact(MatchField.TCP_DST, TransportPort.of(ap.getDst().getPort()))
-                                            .build()
-                                    ).build();
-                            log.debug("Sending flow delete to sw " + sw);
-                            messageDamper.write(sw, flowDelete);
-                        }
+            if(!degraded.isEmpty()) {
+                Map<IOFSwitch, List<OFMessage>> deletes = new LinkedHashMap<>();
+                if(PROACTIVE_REROUTE) {
+                    Map<IOFSwitch, List<OFMessage>> adds = new LinkedHashMap<>();
+                    rerouteTransfers(degraded, adds, deletes);
+                    writeBatchesThen(adds, deletes);
+                } else {
+                    degraded.forEach((ap, p) -> deleteTransfer(ap, p, deletes));
+                    writeBatches(deletes);
+                }
+            }
+        }
+    }
 
-                    } else {
-                        log.info("Risk still in DTSP range.");
-                    }
+    /**
+     * Computes replacement paths for all degraded transfers. Flow mods of new paths are collected into adds,
+     * flow mods of old paths which are not overwritten by the new ones into deletes, to be sent only after
+     * the switches confirmed the adds (make before break).
+     * Transfers without replacement path are deleted from switches and wait for a new PACKET_IN.
+     */
+    private void rerouteTransfers(Map<AddressesAndPorts, Path> degraded, Map<IOFSwitch, List<OFMessage>> adds,
+                                  Map<IOFSwitch, List<OFMessage>> deletes) {
+        for(Map.Entry<AddressesAndPorts, Path> e: degraded.entrySet()) {
+            AddressesAndPorts ap = e.getKey();
+            Path oldPath = e.getValue();
+            Flow flow = secureFlowsRepository.getPendingFlow(ap);
+            if(flow == null || flow.getMatch() == null) {
+                log.debug("No match of installed flow mods for transfer {}. Cannot reroute it", ap);
+                deleteTransfer(ap, oldPath, deletes);
+                continue;
+            }
+
+            List<NodePortTuple> oldNpts = oldPath.getPath();
+            NodePortTuple src = oldNpts.get(0);
+            NodePortTuple dst = oldNpts.get(oldNpts.size() - 1);
+            Decision newDecision;
+            if(ONLY_SHORTEST) {
+                newDecision = routingEngineService.getSecureShortestDecision(flow.getUser(), flow.getService(),
+                        src.getNodeId(), src.getPortId(), dst.getNodeId(), dst.getPortId());
+            } else {
+                newDecision = routingEngineService.getSecureDecision(flow.getUser(), flow.getService(),
+                        src.getNodeId(), src.getPortId(), dst.getNodeId(), dst.getPortId());
+            }
+            if(!newDecision.isSolved() || newDecision.getPath() == null || newDecision.getPath().getPath().isEmpty()) {
+                log.warn("No secure path to reroute transfer {}. Deleting path from switches", ap);
+                deleteTransfer(ap, oldPath, deletes);
+                continue;
+            }
+
+            Path newPath = newDecision.getPath();
+            filterDuplicatedEndpoints(newPath);
+            log.info("Rerouting transfer {} from path {} to path {}", new Object[] { ap, oldPath, newPath });
+
+            U64 flowSetId = flowSetIdRegistry.generateFlowSetId();
+            U64 cookie = makeForwardingCookie(null, flowSetId);
+            if(!collectRoute(newPath, flow.getMatch(), cookie, true, adds)) {
+                log.warn("Switch of new path {} not available. Deleting transfer {} from switches", newPath, ap);
+                deleteTransfer(ap, oldPath, deletes);
+                continue;
+            }
+            for (NodePortTuple npt : newPath.getPath()) {
+                flowSetIdRegistry.registerFlowSetId(npt, flowSetId);
+            }
+            flow.setCookie(cookie);
+            secureFlowsRepository.addDecision(ap, newDecision);
+
+            /* Flow mod with the same match (switch and in port) was overwritten by the ADD of new path */
+            Set<NodePortTuple> newIngress = new HashSet<>();
+            Set<DatapathId> newSwitches = new HashSet<>();
+            List<NodePortTuple> newNpts = newPath.getPath();
+            for(int i = 0; i < newNpts.size() - 1; i = i + 2) {
+                newIngress.add(newNpts.get(i));
+                newSwitches.add(newNpts.get(i).getNodeId());
+            }
+            for(int i = 0; i < oldNpts.size() - 1; i = i + 2) {
+                NodePortTuple in = oldNpts.get(i);
+                if(FLOWMOD_DEFAULT_MATCH_IN_PORT ? newIngress.contains(in) : newSwitches.contains(in.getNodeId())) {
+                    continue;
+                }
+                IOFSwitch sw = switchService.getSwitch(in.getNodeId());
+                if(sw == null) {
+                    continue;
+                }
+                Match.Builder mb = MatchUtils.convertToVersion(flow.getMatch(), sw.getOFFactory().getVersion());
+                if (FLOWMOD_DEFAULT_MATCH_IN_PORT) {
+                    mb.setExact(MatchField.IN_PORT, in.getPortId());
+                }
+                OFFlowDeleteStrict.Builder fdb = sw.getOFFactory().buildFlowDeleteStrict()
+                        .setMatch(mb.build())
+                        .setPriority(FLOWMOD_DEFAULT_PRIORITY);
+                if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) != 0) {
+                    fdb.setTableId(FLOWMOD_DEFAULT_TABLE_ID);
                 }
-            });
+                deletes.computeIfAbsent(sw, k -> new ArrayList<>()).add(fdb.build());
+            }
+        }
+    }
+
+    private void deleteTransfer(AddressesAndPorts ap, Path path, Map<IOFSwitch, List<OFMessage>> deletes) {
+        log.warn("Deleting path {} of transfer {} from switches", path, ap);
+        secureFlowsRepository.deleteActualPath(ap);
+        duplicatedPacketInFilter.deleteFromBuffering(ap);
+
+        List<NodePortTuple> npts = path.getPath();
+        for(int i = 0; i < npts.size() - 1; i = i + 2) {
+            IOFSwitch sw = switchService.getSwitch(npts.get(i).getNodeId());
+            if(sw == null) {
+                continue;
+            }
+            OFFlowDelete flowDelete = sw.getOFFactory().buildFlowDelete()
+                    .setMatch(sw.getOFFactory().buildMatch()
+                            .setExact(MatchField.ETH_TYPE, EthType.IPv4)
+                            .setExact(MatchField.IPV4_SRC, IPv4Address.of(ap.getSrc().getAddress()))
+                            .setExact(MatchField.IPV4_DST, IPv4Address.of(ap.getDst().getAddress()))
+                            .setExact(MatchField.IP_PROTO, IpProtocol.TCP)
+                            .setExact(MatchField.TCP_SRC, TransportPort.of(ap.getSrc().getPort()))
+                            .setExact(MatchField.TCP_DST, TransportPort.of(ap.getDst().getPort()))
+                            .build()
+                    ).build();
+            deletes.computeIfAbsent(sw, k -> new ArrayList<>()).add(flowDelete);
+        }
+    }
+
+    /**
+     * Writes collected messages to every switch at once, closing each batch with a barrier
+     * @return replies to the barriers, one per switch
+     */
+    private List<ListenableFuture<OFBarrierReply>> writeBatches(Map<IOFSwitch, List<OFMessage>> batches) {
+        List<ListenableFuture<OFBarrierReply>> barriers = new ArrayList<>();
+        batches.forEach((sw, messages) -> {
+            log.debug("Sending {} flow mods to sw {}", messages.size(), sw);
+            sw.write(messages);
+            barriers.add(sw.writeRequest(sw.getOFFactory().buildBarrierRequest().build()));
+        });
+        return barriers;
+    }
+
+    /**
+     * Writes first batches and, once all their switches replied to the barriers, the second ones.
+     * A switch which does not reply (disconnected or timed out) does not hold the second batches back forever.
+     */
+    private void writeBatchesThen(Map<IOFSwitch, List<OFMessage>> first, Map<IOFSwitch, List<OFMessage>> second) {
+        if(second.isEmpty()) {
+            writeBatches(first);
+            return;
         }
+        Futures.addCallback(Futures.successfulAsList(writeBatches(first)), new FutureCallback<List<OFBarrierReply>>() {
+            @Override
+            public void onSuccess(List<OFBarrierReply> replies) {
+                if(replies.contains(null)) {
+                    log.warn("Not every switch of new paths confirmed its flow mods. Removing old paths anyway");
+                }
+                writeBatches(second);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("Waiting for switches of new paths failed. Removing old paths anyway", t);
+                writeBatches(second);
+            }
+        });
     }
 
     private Risks calculateRisks(Service service) {
@@ -21,11 +21,13 @@ import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.module.IFloodlightService;
 import net.floodlightcontroller.core.types.NodePortTuple;
 import net.floodlightcontroller.linkdiscovery.internal.LinkInfo;
+import net.floodlightcontroller.routing.Path;
 import org.projectfloodlight.openflow.protocol.OFPacketOut;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFPort;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -47,6 +49,15 @@ public interface ILinkDiscoveryService extends IFloodlightService {
 
     public Link getLink(DatapathId srcSw, OFPort srcPort);
 
+    /**
+     * Retrieves links between consecutive switches of a path in path order,
+     * under a single lock acquisition. The path may start and end with host
+     * ports on the first and last switch.
+     * @param path path to resolve
+     * @return links of the path, null for hops without a known link
+     */
+    public List<Link> resolveLinks(Path path);
+
     /**
      * Retrieves the link info for a given link
      * @param link link for which the link info should be returned
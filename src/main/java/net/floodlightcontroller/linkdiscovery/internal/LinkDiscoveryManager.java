@@ -41,6 +41,7 @@ import net.floodlightcontroller.packet.Ethernet;
 import net.floodlightcontroller.packet.LLDP;
 import net.floodlightcontroller.packet.LLDPTLV;
 import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.routing.Path;
 import net.floodlightcontroller.storage.*;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.util.OFMessageUtils;
@@ -496,18 +497,64 @@ IFloodlightModule, IInfoProvider {
 
 	@Override
 	public Link getLink(DatapathId srcSw, OFPort srcPort, DatapathId dstSw, OFPort dstPort) {
-		return links.keySet().stream()
-				.filter(l -> l.getSrc().equals(srcSw) && l.getSrcPort().equals(srcPort) && l.getDst().equals(dstSw) && l.getDstPort().equals(dstPort))
-				.findFirst()
-				.orElse(null);
+		lock.readLock().lock();
+		try {
+			return findLink(srcSw, srcPort, dstSw, dstPort);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	@Override
 	public Link getLink(DatapathId srcSw, OFPort srcPort) {
-		return links.keySet().stream()
-				.filter(l -> l.getSrc().equals(srcSw) && l.getSrcPort().equals(srcPort))
-				.findFirst()
-				.orElse(null);
+		lock.readLock().lock();
+		try {
+			return findLink(srcSw, srcPort, null, null);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Link> resolveLinks(Path path) {
+		List<NodePortTuple> npts = path.getPath();
+		List<Link> result = new ArrayList<Link>(npts.size() / 2);
+		if (npts.size() < 2) {
+			return result;
+		}
+		/* skip the first tuple if the path starts with a host port */
+		int start = npts.get(0).getNodeId().equals(npts.get(1).getNodeId()) ? 1 : 0;
+		lock.readLock().lock();
+		try {
+			for (int n = start; n < npts.size() - 1; n = n + 2) {
+				NodePortTuple out = npts.get(n);
+				NodePortTuple in = npts.get(n + 1);
+				result.add(findLink(out.getNodeId(), out.getPortId(), in.getNodeId(), in.getPortId()));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return result;
+	}
+
+	/**
+	 * Finds a link by its source port in the port index, so the instance kept in links
+	 * is returned. Must be called with the lock held.
+	 * @param dstSw destination switch, or null to return any link from the source port
+	 * @param dstPort destination port, ignored if dstSw is null
+	 */
+	private Link findLink(DatapathId srcSw, OFPort srcPort, DatapathId dstSw, OFPort dstPort) {
+		Set<Link> candidates = portLinks.get(new NodePortTuple(srcSw, srcPort));
+		if (candidates == null) {
+			return null;
+		}
+		for (Link l : candidates) {
+			if (l.getSrc().equals(srcSw) && l.getSrcPort().equals(srcPort)
+					&& (dstSw == null || (l.getDst().equals(dstSw) && l.getDstPort().equals(dstPort)))) {
+				return l;
+			}
+		}
+		return null;
 	}
 
 	@Override
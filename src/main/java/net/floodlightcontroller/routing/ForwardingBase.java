@@ -179,63 +179,10 @@ public abstract class ForwardingBase implements IOFMessageListener {
                 return false;
             }
 
-            // need to build flow mod based on what type it is. Cannot set command later
-            OFFlowMod.Builder fmb;
-            switch (flowModCommand) {
-            case ADD:
-                fmb = sw.getOFFactory().buildFlowAdd();
-                break;
-            case DELETE:
-                fmb = sw.getOFFactory().buildFlowDelete();
-                break;
-            case DELETE_STRICT:
-                fmb = sw.getOFFactory().buildFlowDeleteStrict();
-                break;
-            case MODIFY:
-                fmb = sw.getOFFactory().buildFlowModify();
-                break;
-            default:
-                log.error("Could not decode OFFlowModCommand. Using MODIFY_STRICT. (Should another be used as the default?)");        
-            case MODIFY_STRICT:
-                fmb = sw.getOFFactory().buildFlowModifyStrict();
-                break;			
-            }
-
-            OFActionOutput.Builder aob = sw.getOFFactory().actions().buildOutput();
-            List<OFAction> actions = new ArrayList<>();
-            Match.Builder mb = MatchUtils.convertToVersion(match, sw.getOFFactory().getVersion());
-
-            // set input and output ports on the switch
+            OFFlowMod.Builder fmb = buildRouteFlowMod(sw, switchPortList, indx, match, cookie,
+                    requestFlowRemovedNotification, flowModCommand);
             OFPort outPort = switchPortList.get(indx).getPortId();
-            OFPort inPort = switchPortList.get(indx - 1).getPortId();
-            if (FLOWMOD_DEFAULT_MATCH_IN_PORT) {
-                mb.setExact(MatchField.IN_PORT, inPort);
-            }
-            aob.setPort(outPort);
-            aob.setMaxLen(Integer.MAX_VALUE);
-            actions.add(aob.build());
-
-            if (FLOWMOD_DEFAULT_SET_SEND_FLOW_REM_FLAG || requestFlowRemovedNotification) {
-                Set<OFFlowModFlags> flags = new HashSet<>();
-                flags.add(OFFlowModFlags.SEND_FLOW_REM);
-                fmb.setFlags(flags);
-            }
-
-            fmb.setMatch(mb.build())
-            .setIdleTimeout(FLOWMOD_DEFAULT_IDLE_TIMEOUT)
-            .setHardTimeout(FLOWMOD_DEFAULT_HARD_TIMEOUT)
-            .setBufferId(OFBufferId.NO_BUFFER)
-            .setCookie(cookie)
-            .setOutPort(outPort)
-            .setPriority(FLOWMOD_DEFAULT_PRIORITY);
-
-            FlowModUtils.setActions(fmb, actions, sw);
 
-            /* Configure for particular switch pipeline */
-            if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) != 0) {
-                fmb.setTableId(FLOWMOD_DEFAULT_TABLE_ID);
-            }
-                        
             if (log.isTraceEnabled()) {
                 log.trace("Pushing Route flowmod routeIndx={} " +
                         "sw={} inPort={} outPort={}",
@@ -271,6 +218,118 @@ public abstract class ForwardingBase implements IOFMessageListener {
         return true;
     }
 
+    /**
+     * Builds ADD flow mods of a route without writing them, so that the caller can send them
+     * to every switch in one batch. OF-DPA switches get their flows written right away, but
+     * still get a (possibly empty) batch, so that a barrier closing it covers them too.
+     * @param route Route to push
+     * @param match OpenFlow fields to match on
+     * @param cookie The cookie to set in each flow_mod
+     * @param requestFlowRemovedNotification if set to true then the switch would
+     *        send a flow mod removal notification when the flow mod expires
+     * @param batches flow mods per switch, the flow mods of the route are added to
+     * @return false if a switch of the route is not available
+     */
+    public boolean collectRoute(Path route, Match match, U64 cookie, boolean requestFlowRemovedNotification,
+            Map<IOFSwitch, List<OFMessage>> batches) {
+        List<NodePortTuple> switchPortList = route.getPath();
+        List<IOFSwitch> switches = new ArrayList<>();
+        for (int indx = switchPortList.size() - 1; indx > 0; indx -= 2) {
+            DatapathId switchDPID = switchPortList.get(indx).getNodeId();
+            IOFSwitch sw = switchService.getSwitch(switchDPID);
+            if (sw == null) {
+                log.warn("Unable to collect route, switch at DPID {} not available", switchDPID);
+                return false;
+            }
+            switches.add(sw);
+        }
+
+        int indx = switchPortList.size() - 1;
+        for (IOFSwitch sw : switches) {
+            OFFlowMod.Builder fmb = buildRouteFlowMod(sw, switchPortList, indx, match, cookie,
+                    requestFlowRemovedNotification, OFFlowModCommand.ADD);
+            List<OFMessage> batch = batches.computeIfAbsent(sw, k -> new ArrayList<>());
+            if (OFDPAUtils.isOFDPASwitch(sw)) {
+                OFDPAUtils.addLearningSwitchFlow(sw, cookie,
+                        FLOWMOD_DEFAULT_PRIORITY,
+                        FLOWMOD_DEFAULT_HARD_TIMEOUT,
+                        FLOWMOD_DEFAULT_IDLE_TIMEOUT,
+                        fmb.getMatch(),
+                        null,
+                        switchPortList.get(indx).getPortId());
+            } else {
+                batch.add(fmb.build());
+            }
+            indx -= 2;
+        }
+        return true;
+    }
+
+    /**
+     * Builds the flow mod of a route for the switch at indx and indx-1 of its path
+     */
+    private OFFlowMod.Builder buildRouteFlowMod(IOFSwitch sw, List<NodePortTuple> switchPortList, int indx,
+            Match match, U64 cookie, boolean requestFlowRemovedNotification, OFFlowModCommand flowModCommand) {
+        // need to build flow mod based on what type it is. Cannot set command later
+        OFFlowMod.Builder fmb;
+        switch (flowModCommand) {
+        case ADD:
+            fmb = sw.getOFFactory().buildFlowAdd();
+            break;
+        case DELETE:
+            fmb = sw.getOFFactory().buildFlowDelete();
+            break;
+        case DELETE_STRICT:
+            fmb = sw.getOFFactory().buildFlowDeleteStrict();
+            break;
+        case MODIFY:
+            fmb = sw.getOFFactory().buildFlowModify();
+            break;
+        default:
+            log.error("Could not decode OFFlowModCommand. Using MODIFY_STRICT. (Should another be used as the default?)");        
+        case MODIFY_STRICT:
+            fmb = sw.getOFFactory().buildFlowModifyStrict();
+            break;			
+        }
+
+        OFActionOutput.Builder aob = sw.getOFFactory().actions().buildOutput();
+        List<OFAction> actions = new ArrayList<>();
+        Match.Builder mb = MatchUtils.convertToVersion(match, sw.getOFFactory().getVersion());
+
+        // set input and output ports on the switch
+        OFPort outPort = switchPortList.get(indx).getPortId();
+        OFPort inPort = switchPortList.get(indx - 1).getPortId();
+        if (FLOWMOD_DEFAULT_MATCH_IN_PORT) {
+            mb.setExact(MatchField.IN_PORT, inPort);
+        }
+        aob.setPort(outPort);
+        aob.setMaxLen(Integer.MAX_VALUE);
+        actions.add(aob.build());
+
+        if (FLOWMOD_DEFAULT_SET_SEND_FLOW_REM_FLAG || requestFlowRemovedNotification) {
+            Set<OFFlowModFlags> flags = new HashSet<>();
+            flags.add(OFFlowModFlags.SEND_FLOW_REM);
+            fmb.setFlags(flags);
+        }
+
+        fmb.setMatch(mb.build())
+        .setIdleTimeout(FLOWMOD_DEFAULT_IDLE_TIMEOUT)
+        .setHardTimeout(FLOWMOD_DEFAULT_HARD_TIMEOUT)
+        .setBufferId(OFBufferId.NO_BUFFER)
+        .setCookie(cookie)
+        .setOutPort(outPort)
+        .setPriority(FLOWMOD_DEFAULT_PRIORITY);
+
+        FlowModUtils.setActions(fmb, actions, sw);
+
+        /* Configure for particular switch pipeline */
+        if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) != 0) {
+            fmb.setTableId(FLOWMOD_DEFAULT_TABLE_ID);
+        }
+
+        return fmb;
+    }
+
     /**
      * Pushes a packet-out to a switch. The assumption here is that
      * the packet-in was also generated from the same switch. Thus, if the input
@@ -197,6 +197,21 @@ public interface IRoutingService extends IFloodlightService {
      */
     List<Path> getPathsSlow(DatapathId src, DatapathId dst, int numReqPaths);
 
+    /**
+     * Returns a cursor enumerating the paths between src and dst, ordered least
+     * to greatest cost. The precomputed paths are served from the pathcache and
+     * Yen's algorithm is resumed from them only when the caller pulls more, so
+     * pulling paths in batches costs the same as computing them once.
+     * 
+     * Use this instead of repeated {@link #getPathsSlow(DatapathId, DatapathId, int)}
+     * calls with a growing numReqPaths.
+     * 
+     * @param src source switch
+     * @param dst destination switch
+     * @return cursor over the paths, bound to the current topology
+     */
+    PathCursor getPathCursor(DatapathId src, DatapathId dst);
+
     /**
      * Recompute paths now, regardless of whether or not there was a change in the
      * topology. This should be called if {@link #setPathMetric(PATH_METRIC)} was
@@ -0,0 +1,31 @@
+package net.floodlightcontroller.routing;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Resumable enumeration of the paths between two switches, ordered
+ * least to greatest cost. Unlike {@link IRoutingService#getPathsSlow(org.projectfloodlight.openflow.types.DatapathId,
+ * org.projectfloodlight.openflow.types.DatapathId, int)}, which recomputes
+ * Yen's algorithm from the first path on every call, a cursor keeps the
+ * algorithm state between calls so asking for more paths only costs the
+ * work needed to find the additional ones.
+ *
+ * A cursor is bound to the topology instance it was created from and is
+ * not thread-safe. Paths returned by the cursor are private copies and may
+ * be modified by the caller.
+ */
+public interface PathCursor extends Iterator<Path> {
+
+    /**
+     * Pulls up to count further paths from the enumeration.
+     * @param count the number of paths wanted
+     * @return the next paths, fewer than count (or empty) when no more paths exist
+     */
+    List<Path> next(int count);
+
+    /**
+     * @return the number of paths returned by this cursor so far
+     */
+    int getPosition();
+}
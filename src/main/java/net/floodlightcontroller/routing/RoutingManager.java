@@ -129,6 +129,11 @@ public class RoutingManager implements IFloodlightModule, IRoutingService {
         return tm.getCurrentTopologyInstance().getPathsSlow(src, dst, numReqPaths);
     }
 
+    @Override
+    public PathCursor getPathCursor(DatapathId src, DatapathId dst) {
+        return tm.getCurrentTopologyInstance().getPathCursor(src, dst);
+    }
+
     @Override
     public boolean pathExists(DatapathId src, DatapathId dst) {
         return tm.getCurrentTopologyInstance().pathExists(src, dst);
@@ -0,0 +1,108 @@
+package net.floodlightcontroller.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of statistics request latencies (time from sending a request until all of
+ * its replies arrived) of one switch. Buckets have fixed upper bounds, the last one is
+ * unbounded. Requests cancelled because the switch did not reply in time and failed
+ * requests are counted separately.
+ */
+public class CollectionLatencyHistogram {
+
+	private static final long[] BUCKET_BOUNDS_MS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalMs = new AtomicLong();
+	private final AtomicLong maxMs = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	public void record(long latencyMs) {
+		int bucket = 0;
+		while (bucket < BUCKET_BOUNDS_MS.length && latencyMs > BUCKET_BOUNDS_MS[bucket]) {
+			bucket++;
+		}
+		counts.incrementAndGet(bucket);
+		count.incrementAndGet();
+		totalMs.addAndGet(latencyMs);
+		maxMs.accumulateAndGet(latencyMs, Math::max);
+	}
+
+	public void recordTimeout() {
+		timeouts.incrementAndGet();
+	}
+
+	public void recordFailure() {
+		failures.incrementAndGet();
+	}
+
+	/**
+	 * @return upper bounds of buckets in ms, the last bucket of {@link #getCounts()} has none
+	 */
+	public long[] getBucketBoundsMs() {
+		return BUCKET_BOUNDS_MS.clone();
+	}
+
+	public long[] getCounts() {
+		long[] c = new long[counts.length()];
+		for (int i = 0; i < c.length; i++) {
+			c[i] = counts.get(i);
+		}
+		return c;
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public double getMeanMs() {
+		long c = count.get();
+		return c == 0 ? 0 : (double) totalMs.get() / c;
+	}
+
+	public long getMaxMs() {
+		return maxMs.get();
+	}
+
+	/**
+	 * @return upper bound of the bucket holding the given percentile, max latency for the last bucket
+	 */
+	public long getPercentileMs(double percentile) {
+		long[] c = getCounts();
+		long total = 0;
+		for (long v : c) {
+			total += v;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile / 100 * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+			seen += c[i];
+			if (seen >= rank) {
+				return BUCKET_BOUNDS_MS[i];
+			}
+		}
+		return maxMs.get();
+	}
+
+	public long getP50Ms() {
+		return getPercentileMs(50);
+	}
+
+	public long getP99Ms() {
+		return getPercentileMs(99);
+	}
+
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	public long getFailures() {
+		return failures.get();
+	}
+}
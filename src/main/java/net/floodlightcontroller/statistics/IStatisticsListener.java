@@ -0,0 +1,18 @@
+package net.floodlightcontroller.statistics;
+
+/**
+ * Notified by {@link IStatisticsService} after each port statistics collection round and,
+ * with adaptive sampling enabled, after adaptive samples of busy ports between rounds.
+ */
+public interface IStatisticsListener {
+
+	/**
+	 * Called from a collector thread once per snapshot, one snapshot at a time and in order
+	 * of registration; implementations should return quickly. With adaptive sampling this
+	 * may be as often as every adaptiveMinPeriodMs, with partial snapshots
+	 * ({@link PortStatisticsSnapshot#isPartial()}) in between regular rounds. Listeners doing
+	 * heavy work may ignore partial snapshots, the next round measures all ports again.
+	 * @param snapshot bandwidth consumption of all ports, measured ones in getUpdatedPorts
+	 */
+	void portStatisticsCollected(PortStatisticsSnapshot snapshot);
+}
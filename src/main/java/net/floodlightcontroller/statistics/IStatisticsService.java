@@ -9,6 +9,8 @@ import org.projectfloodlight.openflow.types.OFPort;
 
 import javafx.util.Pair;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -29,8 +31,35 @@ public interface IStatisticsService extends IFloodlightService {
 	SwitchPortBandwidth getBandwidthConsumption(DatapathId dpid, OFPort p);
 		
 	Map<NodePortTuple, SwitchPortBandwidth> getBandwidthConsumption();
+
+	/**
+	 * @return latest published port statistics snapshot, possibly partial, {@link PortStatisticsSnapshot#EMPTY} before the first one
+	 */
+	PortStatisticsSnapshot getPortStatisticsSnapshot();
+
+	/**
+	 * @return latencies of statistics requests of every switch asked so far
+	 */
+	Map<DatapathId, CollectionLatencyHistogram> getCollectionLatency();
+
+	CollectionLatencyHistogram getCollectionLatency(DatapathId dpid);
+
+	/**
+	 * Sample the given ports at the shortest adaptive period for a while, e.g. because a
+	 * path was just set up over them. No-op when adaptive sampling is disabled.
+	 */
+	void sampleFrequently(Collection<NodePortTuple> ports);
+
+	/**
+	 * @return current sampling period of every port with statistics
+	 */
+	List<PortSamplingRate> getPortSamplingRates();
 	
 	void collectStatistics(boolean collect);
 
 	boolean isStatisticsCollectionEnabled();
+
+	void addStatisticsListener(IStatisticsListener listener);
+
+	void removeStatisticsListener(IStatisticsListener listener);
 }
@@ -0,0 +1,48 @@
+package net.floodlightcontroller.statistics;
+
+/**
+ * Current statistics sampling period of a port. Ports not sampled adaptively are sampled
+ * once per port statistics collection interval.
+ */
+public class PortSamplingRate {
+
+	private final String switchId;
+	private final int port;
+	private final long periodMs;
+	private final boolean adaptive;
+	private final boolean pinned;
+
+	public PortSamplingRate(String switchId, int port, long periodMs, boolean adaptive, boolean pinned) {
+		this.switchId = switchId;
+		this.port = port;
+		this.periodMs = periodMs;
+		this.adaptive = adaptive;
+		this.pinned = pinned;
+	}
+
+	public String getSwitchId() {
+		return switchId;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public long getPeriodMs() {
+		return periodMs;
+	}
+
+	/**
+	 * @return true if the port is sampled more often than the collection interval
+	 */
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	/**
+	 * @return true if the port is kept at the shortest period because it lies on a recently chosen path
+	 */
+	public boolean isPinned() {
+		return pinned;
+	}
+}
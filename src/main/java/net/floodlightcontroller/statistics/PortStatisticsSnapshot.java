@@ -0,0 +1,72 @@
+package net.floodlightcontroller.statistics;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.floodlightcontroller.core.types.NodePortTuple;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable bandwidth consumption of all ports after one port statistics collection round,
+ * or after adaptive samples of some ports between rounds (a partial snapshot). Versions
+ * increase by one with every snapshot, so listeners can tell whether derived state is up
+ * to date with a snapshot.
+ */
+public class PortStatisticsSnapshot {
+
+	public static final PortStatisticsSnapshot EMPTY = new PortStatisticsSnapshot(0, 0,
+			ImmutableMap.<NodePortTuple, SwitchPortBandwidth>of(), ImmutableSet.<NodePortTuple>of());
+
+	private final long version;
+	private final long timestamp; //ms since epoch
+	private final ImmutableMap<NodePortTuple, SwitchPortBandwidth> bandwidth;
+	private final ImmutableSet<NodePortTuple> updatedPorts;
+	private final boolean partial;
+
+	public PortStatisticsSnapshot(long version, long timestamp,
+			Map<NodePortTuple, SwitchPortBandwidth> bandwidth, Set<NodePortTuple> updatedPorts) {
+		this(version, timestamp, bandwidth, updatedPorts, false);
+	}
+
+	public PortStatisticsSnapshot(long version, long timestamp,
+			Map<NodePortTuple, SwitchPortBandwidth> bandwidth, Set<NodePortTuple> updatedPorts, boolean partial) {
+		this.version = version;
+		this.timestamp = timestamp;
+		this.bandwidth = ImmutableMap.copyOf(bandwidth);
+		this.updatedPorts = ImmutableSet.copyOf(updatedPorts);
+		this.partial = partial;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public Map<NodePortTuple, SwitchPortBandwidth> getBandwidthConsumption() {
+		return bandwidth;
+	}
+
+	public SwitchPortBandwidth getBandwidthConsumption(DatapathId dpid, OFPort p) {
+		return bandwidth.get(new NodePortTuple(dpid, p));
+	}
+
+	/**
+	 * @return ports whose bandwidth was measured in this round, the rest keep values of earlier rounds
+	 */
+	public Set<NodePortTuple> getUpdatedPorts() {
+		return updatedPorts;
+	}
+
+	/**
+	 * @return true if only adaptively sampled ports were measured, false after a regular round
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+}
@@ -3,6 +3,8 @@ package net.floodlightcontroller.statistics;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.primitives.UnsignedLong;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import javafx.util.Pair;
 import net.floodlightcontroller.core.IOFSwitch;
@@ -28,11 +30,16 @@ import pl.sszwaczyk.link.LinkSpeedConfig;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.Thread.State;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class StatisticsCollector implements IFloodlightModule, IStatisticsService {
 	private static final Logger log = LoggerFactory.getLogger(StatisticsCollector.class);
@@ -50,9 +57,18 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	private static int portStatsInterval = 10; /* could be set by REST API, so not final */
 	private static int flowStatsInterval = 11;
 
+	private static int minSwitchRequestIntervalMs = 500;
+
+	private static boolean adaptiveSamplingEnabled = false;
+	private static int adaptiveMinPeriodMs = 250;
+	private static double adaptiveHotUtilization = 0.7;
+	private static double adaptiveUtilizationChange = 0.1;
+	private static int adaptivePinMs = 30000;
+
 	private static ScheduledFuture<?> portStatsCollector;
 	private static ScheduledFuture<?> flowStatsCollector;
 	private static ScheduledFuture<?> portDescCollector;
+	private static ScheduledFuture<?> adaptivePortSampler;
 
 	private static final long BITS_PER_BYTE = 8;
 	private static final long MILLIS_PER_SEC = 1000;
@@ -60,18 +76,181 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	private static final String PORT_STATS_INIT_DELAY_STR = "initCollectionIntervalPortStatsDelaySeconds";
 	private static final String INTERVAL_PORT_STATS_STR = "collectionIntervalPortStatsSeconds";
 	private static final String ENABLED_STR = "enable";
+	private static final String MIN_SWITCH_REQUEST_INTERVAL_STR = "minSwitchRequestIntervalMs";
+	private static final String ADAPTIVE_SAMPLING_STR = "adaptiveSamplingEnabled";
+	private static final String ADAPTIVE_MIN_PERIOD_STR = "adaptiveMinPeriodMs";
+	private static final String ADAPTIVE_HOT_UTILIZATION_STR = "adaptiveHotUtilization";
+	private static final String ADAPTIVE_UTILIZATION_CHANGE_STR = "adaptiveUtilizationChange";
+	private static final String ADAPTIVE_PIN_STR = "adaptivePinMs";
 
 	private static final String LINKS_SPEED_CONFIG_FILE_STR = "linksSpeedConfigFile";
 
-	private static final HashMap<NodePortTuple, SwitchPortBandwidth> portStats = new HashMap<NodePortTuple, SwitchPortBandwidth>();
-	private static final HashMap<NodePortTuple, SwitchPortBandwidth> tentativePortStats = new HashMap<NodePortTuple, SwitchPortBandwidth>();
+	/* replies of different switches are handled concurrently, each one only touches its own ports */
+	private static final ConcurrentHashMap<NodePortTuple, SwitchPortBandwidth> portStats = new ConcurrentHashMap<NodePortTuple, SwitchPortBandwidth>();
+	private static final ConcurrentHashMap<NodePortTuple, SwitchPortBandwidth> tentativePortStats = new ConcurrentHashMap<NodePortTuple, SwitchPortBandwidth>();
 
-	private static final HashMap<Pair<Match,DatapathId>, FlowRuleStats> flowStats = new HashMap<Pair<Match,DatapathId>,FlowRuleStats>();
+	/* replaced at the end of each flow stats round */
+	private static volatile Map<Pair<Match,DatapathId>, FlowRuleStats> flowStats = Collections.emptyMap();
 	
-	private static final HashMap<NodePortTuple, PortDesc> portDesc = new HashMap<NodePortTuple, PortDesc>();
+	private static final ConcurrentHashMap<NodePortTuple, PortDesc> portDesc = new ConcurrentHashMap<NodePortTuple, PortDesc>();
+
+	/* per switch and statistics type, for rate limiting */
+	private static final Set<Pair<DatapathId, OFStatsType>> pendingRequests = ConcurrentHashMap.newKeySet();
+	private static final ConcurrentHashMap<Pair<DatapathId, OFStatsType>, Long> lastRequests = new ConcurrentHashMap<Pair<DatapathId, OFStatsType>, Long>();
+
+	private static final ConcurrentHashMap<DatapathId, CollectionLatencyHistogram> collectionLatency = new ConcurrentHashMap<DatapathId, CollectionLatencyHistogram>();
 
 	private Map<NodePortTuple, Long> linksSpeedConfig = new HashMap<>();
 
+	private final List<IStatisticsListener> listeners = new CopyOnWriteArrayList<IStatisticsListener>();
+	private static volatile PortStatisticsSnapshot portStatsSnapshot = PortStatisticsSnapshot.EMPTY;
+
+	private final PortStatsCollector portStatsRound = new PortStatsCollector();
+	protected final AdaptivePortSampler sampler = new AdaptivePortSampler();
+
+
+	/**
+	 * One collection round of a statistics type from all switches, run periodically.
+	 * Requests are spread evenly over the first quarter of the interval, so switches are
+	 * not all asked at once, and replies are handled by callbacks of the futures returned by
+	 * {@link IOFSwitch#writeStatsRequest}, so no thread waits for a switch. Requests still
+	 * pending half an interval after the last one was sent are cancelled and the round
+	 * completes without them; a slow switch only misses its own update.
+	 *
+	 * A switch is not asked for the same statistics again while its previous request is
+	 * pending, nor more often than every minSwitchRequestIntervalMs.
+	 *
+	 * @param <R> state collected from replies during one round
+	 */
+	protected abstract class StatsRoundCollector<R> implements Runnable {
+		private final OFStatsType statsType;
+
+		protected StatsRoundCollector(OFStatsType statsType) {
+			this.statsType = statsType;
+		}
+
+		protected abstract int getIntervalSeconds();
+
+		protected abstract R startRound();
+
+		/** Called concurrently for replies of different switches. */
+		protected abstract void handleReply(R state, DatapathId dpid, List<OFStatsReply> replies);
+
+		protected abstract void completeRound(R state);
+
+		@Override
+		public void run() {
+			List<DatapathId> dpids = new ArrayList<DatapathId>(switchService.getAllSwitchDpids());
+			long intervalMs = getIntervalSeconds() * MILLIS_PER_SEC;
+			long spreadMs = intervalMs / 4;
+			Round round = new Round(startRound(), dpids.size());
+			if (dpids.isEmpty()) {
+				round.complete();
+				return;
+			}
+			ScheduledExecutorService ses = threadPoolService.getScheduledExecutor();
+			for (int i = 0; i < dpids.size(); i++) {
+				DatapathId dpid = dpids.get(i);
+				ses.schedule(() -> request(round, dpid), spreadMs * i / dpids.size(), TimeUnit.MILLISECONDS);
+			}
+			ses.schedule(round::expire, spreadMs + intervalMs / 2, TimeUnit.MILLISECONDS);
+		}
+
+		@SuppressWarnings("unchecked")
+		private void request(Round round, DatapathId dpid) {
+			IOFSwitch sw = switchService.getSwitch(dpid);
+			OFStatsRequest<?> req = sw == null ? null : buildStatsRequest(sw, statsType);
+			Pair<DatapathId, OFStatsType> key = new Pair<DatapathId, OFStatsType>(dpid, statsType);
+			long now = System.currentTimeMillis();
+			Long last = lastRequests.get(key);
+			if (round.isCompleted() || req == null
+					|| (last != null && now - last < minSwitchRequestIntervalMs)
+					|| !pendingRequests.add(key)) {
+				round.switchDone();
+				return;
+			}
+			lastRequests.put(key, now);
+
+			long start = System.nanoTime();
+			ListenableFuture<?> future;
+			try {
+				future = sw.writeStatsRequest(req);
+			} catch (Exception e) {
+				log.error("Failure sending statistics request to switch {}. {}", sw, e);
+				pendingRequests.remove(key);
+				latencyHistogram(dpid).recordFailure();
+				round.switchDone();
+				return;
+			}
+			round.pending.put(dpid, future);
+			Futures.addCallback(future, new FutureCallback<Object>() {
+				@Override
+				public void onSuccess(Object result) {
+					pendingRequests.remove(key);
+					round.pending.remove(dpid);
+					latencyHistogram(dpid).record((System.nanoTime() - start) / 1000000);
+					if (!round.isCompleted()) {
+						try {
+							handleReply(round.state, dpid, (List<OFStatsReply>) result);
+						} catch (Exception e) {
+							log.error("Failure handling statistics of switch {}", dpid, e);
+						}
+					}
+					round.switchDone();
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					pendingRequests.remove(key);
+					round.pending.remove(dpid);
+					if (t instanceof CancellationException) {
+						log.warn("Switch {} did not reply to {} statistics request in time", dpid, statsType);
+						latencyHistogram(dpid).recordTimeout();
+					} else {
+						log.error("Failure retrieving statistics from switch {}. {}", sw, t);
+						latencyHistogram(dpid).recordFailure();
+					}
+					round.switchDone();
+				}
+			}, threadPoolService.getScheduledExecutor());
+		}
+
+		private class Round {
+			private final R state;
+			private final AtomicInteger remaining;
+			private final AtomicBoolean completed = new AtomicBoolean(false);
+			private final Map<DatapathId, ListenableFuture<?>> pending = new ConcurrentHashMap<DatapathId, ListenableFuture<?>>();
+
+			private Round(R state, int switches) {
+				this.state = state;
+				this.remaining = new AtomicInteger(switches);
+			}
+
+			private boolean isCompleted() {
+				return completed.get();
+			}
+
+			private void switchDone() {
+				if (remaining.decrementAndGet() == 0) {
+					complete();
+				}
+			}
+
+			/* deadline of the round, whatever did not reply yet is not waited for */
+			private void expire() {
+				for (ListenableFuture<?> f : pending.values()) {
+					f.cancel(false);
+				}
+				complete();
+			}
+
+			private void complete() {
+				if (completed.compareAndSet(false, true)) {
+					completeRound(state);
+				}
+			}
+		}
+	}
 
 	/**
 	 * Run periodically to collect all port statistics. This only collects
@@ -92,61 +271,81 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	 * @author Ryan Izard, ryan.izard@bigswitch.com, rizard@g.clemson.edu
 	 *
 	 */
-	protected class PortStatsCollector implements Runnable {
+	protected class PortStatsCollector extends StatsRoundCollector<Set<NodePortTuple>> {
+
+		public PortStatsCollector() {
+			super(OFStatsType.PORT);
+		}
 
 		@Override
-		public void run() {
-			Map<DatapathId, List<OFStatsReply>> replies = getSwitchStatistics(switchService.getAllSwitchDpids(), OFStatsType.PORT);
-			for (Entry<DatapathId, List<OFStatsReply>> e : replies.entrySet()) {
-				for (OFStatsReply r : e.getValue()) {
-					OFPortStatsReply psr = (OFPortStatsReply) r;
-					for (OFPortStatsEntry pse : psr.getEntries()) {
-						NodePortTuple npt = new NodePortTuple(e.getKey(), pse.getPortNo());
-						SwitchPortBandwidth spb;
-						if (portStats.containsKey(npt) || tentativePortStats.containsKey(npt)) {
-							if (portStats.containsKey(npt)) { /* update */
-								spb = portStats.get(npt);
-							} else if (tentativePortStats.containsKey(npt)) { /* finish */
-								spb = tentativePortStats.get(npt);
-								tentativePortStats.remove(npt);
-							} else {
-								log.error("Inconsistent state between tentative and official port stats lists.");
-								return;
-							}
+		protected int getIntervalSeconds() {
+			return portStatsInterval;
+		}
 
-							/* Get counted bytes over the elapsed period. Check for counter overflow. */
-							U64 rxBytesCounted;
-							U64 txBytesCounted;
-							if (spb.getPriorByteValueRx().compareTo(pse.getRxBytes()) > 0) { /* overflow */
-								U64 upper = U64.NO_MASK.subtract(spb.getPriorByteValueRx());
-								U64 lower = pse.getRxBytes();
-								rxBytesCounted = upper.add(lower);
-							} else {
-								rxBytesCounted = pse.getRxBytes().subtract(spb.getPriorByteValueRx());
-							}
-							if (spb.getPriorByteValueTx().compareTo(pse.getTxBytes()) > 0) { /* overflow */
-								U64 upper = U64.NO_MASK.subtract(spb.getPriorByteValueTx());
-								U64 lower = pse.getTxBytes();
-								txBytesCounted = upper.add(lower);
-							} else {
-								txBytesCounted = pse.getTxBytes().subtract(spb.getPriorByteValueTx());
-							}
-							long speed = getSpeed(npt);
-							double timeDifSec = ((System.nanoTime() - spb.getStartTime_ns()) * 1.0 / 1000000) / MILLIS_PER_SEC;
-							portStats.put(npt, SwitchPortBandwidth.of(npt.getNodeId(), npt.getPortId(), 
-									U64.ofRaw(speed),
-									U64.ofRaw(Math.round((rxBytesCounted.getValue() * BITS_PER_BYTE) / timeDifSec)),
-									U64.ofRaw(Math.round((txBytesCounted.getValue() * BITS_PER_BYTE) / timeDifSec)),
-									pse.getRxBytes(), pse.getTxBytes())
-									);
-
-						} else { /* initialize */
-							tentativePortStats.put(npt, SwitchPortBandwidth.of(npt.getNodeId(), npt.getPortId(), U64.ZERO, U64.ZERO, U64.ZERO, pse.getRxBytes(), pse.getTxBytes()));
+		@Override
+		protected Set<NodePortTuple> startRound() {
+			return ConcurrentHashMap.newKeySet();
+		}
+
+		@Override
+		protected void handleReply(Set<NodePortTuple> updated, DatapathId dpid, List<OFStatsReply> replies) {
+			for (OFStatsReply r : replies) {
+				OFPortStatsReply psr = (OFPortStatsReply) r;
+				for (OFPortStatsEntry pse : psr.getEntries()) {
+					NodePortTuple npt = new NodePortTuple(dpid, pse.getPortNo());
+					SwitchPortBandwidth spb;
+					if (portStats.containsKey(npt) || tentativePortStats.containsKey(npt)) {
+						if (portStats.containsKey(npt)) { /* update */
+							spb = portStats.get(npt);
+						} else if (tentativePortStats.containsKey(npt)) { /* finish */
+							spb = tentativePortStats.get(npt);
+							tentativePortStats.remove(npt);
+						} else {
+							log.error("Inconsistent state between tentative and official port stats lists.");
+							return;
 						}
+
+						/* Get counted bytes over the elapsed period. Check for counter overflow. */
+						U64 rxBytesCounted;
+						U64 txBytesCounted;
+						if (spb.getPriorByteValueRx().compareTo(pse.getRxBytes()) > 0) { /* overflow */
+							U64 upper = U64.NO_MASK.subtract(spb.getPriorByteValueRx());
+							U64 lower = pse.getRxBytes();
+							rxBytesCounted = upper.add(lower);
+						} else {
+							rxBytesCounted = pse.getRxBytes().subtract(spb.getPriorByteValueRx());
+						}
+						if (spb.getPriorByteValueTx().compareTo(pse.getTxBytes()) > 0) { /* overflow */
+							U64 upper = U64.NO_MASK.subtract(spb.getPriorByteValueTx());
+							U64 lower = pse.getTxBytes();
+							txBytesCounted = upper.add(lower);
+						} else {
+							txBytesCounted = pse.getTxBytes().subtract(spb.getPriorByteValueTx());
+						}
+						long speed = getSpeed(npt);
+						double timeDifSec = ((System.nanoTime() - spb.getStartTime_ns()) * 1.0 / 1000000) / MILLIS_PER_SEC;
+						portStats.put(npt, SwitchPortBandwidth.of(npt.getNodeId(), npt.getPortId(), 
+								U64.ofRaw(speed),
+								U64.ofRaw(Math.round((rxBytesCounted.getValue() * BITS_PER_BYTE) / timeDifSec)),
+								U64.ofRaw(Math.round((txBytesCounted.getValue() * BITS_PER_BYTE) / timeDifSec)),
+								pse.getRxBytes(), pse.getTxBytes())
+								);
+						updated.add(npt);
+
+					} else { /* initialize */
+						tentativePortStats.put(npt, SwitchPortBandwidth.of(npt.getNodeId(), npt.getPortId(), U64.ZERO, U64.ZERO, U64.ZERO, pse.getRxBytes(), pse.getTxBytes()));
 					}
 				}
 			}
+		}
+
+		@Override
+		protected void completeRound(Set<NodePortTuple> updated) {
 			log.info("Port statistics collected");
+			PortStatisticsSnapshot snapshot = publishPortStats(updated, false);
+			if (adaptiveSamplingEnabled) {
+				sampler.roundCompleted(snapshot);
+			}
 		}
 
 		protected long getSpeed(NodePortTuple npt) {
@@ -198,34 +397,53 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	/**
 	 * Run periodically to collect all flow statistics from every switch.
 	 */
-	protected class FlowStatsCollector implements Runnable {
+	protected class FlowStatsCollector extends StatsRoundCollector<Map<Pair<Match, DatapathId>, FlowRuleStats>> {
+
+		public FlowStatsCollector() {
+			super(OFStatsType.FLOW);
+		}
+
 		@Override
-		public void run() {
-			flowStats.clear(); // to clear expired flows
-			Map<DatapathId, List<OFStatsReply>> replies = getSwitchStatistics(switchService.getAllSwitchDpids(), OFStatsType.FLOW);
-			for (Entry<DatapathId, List<OFStatsReply>> e : replies.entrySet()) {
-				IOFSwitch sw = switchService.getSwitch(e.getKey());
-				for (OFStatsReply r : e.getValue()) {
-					OFFlowStatsReply psr = (OFFlowStatsReply) r;
-					for (OFFlowStatsEntry pse : psr.getEntries()) {
-						if(sw.getOFFactory().getVersion().compareTo(OFVersion.OF_15) == 0){
-							log.warn("Flow Stats not supported in OpenFlow 1.5.");
+		protected int getIntervalSeconds() {
+			return flowStatsInterval;
+		}
 
-						} else {
-							Pair<Match, DatapathId> pair = new Pair<Match,DatapathId>(pse.getMatch(),e.getKey());
-							flowStats.put(pair,FlowRuleStats.of(
-									e.getKey(),
-									pse.getByteCount(),
-									pse.getPacketCount(),
-									pse.getPriority(),
-									pse.getHardTimeout(),
-									pse.getIdleTimeout(),
-									pse.getDurationSec()));
-						}
+		@Override
+		protected Map<Pair<Match, DatapathId>, FlowRuleStats> startRound() {
+			return new ConcurrentHashMap<Pair<Match, DatapathId>, FlowRuleStats>();
+		}
+
+		@Override
+		protected void handleReply(Map<Pair<Match, DatapathId>, FlowRuleStats> flows, DatapathId dpid, List<OFStatsReply> replies) {
+			IOFSwitch sw = switchService.getSwitch(dpid);
+			if (sw == null) {
+				return;
+			}
+			for (OFStatsReply r : replies) {
+				OFFlowStatsReply psr = (OFFlowStatsReply) r;
+				for (OFFlowStatsEntry pse : psr.getEntries()) {
+					if(sw.getOFFactory().getVersion().compareTo(OFVersion.OF_15) == 0){
+						log.warn("Flow Stats not supported in OpenFlow 1.5.");
+
+					} else {
+						Pair<Match, DatapathId> pair = new Pair<Match,DatapathId>(pse.getMatch(),dpid);
+						flows.put(pair,FlowRuleStats.of(
+								dpid,
+								pse.getByteCount(),
+								pse.getPacketCount(),
+								pse.getPriority(),
+								pse.getHardTimeout(),
+								pse.getIdleTimeout(),
+								pse.getDurationSec()));
 					}
 				}
 			}
 		}
+
+		@Override
+		protected void completeRound(Map<Pair<Match, DatapathId>, FlowRuleStats> flows) {
+			flowStats = flows; /* replaces all, expired flows are dropped */
+		}
 	}
 
 	
@@ -233,60 +451,276 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	 *  Run periodically to collect port description from every switch and port, so it is possible to know its state and configuration.
 	 * Used in Load balancer to determine if a port is enabled.
 	 */
-	private class PortDescCollector implements Runnable {
+	private class PortDescCollector extends StatsRoundCollector<Void> {
+
+		public PortDescCollector() {
+			super(OFStatsType.PORT_DESC);
+		}
+
 		@Override
-		public void run() {
-			Map<DatapathId, List<OFStatsReply>> replies = getSwitchStatistics(switchService.getAllSwitchDpids(), OFStatsType.PORT_DESC);
-			for (Entry<DatapathId, List<OFStatsReply>> e : replies.entrySet()) {
-				for (OFStatsReply r : e.getValue()) {
-					OFPortDescStatsReply psr = (OFPortDescStatsReply) r;	
-					for (OFPortDesc pse : psr.getEntries()) {
-						NodePortTuple npt = new NodePortTuple(e.getKey(), pse.getPortNo());
-						portDesc.put(npt,PortDesc.of(e.getKey(),
-								pse.getPortNo(),
-								pse.getName(),
-								pse.getState(),
-								pse.getConfig(),
-								pse.isEnabled()));						
-					}
+		protected int getIntervalSeconds() {
+			return portStatsInterval;
+		}
+
+		@Override
+		protected Void startRound() {
+			return null;
+		}
+
+		@Override
+		protected void handleReply(Void state, DatapathId dpid, List<OFStatsReply> replies) {
+			for (OFStatsReply r : replies) {
+				OFPortDescStatsReply psr = (OFPortDescStatsReply) r;	
+				for (OFPortDesc pse : psr.getEntries()) {
+					NodePortTuple npt = new NodePortTuple(dpid, pse.getPortNo());
+					portDesc.put(npt,PortDesc.of(dpid,
+							pse.getPortNo(),
+							pse.getName(),
+							pse.getState(),
+							pse.getConfig(),
+							pse.isEnabled()));						
 				}
 			}
 		}
-	}
 
+		@Override
+		protected void completeRound(Void state) {
+		}
+	}
 
 	/**
-	 * Single thread for collecting switch statistics and
-	 * containing the reply.
-	 * 
-	 * @author Ryan Izard, ryan.izard@bigswitch.com, rizard@g.clemson.edu
+	 * Samples busy ports more often than the regular port statistics round. A port is
+	 * sampled adaptively when its utilization is at least adaptiveHotUtilization or changed
+	 * by at least adaptiveUtilizationChange since its previous sample, and for adaptivePinMs
+	 * after it was passed to {@link #sampleFrequently(Collection)}. Such ports are sampled
+	 * every adaptiveMinPeriodMs; otherwise the period doubles with every sample until it
+	 * reaches the collection interval, and the port is left to the regular rounds again.
 	 *
+	 * The due ports of a switch are sampled with one request for all of its ports, under
+	 * the same per-switch limits as the regular rounds: not while another port statistics
+	 * request to the switch is pending, nor more often than every minSwitchRequestIntervalMs.
+	 *
+	 * Samples are published as a new partial {@link PortStatisticsSnapshot} at most once per
+	 * adaptiveMinPeriodMs.
 	 */
-	private class GetStatisticsThread extends Thread {
-		private List<OFStatsReply> statsReply;
-		private DatapathId switchId;
-		private OFStatsType statType;
-
-		public GetStatisticsThread(DatapathId switchId, OFStatsType statType) {
-			this.switchId = switchId;
-			this.statType = statType;
-			this.statsReply = null;
+	protected class AdaptivePortSampler implements Runnable {
+		private final ConcurrentHashMap<NodePortTuple, AdaptivePortState> ports = new ConcurrentHashMap<NodePortTuple, AdaptivePortState>();
+		private final Set<NodePortTuple> sampled = ConcurrentHashMap.newKeySet();
+		/* utilization of ports not sampled adaptively at their previous sample */
+		private final ConcurrentHashMap<NodePortTuple, Double> lastUtilization = new ConcurrentHashMap<NodePortTuple, Double>();
+
+		private void roundCompleted(PortStatisticsSnapshot snapshot) {
+			long now = System.currentTimeMillis();
+			for (NodePortTuple npt : snapshot.getUpdatedPorts()) {
+				enrol(npt, snapshot.getBandwidthConsumption().get(npt), now);
+			}
 		}
 
-		public List<OFStatsReply> getStatisticsReply() {
-			return statsReply;
+		/* starts sampling a port adaptively if it is hot or its utilization is changing quickly */
+		private void enrol(NodePortTuple npt, SwitchPortBandwidth spb, long now) {
+			if (npt.getPortId().getPortNumber() <= 0 || ports.containsKey(npt)) {
+				return;
+			}
+			double utilization = utilization(spb);
+			Double previous = lastUtilization.put(npt, utilization);
+			if (utilization >= adaptiveHotUtilization
+					|| (previous != null && Math.abs(utilization - previous) >= adaptiveUtilizationChange)) {
+				AdaptivePortState state = new AdaptivePortState(now);
+				state.lastUtilization = utilization;
+				if (ports.putIfAbsent(npt, state) == null) {
+					lastUtilization.remove(npt);
+				}
+			}
 		}
 
-		public DatapathId getSwitchId() {
-			return switchId;
+		private void pin(Collection<NodePortTuple> npts) {
+			long now = System.currentTimeMillis();
+			for (NodePortTuple npt : npts) {
+				if (npt.getPortId().getPortNumber() <= 0) {
+					continue;
+				}
+				AdaptivePortState state = ports.computeIfAbsent(npt, k -> new AdaptivePortState(now));
+				state.pinnedUntilMs = now + adaptivePinMs;
+				state.periodMs = adaptiveMinPeriodMs;
+			}
 		}
 
 		@Override
 		public void run() {
-			statsReply = getSwitchStatistics(switchId, statType);
+			try {
+				publishSampled();
+				long now = System.currentTimeMillis();
+				Map<DatapathId, Map<NodePortTuple, AdaptivePortState>> due = new HashMap<DatapathId, Map<NodePortTuple, AdaptivePortState>>();
+				for (Entry<NodePortTuple, AdaptivePortState> e : ports.entrySet()) {
+					AdaptivePortState state = e.getValue();
+					if (now >= state.nextSampleMs && !state.pending.get()) {
+						due.computeIfAbsent(e.getKey().getNodeId(), k -> new HashMap<NodePortTuple, AdaptivePortState>())
+								.put(e.getKey(), state);
+					}
+				}
+				for (Entry<DatapathId, Map<NodePortTuple, AdaptivePortState>> e : due.entrySet()) {
+					request(e.getKey(), e.getValue(), now);
+				}
+			} catch (Exception e) {
+				log.error("Adaptive port sampling failed", e);
+			}
+		}
+
+		private void publishSampled() {
+			if (sampled.isEmpty()) {
+				return;
+			}
+			Set<NodePortTuple> updated = new HashSet<NodePortTuple>();
+			for (Iterator<NodePortTuple> it = sampled.iterator(); it.hasNext(); ) {
+				updated.add(it.next());
+				it.remove();
+			}
+			publishPortStats(updated, true);
+		}
+
+		@SuppressWarnings("unchecked")
+		private void request(DatapathId dpid, Map<NodePortTuple, AdaptivePortState> due, long now) {
+			IOFSwitch sw = switchService.getSwitch(dpid);
+			for (Iterator<NodePortTuple> it = due.keySet().iterator(); it.hasNext(); ) {
+				NodePortTuple npt = it.next();
+				if (sw == null || sw.getPort(npt.getPortId()) == null) {
+					ports.remove(npt);
+					it.remove();
+				}
+			}
+			OFStatsRequest<?> req = due.isEmpty() ? null : buildStatsRequest(sw, OFStatsType.PORT);
+			Pair<DatapathId, OFStatsType> key = new Pair<DatapathId, OFStatsType>(dpid, OFStatsType.PORT);
+			Long last = lastRequests.get(key);
+			if (req == null
+					|| (last != null && now - last < minSwitchRequestIntervalMs)
+					|| !pendingRequests.add(key)) {
+				return;
+			}
+			lastRequests.put(key, now);
+			for (AdaptivePortState state : due.values()) {
+				state.pending.set(true);
+				state.nextSampleMs = now + state.periodMs;
+			}
+
+			long start = System.nanoTime();
+			ListenableFuture<?> future;
+			try {
+				future = sw.writeStatsRequest(req);
+			} catch (Exception e) {
+				log.error("Failure sending port statistics request to switch {}. {}", sw, e);
+				pendingRequests.remove(key);
+				latencyHistogram(dpid).recordFailure();
+				requestDone(due);
+				return;
+			}
+			Futures.addCallback(future, new FutureCallback<Object>() {
+				@Override
+				public void onSuccess(Object result) {
+					pendingRequests.remove(key);
+					latencyHistogram(dpid).record((System.nanoTime() - start) / 1000000);
+					try {
+						Set<NodePortTuple> updated = new HashSet<NodePortTuple>();
+						portStatsRound.handleReply(updated, dpid, (List<OFStatsReply>) result);
+						long sampledAt = System.currentTimeMillis();
+						for (NodePortTuple npt : updated) {
+							AdaptivePortState state = due.get(npt);
+							if (state != null) {
+								adapt(npt, state, portStats.get(npt));
+							} else {
+								enrol(npt, portStats.get(npt), sampledAt);
+							}
+						}
+						sampled.addAll(updated);
+					} catch (Exception e) {
+						log.error("Failure handling port statistics of switch {}", dpid, e);
+					}
+					requestDone(due);
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					pendingRequests.remove(key);
+					log.error("Failure retrieving port statistics from switch {}. {}", sw, t);
+					latencyHistogram(dpid).recordFailure();
+					requestDone(due);
+				}
+			}, threadPoolService.getScheduledExecutor());
+		}
+
+		private void requestDone(Map<NodePortTuple, AdaptivePortState> due) {
+			for (AdaptivePortState state : due.values()) {
+				state.pending.set(false);
+			}
+		}
+
+		private void adapt(NodePortTuple npt, AdaptivePortState state, SwitchPortBandwidth spb) {
+			double utilization = utilization(spb);
+			boolean busy = System.currentTimeMillis() < state.pinnedUntilMs
+					|| utilization >= adaptiveHotUtilization
+					|| Math.abs(utilization - state.lastUtilization) >= adaptiveUtilizationChange;
+			state.lastUtilization = utilization;
+			if (busy) {
+				state.periodMs = adaptiveMinPeriodMs;
+			} else {
+				state.periodMs = state.periodMs * 2;
+				if (state.periodMs >= portStatsInterval * MILLIS_PER_SEC && ports.remove(npt, state)) {
+					lastUtilization.put(npt, utilization);
+				}
+			}
+		}
+
+		private List<PortSamplingRate> getSamplingRates() {
+			long now = System.currentTimeMillis();
+			long regular = portStatsInterval * MILLIS_PER_SEC;
+			List<PortSamplingRate> rates = new ArrayList<PortSamplingRate>();
+			for (NodePortTuple npt : portStatsSnapshot.getBandwidthConsumption().keySet()) {
+				AdaptivePortState state = ports.get(npt);
+				rates.add(state == null
+						? new PortSamplingRate(npt.getNodeId().toString(), npt.getPortId().getPortNumber(), regular, false, false)
+						: new PortSamplingRate(npt.getNodeId().toString(), npt.getPortId().getPortNumber(),
+								state.periodMs, true, now < state.pinnedUntilMs));
+			}
+			return rates;
 		}
 	}
 
+	private static class AdaptivePortState {
+		private volatile long periodMs = adaptiveMinPeriodMs;
+		private volatile long nextSampleMs;
+		private volatile long pinnedUntilMs;
+		private volatile double lastUtilization;
+		private final AtomicBoolean pending = new AtomicBoolean(false);
+
+		private AdaptivePortState(long now) {
+			this.nextSampleMs = now;
+		}
+	}
+
+	private static double utilization(SwitchPortBandwidth spb) {
+		return spb == null ? 0 : Math.max(spb.getRxUtilization(), spb.getTxUtilization());
+	}
+
+	/**
+	 * Publish current port statistics as a new snapshot to listeners. Synchronized, so
+	 * listeners get snapshots one at a time and in order of versions.
+	 * @param updated ports measured since the previous snapshot
+	 * @param partial true for adaptive samples between regular rounds
+	 * @return published snapshot
+	 */
+	private synchronized PortStatisticsSnapshot publishPortStats(Set<NodePortTuple> updated, boolean partial) {
+		PortStatisticsSnapshot snapshot = new PortStatisticsSnapshot(portStatsSnapshot.getVersion() + 1,
+				System.currentTimeMillis(), portStats, updated, partial);
+		portStatsSnapshot = snapshot;
+		for (IStatisticsListener listener : listeners) {
+			try {
+				listener.portStatisticsCollected(snapshot);
+			} catch (Exception e) {
+				log.error("Statistics listener {} failed", listener, e);
+			}
+		}
+		return snapshot;
+	}
+
 	/*
 	 * IFloodlightModule implementation
 	 */
@@ -354,6 +788,60 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 		}
 		log.info("Port statistics collection interval set to {}s", portStatsInterval);
 
+		if (config.containsKey(MIN_SWITCH_REQUEST_INTERVAL_STR)) {
+			try {
+				minSwitchRequestIntervalMs = Integer.parseInt(config.get(MIN_SWITCH_REQUEST_INTERVAL_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of {}", MIN_SWITCH_REQUEST_INTERVAL_STR, minSwitchRequestIntervalMs);
+			}
+		}
+		log.info("Minimum interval between statistics requests to a switch set to {}ms", minSwitchRequestIntervalMs);
+
+		if (config.containsKey(ADAPTIVE_SAMPLING_STR)) {
+			try {
+				adaptiveSamplingEnabled = Boolean.parseBoolean(config.get(ADAPTIVE_SAMPLING_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of {}", ADAPTIVE_SAMPLING_STR, adaptiveSamplingEnabled);
+			}
+		}
+		log.info("Adaptive port statistics sampling {}", adaptiveSamplingEnabled ? "enabled" : "disabled");
+
+		if (config.containsKey(ADAPTIVE_MIN_PERIOD_STR)) {
+			try {
+				adaptiveMinPeriodMs = Integer.parseInt(config.get(ADAPTIVE_MIN_PERIOD_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of {}", ADAPTIVE_MIN_PERIOD_STR, adaptiveMinPeriodMs);
+			}
+		}
+		log.info("Adaptive sampling minimum period set to {}ms", adaptiveMinPeriodMs);
+
+		if (config.containsKey(ADAPTIVE_HOT_UTILIZATION_STR)) {
+			try {
+				adaptiveHotUtilization = Double.parseDouble(config.get(ADAPTIVE_HOT_UTILIZATION_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of {}", ADAPTIVE_HOT_UTILIZATION_STR, adaptiveHotUtilization);
+			}
+		}
+		log.info("Adaptive sampling hot utilization set to {}", adaptiveHotUtilization);
+
+		if (config.containsKey(ADAPTIVE_UTILIZATION_CHANGE_STR)) {
+			try {
+				adaptiveUtilizationChange = Double.parseDouble(config.get(ADAPTIVE_UTILIZATION_CHANGE_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of {}", ADAPTIVE_UTILIZATION_CHANGE_STR, adaptiveUtilizationChange);
+			}
+		}
+		log.info("Adaptive sampling utilization change set to {}", adaptiveUtilizationChange);
+
+		if (config.containsKey(ADAPTIVE_PIN_STR)) {
+			try {
+				adaptivePinMs = Integer.parseInt(config.get(ADAPTIVE_PIN_STR).trim());
+			} catch (Exception e) {
+				log.error("Could not parse '{}'. Using default of {}", ADAPTIVE_PIN_STR, adaptivePinMs);
+			}
+		}
+		log.info("Adaptive sampling of ports on chosen paths set to {}ms", adaptivePinMs);
+
 		if (config.containsKey(LINKS_SPEED_CONFIG_FILE_STR)) {
 			log.info("Loading links speed from file: " + LINKS_SPEED_CONFIG_FILE_STR);
 			try {
@@ -434,21 +922,48 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	@Override
 	public Set<FlowRuleStats> getFlowStats(DatapathId dpid){
 		Set<FlowRuleStats> frs = new HashSet<FlowRuleStats>();
-		for(Pair<Match,DatapathId> pair: flowStats.keySet()){
-			if(pair.getValue().equals(dpid))
-				frs.add(flowStats.get(pair));
+		for(Entry<Pair<Match,DatapathId>, FlowRuleStats> e: flowStats.entrySet()){
+			if(e.getKey().getValue().equals(dpid))
+				frs.add(e.getValue());
 		}
 		return frs;
 	}
 
 	@Override
 	public SwitchPortBandwidth getBandwidthConsumption(DatapathId dpid, OFPort p) {
-		return portStats.get(new NodePortTuple(dpid, p));
+		return portStatsSnapshot.getBandwidthConsumption(dpid, p);
 	}
 
 	@Override
 	public Map<NodePortTuple, SwitchPortBandwidth> getBandwidthConsumption() {
-		return Collections.unmodifiableMap(portStats);
+		return portStatsSnapshot.getBandwidthConsumption();
+	}
+
+	@Override
+	public PortStatisticsSnapshot getPortStatisticsSnapshot() {
+		return portStatsSnapshot;
+	}
+
+	@Override
+	public Map<DatapathId, CollectionLatencyHistogram> getCollectionLatency() {
+		return Collections.unmodifiableMap(collectionLatency);
+	}
+
+	@Override
+	public CollectionLatencyHistogram getCollectionLatency(DatapathId dpid) {
+		return collectionLatency.get(dpid);
+	}
+
+	@Override
+	public void sampleFrequently(Collection<NodePortTuple> ports) {
+		if (adaptiveSamplingEnabled) {
+			sampler.pin(ports);
+		}
+	}
+
+	@Override
+	public List<PortSamplingRate> getPortSamplingRates() {
+		return sampler.getSamplingRates();
 	}
 
 	@Override
@@ -468,6 +983,16 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 		return isEnabled;
 	}
 
+	@Override
+	public void addStatisticsListener(IStatisticsListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void removeStatisticsListener(IStatisticsListener listener) {
+		listeners.remove(listener);
+	}
+
 	/*
 	 * Helper functions
 	 */
@@ -476,10 +1001,13 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 	 * Start all stats threads.
 	 */
 	private void startStatisticsCollection() {
-		portStatsCollector = threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new PortStatsCollector(), portStatsInitDelay, portStatsInterval, TimeUnit.SECONDS);
+		portStatsCollector = threadPoolService.getScheduledExecutor().scheduleAtFixedRate(portStatsRound, portStatsInitDelay, portStatsInterval, TimeUnit.SECONDS);
 		tentativePortStats.clear(); /* must clear out, otherwise might have huge BW result if present and wait a long time before re-enabling stats */
 		flowStatsCollector = threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new FlowStatsCollector(), portStatsInitDelay, flowStatsInterval, TimeUnit.SECONDS);
 		portDescCollector = threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new PortDescCollector(), portStatsInitDelay, portStatsInterval, TimeUnit.SECONDS);
+		if (adaptiveSamplingEnabled) {
+			adaptivePortSampler = threadPoolService.getScheduledExecutor().scheduleAtFixedRate(sampler, portStatsInitDelay * MILLIS_PER_SEC, adaptiveMinPeriodMs, TimeUnit.MILLISECONDS);
+		}
 		log.warn("Statistics collection thread(s) started");
 	}
 
@@ -492,195 +1020,134 @@ public class StatisticsCollector implements IFloodlightModule, IStatisticsServic
 		} else {
 			log.warn("Statistics collection thread(s) stopped");
 		}
-	}
-
-	/**
-	 * Retrieve the statistics from all switches in parallel.
-	 * @param dpids
-	 * @param statsType
-	 * @return
-	 */
-	private Map<DatapathId, List<OFStatsReply>> getSwitchStatistics(Set<DatapathId> dpids, OFStatsType statsType) {
-		HashMap<DatapathId, List<OFStatsReply>> model = new HashMap<DatapathId, List<OFStatsReply>>();
-
-		List<GetStatisticsThread> activeThreads = new ArrayList<GetStatisticsThread>(dpids.size());
-		List<GetStatisticsThread> pendingRemovalThreads = new ArrayList<GetStatisticsThread>();
-		GetStatisticsThread t;
-		for (DatapathId d : dpids) {
-			t = new GetStatisticsThread(d, statsType);
-			activeThreads.add(t);
-			t.start();
-		}
-
-		/* Join all the threads after the timeout. Set a hard timeout
-		 * of 12 seconds for the threads to finish. If the thread has not
-		 * finished the switch has not replied yet and therefore we won't
-		 * add the switch's stats to the reply.
-		 */
-		for (int iSleepCycles = 0; iSleepCycles < portStatsInterval; iSleepCycles++) {
-			for (GetStatisticsThread curThread : activeThreads) {
-				if (curThread.getState() == State.TERMINATED) {
-					model.put(curThread.getSwitchId(), curThread.getStatisticsReply());
-					pendingRemovalThreads.add(curThread);
-				}
-			}
-
-			/* remove the threads that have completed the queries to the switches */
-			for (GetStatisticsThread curThread : pendingRemovalThreads) {
-				activeThreads.remove(curThread);
-			}
-
-			/* clear the list so we don't try to double remove them */
-			pendingRemovalThreads.clear();
-
-			/* if we are done finish early */
-			if (activeThreads.isEmpty()) {
-				break;
-			}
-
-			try {
-				Thread.sleep(1000);
-			} catch (InterruptedException e) {
-				log.error("Interrupted while waiting for statistics", e);
-			}
+		if (adaptivePortSampler != null) {
+			adaptivePortSampler.cancel(false);
+			adaptivePortSampler = null;
 		}
-
-		return model;
 	}
 
 	/**
-	 * Get statistics from a switch.
-	 * @param switchId
+	 * Build a statistics request of the given type for a switch.
+	 * @param sw
 	 * @param statsType
-	 * @return
+	 * @return request or null if the type is not supported
 	 */
-	@SuppressWarnings("unchecked")
-	protected List<OFStatsReply> getSwitchStatistics(DatapathId switchId, OFStatsType statsType) {
-		IOFSwitch sw = switchService.getSwitch(switchId);
-		ListenableFuture<?> future;
-		List<OFStatsReply> values = null;
+	protected OFStatsRequest<?> buildStatsRequest(IOFSwitch sw, OFStatsType statsType) {
+		OFStatsRequest<?> req = null;
 		Match match;
-		if (sw != null) {
-			OFStatsRequest<?> req = null;
-			switch (statsType) {
-			case FLOW:
-				match = sw.getOFFactory().buildMatch().build();
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_11) >= 0) {
-					req = sw.getOFFactory().buildFlowStatsRequest()
-							.setMatch(match)
-							.setOutPort(OFPort.ANY)
-							.setOutGroup(OFGroup.ANY)
-							.setTableId(TableId.ALL)
-							.build();
-				} else{
-					req = sw.getOFFactory().buildFlowStatsRequest()
-							.setMatch(match)
-							.setOutPort(OFPort.ANY)
-							.setTableId(TableId.ALL)
-							.build();
-				}
-				break;
-			case AGGREGATE:
-				match = sw.getOFFactory().buildMatch().build();
-				req = sw.getOFFactory().buildAggregateStatsRequest()
+		switch (statsType) {
+		case FLOW:
+			match = sw.getOFFactory().buildMatch().build();
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_11) >= 0) {
+				req = sw.getOFFactory().buildFlowStatsRequest()
 						.setMatch(match)
 						.setOutPort(OFPort.ANY)
+						.setOutGroup(OFGroup.ANY)
 						.setTableId(TableId.ALL)
 						.build();
-				break;
-			case PORT:
-				req = sw.getOFFactory().buildPortStatsRequest()
-				.setPortNo(OFPort.ANY)
-				.build();
-				break;
-			case QUEUE:
-				req = sw.getOFFactory().buildQueueStatsRequest()
-				.setPortNo(OFPort.ANY)
-				.setQueueId(UnsignedLong.MAX_VALUE.longValue())
-				.build();
-				break;
-			case DESC:
-				req = sw.getOFFactory().buildDescStatsRequest()
-				.build();
-				break;
-			case GROUP:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildGroupStatsRequest()				
-							.build();
-				}
-				break;
-
-			case METER:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
-					req = sw.getOFFactory().buildMeterStatsRequest()
-							.setMeterId(OFMeterSerializerVer13.ALL_VAL)
-							.build();
-				}
-				break;
-
-			case GROUP_DESC:			
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildGroupDescStatsRequest()			
-							.build();
-				}
-				break;
+			} else{
+				req = sw.getOFFactory().buildFlowStatsRequest()
+						.setMatch(match)
+						.setOutPort(OFPort.ANY)
+						.setTableId(TableId.ALL)
+						.build();
+			}
+			break;
+		case AGGREGATE:
+			match = sw.getOFFactory().buildMatch().build();
+			req = sw.getOFFactory().buildAggregateStatsRequest()
+					.setMatch(match)
+					.setOutPort(OFPort.ANY)
+					.setTableId(TableId.ALL)
+					.build();
+			break;
+		case PORT:
+			req = sw.getOFFactory().buildPortStatsRequest()
+			.setPortNo(OFPort.ANY)
+			.build();
+			break;
+		case QUEUE:
+			req = sw.getOFFactory().buildQueueStatsRequest()
+			.setPortNo(OFPort.ANY)
+			.setQueueId(UnsignedLong.MAX_VALUE.longValue())
+			.build();
+			break;
+		case DESC:
+			req = sw.getOFFactory().buildDescStatsRequest()
+			.build();
+			break;
+		case GROUP:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildGroupStatsRequest()				
+						.build();
+			}
+			break;
 
-			case GROUP_FEATURES:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildGroupFeaturesStatsRequest()
-							.build();
-				}
-				break;
+		case METER:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
+				req = sw.getOFFactory().buildMeterStatsRequest()
+						.setMeterId(OFMeterSerializerVer13.ALL_VAL)
+						.build();
+			}
+			break;
 
-			case METER_CONFIG:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
-					req = sw.getOFFactory().buildMeterConfigStatsRequest()
-							.build();
-				}
-				break;
+		case GROUP_DESC:			
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildGroupDescStatsRequest()			
+						.build();
+			}
+			break;
 
-			case METER_FEATURES:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
-					req = sw.getOFFactory().buildMeterFeaturesStatsRequest()
-							.build();
-				}
-				break;
+		case GROUP_FEATURES:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildGroupFeaturesStatsRequest()
+						.build();
+			}
+			break;
 
-			case TABLE:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildTableStatsRequest()
-							.build();
-				}
-				break;
+		case METER_CONFIG:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
+				req = sw.getOFFactory().buildMeterConfigStatsRequest()
+						.build();
+			}
+			break;
 
-			case TABLE_FEATURES:	
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
-					req = sw.getOFFactory().buildTableFeaturesStatsRequest()
-							.build();		
-				}
-				break;
-			case PORT_DESC:
-				if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
-					req = sw.getOFFactory().buildPortDescStatsRequest()
-							.build();
-				}
-				break;
-			case EXPERIMENTER:		
-			default:
-				log.error("Stats Request Type {} not implemented yet", statsType.name());
-				break;
+		case METER_FEATURES:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
+				req = sw.getOFFactory().buildMeterFeaturesStatsRequest()
+						.build();
 			}
+			break;
 
-			try {
-				if (req != null) {
-					future = sw.writeStatsRequest(req); 
-					values = (List<OFStatsReply>) future.get(portStatsInterval*1000 / 2, TimeUnit.MILLISECONDS);
+		case TABLE:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildTableStatsRequest()
+						.build();
+			}
+			break;
 
-				}
-			} catch (Exception e) {
-				log.error("Failure retrieving statistics from switch {}. {}", sw, e);
+		case TABLE_FEATURES:	
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_10) > 0) {
+				req = sw.getOFFactory().buildTableFeaturesStatsRequest()
+						.build();		
 			}
+			break;
+		case PORT_DESC:
+			if (sw.getOFFactory().getVersion().compareTo(OFVersion.OF_13) >= 0) {
+				req = sw.getOFFactory().buildPortDescStatsRequest()
+						.build();
+			}
+			break;
+		case EXPERIMENTER:		
+		default:
+			log.error("Stats Request Type {} not implemented yet", statsType.name());
+			break;
 		}
-		return values;
+
+		return req;
+	}
+
+	private static CollectionLatencyHistogram latencyHistogram(DatapathId dpid) {
+		return collectionLatency.computeIfAbsent(dpid, k -> new CollectionLatencyHistogram());
 	}
 }
\ No newline at end of file
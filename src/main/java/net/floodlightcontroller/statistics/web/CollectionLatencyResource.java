@@ -0,0 +1,47 @@
+package net.floodlightcontroller.statistics.web;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.floodlightcontroller.statistics.CollectionLatencyHistogram;
+import net.floodlightcontroller.statistics.IStatisticsService;
+
+public class CollectionLatencyResource extends ServerResource {
+	private static final Logger log = LoggerFactory.getLogger(CollectionLatencyResource.class);
+
+	@Get("json")
+	public Object retrieve() {
+		IStatisticsService statisticsService = (IStatisticsService) getContext().getAttributes().get(IStatisticsService.class.getCanonicalName());
+
+		String d = (String) getRequestAttributes().get(SwitchStatisticsWebRoutable.DPID_STR);
+
+		Map<String, CollectionLatencyHistogram> latency = new HashMap<String, CollectionLatencyHistogram>();
+		if (!d.trim().equalsIgnoreCase("all")) {
+			DatapathId dpid;
+			try {
+				dpid = DatapathId.of(d);
+			} catch (Exception e) {
+				log.error("Could not parse DPID {}", d);
+				return Collections.singletonMap("ERROR", "Could not parse DPID " + d);
+			}
+			CollectionLatencyHistogram h = statisticsService.getCollectionLatency(dpid);
+			if (h != null) {
+				latency.put(dpid.toString(), h);
+			}
+			return latency;
+		}
+		for (Map.Entry<DatapathId, CollectionLatencyHistogram> e : statisticsService.getCollectionLatency().entrySet()) {
+			latency.put(e.getKey().toString(), e.getValue());
+		}
+		return latency;
+	}
+}
@@ -0,0 +1,18 @@
+package net.floodlightcontroller.statistics.web;
+
+import java.util.List;
+
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+
+import net.floodlightcontroller.statistics.IStatisticsService;
+import net.floodlightcontroller.statistics.PortSamplingRate;
+
+public class PortSamplingResource extends ServerResource {
+
+	@Get("json")
+	public List<PortSamplingRate> retrieve() {
+		IStatisticsService statisticsService = (IStatisticsService) getContext().getAttributes().get(IStatisticsService.class.getCanonicalName());
+		return statisticsService.getPortSamplingRates();
+	}
+}
@@ -19,6 +19,8 @@ public class SwitchStatisticsWebRoutable implements RestletRoutable {
         router.attach("/bandwidth/{" + DPID_STR + "}/{" + PORT_STR + "}/json", BandwidthResource.class);
         router.attach("/flow/{" + DPID_STR + "}/json", FlowResource.class);
         router.attach("/portdesc/{" + DPID_STR + "}/{" + PORT_STR + "}/json", PortDescResource.class);
+        router.attach("/latency/{" + DPID_STR + "}/json", CollectionLatencyResource.class);
+        router.attach("/sampling/json", PortSamplingResource.class);
         router.attach("/config/{" + ENABLE_STR + "}/json", ConfigResource.class);
         router.attach("/config/{" + DISABLE_STR + "}/json", ConfigResource.class);
         router.attach("/config/{" + PORT_STR + "}/{period}/json", ConfigResource.class);
@@ -0,0 +1,307 @@
+package net.floodlightcontroller.topology;
+
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.linkdiscovery.Link;
+import org.projectfloodlight.openflow.types.DatapathId;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of the links of a {@link TopologyInstance} used for path computation.
+ * Switches are numbered 0..n-1 in order of their DPIDs and links 0..m-1. The links into
+ * and out of every switch are kept in compressed sparse row form, so that Dijkstra's and
+ * Yen's algorithms run on int arrays and exclude switches and links with bitsets instead
+ * of copying maps.
+ */
+class TopologyGraph {
+    private final DatapathId[] switches;
+    private final Map<DatapathId, Integer> switchIndex;
+
+    private final Link[] links;
+    private final int[] linkSrc;
+    private final int[] linkDst;
+    private final Map<Link, Integer> linkIndex;
+    private final Map<NodePortTuple, int[]> linksIntoPort;
+
+    /* links into switch i are inLinks[inStart[i]] .. inLinks[inStart[i + 1] - 1], same for out */
+    private final int[] inStart;
+    private final int[] inLinks;
+    private final int[] outStart;
+    private final int[] outLinks;
+
+    /**
+     * @param switches switches of the topology
+     * @param links links by the ports they are attached to; links with an end
+     * outside of switches are left out
+     */
+    TopologyGraph(Set<DatapathId> switches, Map<NodePortTuple, Set<Link>> links) {
+        this.switches = switches.toArray(new DatapathId[switches.size()]);
+        Arrays.sort(this.switches);
+        this.switchIndex = new HashMap<DatapathId, Integer>();
+        for (int i = 0; i < this.switches.length; i++) {
+            switchIndex.put(this.switches[i], i);
+        }
+
+        Set<Link> all = new LinkedHashSet<Link>();
+        for (Set<Link> s : links.values()) {
+            for (Link l : s) {
+                if (l != null && switchIndex.containsKey(l.getSrc()) && switchIndex.containsKey(l.getDst())) {
+                    all.add(l);
+                }
+            }
+        }
+        this.links = all.toArray(new Link[all.size()]);
+        this.linkSrc = new int[this.links.length];
+        this.linkDst = new int[this.links.length];
+        this.linkIndex = new HashMap<Link, Integer>();
+        Map<NodePortTuple, List<Integer>> intoPort = new HashMap<NodePortTuple, List<Integer>>();
+        for (int l = 0; l < this.links.length; l++) {
+            Link link = this.links[l];
+            linkSrc[l] = switchIndex.get(link.getSrc());
+            linkDst[l] = switchIndex.get(link.getDst());
+            linkIndex.put(link, l);
+            NodePortTuple dstNpt = new NodePortTuple(link.getDst(), link.getDstPort());
+            if (!intoPort.containsKey(dstNpt)) {
+                intoPort.put(dstNpt, new ArrayList<Integer>(1));
+            }
+            intoPort.get(dstNpt).add(l);
+        }
+        this.linksIntoPort = new HashMap<NodePortTuple, int[]>();
+        for (Map.Entry<NodePortTuple, List<Integer>> e : intoPort.entrySet()) {
+            int[] a = new int[e.getValue().size()];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = e.getValue().get(i);
+            }
+            linksIntoPort.put(e.getKey(), a);
+        }
+
+        this.inStart = new int[this.switches.length + 1];
+        this.inLinks = new int[this.links.length];
+        fillRows(linkDst, inStart, inLinks);
+        this.outStart = new int[this.switches.length + 1];
+        this.outLinks = new int[this.links.length];
+        fillRows(linkSrc, outStart, outLinks);
+    }
+
+    /*
+     * Groups the links by the switch given for each of them (counting sort).
+     */
+    private static void fillRows(int[] switchOfLink, int[] start, int[] rows) {
+        for (int l = 0; l < switchOfLink.length; l++) {
+            start[switchOfLink[l] + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        int[] next = Arrays.copyOf(start, start.length - 1);
+        for (int l = 0; l < switchOfLink.length; l++) {
+            rows[next[switchOfLink[l]]++] = l;
+        }
+    }
+
+    int getSwitchCount() {
+        return switches.length;
+    }
+
+    DatapathId getSwitch(int i) {
+        return switches[i];
+    }
+
+    /**
+     * @return index of the switch, -1 if it has no links
+     */
+    int getSwitchIndex(DatapathId sw) {
+        Integer i = switchIndex.get(sw);
+        return i == null ? -1 : i;
+    }
+
+    int getLinkCount() {
+        return links.length;
+    }
+
+    Link getLink(int l) {
+        return links[l];
+    }
+
+    int getLinkSrc(int l) {
+        return linkSrc[l];
+    }
+
+    int getLinkDst(int l) {
+        return linkDst[l];
+    }
+
+    /**
+     * @return index of the link, -1 if it is not part of the graph
+     */
+    int getLinkIndex(Link link) {
+        Integer l = linkIndex.get(link);
+        return l == null ? -1 : l;
+    }
+
+    /**
+     * @return indices of the links whose destination is the given port, empty if none
+     */
+    int[] getLinksIntoPort(NodePortTuple npt) {
+        int[] l = linksIntoPort.get(npt);
+        return l == null ? new int[0] : l;
+    }
+
+    /**
+     * @param linkCost costs by link; links without a cost weigh 1
+     * @return cost of every link by its index
+     */
+    int[] getLinkCosts(Map<Link, Integer> linkCost) {
+        int[] cost = new int[links.length];
+        for (int l = 0; l < links.length; l++) {
+            Integer c = linkCost == null ? null : linkCost.get(links[l]);
+            cost[l] = c == null ? 1 : c;
+        }
+        return cost;
+    }
+
+    /**
+     * Dijkstra's algorithm from or towards a root switch. Ties are broken in favor of
+     * the switch with the lower DPID.
+     * @param root index of the root switch
+     * @param cost cost of every link by its index
+     * @param isDstRooted true for the paths of all switches to the root, false for the
+     * paths from the root to all switches
+     * @param excludedSwitches switches the paths may not pass, or null
+     * @param excludedLinks links the paths may not use, or null
+     * @param dist filled with the cost of the path of every switch,
+     * {@link TopologyInstance#MAX_PATH_WEIGHT} if there is none
+     * @param treeLink filled with the first link of the path of every switch towards the root
+     * (the last one from the root if not isDstRooted), -1 for the root and unreachable switches
+     */
+    void dijkstra(int root, int[] cost, boolean isDstRooted, BitSet excludedSwitches, BitSet excludedLinks,
+            int[] dist, int[] treeLink) {
+        Arrays.fill(dist, TopologyInstance.MAX_PATH_WEIGHT);
+        Arrays.fill(treeLink, -1);
+        if (excludedSwitches != null && excludedSwitches.get(root)) {
+            return;
+        }
+
+        int[] start = isDstRooted ? inStart : outStart;
+        int[] rows = isDstRooted ? inLinks : outLinks;
+        int[] neighborOfLink = isDstRooted ? linkSrc : linkDst;
+
+        IntHeap heap = new IntHeap(switches.length, dist);
+        dist[root] = 0;
+        heap.update(root);
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            if (dist[node] >= TopologyInstance.MAX_PATH_WEIGHT) {
+                break;
+            }
+            for (int r = start[node]; r < start[node + 1]; r++) {
+                int l = rows[r];
+                int neighbor = neighborOfLink[l];
+                if (neighbor == node
+                        || (excludedLinks != null && excludedLinks.get(l))
+                        || (excludedSwitches != null && excludedSwitches.get(neighbor))
+                        || heap.isPolled(neighbor)) {
+                    continue;
+                }
+                int d = dist[node] + cost[l];
+                if (d < dist[neighbor]) {
+                    dist[neighbor] = d;
+                    treeLink[neighbor] = l;
+                    heap.update(neighbor);
+                }
+            }
+        }
+    }
+
+    /*
+     * Binary min-heap of switch indices keyed by an external array of distances,
+     * supporting decrease-key through the position of every switch in the heap.
+     */
+    private static final class IntHeap {
+        private static final int NEVER_ADDED = -1;
+        private static final int POLLED = -2;
+
+        private final int[] heap;
+        private final int[] position;
+        private final int[] key;
+        private int size;
+
+        IntHeap(int capacity, int[] key) {
+            this.heap = new int[capacity];
+            this.position = new int[capacity];
+            Arrays.fill(position, NEVER_ADDED);
+            this.key = key;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean isPolled(int node) {
+            return position[node] == POLLED;
+        }
+
+        /* adds the node, or moves it up after its key decreased */
+        void update(int node) {
+            int i = position[node];
+            if (i == NEVER_ADDED) {
+                i = size++;
+                heap[i] = node;
+                position[node] = i;
+            }
+            siftUp(i);
+        }
+
+        int poll() {
+            int top = heap[0];
+            position[top] = POLLED;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private boolean less(int a, int b) {
+            return key[a] < key[b] || (key[a] == key[b] && a < b);
+        }
+
+        private void siftUp(int i) {
+            int node = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(node, heap[parent])) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                position[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = node;
+            position[node] = i;
+        }
+
+        private void siftDown(int i) {
+            int node = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!less(heap[child], node)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                position[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = node;
+            position[node] = i;
+        }
+    }
+}
@@ -21,8 +21,11 @@ import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.types.NodePortTuple;
 import net.floodlightcontroller.linkdiscovery.Link;
 import net.floodlightcontroller.routing.BroadcastTree;
+import net.floodlightcontroller.routing.IRoutingService.PATH_METRIC;
 import net.floodlightcontroller.routing.Path;
+import net.floodlightcontroller.routing.PathCursor;
 import net.floodlightcontroller.routing.PathId;
+import net.floodlightcontroller.statistics.PortStatisticsSnapshot;
 import net.floodlightcontroller.statistics.SwitchPortBandwidth;
 import net.floodlightcontroller.util.ClusterDFS;
 import org.projectfloodlight.openflow.protocol.OFPortDesc;
@@ -35,6 +38,10 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 /**
@@ -50,6 +57,7 @@ public class TopologyInstance {
     public static final int MAX_LINK_WEIGHT = 10000;
     public static final int MAX_PATH_WEIGHT = Integer.MAX_VALUE - MAX_LINK_WEIGHT - 1;
     public static final int PATH_CACHE_SIZE = 1000;
+    private static final int PATH_PAIRS_PER_TASK = 8;
 
     private static final Logger log = LoggerFactory.getLogger(TopologyInstance.class);
 
@@ -80,6 +88,12 @@ public class TopologyInstance {
     private Map<Cluster, Archipelago>           archipelagoFromCluster;
     private Map<DatapathId, Set<NodePortTuple>> portsBroadcastPerArchipelago; /* broadcast ports in each archipelago ID */
     private Map<PathId, List<Path>>             pathcache; /* contains computed paths ordered best to worst */
+    private final TopologyGraph                 graph; /* int-indexed links for path computation */
+    private volatile LinkCosts                  pathLinkCosts; /* link costs the paths in the pathcache are ordered by */
+    private volatile ForkJoinTask<?>            pathComputation; /* background filling of the pathcache, if parallel */
+    private volatile boolean                    pathComputationCancelled;
+    private PATH_METRIC                         pathMetric; /* metric and number of the paths in the pathcache */
+    private int                                 maxPathsComputed;
 
     protected TopologyInstance(Map<DatapathId, Set<OFPort>> portsWithLinks,
             Set<NodePortTuple> portsBlocked,
@@ -130,14 +144,27 @@ public class TopologyInstance {
         this.portsBroadcastAll= new HashSet<NodePortTuple>();
         this.portsBroadcastPerSwitch = new HashMap<DatapathId,Set<OFPort>>();
 
-        this.pathcache = new HashMap<PathId, List<Path>>();
+        this.pathcache = new ConcurrentHashMap<PathId, List<Path>>();
 
         this.portsBroadcastPerArchipelago = new HashMap<DatapathId, Set<NodePortTuple>>();
 
         this.archipelagoFromCluster = new HashMap<Cluster, Archipelago>();
+
+        this.graph = new TopologyGraph(this.switches, this.links);
     }
 
     protected void compute() {
+        compute(null, null);
+    }
+
+    /**
+     * Computes the topology, reusing the paths of the given instance where
+     * possible.
+     * @param previous instance this one replaces, or null
+     * @param pool pool to fill the pathcache on if parallel path computation
+     * is enabled, or null to always compute paths before returning
+     */
+    protected void compute(TopologyInstance previous, ForkJoinPool pool) {
         /*
          * Step 1: Compute clusters ignoring ports with > 2 links and 
          * blocked links.
@@ -161,11 +188,11 @@ public class TopologyInstance {
 
         /*
          * Step 4: Use Yens algorithm to permute through each node combination
-         * within each archipelago and compute multiple paths. The shortest
-         * path located (i.e. first run of dijkstra's algorithm) will be used 
-         * as the broadcast tree for the archipelago.
+         * within each archipelago and compute multiple paths. The broadcast
+         * tree of each archipelago is computed by dijkstra's algorithm
+         * towards the archipelago ID switch beforehand.
          */
-        computeOrderedPaths();
+        computeOrderedPaths(previous, pool);
 
         /*
          * Step 5: Determine the broadcast ports for each archipelago. These are
@@ -441,60 +468,6 @@ public class TopologyInstance {
         return portsBroadcastAll.contains(npt);
     }
 
-    private class NodeDist implements Comparable<NodeDist> {
-        private final DatapathId node;
-        public DatapathId getNode() {
-            return node;
-        }
-
-        private final int dist;
-        public int getDist() {
-            return dist;
-        }
-
-        public NodeDist(DatapathId node, int dist) {
-            this.node = node;
-            this.dist = dist;
-        }
-
-        @Override
-        public int compareTo(NodeDist o) {
-            if (o.dist == this.dist) {
-                return (int)(this.node.getLong() - o.node.getLong());
-            }
-            return this.dist - o.dist;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            NodeDist other = (NodeDist) obj;
-            if (!getOuterType().equals(other.getOuterType()))
-                return false;
-            if (node == null) {
-                if (other.node != null)
-                    return false;
-            } else if (!node.equals(other.node))
-                return false;
-            return true;
-        }
-
-        @Override
-        public int hashCode() {
-            assert false : "hashCode not designed";
-        return 42;
-        }
-
-        private TopologyInstance getOuterType() {
-            return TopologyInstance.this;
-        }
-    }
-
     protected void identifyArchipelagos() {
         // Iterate through each external link and create/merge archipelagos based on the
         // islands that each link is connected to
@@ -565,80 +538,28 @@ public class TopologyInstance {
     /*
      * Dijkstra that calculates destination rooted trees over the entire topology.
      */
-    private BroadcastTree dijkstra(Map<DatapathId, Set<Link>> links, DatapathId root,
-            Map<Link, Integer> linkCost,
-            boolean isDstRooted) {
-        HashMap<DatapathId, Link> nexthoplinks = new HashMap<DatapathId, Link>();
-        HashMap<DatapathId, Integer> cost = new HashMap<DatapathId, Integer>();
-        int w;
-
-        for (DatapathId node : links.keySet()) {
-            nexthoplinks.put(node, null);
-            cost.put(node, MAX_PATH_WEIGHT);
-            //log.debug("Added max cost to {}", node);
+    private BroadcastTree dijkstra(DatapathId root, int[] linkCosts, boolean isDstRooted) {
+        int n = graph.getSwitchCount();
+        int[] dist = new int[n];
+        int[] treeLink = new int[n];
+        int r = graph.getSwitchIndex(root);
+        if (r >= 0) {
+            graph.dijkstra(r, linkCosts, isDstRooted, null, null, dist, treeLink);
+        } else {
+            Arrays.fill(dist, MAX_PATH_WEIGHT);
+            Arrays.fill(treeLink, -1);
         }
+        return toBroadcastTree(dist, treeLink);
+    }
 
-        HashMap<DatapathId, Boolean> seen = new HashMap<DatapathId, Boolean>();
-        PriorityQueue<NodeDist> nodeq = new PriorityQueue<NodeDist>();
-        nodeq.add(new NodeDist(root, 0));
-        cost.put(root, 0);
-
-        //log.debug("{}", links);
-
-        while (nodeq.peek() != null) {
-            NodeDist n = nodeq.poll();
-            DatapathId cnode = n.getNode();
-            int cdist = n.getDist();
-
-            if (cdist >= MAX_PATH_WEIGHT) break;
-            if (seen.containsKey(cnode)) continue;
-            seen.put(cnode, true);
-
-            //log.debug("cnode {} and links {}", cnode, links.get(cnode));
-            if (links.get(cnode) == null) continue;
-            for (Link link : links.get(cnode)) {
-                DatapathId neighbor;
-
-                if (isDstRooted == true) {
-                    neighbor = link.getSrc();
-                } else {
-                    neighbor = link.getDst();
-                }
-
-                // links directed toward cnode will result in this condition
-                if (neighbor.equals(cnode)) continue;
-
-                if (seen.containsKey(neighbor)) continue;
-
-                if (linkCost == null || linkCost.get(link) == null) {
-                    w = 1;
-                } else {
-                    w = linkCost.get(link);
-                }
-
-                int ndist = cdist + w; // the weight of the link, always 1 in current version of floodlight.
-                log.debug("Neighbor: {}", neighbor);
-                log.debug("Cost: {}", cost);
-                log.debug("Neighbor cost: {}", cost.get(neighbor));
-
-                if (ndist < cost.get(neighbor)) {
-                    cost.put(neighbor, ndist);
-                    nexthoplinks.put(neighbor, link);
-
-                    NodeDist ndTemp = new NodeDist(neighbor, ndist);
-                    // Remove an object that's already in there.
-                    // Note that the comparison is based on only the node id,
-                    // and not node id and distance.
-                    nodeq.remove(ndTemp);
-                    // add the current object to the queue.
-                    nodeq.add(ndTemp);
-                }
-            }
+    private BroadcastTree toBroadcastTree(int[] dist, int[] treeLink) {
+        HashMap<DatapathId, Link> nexthoplinks = new HashMap<DatapathId, Link>();
+        HashMap<DatapathId, Integer> cost = new HashMap<DatapathId, Integer>();
+        for (int i = 0; i < dist.length; i++) {
+            nexthoplinks.put(graph.getSwitch(i), treeLink[i] < 0 ? null : graph.getLink(treeLink[i]));
+            cost.put(graph.getSwitch(i), dist[i]);
         }
-
-        BroadcastTree ret = new BroadcastTree(nexthoplinks, cost);
-
-        return ret;
+        return new BroadcastTree(nexthoplinks, cost);
     }
 
     /*
@@ -732,25 +653,15 @@ public class TopologyInstance {
         case UTILIZATION:
             TopologyManager.statisticsService.collectStatistics(true);
             log.debug("Using utilization for path metrics");
+            /* costs of all links from the same statistics round */
+            PortStatisticsSnapshot portStats = TopologyManager.statisticsService.getPortStatisticsSnapshot();
             for (NodePortTuple npt : links.keySet()) {
                 if (links.get(npt) == null) continue;
-                SwitchPortBandwidth spb = TopologyManager.statisticsService
-                        .getBandwidthConsumption(npt.getNodeId(), npt.getPortId());
-                long bpsTx = 0;
-                if (spb != null) {
-                    bpsTx = spb.getBitsPerSecondTx().getValue();
-                }
                 for (Link link : links.get(npt)) {
                     if (link == null) {
                         continue;
                     }
-
-                    if ((bpsTx / 10^6) / 8 > 1) {
-                        int cost = (int) (bpsTx / 10^6) / 8;
-                        linkCost.put(link, cost);
-                    } else {
-                        linkCost.put(link, MAX_LINK_WEIGHT);
-                    }
+                    linkCost.put(link, utilizationCost(portStats, link));
                 }
             }
             return linkCost;
@@ -768,74 +679,444 @@ public class TopologyInstance {
         }
     }
 
+    /*
+     * Cost of a link under the utilization metric, by the Tx utilization of its
+     * source port: 1 for an idle link up to MAX_LINK_WEIGHT for a saturated one.
+     * If the speed of the port is not known, the cost grows by one per Mbps sent.
+     * Both ends of a link list it, so the cost must not depend on the port it is
+     * found under.
+     */
+    private static int utilizationCost(PortStatisticsSnapshot portStats, Link link) {
+        SwitchPortBandwidth spb = portStats.getBandwidthConsumption(link.getSrc(), link.getSrcPort());
+        if (spb == null) {
+            return 1; /* not measured yet */
+        }
+        if (spb.getLinkSpeedBitsPerSec().getValue() > 0) {
+            double utilization = Math.min(Math.max(spb.getTxUtilization(), 0), 1);
+            return 1 + (int) Math.round(utilization * (MAX_LINK_WEIGHT - 1));
+        }
+        long mbpsTx = spb.getBitsPerSecondTx().getValue() / 1000000;
+        return (int) Math.min(1 + mbpsTx, MAX_LINK_WEIGHT);
+    }
+
     /*
      * Calculates and stores n possible paths  using Yen's algorithm,
      * looping through every switch. These lists of routes are stored 
-     * in the pathcache.
+     * in the pathcache. Paths of the previous instance which a single
+     * link change cannot affect are reused, see carryForwardPaths().
      */
-    private void computeOrderedPaths() {
-        List<Path> paths;
-        PathId pathId;
+    private void computeOrderedPaths(TopologyInstance previous, ForkJoinPool pool) {
         pathcache.clear();
+        Map<Link, Integer> linkCost = initLinkCostMap();
+        long version = previous != null && previous.pathLinkCosts != null ? previous.pathLinkCosts.version + 1 : 0;
+        pathLinkCosts = new LinkCosts(version, linkCost, graph.getLinkCosts(linkCost));
+        pathMetric = TopologyManager.getPathMetricInternal();
+        maxPathsComputed = TopologyManager.getMaxPathsToComputeInternal();
+        boolean parallel = pool != null && TopologyManager.isParallelPathComputationInternal();
+
+        for (Archipelago a : archipelagos) {
+            /* the broadcast tree must not depend on the pair computed last, so root it at the archipelago ID */
+            a.setBroadcastTree(dijkstra(a.getId(), pathLinkCosts.byIndex, true));
+        }
+
+        List<PathId> pairs = carryForwardPaths(previous);
+        if (pairs == null && !parallel) {
+            List<Path> paths;
+            PathId pathId;
+
+            for (Archipelago a : archipelagos) { /* for each archipelago */
+                Set<DatapathId> srcSws = a.getSwitches();
+                Set<DatapathId> dstSws = a.getSwitches();
+                log.debug("SRC {}", srcSws);
+                log.debug("DST {}", dstSws);
+
+                for (DatapathId src : srcSws) { /* permute all member switches */
+                    for (DatapathId dst : dstSws) {
+                        log.debug("Calling Yens {} {}", src, dst);
+                        paths = yens(src, dst, maxPathsComputed,
+                                getArchipelago(src), getArchipelago(dst));
+                        pathId = new PathId(src, dst);
+                        pathcache.put(pathId, paths);
+                        log.debug("Adding paths {}", paths);
+                    }
+                }
+            }
+            return;
+        }
 
-        for (Archipelago a : archipelagos) { /* for each archipelago */
-            Set<DatapathId> srcSws = a.getSwitches();
-            Set<DatapathId> dstSws = a.getSwitches();
-            log.debug("SRC {}", srcSws);
-            log.debug("DST {}", dstSws);
-
-            for (DatapathId src : srcSws) { /* permute all member switches */
-                for (DatapathId dst : dstSws) {
-                    log.debug("Calling Yens {} {}", src, dst);
-                    paths = yens(src, dst, TopologyManager.getMaxPathsToComputeInternal(),
-                            getArchipelago(src), getArchipelago(dst));
-                    pathId = new PathId(src, dst);
-                    pathcache.put(pathId, paths);
-                    log.debug("Adding paths {}", paths);
+        if (pairs == null) {
+            pairs = new ArrayList<PathId>();
+            for (Archipelago a : archipelagos) {
+                for (DatapathId src : a.getSwitches()) {
+                    for (DatapathId dst : a.getSwitches()) {
+                        pairs.add(new PathId(src, dst));
+                    }
                 }
             }
         }
+
+        if (parallel) {
+            computeOrderedPathsParallel(pairs, pool);
+        } else {
+            for (PathId id : pairs) {
+                computeCachedPaths(id, getArchipelago(id.getSrc()));
+            }
+        }
     }
 
-    private Path buildPath(PathId id, BroadcastTree tree) {
-        NodePortTuple npt;
-        DatapathId srcId = id.getSrc();
-        DatapathId dstId = id.getDst();
-        //set of NodePortTuples on the route
-        LinkedList<NodePortTuple> sPorts = new LinkedList<NodePortTuple>();
+    /*
+     * Fills the pathcache in the background on the fork-join pool of the
+     * TopologyManager instead of running Yen's for every pair before the
+     * instance is published. Pairs requested before they are reached are
+     * computed by the caller, see getCachedPaths().
+     */
+    private void computeOrderedPathsParallel(final List<PathId> pairs, ForkJoinPool pool) {
+        pathComputation = pool.submit(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.currentTimeMillis();
+                new PathPairsTask(pairs, 0, pairs.size()).invoke();
+                log.debug("Computed paths of {} switch pairs in {} ms", pairs.size(), System.currentTimeMillis() - start);
+            }
+        });
+    }
 
-        if (tree == null) return new Path(id, ImmutableList.of()); /* empty route */
+    /*
+     * If this instance differs from the previous one by at most one link and the
+     * costs of all other links are unchanged, copies into the pathcache the previous
+     * paths of every pair the change cannot affect and returns the remaining pairs.
+     * A pair is affected by a removed link if one of its paths used it, and by an
+     * added link if a path over it could be cheaper than the worst path kept for
+     * the pair (or fewer than the maximum number of paths were found before).
+     * Returns null if the previous paths cannot be reused.
+     */
+    private List<PathId> carryForwardPaths(TopologyInstance previous) {
+        if (previous == null || previous.pathLinkCosts == null
+                || previous.pathMetric != pathMetric || previous.maxPathsComputed != maxPathsComputed) {
+            return null;
+        }
 
-        Map<DatapathId, Link> nexthoplinks = tree.getLinks();
+        Set<Link> linksBefore = new HashSet<Link>();
+        for (Set<Link> s : previous.links.values()) {
+            linksBefore.addAll(s);
+        }
+        Set<Link> linksAfter = new HashSet<Link>();
+        for (Set<Link> s : links.values()) {
+            linksAfter.addAll(s);
+        }
 
-        if (!switches.contains(srcId) || !switches.contains(dstId)) {
-            // This is a switch that is not connected to any other switch
-            // hence there was no update for links (and hence it is not
-            // in the network)
-            log.debug("buildpath: Standalone switch: {}", srcId);
+        Link added = null;
+        Link removed = null;
+        for (Link l : linksAfter) {
+            if (!linksBefore.contains(l)) {
+                if (added != null) {
+                    return null;
+                }
+                added = l;
+            } else if (!Objects.equals(pathLinkCosts.byLink.get(l), previous.pathLinkCosts.byLink.get(l))) {
+                return null; /* e.g. latency of a link changed */
+            }
+        }
+        for (Link l : linksBefore) {
+            if (!linksAfter.contains(l)) {
+                if (removed != null || added != null) {
+                    return null;
+                }
+                removed = l;
+            }
+        }
 
-            // The only possible non-null path for this case is
-            // if srcId equals dstId --- and that too is an 'empty' path []
+        /* costs of the cheapest paths to the source and from the destination of the added link */
+        int n = graph.getSwitchCount();
+        int[] toAdded = new int[n];
+        int[] fromAdded = new int[n];
+        int addedCost = 0;
+        if (added != null) {
+            int l = graph.getLinkIndex(added);
+            if (l < 0) {
+                return null; /* an end of the link is not a switch of this topology */
+            }
+            int[] treeLink = new int[n];
+            graph.dijkstra(graph.getLinkSrc(l), pathLinkCosts.byIndex, true, null, null, toAdded, treeLink);
+            graph.dijkstra(graph.getLinkDst(l), pathLinkCosts.byIndex, false, null, null, fromAdded, treeLink);
+            addedCost = pathLinkCosts.byIndex[l];
+        }
 
-        } else if ((nexthoplinks != null) && (nexthoplinks.get(srcId) != null)) {
-            while (!srcId.equals(dstId)) {
-                Link l = nexthoplinks.get(srcId);
-                npt = new NodePortTuple(l.getSrc(), l.getSrcPort());
-                sPorts.addLast(npt);
-                npt = new NodePortTuple(l.getDst(), l.getDstPort());
-                sPorts.addLast(npt);
-                srcId = nexthoplinks.get(srcId).getDst();
+        List<PathId> pairs = new ArrayList<PathId>();
+        for (Archipelago a : archipelagos) {
+            for (DatapathId src : a.getSwitches()) {
+                for (DatapathId dst : a.getSwitches()) {
+                    PathId id = new PathId(src, dst);
+                    List<Path> paths = previous.pathcache.get(id);
+                    if (paths == null
+                            || (removed != null && usesLink(paths, removed))
+                            || (added != null && mayImprove(paths, src, dst, toAdded, fromAdded, addedCost))) {
+                        pairs.add(id);
+                    } else {
+                        pathcache.put(id, paths);
+                    }
+                }
             }
         }
-        // else, no path exists, and path equals null
+        log.debug("Reused paths of {} switch pairs, recomputing {}", pathcache.size(), pairs.size());
+        return pairs;
+    }
 
-        Path result = null;
-        if (sPorts != null && !sPorts.isEmpty()) {
-            result = new Path(id, sPorts);
+    private boolean usesLink(List<Path> paths, Link link) {
+        NodePortTuple src = new NodePortTuple(link.getSrc(), link.getSrcPort());
+        NodePortTuple dst = new NodePortTuple(link.getDst(), link.getDstPort());
+        for (Path p : paths) {
+            List<NodePortTuple> npts = p.getPath();
+            for (int i = 0; i < npts.size() - 1; i = i + 2) {
+                if (npts.get(i).equals(src) && npts.get(i + 1).equals(dst)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
+    private boolean mayImprove(List<Path> paths, DatapathId src, DatapathId dst,
+            int[] toAdded, int[] fromAdded, int addedCost) {
+        int s = graph.getSwitchIndex(src);
+        int d = graph.getSwitchIndex(dst);
+        if (s < 0 || d < 0 || toAdded[s] >= MAX_PATH_WEIGHT || fromAdded[d] >= MAX_PATH_WEIGHT) {
+            return false; /* no path over the added link */
         }
-        log.trace("buildpath: {}", result);
-        return result == null ? new Path(id, ImmutableList.of()) : result;
+        if (paths.size() < maxPathsComputed) {
+            return true;
+        }
+        long bound = (long) toAdded[s] + addedCost + fromAdded[d];
+        for (Path p : paths) {
+            if (bound < getPathCost(p, pathLinkCosts.byLink)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Computes the paths of the pairs in [from, to) which are not in the
+     * pathcache yet, splitting the range between workers.
+     */
+    private class PathPairsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<PathId> pairs;
+        private final int from;
+        private final int to;
+
+        PathPairsTask(List<PathId> pairs, int from, int to) {
+            this.pairs = pairs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PATH_PAIRS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PathPairsTask(pairs, from, mid), new PathPairsTask(pairs, mid, to));
+                return;
+            }
+            for (int i = from; i < to && !pathComputationCancelled; i++) {
+                PathId id = pairs.get(i);
+                if (pathcache.containsKey(id)) {
+                    continue;
+                }
+                try {
+                    computeCachedPaths(id, getArchipelago(id.getSrc()));
+                } catch (RuntimeException e) {
+                    log.error("Could not compute paths b/t {} and {}", new Object[] {id.getSrc(), id.getDst(), e});
+                }
+            }
+        }
+    }
+
+    /*
+     * Runs Yen's for a pair of the same archipelago and stores the result in the
+     * pathcache, unless another thread has stored the pair in the meantime.
+     */
+    private List<Path> computeCachedPaths(PathId id, Archipelago a) {
+        List<Path> paths = new YensPathCursor(id.getSrc(), id.getDst(), a, a, null, pathLinkCosts)
+                .next(TopologyManager.getMaxPathsToComputeInternal());
+        List<Path> previous = pathcache.putIfAbsent(id, paths);
+        return previous != null ? previous : paths;
+    }
+
+    /*
+     * Returns the paths between src and dst held in the pathcache, or null if
+     * there are none. While the pathcache is being filled in parallel, a pair
+     * which has not been reached yet is computed right away.
+     */
+    private List<Path> getCachedPaths(DatapathId src, DatapathId dst) {
+        PathId id = new PathId(src, dst);
+        List<Path> paths = pathcache.get(id);
+        if (paths == null && pathComputation != null) {
+            Archipelago a = getArchipelago(src);
+            if (a != null && a.equals(getArchipelago(dst))) {
+                paths = computeCachedPaths(id, a);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Stops filling the pathcache in the background, e.g. once this instance has
+     * been replaced. Pairs not computed yet are still computed when requested.
+     */
+    protected void cancelPathComputation() {
+        pathComputationCancelled = true;
+        ForkJoinTask<?> task = pathComputation;
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /*
+     * Link costs at one point in time, by link and by link index of the graph.
+     * Never modified; an update publishes a new version, so that a path
+     * computation works with one consistent set of costs throughout.
+     */
+    private static final class LinkCosts {
+        private final long version;
+        private final Map<Link, Integer> byLink;
+        private final int[] byIndex;
+
+        LinkCosts(long version, Map<Link, Integer> byLink, int[] byIndex) {
+            this.version = version;
+            this.byLink = byLink;
+            this.byIndex = byIndex;
+        }
+    }
+
+    /**
+     * @return version of the link costs the paths in the pathcache are ordered by;
+     * it grows whenever the costs are updated from port statistics
+     */
+    public long getLinkCostVersion() {
+        LinkCosts costs = pathLinkCosts;
+        return costs == null ? 0 : costs.version;
+    }
+
+    /**
+     * Updates the link costs of the utilization metric from a newer round of port
+     * statistics without recomputing the topology. Only links whose cost changed by
+     * more than the threshold, a fraction of their current cost, get a new cost.
+     * The cached paths of a pair using such a link are put in order of their new
+     * costs. They are computed again only if a path which was not cached may now be
+     * cheaper than a cached one: a cached path got more expensive than the worst one
+     * was before, or a link which got cheaper may lead to a cheaper path.
+     *
+     * @param portStats bandwidth consumption of all ports
+     * @param threshold relative change of the cost of a link to take it over
+     * @return true if a new version of the link costs has been published
+     */
+    protected synchronized boolean updateLinkCosts(PortStatisticsSnapshot portStats, double threshold) {
+        LinkCosts current = pathLinkCosts;
+        if (current == null || portStats == null || pathMetric != PATH_METRIC.UTILIZATION) {
+            return false;
+        }
+        ForkJoinTask<?> task = pathComputation;
+        if (task != null && !task.isDone()) {
+            return false; /* the pathcache is still being filled with the current costs */
+        }
+
+        int[] byIndex = current.byIndex.clone();
+        Map<Link, Integer> byLink = new HashMap<Link, Integer>(current.byLink);
+        List<Integer> cheaper = new ArrayList<Integer>();
+        int changedLinks = 0;
+        for (int l = 0; l < byIndex.length; l++) {
+            Link link = graph.getLink(l);
+            int cost = utilizationCost(portStats, link);
+            if (Math.abs((long) cost - byIndex[l]) > threshold * byIndex[l]) {
+                if (cost < byIndex[l]) {
+                    cheaper.add(l);
+                }
+                byIndex[l] = cost;
+                byLink.put(link, cost);
+                changedLinks++;
+            }
+        }
+        if (changedLinks == 0) {
+            return false;
+        }
+        LinkCosts updated = new LinkCosts(current.version + 1, byLink, byIndex);
+        pathLinkCosts = updated;
+
+        /* costs of the cheapest paths to the source and from the destination of every link which got cheaper */
+        int n = graph.getSwitchCount();
+        int[][] toCheaper = new int[cheaper.size()][n];
+        int[][] fromCheaper = new int[cheaper.size()][n];
+        int[] treeLink = new int[n];
+        for (int i = 0; i < cheaper.size(); i++) {
+            int l = cheaper.get(i);
+            graph.dijkstra(graph.getLinkSrc(l), byIndex, true, null, null, toCheaper[i], treeLink);
+            graph.dijkstra(graph.getLinkDst(l), byIndex, false, null, null, fromCheaper[i], treeLink);
+        }
+
+        int reordered = 0;
+        int recomputed = 0;
+        for (Entry<PathId, List<Path>> e : pathcache.entrySet()) {
+            PathId id = e.getKey();
+            List<Path> paths = e.getValue();
+            int[] newCost = new int[paths.size()];
+            int oldWorst = 0;
+            int newWorst = 0;
+            boolean costChanged = false;
+            for (int i = 0; i < paths.size(); i++) {
+                int oldCost = getPathCost(paths.get(i), current.byLink);
+                newCost[i] = getPathCost(paths.get(i), byLink);
+                oldWorst = Math.max(oldWorst, oldCost);
+                newWorst = Math.max(newWorst, newCost[i]);
+                costChanged |= oldCost != newCost[i];
+            }
+
+            /* with fewer paths than the maximum, Yen's found all there are, so only their order can change */
+            boolean recompute = false;
+            if (paths.size() >= maxPathsComputed) {
+                recompute = newWorst > oldWorst;
+                int s = graph.getSwitchIndex(id.getSrc());
+                int d = graph.getSwitchIndex(id.getDst());
+                for (int i = 0; i < cheaper.size() && !recompute && s >= 0 && d >= 0; i++) {
+                    long bound = (long) toCheaper[i][s] + byIndex[cheaper.get(i)] + fromCheaper[i][d];
+                    recompute = bound < newWorst;
+                }
+            }
+
+            if (recompute) {
+                Archipelago a = getArchipelago(id.getSrc());
+                pathcache.put(id, new YensPathCursor(id.getSrc(), id.getDst(), a, a, null, updated)
+                        .next(maxPathsComputed));
+                recomputed++;
+            } else if (costChanged && !isSorted(newCost)) {
+                pathcache.put(id, sortByCost(paths, newCost));
+                reordered++;
+            }
+        }
+        log.debug("Link costs version {}: {} links changed, reordered paths of {} switch pairs, recomputed {}",
+                new Object[] {updated.version, changedLinks, reordered, recomputed});
+        return true;
+    }
+
+    /*
+     * Builds the path from src to the root dst of a tree computed by
+     * TopologyGraph.dijkstra(), empty if src is not connected to dst.
+     */
+    private List<NodePortTuple> buildPath(int src, int dst, int[] treeLink) {
+        List<NodePortTuple> sPorts = new ArrayList<NodePortTuple>();
+        int node = src;
+        while (node != dst) {
+            int l = treeLink[node];
+            if (l < 0) {
+                return ImmutableList.of(); /* no path exists */
+            }
+            Link link = graph.getLink(l);
+            sPorts.add(new NodePortTuple(link.getSrc(), link.getSrcPort()));
+            sPorts.add(new NodePortTuple(link.getDst(), link.getDstPort()));
+            node = graph.getLinkDst(l);
+        }
+        log.trace("buildpath: {}", sPorts);
+        return sPorts;
     }
 
     /*
@@ -861,30 +1142,6 @@ public class TopologyInstance {
         return true;
     }
 
-    private Map<DatapathId, Set<Link>> buildLinkDpidMap(Set<DatapathId> switches, Map<DatapathId,
-            Set<OFPort>> portsWithLinks, Map<NodePortTuple, Set<Link>> links) {
-
-        Map<DatapathId, Set<Link>> linkDpidMap = new HashMap<DatapathId, Set<Link>>();
-        for (DatapathId s : switches) {
-            if (portsWithLinks.get(s) == null) continue;
-            for (OFPort p : portsWithLinks.get(s)) {
-                NodePortTuple np = new NodePortTuple(s, p);
-                if (links.get(np) == null) continue;
-                for (Link l : links.get(np)) {
-                    if (switches.contains(l.getSrc()) && switches.contains(l.getDst())) {
-                        if (linkDpidMap.containsKey(s)) {
-                            linkDpidMap.get(s).add(l);
-                        } else {
-                            linkDpidMap.put(s, new HashSet<Link>(Arrays.asList(l)));
-                        }
-                    }
-                }
-            }
-        }
-
-        return linkDpidMap;
-    }
-
     /**
      *
      * This function returns K number of routes between a source and destination IF THEY EXIST IN THE ROUTECACHE.
@@ -898,8 +1155,7 @@ public class TopologyInstance {
      * @return ArrayList of Routes or null if bad parameters
      */
     public List<Path> getPathsFast(DatapathId src, DatapathId dst, int k) {
-        PathId routeId = new PathId(src, dst);
-        List<Path> routes = pathcache.get(routeId);
+        List<Path> routes = getCachedPaths(src, dst);
 
         if (routes == null || k < 1) {
             return ImmutableList.of();
@@ -925,8 +1181,7 @@ public class TopologyInstance {
      * @return list of paths or empty
      */
     public List<Path> getPathsSlow(DatapathId src, DatapathId dst, int k) {
-        PathId pathId = new PathId(src, dst);
-        List<Path> paths = pathcache.get(pathId);
+        List<Path> paths = getCachedPaths(src, dst);
 
         if (paths == null || k < 1) return ImmutableList.of();
 
@@ -979,162 +1234,291 @@ public class TopologyInstance {
         log.debug("Asking for paths from {} to {}", src, dst);
         log.debug("Asking for {} paths", K);
 
-        // Find link costs
-        Map<Link, Integer> linkCost = initLinkCostMap();
-
-        Map<DatapathId, Set<Link>> linkDpidMap = buildLinkDpidMap(switches, portsWithLinks, links);
+        // The number of paths requested should never be less than 1.
+        if (K < 1) {
+            return new ArrayList<Path>();
+        }
 
-        Map<DatapathId, Set<Link>> copyOfLinkDpidMap = new HashMap<DatapathId, Set<Link>>(linkDpidMap);
+        return new YensPathCursor(src, dst, aSrc, aDst, null, pathLinkCosts).next(K);
+    }
 
-        // A is the list of shortest paths. The number in the list at the end should be less than or equal to K
-        // B is the list of possible shortest paths found in this function.
-        List<Path> A = new ArrayList<Path>();
-        List<Path> B = new ArrayList<Path>();
+    /**
+     * Returns a cursor enumerating the paths between src and dst in order of cost.
+     * The paths already held in the pathcache are served first; Yen's algorithm is
+     * only resumed, from the cached paths, once the caller asks for more than that.
+     *
+     * @param src: DatapathId of the path source.
+     * @param dst: DatapathId of the path destination.
+     * @return cursor over the paths; exhausted immediately if src and dst are not connected
+     */
+    public PathCursor getPathCursor(DatapathId src, DatapathId dst) {
+        return new YensPathCursor(src, dst, getArchipelago(src), getArchipelago(dst),
+                getCachedPaths(src, dst), pathLinkCosts);
+    }
 
-        // The number of paths requested should never be less than 1.
-        if (K < 1) {
-            return A;
+    /*
+     * Yen's algorithm with its state (A and B lists) kept between calls so that
+     * further paths can be pulled without starting over from the shortest one.
+     */
+    private class YensPathCursor implements PathCursor {
+        private final DatapathId src;
+        private final DatapathId dst;
+        private final LinkCosts costs;
+
+        /* reused by every run of Dijkstra's */
+        private final int[] dist = new int[graph.getSwitchCount()];
+        private final int[] treeLink = new int[graph.getSwitchCount()];
+        private final BitSet excludedSwitches = new BitSet(graph.getSwitchCount());
+        private final BitSet excludedLinks = new BitSet(graph.getLinkCount());
+
+        // A is the list of shortest paths found so far, in order of cost.
+        // B is the list of candidate paths found while spurring off the paths in A.
+        private final List<Path> A = new ArrayList<Path>();
+        private final List<Path> B = new ArrayList<Path>();
+
+        /* number of paths in A which have already been spurred off */
+        private int spurred = 0;
+        /* number of paths in A which have already been handed out */
+        private int position = 0;
+        private boolean started = false;
+        private boolean exhausted = false;
+
+        /* costs may be null to have the costs initialized for this cursor */
+        YensPathCursor(DatapathId src, DatapathId dst, Archipelago aSrc, Archipelago aDst, List<Path> cached,
+                LinkCosts costs) {
+            this.src = src;
+            this.dst = dst;
+            if (costs == null) {
+                Map<Link, Integer> linkCost = initLinkCostMap();
+                costs = new LinkCosts(0, linkCost, graph.getLinkCosts(linkCost));
+            }
+            this.costs = costs;
+
+            /* The switch is not a member of an archipelago. It must not be connected */
+            if (aSrc == null || aDst == null) {
+                log.warn("One or more switches not connected. Cannot compute path b/t {} and {}", src, dst);
+                exhausted = true;
+            } else if (!aSrc.equals(aDst)) {
+                log.warn("Switches {} and {} not in same archipelago. Cannot compute path", src, dst);
+                exhausted = true;
+            } else if (cached != null && !cached.isEmpty()) {
+                /* Seed A with the precomputed paths; they are the first Yen's results */
+                for (Path p : cached) {
+                    A.add(copyPath(p));
+                }
+                started = true;
+                /* Yen's stopped before the configured max only if there are no more paths */
+                if (cached.size() < TopologyManager.getMaxPathsToComputeInternal()) {
+                    exhausted = true;
+                }
+            }
         }
 
-        /* The switch is not a member of an archipelago. It must not be connected */
-        if (aSrc == null || aDst == null) {
-            log.warn("One or more switches not connected. Cannot compute path b/t {} and {}", src, dst);
-            return A;
+        @Override
+        public boolean hasNext() {
+            return position < A.size() || advance();
         }
 
-        if (!aSrc.equals(aDst)) {
-            log.warn("Switches {} and {} not in same archipelago. Cannot compute path", src, dst);
-            return A;
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return copyPath(A.get(position++));
         }
 
-        /* Use Dijkstra's to find the shortest path, which will also be the first path in A */
-        BroadcastTree bt = dijkstra(copyOfLinkDpidMap, dst, linkCost, true);
-        /* add this initial tree as our archipelago's broadcast tree (aSrc == aDst) */
-        aSrc.setBroadcastTree(bt);
-        /* now add the shortest path */
-        log.debug("src {} dst {} tree {}", new Object[] {src, dst, bt});
-        Path newroute = buildPath(new PathId(src, dst), bt); /* guaranteed to be in same tree */
+        @Override
+        public List<Path> next(int count) {
+            List<Path> paths = new ArrayList<Path>(Math.max(count, 0));
+            while (paths.size() < count && hasNext()) {
+                paths.add(next());
+            }
+            return paths;
+        }
 
-        if (newroute != null && !newroute.getPath().isEmpty()) { /* should never be null, but might be empty */
-            setPathCosts(newroute);
-            A.add(newroute);
-            log.debug("Found shortest path in Yens {}", newroute);
+        @Override
+        public int getPosition() {
+            return position;
         }
-        else {
-            log.debug("No paths found in Yen's!");
-            return A;
+
+        /*
+         * Finds one more path and appends it to A.
+         */
+        private boolean advance() {
+            if (exhausted) {
+                return false;
+            }
+
+            if (!started) {
+                started = true;
+                int s = graph.getSwitchIndex(src);
+                int d = graph.getSwitchIndex(dst);
+                if (s < 0 || d < 0) {
+                    log.debug("No paths found in Yen's!");
+                    exhausted = true;
+                    return false;
+                }
+
+                /* Use Dijkstra's to find the shortest path, which will also be the first path in A */
+                graph.dijkstra(d, costs.byIndex, true, null, null, dist, treeLink);
+                List<NodePortTuple> npts = buildPath(s, d, treeLink); /* guaranteed to be in same tree */
+
+                if (!npts.isEmpty()) {
+                    Path newroute = new Path(new PathId(src, dst), npts);
+                    setPathCosts(newroute);
+                    newroute.setPathIndex(0);
+                    A.add(newroute);
+                    log.debug("Found shortest path in Yens {}", newroute);
+                    return true;
+                }
+                log.debug("No paths found in Yen's!");
+                exhausted = true;
+                return false;
+            }
+
+            // Spur off every path in A which has not been used yet (only the last one,
+            // unless A was seeded from the pathcache)
+            while (spurred < A.size()) {
+                spur(A.get(spurred++));
+            }
+
+            // If there isn't a path in B to add to A, all possible paths have been found
+            if (B.isEmpty()) {
+                exhausted = true;
+                return false;
+            }
+
+            // Find the shortest path in B, remove it, and put it in A
+            Path shortestPath = removeShortestPath(B, costs.byLink);
+            if (shortestPath == null) {
+                log.debug("removeShortestPath returned {}", shortestPath);
+                exhausted = true;
+                return false;
+            }
+
+            log.debug("Adding new shortest path to {} in Yen's", shortestPath);
+            shortestPath.setPathIndex(A.size());
+            A.add(shortestPath);
+            return true;
         }
 
-        // Loop through K - 1 times to get other possible shortest paths
-        for (int k = 1; k < K; k++) {
-            log.trace("k: {}", k);
-            if (log.isTraceEnabled()){
-                log.trace("Path Length 'A.get(k-1).getPath().size()-2': {}", A.get(k - 1).getPath().size() - 2);
+        /*
+         * Adds to B the candidates deviating from the given path at each of its switches.
+         */
+        private void spur(Path previous) {
+            List<NodePortTuple> path = previous.getPath();
+            if (log.isTraceEnabled()) {
+                log.trace("Path Length 'path.size()-2': {}", path.size() - 2);
             }
-            // Iterate through i, which is the number of links in the most recent path added to A
-            for (int i = 0; i <= A.get(k - 1).getPath().size() - 2; i = i + 2) {
+            // Iterate through i, which is the number of links in the path
+            for (int i = 0; i <= path.size() - 2; i = i + 2) {
                 log.trace("i: {}", i);
-                List<NodePortTuple> path = A.get(k - 1).getPath();
-                //log.debug("A(k-1): {}", A.get(k - 1).getPath());
                 // The spur node is the point in the topology where Dijkstra's is called again to find another path
                 DatapathId spurNode = path.get(i).getNodeId();
                 // rootPath is the path along the previous shortest path that is before the spur node
-                Path rootPath = new Path(new PathId(path.get(0).getNodeId(), path.get(i).getNodeId()),
-                        path.subList(0, i));
+                List<NodePortTuple> rootPath = path.subList(0, i);
 
-
-                Map<NodePortTuple, Set<Link>> allLinksCopy = new HashMap<NodePortTuple, Set<Link>>(links);
-                // Remove the links after the spur node that are part of other paths in A so that new paths
+                // Exclude the links after the spur node that are part of other paths in A so that new paths
                 // found are unique
+                excludedLinks.clear();
                 for (Path r : A) {
-                    if (r.getPath().size() > (i + 1) && r.getPath().subList(0, i).equals(rootPath.getPath())) {
-                        allLinksCopy.remove(r.getPath().get(i));
-                        allLinksCopy.remove(r.getPath().get(i+1));
+                    if (r.getPath().size() > (i + 1) && r.getPath().subList(0, i).equals(rootPath)) {
+                        excludeLinksIntoPort(r.getPath().get(i));
+                        excludeLinksIntoPort(r.getPath().get(i+1));
                     }
                 }
 
-                // Removes the root path so Dijkstra's doesn't try to go through it to find a path
-                Set<DatapathId> switchesCopy = new HashSet<DatapathId>(switches);
-                for (NodePortTuple npt : rootPath.getPath()) {
-                    if (!npt.getNodeId().equals(spurNode)) {
-                        switchesCopy.remove(npt.getNodeId());
+                // Excludes the root path so Dijkstra's doesn't try to go through it to find a path
+                excludedSwitches.clear();
+                for (NodePortTuple npt : rootPath) {
+                    int s = graph.getSwitchIndex(npt.getNodeId());
+                    if (!npt.getNodeId().equals(spurNode) && s >= 0) {
+                        excludedSwitches.set(s);
                     }
                 }
 
-                // Builds the new topology without the parts we want removed
-                copyOfLinkDpidMap = buildLinkDpidMap(switchesCopy, portsWithLinks, allLinksCopy);
-
                 // Uses Dijkstra's to try to find a shortest path from the spur node to the destination
-                Path spurPath = buildPath(new PathId(spurNode, dst), dijkstra(copyOfLinkDpidMap, dst, linkCost, true));
-                if (spurPath == null || spurPath.getPath().isEmpty()) {
+                int spurIndex = graph.getSwitchIndex(spurNode);
+                int dstIndex = graph.getSwitchIndex(dst);
+                if (spurIndex < 0 || dstIndex < 0) {
+                    continue;
+                }
+                graph.dijkstra(dstIndex, costs.byIndex, true, excludedSwitches, excludedLinks, dist, treeLink);
+                List<NodePortTuple> spurPath = buildPath(spurIndex, dstIndex, treeLink);
+                if (spurPath.isEmpty()) {
                     log.debug("spurPath is null");
                     continue;
                 }
 
                 // Adds the root path and spur path together to get a possible shortest path
-                List<NodePortTuple> totalNpt = new LinkedList<NodePortTuple>();
-                totalNpt.addAll(rootPath.getPath());
-                totalNpt.addAll(spurPath.getPath());
-                Path totalPath = new Path(new PathId(src, dst), totalNpt);
-                setPathCosts(totalPath);
+                List<NodePortTuple> totalNpt = new ArrayList<NodePortTuple>(rootPath.size() + spurPath.size());
+                totalNpt.addAll(rootPath);
+                totalNpt.addAll(spurPath);
 
                 log.trace("Spur Node: {}", spurNode);
                 log.trace("Root Path: {}", rootPath);
                 log.trace("Spur Path: {}", spurPath);
-                log.trace("Total Path: {}", totalPath);
-                // Adds the new path into B
-                int flag = 0;
-                for (Path r_B : B) {
-                    for (Path r_A : A) {
-                        if (r_B.getPath().equals(totalPath.getPath()) || r_A.getPath().equals(totalPath.getPath())) {
-                            flag = 1;
-                        }
-                    }
-                }
-                if (flag == 0) {
+                log.trace("Total Path: {}", totalNpt);
+                // Adds the new path into B unless it is already known
+                if (!containsPath(A, totalNpt) && !containsPath(B, totalNpt)) {
+                    Path totalPath = new Path(new PathId(src, dst), totalNpt);
+                    setPathCosts(totalPath);
                     B.add(totalPath);
                 }
-
-                // Restore edges and nodes to graph
             }
+        }
 
-            // If we get out of the loop and there isn't a path in B to add to A, all possible paths have been
-            // found and return A
-            if (B.isEmpty()) {
-                //log.debug("B list is empty in Yen's");
-                break;
+        private void excludeLinksIntoPort(NodePortTuple npt) {
+            for (int l : graph.getLinksIntoPort(npt)) {
+                excludedLinks.set(l);
             }
+        }
 
-            log.debug("Removing shortest path from {}", B);
-            // Find the shortest path in B, remove it, and put it in A
-            log.debug("--------------BEFORE------------------------");
-            for (Path r : B) {
-                log.debug(r.toString());
-            }
-            log.debug("--------------------------------------------");
-            Path shortestPath = removeShortestPath(B, linkCost);
-            log.debug("--------------AFTER------------------------");
-            for (Path r : B) {
-                log.debug(r.toString());
+        private boolean containsPath(List<Path> paths, List<NodePortTuple> npts) {
+            for (Path p : paths) {
+                if (p.getPath().equals(npts)) {
+                    return true;
+                }
             }
-            log.debug("--------------------------------------------");
+            return false;
+        }
+    }
 
-            if (shortestPath != null) {
-                log.debug("Adding new shortest path to {} in Yen's", shortestPath);
-                A.add(shortestPath);
-                log.debug("A: {}", A);
-            }
-            else {
-                log.debug("removeShortestPath returned {}", shortestPath);
+    private Path copyPath(Path p) {
+        Path copy = new Path(p.getId(), new ArrayList<NodePortTuple>(p.getPath()));
+        copy.setPathIndex(p.getPathIndex());
+        copy.setHopCount(p.getHopCount());
+        copy.setLatency(p.getLatency());
+        return copy;
+    }
+
+    private static boolean isSorted(int[] cost) {
+        for (int i = 1; i < cost.length; i++) {
+            if (cost[i - 1] > cost[i]) {
+                return false;
             }
         }
+        return true;
+    }
 
-        // Set the route counts
-        for (Path path : A) {
-            path.setPathIndex(A.indexOf(path));
-        }
-        //log.debug("END OF YEN'S --------------------");
-        return A;
+    /*
+     * Returns copies of the paths in order of the given costs, renumbered.
+     * Paths of equal cost keep their order. The cached list is not modified,
+     * as cursors may be reading it.
+     */
+    private List<Path> sortByCost(List<Path> paths, final int[] cost) {
+        Integer[] order = new Integer[paths.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(cost[a], cost[b]));
+        List<Path> sorted = new ArrayList<Path>(paths.size());
+        for (int i = 0; i < order.length; i++) {
+            Path p = copyPath(paths.get(order[i]));
+            p.setPathIndex(i);
+            sorted.add(p);
+        }
+        return sorted;
     }
 
     private Path removeShortestPath(List<Path> routes, Map<Link, Integer> linkCost) {
@@ -1150,17 +1534,7 @@ public class TopologyInstance {
 
         // Iterate through B and find the shortest path
         for (Path r : routes) {
-            Integer pathCost = 0;
-            // Add up the weights of each link in the path
-            // TODO Get the path cost from the route object
-            for (NodePortTuple npt : r.getPath()) {
-                if (links.get(npt) == null || linkCost.get(links.get(npt).iterator().next()) == null) {
-                    pathCost++;
-                }
-                else {
-                    pathCost += linkCost.get(links.get(npt).iterator().next());
-                }
-            }
+            int pathCost = getPathCost(r, linkCost);
             log.debug("Path {} with cost {}", r, pathCost);
             // If it is smaller than the current smallest, replace variables with the path just found
             if (pathCost < shortestPathCost) {
@@ -1178,6 +1552,22 @@ public class TopologyInstance {
         return shortestPath;
     }
 
+    /*
+     * Adds up the weights of the links along a path the same way dijkstra()
+     * does, so the cost of a path only depends on its own links.
+     */
+    private int getPathCost(Path p, Map<Link, Integer> linkCost) {
+        int cost = 0;
+        List<NodePortTuple> npts = p.getPath();
+        for (int i = 0; i < npts.size() - 1; i = i + 2) {
+            Link link = new Link(npts.get(i).getNodeId(), npts.get(i).getPortId(),
+                    npts.get(i + 1).getNodeId(), npts.get(i + 1).getPortId(), U64.ZERO);
+            Integer w = linkCost == null ? null : linkCost.get(link);
+            cost += w == null ? 1 : w;
+        }
+        return cost;
+    }
+
     /**
      * Computes end-to-end path including src/dst switch
      * ports in addition to the switches. This chains into
@@ -1227,8 +1617,9 @@ public class TopologyInstance {
         Path result = null;
 
         try {
-            if (!pathcache.get(id).isEmpty()) {
-                result = pathcache.get(id).get(0);
+            List<Path> paths = getCachedPaths(srcId, dstId);
+            if (!paths.isEmpty()) {
+                result = paths.get(0);
             }
         } catch (Exception e) {
             log.warn("Could not find route from {} to {}. If the path exists, wait for the topology to settle, and it will be detected", srcId, dstId);
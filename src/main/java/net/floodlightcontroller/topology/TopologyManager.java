@@ -35,7 +35,9 @@ import net.floodlightcontroller.packet.LLDP;
 import net.floodlightcontroller.restserver.IRestApiService;
 import net.floodlightcontroller.routing.IRoutingService.PATH_METRIC;
 import net.floodlightcontroller.routing.web.RoutingWebRoutable;
+import net.floodlightcontroller.statistics.IStatisticsListener;
 import net.floodlightcontroller.statistics.IStatisticsService;
+import net.floodlightcontroller.statistics.PortStatisticsSnapshot;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.web.TopologyWebRoutable;
 import net.floodlightcontroller.util.OFMessageUtils;
@@ -53,6 +55,7 @@ import com.google.common.collect.ImmutableSet;
 
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -63,7 +66,7 @@ import java.util.concurrent.TimeUnit;
  * through the topology.
  */
 public class TopologyManager implements IFloodlightModule, ITopologyService, 
-ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
+ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener, IStatisticsListener {
     private static Logger log = LoggerFactory.getLogger(TopologyManager.class);
     public static final String MODULE_NAME = "topology";
 
@@ -74,6 +77,22 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
      */
     private static volatile int maxPathsToCompute = 3;
 
+    /**
+     * If set, the pathcache of a new topology instance is filled in the background
+     * on a fork-join pool, and pairs not reached yet are computed when requested.
+     */
+    protected static volatile boolean parallelPathComputation = false;
+    private int pathComputationThreads = Runtime.getRuntime().availableProcessors();
+    /* created in init, workers of a fork-join pool are daemon threads and exit when idle */
+    private ForkJoinPool pathComputationPool;
+
+    /**
+     * Relative change of the utilization of a link after which its cost is
+     * updated and the cached paths over it are reordered, see
+     * {@link TopologyInstance#updateLinkCosts(PortStatisticsSnapshot, double)}.
+     */
+    private static volatile double linkCostChangeThreshold = 0.2;
+
     /**
      * Role of the controller.
      */
@@ -123,6 +142,7 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
     protected TopologyInstance currentInstance;
 
     protected SingletonTask newInstanceTask;
+    protected SingletonTask linkCostTask;
     private Date lastUpdateTime;
 
     /**
@@ -192,6 +212,25 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
         }
     }
 
+    /**
+     * Takes the link costs of the current instance from the latest port
+     * statistics, off the statistics collector thread.
+     */
+    protected class UpdateLinkCostsWorker implements Runnable {
+        @Override
+        public void run() {
+            try {
+                TopologyInstance ti = getCurrentInstance();
+                if (ti.updateLinkCosts(statisticsService.getPortStatisticsSnapshot(), linkCostChangeThreshold)) {
+                    log.debug("Updated link costs to version {}", ti.getLinkCostVersion());
+                }
+            }
+            catch (Exception e) {
+                log.error("Error updating link costs", e);
+            }
+        }
+    }
+
     // To be used for adding any periodic events that's required by topology.
     protected void handleMiscellaneousPeriodicEvents() {
         return;
@@ -225,6 +264,21 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
         ldUpdates.addAll(updateList);
     }
 
+    // *******************
+    // IStatisticsListener
+    // *******************
+
+    @Override
+    public void portStatisticsCollected(PortStatisticsSnapshot snapshot) {
+        /*
+         * only the utilization metric depends on port statistics; updating link costs reorders
+         * cached paths, so it waits for regular rounds rather than adaptive samples
+         */
+        if (pathMetric == PATH_METRIC.UTILIZATION && linkCostTask != null && !snapshot.isPartial()) {
+            linkCostTask.reschedule(0, TimeUnit.MILLISECONDS);
+        }
+    }
+
     // ****************
     // ITopologyService
     // ****************
@@ -357,6 +411,10 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
         return maxPathsToCompute;
     }
 
+    protected static boolean isParallelPathComputationInternal() {
+        return parallelPathComputation;
+    }
+
     @Override
     public int getMaxPathsToCompute() {
         return maxPathsToCompute;
@@ -654,6 +712,38 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
                     }
                 }
                 log.info("Will compute a max of {} paths upon topology updates", maxPathsToCompute);
+
+                String parallel = configOptions.get("parallelPathComputation") != null
+                        ? configOptions.get("parallelPathComputation").trim() : null;
+                if (parallel != null) {
+                    parallelPathComputation = Boolean.parseBoolean(parallel);
+                }
+                String threads = configOptions.get("pathComputationThreads") != null
+                        ? configOptions.get("pathComputationThreads").trim() : null;
+                if (threads != null) {
+                    try {
+                        int t = Integer.parseInt(threads);
+                        if (t > 0) { /* 0 leaves one thread per processor */
+                            pathComputationThreads = t;
+                        }
+                    } catch (NumberFormatException e) {
+                        log.error("Invalid 'pathComputationThreads'. Using default {}", pathComputationThreads);
+                    }
+                }
+                if (parallelPathComputation) {
+                    log.info("Will compute paths in parallel on {} threads", pathComputationThreads);
+                }
+                pathComputationPool = new ForkJoinPool(pathComputationThreads);
+
+                String threshold = configOptions.get("linkCostChangeThreshold") != null
+                        ? configOptions.get("linkCostChangeThreshold").trim() : null;
+                if (threshold != null) {
+                    try {
+                        linkCostChangeThreshold = Double.parseDouble(threshold);
+                    } catch (NumberFormatException e) {
+                        log.error("Invalid 'linkCostChangeThreshold'. Using default {}", linkCostChangeThreshold);
+                    }
+                }
     }
 
     @Override
@@ -669,6 +759,11 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
             newInstanceTask.reschedule(TOPOLOGY_COMPUTE_INTERVAL_MS, TimeUnit.MILLISECONDS);
         }
 
+        if (statisticsService != null) {
+            linkCostTask = new SingletonTask(ses, new UpdateLinkCostsWorker());
+            statisticsService.addStatisticsListener(this);
+        }
+
         linkDiscoveryService.addListener(this);
         floodlightProviderService.addOFMessageListener(OFType.PACKET_IN, this);
         floodlightProviderService.addHAListener(this.haListener);
@@ -1015,9 +1110,15 @@ ITopologyManagerBackend, ILinkDiscoveryListener, IOFMessageListener {
                 allPorts,
                 interClusterLinks);
 
-        nt.compute();
+        /* paths of the old instance which the change cannot affect are reused */
+        TopologyInstance old = currentInstance;
+        nt.compute(old, pathComputationPool);
 
         currentInstance = nt;
+        if (old != null) {
+            /* nobody new will ask the old instance for paths */
+            old.cancelPathComputation();
+        }
 
         return true;
     }
@@ -0,0 +1,17 @@
+package pl.sszwaczyk.classifier;
+
+import lombok.Value;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IpProtocol;
+import org.projectfloodlight.openflow.types.TransportPort;
+
+@Value
+public class FiveTuple {
+
+    private IPv4Address srcAddress;
+    private TransportPort srcPort;
+    private IPv4Address dstAddress;
+    private TransportPort dstPort;
+    private IpProtocol protocol;
+
+}
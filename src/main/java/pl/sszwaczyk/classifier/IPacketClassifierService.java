@@ -0,0 +1,21 @@
+package pl.sszwaczyk.classifier;
+
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.FloodlightContextStore;
+import net.floodlightcontroller.core.module.IFloodlightService;
+
+public interface IPacketClassifierService extends IFloodlightService {
+
+    /**
+     * The classification of the current packet-in.
+     */
+    String CONTEXT_CLASSIFICATION = "pl.sszwaczyk.classifier.classification";
+
+    FloodlightContextStore<PacketClassification> fcStore = new FloodlightContextStore<PacketClassification>();
+
+    /**
+     * @return classification stored in the context, classifies the packet if it was not classified yet
+     */
+    PacketClassification getClassification(FloodlightContext cntx);
+
+}
@@ -0,0 +1,34 @@
+package pl.sszwaczyk.classifier;
+
+import lombok.Value;
+import pl.sszwaczyk.service.Service;
+import pl.sszwaczyk.user.User;
+import pl.sszwaczyk.utils.AddressAndPort;
+import pl.sszwaczyk.utils.AddressesAndPorts;
+
+/**
+ * Result of classifying a PACKET_IN, computed once per packet by {@link PacketClassifier}.
+ * For packets other than TCP over IPv4 all fields are null.
+ */
+@Value
+public class PacketClassification {
+
+    public static final PacketClassification NOT_CLASSIFIED = new PacketClassification(null, null, null, null);
+
+    private FiveTuple tuple;
+    private AddressesAndPorts ap;
+    private Service service;
+    private User user;
+
+    public static PacketClassification of(FiveTuple tuple, Service service, User user) {
+        AddressesAndPorts ap = AddressesAndPorts.builder()
+                .src(new AddressAndPort(tuple.getSrcAddress().toString(), tuple.getSrcPort().getPort()))
+                .dst(new AddressAndPort(tuple.getDstAddress().toString(), tuple.getDstPort().getPort()))
+                .build();
+        return new PacketClassification(tuple, ap, service, user);
+    }
+
+    public boolean isSecured() {
+        return service != null;
+    }
+}
@@ -0,0 +1,123 @@
+package pl.sszwaczyk.classifier;
+
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IOFMessageListener;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.module.FloodlightModuleException;
+import net.floodlightcontroller.core.module.IFloodlightModule;
+import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.packet.IPv4;
+import net.floodlightcontroller.packet.TCP;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.types.IpProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.sszwaczyk.service.IServiceService;
+import pl.sszwaczyk.service.Service;
+import pl.sszwaczyk.user.IUserService;
+import pl.sszwaczyk.user.User;
+import pl.sszwaczyk.utils.PacketUtils;
+
+import java.util.*;
+
+/**
+ * Classifies every PACKET_IN once, before duplicated-filter and forwarding, and stores
+ * its 5-tuple with resolved Service and User in the FloodlightContext.
+ */
+public class PacketClassifier implements IFloodlightModule, IOFMessageListener, IPacketClassifierService {
+
+    private static final Logger log = LoggerFactory.getLogger(PacketClassifier.class);
+
+    private IFloodlightProviderService floodlightProviderService;
+    private IServiceService serviceService;
+    private IUserService userService;
+
+    @Override
+    public Collection<Class<? extends IFloodlightService>> getModuleServices() {
+        Collection<Class<? extends IFloodlightService>> s =
+                new HashSet<Class<? extends IFloodlightService>>();
+        s.add(IPacketClassifierService.class);
+        return s;
+    }
+
+    @Override
+    public Map<Class<? extends IFloodlightService>, IFloodlightService> getServiceImpls() {
+        Map<Class<? extends IFloodlightService>, IFloodlightService> m =
+                new HashMap<Class<? extends IFloodlightService>, IFloodlightService>();
+        m.put(IPacketClassifierService.class, this);
+        return m;
+    }
+
+    @Override
+    public Collection<Class<? extends IFloodlightService>> getModuleDependencies() {
+        Collection<Class<? extends IFloodlightService>> l =
+                new ArrayList<Class<? extends IFloodlightService>>();
+        l.add(IFloodlightProviderService.class);
+        l.add(IServiceService.class);
+        l.add(IUserService.class);
+        return l;
+    }
+
+    @Override
+    public void init(FloodlightModuleContext context) throws FloodlightModuleException {
+        floodlightProviderService = context.getServiceImpl(IFloodlightProviderService.class);
+        serviceService = context.getServiceImpl(IServiceService.class);
+        userService = context.getServiceImpl(IUserService.class);
+    }
+
+    @Override
+    public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
+        floodlightProviderService.addOFMessageListener(OFType.PACKET_IN, this);
+    }
+
+    @Override
+    public Command receive(IOFSwitch sw, OFMessage msg, FloodlightContext cntx) {
+        if(msg.getType() == OFType.PACKET_IN) {
+            getClassification(cntx);
+        }
+        return Command.CONTINUE;
+    }
+
+    @Override
+    public PacketClassification getClassification(FloodlightContext cntx) {
+        PacketClassification classification = fcStore.get(cntx, CONTEXT_CLASSIFICATION);
+        if(classification == null) {
+            classification = classify(cntx);
+            fcStore.put(cntx, CONTEXT_CLASSIFICATION, classification);
+        }
+        return classification;
+    }
+
+    private PacketClassification classify(FloodlightContext cntx) {
+        IPv4 ipv4 = PacketUtils.getTCPOverIPv4(cntx);
+        if(ipv4 == null) {
+            return PacketClassification.NOT_CLASSIFIED;
+        }
+        TCP tcp = (TCP) ipv4.getPayload();
+        FiveTuple tuple = new FiveTuple(ipv4.getSourceAddress(), tcp.getSourcePort(),
+                ipv4.getDestinationAddress(), tcp.getDestinationPort(), IpProtocol.TCP);
+        Service service = serviceService.getService(tuple.getSrcAddress(), tuple.getSrcPort());
+        User user = userService.getUser(tuple.getDstAddress());
+        PacketClassification classification = PacketClassification.of(tuple, service, user);
+        log.trace("Classified packet {}", classification);
+        return classification;
+    }
+
+    @Override
+    public String getName() {
+        return "packet-classifier";
+    }
+
+    @Override
+    public boolean isCallbackOrderingPrereq(OFType type, String name) {
+        return false;
+    }
+
+    @Override
+    public boolean isCallbackOrderingPostreq(OFType type, String name) {
+        return type.equals(OFType.PACKET_IN) && (name.equals("duplicated-filter") || name.equals("forwarding"));
+    }
+}
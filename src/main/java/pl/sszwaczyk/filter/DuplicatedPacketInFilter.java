@@ -12,8 +12,8 @@ import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import pl.sszwaczyk.service.IServiceService;
-import pl.sszwaczyk.service.Service;
+import pl.sszwaczyk.classifier.IPacketClassifierService;
+import pl.sszwaczyk.classifier.PacketClassification;
 import pl.sszwaczyk.utils.AddressesAndPorts;
 
 import java.time.LocalTime;
@@ -31,7 +31,7 @@ public class DuplicatedPacketInFilter implements IFloodlightModule, IOFMessageLi
     private static int BUFFERING_TIME = 1800; //seconds
 
     private IFloodlightProviderService floodlightProviderService;
-    private IServiceService serviceService;
+    private IPacketClassifierService packetClassifierService;
 
     private Map<AddressesAndPorts, LocalTime> buffered = new ConcurrentHashMap<>();
 
@@ -57,14 +57,14 @@ public class DuplicatedPacketInFilter implements IFloodlightModule, IOFMessageLi
         Collection<Class<? extends IFloodlightService>> l =
                 new ArrayList<Class<? extends IFloodlightService>>();
         l.add(IFloodlightProviderService.class);
-        l.add(IServiceService.class);
+        l.add(IPacketClassifierService.class);
         return l;
     }
 
     @Override
     public void init(FloodlightModuleContext context) throws FloodlightModuleException {
         floodlightProviderService = context.getServiceImpl(IFloodlightProviderService.class);
-        serviceService = context.getServiceImpl(IServiceService.class);
+        packetClassifierService = context.getServiceImpl(IPacketClassifierService.class);
 
         Map<String, String> configParameters = context.getConfigParams(this);
         String flushExpiredString = configParameters.get("flush-expired");
@@ -90,9 +90,9 @@ public class DuplicatedPacketInFilter implements IFloodlightModule, IOFMessageLi
     public Command receive(IOFSwitch sw, OFMessage msg, FloodlightContext cntx) {
         switch (msg.getType()) {
             case PACKET_IN:
-                Service service = serviceService.getServiceFromCntx(cntx);
-                if(service != null) {
-                    AddressesAndPorts addressesAndPorts = AddressesAndPorts.fromCntx(cntx);
+                PacketClassification classification = packetClassifierService.getClassification(cntx);
+                if(classification.isSecured()) {
+                    AddressesAndPorts addressesAndPorts = classification.getAp();
                     LocalTime time = buffered.get(addressesAndPorts);
                     if(time != null) {
                         log.debug("Stopping processing because of duplicate " + addressesAndPorts);
@@ -136,6 +136,15 @@ public class DuplicatedPacketInFilter implements IFloodlightModule, IOFMessageLi
         buffered.put(ap, LocalTime.now());
     }
 
+    @Override
+    public boolean tryAddToBuffering(AddressesAndPorts ap) {
+        boolean added = buffered.putIfAbsent(ap, LocalTime.now()) == null;
+        if(added) {
+            log.debug("Added to buffering for " + ap);
+        }
+        return added;
+    }
+
     class FlushExpired implements Runnable {
 
         @Override
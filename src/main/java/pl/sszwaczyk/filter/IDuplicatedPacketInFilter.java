@@ -9,4 +9,10 @@ public interface IDuplicatedPacketInFilter extends IFloodlightService {
 
     void addToBuffering(AddressesAndPorts ap);
 
+    /**
+     * Adds to buffering only if not already buffered.
+     * @return true if added, false if ap was already buffered
+     */
+    boolean tryAddToBuffering(AddressesAndPorts ap);
+
 }
@@ -10,4 +10,10 @@ public interface IPathPropertiesService extends IFloodlightService {
 
     Map<SecurityDimension, Float> calculatePathProperties(Path path);
 
+    /**
+     * Aggregates property of a path with property of the next element as configured calculator does.
+     * Element with unknown (NaN) property is skipped, the same as in calculatePathProperties.
+     */
+    float aggregate(float pathProperty, float elementProperty);
+
 }
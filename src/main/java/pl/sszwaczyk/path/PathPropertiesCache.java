@@ -0,0 +1,155 @@
+package pl.sszwaczyk.path;
+
+import com.google.common.collect.ImmutableList;
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.routing.Path;
+import net.floodlightcontroller.routing.PathId;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.sszwaczyk.security.SecurityDimension;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Security properties of candidate paths, grouped by PathId. Properties of a path
+ * depend only on the switches and links it crosses, so entries are invalidated
+ * per switch: every entry crossing a changed switch (or a link of it) is dropped.
+ * At most maxPathsPerPathId paths are kept per PathId; beyond that an arbitrary
+ * other path of the same PathId is evicted. A PathId is indexed under a switch only
+ * while one of its cached paths crosses it, and dropped when it has no cached paths.
+ */
+public class PathPropertiesCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PathPropertiesCache.class);
+
+    public static final int DEFAULT_MAX_PATHS_PER_PATH_ID = 32;
+
+    private final int maxPathsPerPathId;
+
+    private final Map<PathId, Map<List<NodePortTuple>, Map<SecurityDimension, Float>>> cache = new ConcurrentHashMap<>();
+    private final Map<DatapathId, Set<PathId>> pathIdsBySwitch = new ConcurrentHashMap<>();
+
+    /* bumped on every invalidation so values computed concurrently with it are not stored */
+    private final AtomicLong generation = new AtomicLong();
+
+    public PathPropertiesCache(int maxPathsPerPathId) {
+        this.maxPathsPerPathId = Math.max(1, maxPathsPerPathId);
+    }
+
+    public Map<SecurityDimension, Float> get(Path path, Function<Path, Map<SecurityDimension, Float>> calculator) {
+        PathId pathId = path.getId();
+        Map<List<NodePortTuple>, Map<SecurityDimension, Float>> paths = cache.get(pathId);
+        if(paths != null) {
+            Map<SecurityDimension, Float> properties = paths.get(path.getPath());
+            if(properties != null) {
+                return properties;
+            }
+        }
+
+        long before = generation.get();
+        Map<SecurityDimension, Float> properties = calculator.apply(path);
+        List<NodePortTuple> key = ImmutableList.copyOf(path.getPath());
+        // Kept in a local, clear() may drop the map of this PathId at any time
+        Map<List<NodePortTuple>, Map<SecurityDimension, Float>> stored = cache.computeIfAbsent(pathId, id -> new ConcurrentHashMap<>());
+        stored.put(key, properties);
+        evictOverLimit(pathId, stored, key);
+        for(NodePortTuple npt: key) {
+            // Under the lock of the switch entry, so unindex() cannot drop it concurrently
+            pathIdsBySwitch.compute(npt.getNodeId(), (dpid, pathIds) -> {
+                Set<PathId> set = pathIds == null ? ConcurrentHashMap.newKeySet() : pathIds;
+                set.add(pathId);
+                return set;
+            });
+        }
+        if(generation.get() != before) {
+            // Properties changed while calculating, do not keep possibly stale value
+            if(stored.remove(key) != null) {
+                unindex(pathId, key);
+            }
+        }
+        return properties;
+    }
+
+    private void evictOverLimit(PathId pathId, Map<List<NodePortTuple>, Map<SecurityDimension, Float>> paths, List<NodePortTuple> added) {
+        for(List<NodePortTuple> npts: paths.keySet()) {
+            if(paths.size() <= maxPathsPerPathId) {
+                return;
+            }
+            if(!npts.equals(added) && paths.remove(npts) != null) {
+                unindex(pathId, npts);
+            }
+        }
+    }
+
+    public void invalidate(Collection<DatapathId> switches) {
+        generation.incrementAndGet();
+        int removed = 0;
+        for(DatapathId dpid: switches) {
+            Set<PathId> pathIds = pathIdsBySwitch.get(dpid);
+            if(pathIds == null) {
+                continue;
+            }
+            for(PathId pathId: pathIds) {
+                Map<List<NodePortTuple>, Map<SecurityDimension, Float>> paths = cache.get(pathId);
+                if(paths == null) {
+                    continue;
+                }
+                for(List<NodePortTuple> npts: paths.keySet()) {
+                    if(crosses(npts, dpid) && paths.remove(npts) != null) {
+                        unindex(pathId, npts);
+                        removed++;
+                    }
+                }
+                cache.computeIfPresent(pathId, (id, p) -> p.isEmpty() ? null : p);
+            }
+        }
+        log.debug("Invalidated {} cached path properties crossing switches {}", removed, switches);
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        cache.clear();
+        pathIdsBySwitch.clear();
+    }
+
+    /* drops pathId from switches of a removed path which no other cached path of it crosses */
+    private void unindex(PathId pathId, List<NodePortTuple> removed) {
+        for(NodePortTuple npt: removed) {
+            pathIdsBySwitch.computeIfPresent(npt.getNodeId(), (dpid, pathIds) -> {
+                if(!crossedByCached(pathId, dpid)) {
+                    pathIds.remove(pathId);
+                }
+                return pathIds.isEmpty() ? null : pathIds;
+            });
+        }
+    }
+
+    private boolean crossedByCached(PathId pathId, DatapathId dpid) {
+        Map<List<NodePortTuple>, Map<SecurityDimension, Float>> paths = cache.get(pathId);
+        if(paths == null) {
+            return false;
+        }
+        for(List<NodePortTuple> npts: paths.keySet()) {
+            if(crosses(npts, dpid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean crosses(List<NodePortTuple> npts, DatapathId dpid) {
+        for(NodePortTuple npt: npts) {
+            if(npt.getNodeId().equals(dpid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
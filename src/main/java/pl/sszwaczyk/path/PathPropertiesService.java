@@ -5,26 +5,40 @@ import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
 import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.linkdiscovery.ILinkDiscovery.LDUpdate;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
+import net.floodlightcontroller.linkdiscovery.Link;
 import net.floodlightcontroller.routing.Path;
+import net.floodlightcontroller.topology.ITopologyListener;
+import net.floodlightcontroller.topology.ITopologyService;
+import org.projectfloodlight.openflow.types.DatapathId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.sszwaczyk.path.calculator.MinPathPropertiesCalculator;
 import pl.sszwaczyk.path.calculator.MultiplicationPathPropertiesCalculator;
 import pl.sszwaczyk.path.calculator.PathPropertiesCalculator;
 import pl.sszwaczyk.security.SecurityDimension;
+import pl.sszwaczyk.security.properties.ISecurityPropertiesChangedListener;
+import pl.sszwaczyk.security.properties.ISecurityPropertiesService;
+import pl.sszwaczyk.security.properties.SecurityPropertiesUpdate;
 
 import java.util.*;
 
-public class PathPropertiesService implements IFloodlightModule, IPathPropertiesService {
+public class PathPropertiesService implements IFloodlightModule, IPathPropertiesService,
+        ISecurityPropertiesChangedListener, ITopologyListener {
 
     protected static final Logger log = LoggerFactory.getLogger(PathPropertiesService.class);
 
     private IOFSwitchService switchService;
     private ILinkDiscoveryService linkService;
+    private ISecurityPropertiesService securityPropertiesService;
+    private ITopologyService topologyService;
 
     private PathPropertiesCalculator calculator;
 
+    private boolean cacheEnabled = true;
+    private PathPropertiesCache cache;
+
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleServices() {
         Collection<Class<? extends IFloodlightService>> s =
@@ -47,6 +61,8 @@ public class PathPropertiesService implements IFloodlightModule, IPathProperties
                 new ArrayList<Class<? extends IFloodlightService>>();
         l.add(IOFSwitchService.class);
         l.add(ILinkDiscoveryService.class);
+        l.add(ISecurityPropertiesService.class);
+        l.add(ITopologyService.class);
         return l;
     }
 
@@ -54,6 +70,8 @@ public class PathPropertiesService implements IFloodlightModule, IPathProperties
     public void init(FloodlightModuleContext context) throws FloodlightModuleException {
         this.switchService = context.getServiceImpl(IOFSwitchService.class);
         this.linkService = context.getServiceImpl(ILinkDiscoveryService.class);
+        this.securityPropertiesService = context.getServiceImpl(ISecurityPropertiesService.class);
+        this.topologyService = context.getServiceImpl(ITopologyService.class);
 
         Map<String, String> configParameters = context.getConfigParams(this);
         String calcString = configParameters.get("path-properties-calculator");
@@ -62,24 +80,86 @@ public class PathPropertiesService implements IFloodlightModule, IPathProperties
         }
 
         if(calcString.equals("minimum")) {
-            calculator = new MinPathPropertiesCalculator(switchService, linkService);
+            calculator = new MinPathPropertiesCalculator(securityPropertiesService);
         } else if(calcString.equals("multiplication")) {
-            calculator = new MultiplicationPathPropertiesCalculator(switchService, linkService);
+            calculator = new MultiplicationPathPropertiesCalculator(securityPropertiesService);
         } else {
             throw new FloodlightModuleException("Cannot init PathPropertiesService because wrong PathPropertiesCalculator specified (" + calcString + ")!");
         }
+
+        String cacheString = configParameters.get("cache-path-properties");
+        if(cacheString != null && !cacheString.isEmpty()) {
+            cacheEnabled = Boolean.parseBoolean(cacheString);
+            log.info("Path properties cache set to " + cacheEnabled);
+        } else {
+            log.info("Path properties cache not set. Set default to " + cacheEnabled);
+        }
+
+        int maxPathsPerPair = PathPropertiesCache.DEFAULT_MAX_PATHS_PER_PATH_ID;
+        String maxString = configParameters.get("cache-max-paths-per-pair");
+        if(maxString != null && !maxString.isEmpty()) {
+            try {
+                maxPathsPerPair = Integer.parseInt(maxString);
+                log.info("Path properties cache keeps at most " + maxPathsPerPair + " paths per switch pair");
+            } catch (NumberFormatException e) {
+                log.error("Invalid cache-max-paths-per-pair " + maxString + ". Set default to " + maxPathsPerPair);
+            }
+        }
+        cache = new PathPropertiesCache(maxPathsPerPair);
         log.info("PathPropertiesService initialized with " + calcString + " path properties calculator.");
     }
 
     @Override
     public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
-
+        // Registered before the modules depending on this service (e.g. Forwarding),
+        // so the cache is already invalidated when they handle the same update
+        securityPropertiesService.addListener(this);
+        topologyService.addListener(this);
     }
 
     @Override
     public Map<SecurityDimension, Float> calculatePathProperties(Path path) {
-        Map<SecurityDimension, Float> pathProperties = calculator.calculatePathProperties(path);
+        Map<SecurityDimension, Float> pathProperties;
+        if(cacheEnabled) {
+            pathProperties = cache.get(path, p -> Collections.unmodifiableMap(calculator.calculatePathProperties(p)));
+        } else {
+            pathProperties = calculator.calculatePathProperties(path);
+        }
         log.debug("Path properties {} for Path {}", pathProperties, path);
         return pathProperties;
     }
+
+    @Override
+    public float aggregate(float pathProperty, float elementProperty) {
+        return calculator.aggregateKnown(pathProperty, elementProperty);
+    }
+
+    @Override
+    public void securityPropertiesChanged(SecurityPropertiesUpdate update) {
+        Set<DatapathId> affected = new HashSet<>();
+        if(update.getSwitches() != null) {
+            update.getSwitches().forEach(s -> affected.add(s.getId()));
+        }
+        if(update.getLinks() != null) {
+            for(Link link: update.getLinks()) {
+                affected.add(link.getSrc());
+                affected.add(link.getDst());
+            }
+        }
+        cache.invalidate(affected);
+    }
+
+    @Override
+    public void topologyChanged(List<LDUpdate> linkUpdates) {
+        Set<DatapathId> affected = new HashSet<>();
+        for(LDUpdate update: linkUpdates) {
+            if(update.getSrc() != null) {
+                affected.add(update.getSrc());
+            }
+            if(update.getDst() != null) {
+                affected.add(update.getDst());
+            }
+        }
+        cache.invalidate(affected);
+    }
 }
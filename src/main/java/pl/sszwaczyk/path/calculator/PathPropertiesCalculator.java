@@ -1,63 +1,70 @@
 package pl.sszwaczyk.path.calculator;
 
-import net.floodlightcontroller.core.IOFSwitch;
-import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.core.types.NodePortTuple;
-import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
-import net.floodlightcontroller.linkdiscovery.Link;
 import net.floodlightcontroller.routing.Path;
 import pl.sszwaczyk.security.SecurityDimension;
+import pl.sszwaczyk.security.properties.ISecurityPropertiesService;
+import pl.sszwaczyk.security.properties.SecurityPropertiesSnapshot;
 
-import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
 public abstract class PathPropertiesCalculator {
 
-    protected IOFSwitchService switchService;
-    protected ILinkDiscoveryService linkService;
+    protected ISecurityPropertiesService securityPropertiesService;
 
-    public PathPropertiesCalculator(IOFSwitchService switchService,
-                                    ILinkDiscoveryService linkService) {
-        this.switchService = switchService;
-        this.linkService = linkService;
+    public PathPropertiesCalculator(ISecurityPropertiesService securityPropertiesService) {
+        this.securityPropertiesService = securityPropertiesService;
     }
 
+    /**
+     * Aggregates trust of switches and C, I, A of links of the path. Path may start and end
+     * with host ports (first two tuples on the same switch). Switches and links without
+     * known properties are skipped.
+     */
     public Map<SecurityDimension, Float> calculatePathProperties(Path path) {
+        SecurityPropertiesSnapshot snapshot = securityPropertiesService.getSecurityPropertiesSnapshot();
         List<NodePortTuple> npts = path.getPath();
-        List<IOFSwitch> switches = new ArrayList<>();
-        List<Link> links = new ArrayList<>();
-        if(npts.get(0).getNodeId().equals(npts.get(1).getNodeId())) {
-            for(int i = 0; i < npts.size() - 2; i = i + 2) {
-                IOFSwitch s1 = switchService.getSwitch(npts.get(i + 1).getNodeId());
-                IOFSwitch s2 = switchService.getSwitch(npts.get(i + 2).getNodeId());
-                Link l = linkService.getLink(s1.getId(), npts.get(i + 1).getPortId(), s2.getId(), npts.get(i + 2).getPortId());
-                if(i == 0) {
-                    switches.add(s1);
-                }
-                switches.add(s2);
-                if(l != null) {
-                    links.add(l);
-                }
-            }
-        } else {
-            for(int i = 0; i < npts.size() - 1; i = i + 2) {
-                IOFSwitch s1 = switchService.getSwitch(npts.get(i).getNodeId());
-                IOFSwitch s2 = switchService.getSwitch(npts.get(i + 1).getNodeId());
-                Link l = linkService.getLink(s1.getId(), npts.get(i).getPortId(), s2.getId(), npts.get(i + 1).getPortId());
-                if(i == 0) {
-                    switches.add(s1);
-                }
-                switches.add(s2);
-                if(l != null) {
-                    links.add(l);
-                }
+
+        float c = 1.0f;
+        float i = 1.0f;
+        float a = 1.0f;
+        float t = 1.0f;
+
+        int start = npts.get(0).getNodeId().equals(npts.get(1).getNodeId()) ? 1 : 0;
+        for(int n = start; n < npts.size() - 1; n = n + 2) {
+            NodePortTuple out = npts.get(n);
+            NodePortTuple in = npts.get(n + 1);
+            if(n == start) {
+                t = aggregateKnown(t, snapshot.getTrust(out.getNodeId()));
             }
+            t = aggregateKnown(t, snapshot.getTrust(in.getNodeId()));
+
+            int link = snapshot.getLinkOrdinal(out.getNodeId(), out.getPortId(), in.getNodeId(), in.getPortId());
+            c = aggregateKnown(c, snapshot.getConfidentiality(link));
+            i = aggregateKnown(i, snapshot.getIntegrity(link));
+            a = aggregateKnown(a, snapshot.getAvailability(link));
         }
 
+        Map<SecurityDimension, Float> pathProperties = new EnumMap<>(SecurityDimension.class);
+        pathProperties.put(SecurityDimension.CONFIDENTIALITY, c);
+        pathProperties.put(SecurityDimension.INTEGRITY, i);
+        pathProperties.put(SecurityDimension.AVAILABILITY, a);
+        pathProperties.put(SecurityDimension.TRUST, t);
+        return pathProperties;
+    }
 
-        return calculatePathProperties(switches, links);
+    /**
+     * Like aggregate, but an element with unknown (NaN) property leaves the path property unchanged.
+     */
+    public float aggregateKnown(float pathProperty, float elementProperty) {
+        return Float.isNaN(elementProperty) ? pathProperty : aggregate(pathProperty, elementProperty);
     }
 
-    public abstract Map<SecurityDimension, Float> calculatePathProperties(List<IOFSwitch> switches, List<Link> links);
+    /**
+     * Property of a path extended by one element (switch or link), for incremental calculation.
+     * Path without elements has all properties equal to 1.
+     */
+    public abstract float aggregate(float pathProperty, float elementProperty);
 }
@@ -0,0 +1,95 @@
+package pl.sszwaczyk.repository.flow;
+
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.linkdiscovery.Link;
+import net.floodlightcontroller.routing.Path;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.U64;
+import pl.sszwaczyk.utils.AddressesAndPorts;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index from switches and links to transfers which actual paths traverse them.
+ * Link keys are built from consecutive (out, in) ports of a path, latency is not part
+ * of Link equality so links from link discovery can be used for lookups.
+ * Sets are created and dropped when empty under the lock of their key, so an add
+ * never lands in a set which is being removed.
+ */
+public class ActualPathsIndex {
+
+    private final ConcurrentHashMap<DatapathId, Set<AddressesAndPorts>> bySwitch = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Link, Set<AddressesAndPorts>> byLink = new ConcurrentHashMap<>();
+
+    public void add(AddressesAndPorts ap, Path path) {
+        if(path == null) {
+            return;
+        }
+        List<NodePortTuple> npts = path.getPath();
+        for(int i = 0; i < npts.size(); i = i + 2) {
+            add(bySwitch, npts.get(i).getNodeId(), ap);
+        }
+        for(int i = 1; i < npts.size() - 1; i = i + 2) {
+            add(byLink, link(npts.get(i), npts.get(i + 1)), ap);
+        }
+    }
+
+    public void remove(AddressesAndPorts ap, Path path) {
+        if(path == null) {
+            return;
+        }
+        List<NodePortTuple> npts = path.getPath();
+        for(int i = 0; i < npts.size(); i = i + 2) {
+            remove(bySwitch, npts.get(i).getNodeId(), ap);
+        }
+        for(int i = 1; i < npts.size() - 1; i = i + 2) {
+            remove(byLink, link(npts.get(i), npts.get(i + 1)), ap);
+        }
+    }
+
+    private static <K> void add(ConcurrentHashMap<K, Set<AddressesAndPorts>> index, K key, AddressesAndPorts ap) {
+        index.compute(key, (k, aps) -> {
+            if(aps == null) {
+                aps = ConcurrentHashMap.newKeySet();
+            }
+            aps.add(ap);
+            return aps;
+        });
+    }
+
+    private static <K> void remove(ConcurrentHashMap<K, Set<AddressesAndPorts>> index, K key, AddressesAndPorts ap) {
+        index.computeIfPresent(key, (k, aps) -> {
+            aps.remove(ap);
+            return aps.isEmpty() ? null : aps;
+        });
+    }
+
+    public Set<AddressesAndPorts> get(Collection<DatapathId> switches, Collection<Link> links) {
+        Set<AddressesAndPorts> result = new HashSet<>();
+        if(switches != null) {
+            for(DatapathId sw: switches) {
+                Set<AddressesAndPorts> aps = bySwitch.get(sw);
+                if(aps != null) {
+                    result.addAll(aps);
+                }
+            }
+        }
+        if(links != null) {
+            for(Link link: links) {
+                Set<AddressesAndPorts> aps = byLink.get(link);
+                if(aps != null) {
+                    result.addAll(aps);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Link link(NodePortTuple out, NodePortTuple in) {
+        return new Link(out.getNodeId(), out.getPortId(), in.getNodeId(), in.getPortId(), U64.ZERO);
+    }
+}
@@ -1,7 +1,10 @@
 package pl.sszwaczyk.repository.flow;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Builder;
 import lombok.Data;
+import org.projectfloodlight.openflow.protocol.match.Match;
+import org.projectfloodlight.openflow.types.U64;
 import pl.sszwaczyk.routing.solver.Decision;
 import pl.sszwaczyk.service.Service;
 import pl.sszwaczyk.user.User;
@@ -24,4 +27,10 @@ public class Flow {
 
     private List<Decision> decisions;
 
+    /* match and cookie of flow mods installed on actual path, needed to reroute the flow without PACKET_IN */
+    @JsonIgnore
+    private Match match;
+    @JsonIgnore
+    private U64 cookie;
+
 }
@@ -1,12 +1,16 @@
 package pl.sszwaczyk.repository.flow;
 
 import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.linkdiscovery.Link;
 import net.floodlightcontroller.routing.Path;
+import org.projectfloodlight.openflow.types.DatapathId;
 import pl.sszwaczyk.routing.solver.Decision;
 import pl.sszwaczyk.utils.AddressesAndPorts;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface ISecureFlowsRepository extends IFloodlightService {
 
@@ -22,6 +26,13 @@ public interface ISecureFlowsRepository extends IFloodlightService {
 
     Map<AddressesAndPorts, Path> getActualPaths();
 
+    Path getActualPath(AddressesAndPorts ap);
+
+    /**
+     * Returns transfers which actual paths traverse any of given switches or links.
+     */
+    Set<AddressesAndPorts> getActualTransfersThrough(Collection<DatapathId> switches, Collection<Link> links);
+
     void deleteActualPath(AddressesAndPorts ap);
 
 }
@@ -10,6 +10,7 @@ import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
 import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.linkdiscovery.Link;
 import net.floodlightcontroller.restserver.IRestApiService;
 import net.floodlightcontroller.routing.Path;
 import org.projectfloodlight.openflow.protocol.OFFlowRemoved;
@@ -18,6 +19,7 @@ import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFType;
 import org.projectfloodlight.openflow.protocol.match.Match;
 import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.EthType;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.IpProtocol;
@@ -26,15 +28,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.sszwaczyk.repository.flow.web.SecureFlowsRepositoryRoutable;
 import pl.sszwaczyk.routing.solver.Decision;
+import pl.sszwaczyk.statistics.sink.IStatisticsSinkService;
 import pl.sszwaczyk.utils.AddressAndPort;
 import pl.sszwaczyk.utils.AddressesAndPorts;
+import pl.sszwaczyk.utils.RollingWindow;
 
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
 
 public class SecureFlowsRepository implements IFloodlightModule, ISecureFlowsRepository, IOFMessageListener {
 
@@ -42,12 +44,17 @@ public class SecureFlowsRepository implements IFloodlightModule, ISecureFlowsRep
 
     private IFloodlightProviderService floodlightProviderService;
     private IRestApiService restApiService;
+    private IStatisticsSinkService statisticsSinkService;
 
-    private List<Flow> finishedFlows = new ArrayList<>();
+    private static int DEFAULT_FINISHED_FLOWS_LIMIT = 100000;
 
-    private CopyOnWriteArrayList<Flow> pendingFlows =  new CopyOnWriteArrayList();
+    private RollingWindow<Flow> finishedFlows;
 
-    private volatile Map<AddressesAndPorts, Path> actualPaths = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<AddressesAndPorts, Flow> pendingFlows = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<AddressesAndPorts, Path> actualPaths = new ConcurrentHashMap<>();
+
+    private final ActualPathsIndex actualPathsIndex = new ActualPathsIndex();
 
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleServices() {
@@ -70,6 +77,7 @@ public class SecureFlowsRepository implements IFloodlightModule, ISecureFlowsRep
         Collection<Class<? extends IFloodlightService>> l =
                 new ArrayList<Class<? extends IFloodlightService>>();
         l.add(IRestApiService.class);
+        l.add(IStatisticsSinkService.class);
         return l;
     }
 
@@ -77,6 +85,17 @@ public class SecureFlowsRepository implements IFloodlightModule, ISecureFlowsRep
     public void init(FloodlightModuleContext context) throws FloodlightModuleException {
         floodlightProviderService = context.getServiceImpl(IFloodlightProviderService.class);
         restApiService = context.getServiceImpl(IRestApiService.class);
+        statisticsSinkService = context.getServiceImpl(IStatisticsSinkService.class);
+
+        Map<String, String> configParameters = context.getConfigParams(this);
+        String tmp = configParameters.get("finished-flows-limit");
+        if (tmp != null && !tmp.isEmpty()) {
+            DEFAULT_FINISHED_FLOWS_LIMIT = Integer.parseInt(tmp);
+            log.info("Finished flows limit set to {}.", DEFAULT_FINISHED_FLOWS_LIMIT);
+        } else {
+            log.info("Finished flows limit not configured. Using {}.", DEFAULT_FINISHED_FLOWS_LIMIT);
+        }
+        finishedFlows = new RollingWindow<>(DEFAULT_FINISHED_FLOWS_LIMIT);
     }
 
     @Override
@@ -91,66 +110,100 @@ public class SecureFlowsRepository implements IFloodlightModule, ISecureFlowsRep
         Decision decision = flow.getDecisions().get(0);
         if(!decision.isSolved()) {
             decision.setPath(null);
-            flow.setFlowStatus(FlowStatus.NOT_REALIZED);
-            flow.setEndTime(LocalTime.now());
-            flow.setDuration(ChronoUnit.MILLIS.between(flow.getStartTime(), flow.getEndTime()));
-            finishedFlows.add(flow);
+            finishFlow(flow, FlowStatus.NOT_REALIZED);
             log.debug("Decision was to not solved so flow registered as not realized");
         } else {
-            pendingFlows.add(flow);
-            actualPaths.put(flow.getAp(), decision.getPath());
+            pendingFlows.put(flow.getAp(), flow);
+            putActualPath(flow.getAp(), decision.getPath());
             log.debug("Flow {} added to pending flows", flow);
         }
     }
 
     @Override
     public List<Flow> getFinishedFlows() {
-        return ImmutableList.copyOf(finishedFlows.stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList()));
+        return finishedFlows.getItems();
     }
 
+    @Override
     public Flow getPendingFlow(AddressesAndPorts addressesAndPorts) {
-        return pendingFlows.stream().filter(flow -> flow.getAp().equals(addressesAndPorts)).findFirst().orElse(null);
+        return pendingFlows.get(addressesAndPorts);
     }
 
     @Override
     public List<Flow> getPendingFlows() {
-        return ImmutableList.copyOf(pendingFlows.stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList()));
+        return ImmutableList.copyOf(pendingFlows.values());
     }
 
     @Override
     public void addDecision(AddressesAndPorts ap, Decision decision) {
-        Flow pendingFlow = getPendingFlow(ap);
-        List<Decision> decisions = pendingFlow.getDecisions();
+        Flow pendingFlow = pendingFlows.get(ap);
+        if(pendingFlow == null) {
+            log.debug("No pending flow for {}. Decision {} not added", ap, decision);
+            return;
+        }
 
+        List<Decision> decisions = pendingFlow.getDecisions();
         if(decisions == null) {
             decisions = new ArrayList<>();
+            pendingFlow.setDecisions(decisions);
         }
         decisions.add(decision);
 
         if(decision.isSolved()) {
-            actualPaths.put(ap, decision.getPath());
+            putActualPath(ap, decision.getPath());
         } else {
             decision.setPath(null);
-            pendingFlow.setFlowStatus(FlowStatus.NOT_REALIZED);
-            pendingFlow.setEndTime(LocalTime.now());
-            pendingFlow.setDuration(ChronoUnit.MILLIS.between(pendingFlow.getStartTime(), pendingFlow.getEndTime()));
-            finishedFlows.add(pendingFlow);
-            pendingFlows.remove(pendingFlow);
+            if(pendingFlows.remove(ap, pendingFlow)) {
+                finishFlow(pendingFlow, FlowStatus.NOT_REALIZED);
+            }
         }
     }
 
+    private void finishFlow(Flow flow, FlowStatus status) {
+        flow.setFlowStatus(status);
+        flow.setEndTime(LocalTime.now());
+        flow.setDuration(ChronoUnit.MILLIS.between(flow.getStartTime(), flow.getEndTime()));
+        finishedFlows.append(flow);
+        statisticsSinkService.recordFinishedFlow(flow);
+    }
+
     @Override
     public Map<AddressesAndPorts, Path> getActualPaths() {
         return ImmutableMap.copyOf(actualPaths);
     }
 
+    @Override
+    public Path getActualPath(AddressesAndPorts ap) {
+        return actualPaths.get(ap);
+    }
+
+    @Override
+    public Set<AddressesAndPorts> getActualTransfersThrough(Collection<DatapathId> switches, Collection<Link> links) {
+        return actualPathsIndex.get(switches, links);
+    }
+
     @Override
     public void deleteActualPath(AddressesAndPorts ap) {
-        actualPaths.remove(ap);
+        removeActualPath(ap);
+    }
+
+    /* the index is updated under the lock of the ap in actualPaths, so both always agree */
+    private void putActualPath(AddressesAndPorts ap, Path path) {
+        actualPaths.compute(ap, (k, old) -> {
+            actualPathsIndex.remove(ap, old);
+            actualPathsIndex.add(ap, path);
+            return path;
+        });
+    }
+
+    private Path removeActualPath(AddressesAndPorts ap) {
+        Path[] removed = new Path[1];
+        actualPaths.computeIfPresent(ap, (k, old) -> {
+            actualPathsIndex.remove(ap, old);
+            removed[0] = old;
+            return null;
+        });
+        return removed[0];
     }
 
     @Override
@@ -182,15 +235,13 @@ public class SecureFlowsRepository implements IFloodlightModule, ISecureFlowsRep
                                                 .port(dstPort.getPort())
                                                 .build())
                                         .build();
-                                Path remove = actualPaths.remove(ap);
+                                Path remove = removeActualPath(ap);
                                 if(remove != null) {
                                     log.info("Path " + remove + " for " + ap + " removed because of FLOW_REMOVED message");
-                                    Flow pendingFlow = getPendingFlow(ap);
-                                    pendingFlow.setFlowStatus(FlowStatus.FINISHED);
-                                    pendingFlow.setEndTime(LocalTime.now());
-                                    pendingFlow.setDuration(ChronoUnit.MILLIS.between(pendingFlow.getStartTime(), pendingFlow.getEndTime()));
-                                    pendingFlows.remove(pendingFlow);
-                                    finishedFlows.add(pendingFlow);
+                                    Flow pendingFlow = pendingFlows.remove(ap);
+                                    if(pendingFlow != null) {
+                                        finishFlow(pendingFlow, FlowStatus.FINISHED);
+                                    }
                                 }
                             }
                         }
@@ -1,7 +1,7 @@
 package pl.sszwaczyk.repository.link;
 
 import net.floodlightcontroller.core.module.IFloodlightService;
-import net.floodlightcontroller.statistics.SwitchPortBandwidth;
+import net.floodlightcontroller.core.types.NodePortTuple;
 import pl.sszwaczyk.uneven.UnevenMetric;
 
 import java.util.List;
@@ -15,4 +15,10 @@ public interface ILinkStatisticsRepository extends IFloodlightService {
 
     List<LinkUtilizationAtTime> getLinkUtilizationAtTimes();
 
+    /**
+     * Utilization samples of the port with timestamps (ms since epoch) in [from, to], their
+     * percentiles and all time maximum. Null if the port was never sampled.
+     */
+    PortUtilizationStats getPortUtilizationStats(NodePortTuple npt, long from, long to);
+
 }
@@ -9,33 +9,47 @@ import net.floodlightcontroller.core.module.IFloodlightService;
 import net.floodlightcontroller.core.types.NodePortTuple;
 import net.floodlightcontroller.linkdiscovery.Link;
 import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.statistics.IStatisticsListener;
 import net.floodlightcontroller.statistics.IStatisticsService;
+import net.floodlightcontroller.statistics.PortStatisticsSnapshot;
 import net.floodlightcontroller.statistics.SwitchPortBandwidth;
-import net.floodlightcontroller.threadpool.IThreadPoolService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.sszwaczyk.repository.link.web.LinkStatisticsRepositoryRoutable;
+import pl.sszwaczyk.statistics.sink.IStatisticsSinkService;
 import pl.sszwaczyk.uneven.IUnevenService;
 import pl.sszwaczyk.uneven.UnevenMetric;
+import pl.sszwaczyk.uneven.UnevenSample;
 
+import java.time.Instant;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class LinkStatisticsRepository implements IFloodlightModule, ILinkStatisticsRepository {
+/**
+ * Keeps max utilization and uneven, and utilization history of ports. Updated on every
+ * port statistics round, history is sampled every SAMPLE_PERIOD_MS.
+ */
+public class LinkStatisticsRepository implements IFloodlightModule, ILinkStatisticsRepository, IStatisticsListener {
 
     private Logger log = LoggerFactory.getLogger(LinkStatisticsRepository.class);
 
-    private List<MaxLinkUtilization> maxBandwidthConsumption = new ArrayList<>();
-    private Map<UnevenMetric, Double> maxUneven = new HashMap<>();
+    private static final double[] PERCENTILES = { 50, 90, 95, 99 };
 
-    private final List<LinkUtilizationAtTime> linkUtilizationAtTimes = new ArrayList<>();
+    private static final long SAMPLE_PERIOD_MS = 60000;
+    private static int DEFAULT_SERIES_CAPACITY = 1440; //24h of samples every 60s
+    private int seriesCapacity = DEFAULT_SERIES_CAPACITY;
+    private Map<NodePortTuple, PortUtilizationSeries> series = new ConcurrentHashMap<>();
+
+    private Map<UnevenMetric, Double> maxUneven = new ConcurrentHashMap<>();
+
+    private long lastSampleTimestamp = 0;
 
     private IStatisticsService statisticsService;
     private IUnevenService unevenService;
     private IRestApiService restApiService;
-    private IThreadPoolService threadPoolService;
+    private IStatisticsSinkService statisticsSinkService;
 
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleServices() {
@@ -60,7 +74,7 @@ public class LinkStatisticsRepository implements IFloodlightModule, ILinkStatist
         l.add(IStatisticsService.class);
         l.add(IUnevenService.class);
         l.add(IRestApiService.class);
-        l.add(IThreadPoolService.class);
+        l.add(IStatisticsSinkService.class);
         return l;
     }
 
@@ -69,21 +83,34 @@ public class LinkStatisticsRepository implements IFloodlightModule, ILinkStatist
         statisticsService = context.getServiceImpl(IStatisticsService.class);
         unevenService = context.getServiceImpl(IUnevenService.class);
         restApiService = context.getServiceImpl(IRestApiService.class);
-        threadPoolService = context.getServiceImpl(IThreadPoolService.class);
+        statisticsSinkService = context.getServiceImpl(IStatisticsSinkService.class);
+
+        Map<String, String> configParameters = context.getConfigParams(this);
+        String tmp = configParameters.get("series-capacity");
+        if (tmp != null && !tmp.isEmpty()) {
+            seriesCapacity = Integer.parseInt(tmp);
+            log.info("Link utilization series capacity set to {}.", seriesCapacity);
+        } else {
+            log.info("Link utilization series capacity not configured. Using {}.", seriesCapacity);
+        }
     }
 
     @Override
     public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
         restApiService.addRestletRoutable(new LinkStatisticsRepositoryRoutable());
-        threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new MaxStatisticsFetcher(), 10, 10, TimeUnit.SECONDS);
-        threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new LinkUtilizationAtTimeFetcher(), 60, 60, TimeUnit.SECONDS);
+        statisticsService.addStatisticsListener(this);
     }
 
     @Override
     public List<MaxLinkUtilization> getMaxLinksBandwidth() {
-        return ImmutableList.copyOf(maxBandwidthConsumption.stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList()));
+        List<MaxLinkUtilization> max = new ArrayList<>();
+        for(PortUtilizationSeries s: series.values()) {
+            MaxLinkUtilization m = s.getMax();
+            if(m != null) {
+                max.add(m);
+            }
+        }
+        return ImmutableList.copyOf(max);
     }
 
     @Override
@@ -93,87 +120,107 @@ public class LinkStatisticsRepository implements IFloodlightModule, ILinkStatist
 
     @Override
     public List<LinkUtilizationAtTime> getLinkUtilizationAtTimes() {
-        return ImmutableList.copyOf(linkUtilizationAtTimes.stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList()));
+        List<LinkUtilizationAtTime> all = new ArrayList<>();
+        Map<LinkUtilizationAtTime, Long> timestamps = new IdentityHashMap<>();
+        for(PortUtilizationSeries s: series.values()) {
+            if(s.getPt().getPortNumber() <= 0) {
+                continue;
+            }
+            for(UtilizationSample sample: s.getSamples(0, Long.MAX_VALUE)) {
+                LinkUtilizationAtTime luat = LinkUtilizationAtTime.builder()
+                        .date(Instant.ofEpochMilli(sample.getTimestamp()).atZone(ZoneId.systemDefault()).toLocalTime())
+                        .datapathId(s.getId())
+                        .pt(s.getPt())
+                        .rxUtilization(sample.getRxUtilization())
+                        .rxUtilizationPercent(sample.getRxUtilization() * 100)
+                        .txUtilization(sample.getTxUtilization())
+                        .txUtilizationPercent(sample.getTxUtilization() * 100)
+                        .build();
+                timestamps.put(luat, sample.getTimestamp());
+                all.add(luat);
+            }
+        }
+        all.sort(Comparator.comparing(timestamps::get));
+        return all;
     }
 
-    class MaxStatisticsFetcher implements Runnable {
-
-        @Override
-        public void run() {
-            Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption = statisticsService.getBandwidthConsumption();
-            for(SwitchPortBandwidth spb: bandwidthConsumption.values()) {
-                MaxLinkUtilization max = null;
-                for(MaxLinkUtilization maxLinkUtilization: maxBandwidthConsumption) {
-                    if(maxLinkUtilization.getId().equals(spb.getSwitchId()) && maxLinkUtilization.getPt().getPortNumber() == spb.getSwitchPort().getPortNumber()) {
-                        max = maxLinkUtilization;
-                    }
-                }
-                if(max == null) {
-                    maxBandwidthConsumption.add(new MaxLinkUtilization(spb.getSwitchId(), spb.getSwitchPort(), spb.getRxUtilization(), spb.getRxUtilizationPercent(), spb.getTxUtilization(), spb.getTxUtilizationPercent()));
-                } else {
-                    if(spb.getRxUtilization() > max.getMaxRxUtilization()) {
-                        max.setMaxRxUtilization(spb.getRxUtilization());
-                        max.setMaxRxUtilizationPercent(spb.getRxUtilizationPercent());
-                    }
-                    if(spb.getTxUtilization() > max.getMaxTxUtilization()) {
-                        max.setMaxTxUtilization(spb.getTxUtilization());
-                        max.setMaxTxUtilizationPercent(spb.getTxUtilizationPercent());
-                    }
-                }
-            }
+    @Override
+    public PortUtilizationStats getPortUtilizationStats(NodePortTuple npt, long from, long to) {
+        PortUtilizationSeries s = series.get(npt);
+        if(s == null) {
+            return null;
+        }
+        return s.getStats(from, to, PERCENTILES);
+    }
 
-            Map<UnevenMetric, Double> uneven = unevenService.getUneven(bandwidthConsumption);
-            for(UnevenMetric metric: uneven.keySet()) {
-                Double result = uneven.get(metric);
-                Double max = maxUneven.get(metric);
-                if(max == null) {
-                    maxUneven.put(metric, result);
-                    log.debug("Max uneven set for metric " + metric + " to " + result);
-                } else {
-                    if(result.isNaN()) {
-                        continue;
-                    } else if(max.isNaN()) {
-                        maxUneven.put(metric, result);
-                        log.debug("Max uneven updated for metric " + metric + " from " + max + " to " + result);
-                    } else if(result > max){
-                        maxUneven.put(metric, result);
-                        log.debug("Max uneven updated for metric " + metric + " from " + max + " to " + result);
-                    }
-                }
-            }
+    private PortUtilizationSeries getSeries(NodePortTuple npt) {
+        return series.computeIfAbsent(npt, k -> new PortUtilizationSeries(k.getNodeId(), k.getPortId(), seriesCapacity));
+    }
 
+    @Override
+    public void portStatisticsCollected(PortStatisticsSnapshot snapshot) {
+        Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption = snapshot.getBandwidthConsumption();
+        for(NodePortTuple npt: snapshot.getUpdatedPorts()) {
+            SwitchPortBandwidth spb = bandwidthConsumption.get(npt);
+            getSeries(npt).updateMax(spb.getRxUtilization(), spb.getTxUtilization());
         }
+        updateMaxUneven(snapshot);
 
+        if(snapshot.getTimestamp() - lastSampleTimestamp >= SAMPLE_PERIOD_MS) {
+            lastSampleTimestamp = snapshot.getTimestamp();
+            appendUtilization(snapshot);
+        }
     }
 
-    class LinkUtilizationAtTimeFetcher implements Runnable {
-
-        @Override
-        public void run() {
-            log.debug("Fetching actual link utilization stats...");
-            LocalTime date = LocalTime.now();
-
-            Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption = statisticsService.getBandwidthConsumption();
-            for (SwitchPortBandwidth spb: bandwidthConsumption.values()) {
-                if (spb.getSwitchPort().getPortNumber() > 0) {
-                    LinkUtilizationAtTime linkUtilizationAtTime = LinkUtilizationAtTime.builder()
-                            .date(date)
-                            .datapathId(spb.getSwitchId())
-                            .pt(spb.getSwitchPort())
-                            .rxUtilization(spb.getRxUtilization())
-                            .rxUtilizationPercent(spb.getRxUtilizationPercent())
-                            .txUtilization(spb.getTxUtilization())
-                            .txUtilizationPercent(spb.getTxUtilizationPercent())
-                            .build();
-                    linkUtilizationAtTimes.add(linkUtilizationAtTime);
-                    log.debug("Added link utilization: " + linkUtilizationAtTime + " to repository");
+    private void updateMaxUneven(PortStatisticsSnapshot snapshot) {
+        // UnevenService is started first and listens before us, so normally its sample is of this round
+        UnevenSample latest = unevenService.getLatestUneven();
+        Map<UnevenMetric, Double> uneven = latest != null && latest.getVersion() == snapshot.getVersion()
+                ? latest.getUneven()
+                : unevenService.getUneven(snapshot.getBandwidthConsumption());
+        for(UnevenMetric metric: uneven.keySet()) {
+            Double result = uneven.get(metric);
+            Double max = maxUneven.get(metric);
+            if(max == null) {
+                maxUneven.put(metric, result);
+                log.debug("Max uneven set for metric " + metric + " to " + result);
+            } else {
+                if(result.isNaN()) {
+                    continue;
+                } else if(max.isNaN()) {
+                    maxUneven.put(metric, result);
+                    log.debug("Max uneven updated for metric " + metric + " from " + max + " to " + result);
+                } else if(result > max){
+                    maxUneven.put(metric, result);
+                    log.debug("Max uneven updated for metric " + metric + " from " + max + " to " + result);
                 }
-
             }
-            log.debug("Fetching actual link utilization stats..");
         }
+    }
 
+    private void appendUtilization(PortStatisticsSnapshot snapshot) {
+        log.debug("Fetching actual link utilization stats...");
+        long timestamp = snapshot.getTimestamp();
+        LocalTime date = Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalTime();
+
+        for (Map.Entry<NodePortTuple, SwitchPortBandwidth> e: snapshot.getBandwidthConsumption().entrySet()) {
+            SwitchPortBandwidth spb = e.getValue();
+            if (spb.getSwitchPort().getPortNumber() > 0) {
+                getSeries(e.getKey()).append(timestamp, spb.getRxUtilization(), spb.getTxUtilization());
+                LinkUtilizationAtTime linkUtilizationAtTime = LinkUtilizationAtTime.builder()
+                        .date(date)
+                        .datapathId(spb.getSwitchId())
+                        .pt(spb.getSwitchPort())
+                        .rxUtilization(spb.getRxUtilization())
+                        .rxUtilizationPercent(spb.getRxUtilizationPercent())
+                        .txUtilization(spb.getTxUtilization())
+                        .txUtilizationPercent(spb.getTxUtilizationPercent())
+                        .build();
+                statisticsSinkService.recordLinkUtilization(linkUtilizationAtTime);
+                log.debug("Added link utilization: " + linkUtilizationAtTime + " to repository");
+            }
+
+        }
+        log.debug("Fetching actual link utilization stats..");
     }
 }
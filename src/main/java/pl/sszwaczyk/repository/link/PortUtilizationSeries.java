@@ -0,0 +1,157 @@
+package pl.sszwaczyk.repository.link;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utilization history of one switch port kept in fixed size primitive ring buffers, so memory
+ * does not grow with experiment length. Samples are appended in time order, which allows range
+ * queries by binary search. Maximum utilization is tracked separately over all time.
+ */
+public class PortUtilizationSeries {
+
+    private final DatapathId id;
+    private final OFPort pt;
+
+    private final long[] timestamps;
+    private final double[] rx;
+    private final double[] tx;
+    /* index of the oldest sample and number of samples */
+    private int start = 0;
+    private int size = 0;
+
+    private boolean hasMax = false;
+    private double maxRx;
+    private double maxTx;
+
+    public PortUtilizationSeries(DatapathId id, OFPort pt, int capacity) {
+        this.id = id;
+        this.pt = pt;
+        this.timestamps = new long[capacity];
+        this.rx = new double[capacity];
+        this.tx = new double[capacity];
+    }
+
+    public synchronized void updateMax(double rxUtilization, double txUtilization) {
+        if(!hasMax) {
+            maxRx = rxUtilization;
+            maxTx = txUtilization;
+            hasMax = true;
+            return;
+        }
+        if(rxUtilization > maxRx) {
+            maxRx = rxUtilization;
+        }
+        if(txUtilization > maxTx) {
+            maxTx = txUtilization;
+        }
+    }
+
+    public synchronized void append(long timestamp, double rxUtilization, double txUtilization) {
+        updateMax(rxUtilization, txUtilization);
+        int capacity = timestamps.length;
+        if(capacity == 0) {
+            return;
+        }
+        int i;
+        if(size < capacity) {
+            i = (start + size) % capacity;
+            size++;
+        } else {
+            i = start;
+            start = (start + 1) % capacity;
+        }
+        timestamps[i] = timestamp;
+        rx[i] = rxUtilization;
+        tx[i] = txUtilization;
+    }
+
+    public synchronized MaxLinkUtilization getMax() {
+        if(!hasMax) {
+            return null;
+        }
+        return new MaxLinkUtilization(id, pt, maxRx, maxRx * 100, maxTx, maxTx * 100);
+    }
+
+    public synchronized List<UtilizationSample> getSamples(long from, long to) {
+        int first = lowerBound(from);
+        int last = lowerBound(to == Long.MAX_VALUE ? to : to + 1);
+        List<UtilizationSample> samples = new ArrayList<>(last - first);
+        for(int n = first; n < last; n++) {
+            int i = physical(n);
+            samples.add(new UtilizationSample(timestamps[i], rx[i], tx[i]));
+        }
+        return samples;
+    }
+
+    public synchronized PortUtilizationStats getStats(long from, long to, double... percentiles) {
+        int first = lowerBound(from);
+        int last = lowerBound(to == Long.MAX_VALUE ? to : to + 1);
+        double[] rxRange = new double[last - first];
+        double[] txRange = new double[last - first];
+        List<UtilizationSample> samples = new ArrayList<>(last - first);
+        for(int n = first; n < last; n++) {
+            int i = physical(n);
+            rxRange[n - first] = rx[i];
+            txRange[n - first] = tx[i];
+            samples.add(new UtilizationSample(timestamps[i], rx[i], tx[i]));
+        }
+        return PortUtilizationStats.builder()
+                .id(id)
+                .pt(pt)
+                .from(from)
+                .to(to)
+                .max(getMax())
+                .rxPercentiles(percentiles(rxRange, percentiles))
+                .txPercentiles(percentiles(txRange, percentiles))
+                .samples(samples)
+                .build();
+    }
+
+    public DatapathId getId() {
+        return id;
+    }
+
+    public OFPort getPt() {
+        return pt;
+    }
+
+    /* nearest rank percentiles */
+    private static Map<Double, Double> percentiles(double[] values, double[] percentiles) {
+        Map<Double, Double> result = new LinkedHashMap<>();
+        if(values.length == 0) {
+            return result;
+        }
+        Arrays.sort(values);
+        for(double p: percentiles) {
+            int rank = (int) Math.ceil(p / 100.0 * values.length);
+            result.put(p, values[Math.min(values.length - 1, Math.max(0, rank - 1))]);
+        }
+        return result;
+    }
+
+    /* first logical index with timestamp >= time */
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(timestamps[physical(mid)] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int physical(int logical) {
+        return (start + logical) % timestamps.length;
+    }
+}
@@ -0,0 +1,34 @@
+package pl.sszwaczyk.repository.link;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortUtilizationStats {
+
+    private DatapathId id;
+    private OFPort pt;
+
+    private long from;
+    private long to;
+
+    /* all time maximum, not limited to the range */
+    private MaxLinkUtilization max;
+
+    /* percentiles of samples in the range, keyed by percentile (e.g. 50.0) */
+    private Map<Double, Double> rxPercentiles;
+    private Map<Double, Double> txPercentiles;
+
+    private List<UtilizationSample> samples;
+
+}
@@ -0,0 +1,17 @@
+package pl.sszwaczyk.repository.link;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UtilizationSample {
+
+    private long timestamp; //ms since epoch
+
+    private double rxUtilization;
+    private double txUtilization;
+
+}
@@ -12,6 +12,7 @@ public class LinkStatisticsRepositoryRoutable implements RestletRoutable {
     public Restlet getRestlet(Context context) {
         Router router = new Router(context);
         router.attach("/max-bandwidth", MaxBandwidthResource.class);
+        router.attach("/utilization/{switch}/{port}", PortUtilizationResource.class);
         return router;
     }
 
@@ -0,0 +1,33 @@
+package pl.sszwaczyk.repository.link.web;
+
+import net.floodlightcontroller.core.types.NodePortTuple;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+import pl.sszwaczyk.repository.link.ILinkStatisticsRepository;
+import pl.sszwaczyk.repository.link.PortUtilizationStats;
+
+/**
+ * Utilization history of a port. Optional from and to query parameters (ms since epoch)
+ * limit returned samples and percentiles to that range.
+ */
+public class PortUtilizationResource extends ServerResource {
+
+    @Get("json")
+    public PortUtilizationStats getPortUtilization() {
+        ILinkStatisticsRepository linkStatisticsRepository =
+                (ILinkStatisticsRepository) getContext().getAttributes().
+                        get(ILinkStatisticsRepository.class.getCanonicalName());
+
+        DatapathId dpid = DatapathId.of((String) getRequestAttributes().get("switch"));
+        OFPort port = OFPort.of(Integer.parseInt((String) getRequestAttributes().get("port")));
+        String from = getQueryValue("from");
+        String to = getQueryValue("to");
+
+        return linkStatisticsRepository.getPortUtilizationStats(new NodePortTuple(dpid, port),
+                from == null ? 0 : Long.parseLong(from),
+                to == null ? Long.MAX_VALUE : Long.parseLong(to));
+    }
+
+}
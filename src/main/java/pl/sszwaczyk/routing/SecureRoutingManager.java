@@ -3,6 +3,7 @@ package pl.sszwaczyk.routing;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
 import net.floodlightcontroller.routing.Path;
 import net.floodlightcontroller.routing.RoutingManager;
 import net.floodlightcontroller.statistics.IStatisticsService;
@@ -12,10 +13,12 @@ import org.python.google.common.collect.ImmutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.sszwaczyk.path.IPathPropertiesService;
+import pl.sszwaczyk.routing.solver.ConstrainedPathSolver;
 import pl.sszwaczyk.routing.solver.Decision;
 import pl.sszwaczyk.routing.solver.KShortestPathSolver;
 import pl.sszwaczyk.routing.solver.Solver;
 import pl.sszwaczyk.security.dtsp.IDTSPService;
+import pl.sszwaczyk.security.properties.ISecurityPropertiesService;
 import pl.sszwaczyk.security.risk.IRiskCalculationService;
 import pl.sszwaczyk.service.IServiceService;
 import pl.sszwaczyk.service.Service;
@@ -28,6 +31,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 public class SecureRoutingManager extends RoutingManager implements ISecureRoutingService {
 
@@ -40,8 +44,11 @@ public class SecureRoutingManager extends RoutingManager implements ISecureRouti
     private IStatisticsService statisticsService;
     private ISecureRoutingStatisticsService secureRoutingStatisticsService;
     private IUnevenService unevenService;
+    private ILinkDiscoveryService linkService;
+    private ISecurityPropertiesService securityPropertiesService;
 
     //Solver
+    private static final int DEFAULT_MAX_LABELS = 100000;
     private Solver solver;
 
     @Override
@@ -70,6 +77,8 @@ public class SecureRoutingManager extends RoutingManager implements ISecureRouti
         l.add(ISecureRoutingStatisticsService.class);
         l.add(IStatisticsService.class);
         l.add(IUnevenService.class);
+        l.add(ILinkDiscoveryService.class);
+        l.add(ISecurityPropertiesService.class);
         return l;
     }
 
@@ -82,6 +91,8 @@ public class SecureRoutingManager extends RoutingManager implements ISecureRouti
         secureRoutingStatisticsService = context.getServiceImpl(ISecureRoutingStatisticsService.class);
         statisticsService = context.getServiceImpl(IStatisticsService.class);
         unevenService = context.getServiceImpl(IUnevenService.class);
+        linkService = context.getServiceImpl(ILinkDiscoveryService.class);
+        securityPropertiesService = context.getServiceImpl(ISecurityPropertiesService.class);
 
         Map<String, String> configParameters = context.getConfigParams(this);
         String stringSolver = configParameters.get("solver");
@@ -112,28 +123,26 @@ public class SecureRoutingManager extends RoutingManager implements ISecureRouti
 
             String chooseMinUnevenString = configParameters.get("min-uneven");
             boolean chooseMinUneven;
-            UnevenMetric unevenMetric = null;
             if(chooseMinUnevenString == null || chooseMinUnevenString.isEmpty()) {
                 throw new FloodlightModuleException("Choose min uneven option not set!");
             }
             chooseMinUneven = Boolean.parseBoolean(chooseMinUnevenString);
             log.info("Choose min uneven option set to " + chooseMinUneven);
 
-            String unevenMetricString = configParameters.get("uneven-metric");
-            if (unevenMetricString == null) {
-                unevenMetric = UnevenMetric.VARIATION_COEFFICIENT;
-                log.info("Uneven metric not set. Default to " + unevenMetric);
+            UnevenMetric unevenMetric = parseUnevenMetric(configParameters);
+
+            String parallelismString = configParameters.get("evaluation-parallelism");
+            ForkJoinPool evaluationPool = null;
+            if(parallelismString == null || parallelismString.isEmpty()) {
+                log.info("Evaluation parallelism not set. Candidate paths will be evaluated serially");
             } else {
-                if (unevenMetricString.equals("gap")) {
-                    unevenMetric = UnevenMetric.GAP;
-                } else if (unevenMetricString.equals("variance")) {
-                    unevenMetric = UnevenMetric.VARIANCE;
-                } else if (unevenMetricString.equals("variation-coefficient")) {
-                    unevenMetric = UnevenMetric.VARIATION_COEFFICIENT;
+                int parallelism = Integer.valueOf(parallelismString);
+                if(parallelism > 1) {
+                    evaluationPool = new ForkJoinPool(parallelism);
+                    log.info("Evaluation parallelism set to " + parallelism);
                 } else {
-                    throw new FloodlightModuleException("Not recognized uneven metric set " + unevenMetricString);
+                    log.info("Evaluation parallelism set to " + parallelism + ". Candidate paths will be evaluated serially");
                 }
-                log.info("Uneven metric set to " + unevenMetric);
             }
 
             solver = KShortestPathSolver.builder()
@@ -147,6 +156,47 @@ public class SecureRoutingManager extends RoutingManager implements ISecureRouti
                     .maxPaths(maxPaths)
                     .chooseMinUneven(chooseMinUneven)
                     .unevenMetric(unevenMetric)
+                    .evaluationPool(evaluationPool)
+                    .build();
+
+        } else if(stringSolver.equals("constrained")) {
+            log.info("Configured to using constrained shortest path solver");
+            String maxLabelsString = configParameters.get("max-labels");
+            int maxLabels = DEFAULT_MAX_LABELS;
+            if(maxLabelsString == null || maxLabelsString.isEmpty()) {
+                log.info("Max labels not set. Default to " + maxLabels);
+            } else {
+                maxLabels = Integer.valueOf(maxLabelsString);
+                log.info("Max labels set to " + maxLabels);
+            }
+
+            UnevenMetric unevenMetric = parseUnevenMetric(configParameters);
+
+            Solver shortestSolver = KShortestPathSolver.builder()
+                    .routingService(this)
+                    .riskService(riskService)
+                    .dtspService(dtspService)
+                    .pathPropertiesService(pathPropertiesService)
+                    .statisticsService(statisticsService)
+                    .unevenService(unevenService)
+                    .k(1)
+                    .maxPaths(1)
+                    .chooseMinUneven(false)
+                    .unevenMetric(unevenMetric)
+                    .build();
+
+            solver = ConstrainedPathSolver.builder()
+                    .routingService(this)
+                    .linkService(linkService)
+                    .securityPropertiesService(securityPropertiesService)
+                    .riskService(riskService)
+                    .dtspService(dtspService)
+                    .pathPropertiesService(pathPropertiesService)
+                    .statisticsService(statisticsService)
+                    .unevenService(unevenService)
+                    .unevenMetric(unevenMetric)
+                    .maxLabels(maxLabels)
+                    .shortestSolver(shortestSolver)
                     .build();
 
         } else {
@@ -155,6 +205,27 @@ public class SecureRoutingManager extends RoutingManager implements ISecureRouti
 
     }
 
+    private UnevenMetric parseUnevenMetric(Map<String, String> configParameters) throws FloodlightModuleException {
+        UnevenMetric unevenMetric;
+        String unevenMetricString = configParameters.get("uneven-metric");
+        if (unevenMetricString == null) {
+            unevenMetric = UnevenMetric.VARIATION_COEFFICIENT;
+            log.info("Uneven metric not set. Default to " + unevenMetric);
+        } else {
+            if (unevenMetricString.equals("gap")) {
+                unevenMetric = UnevenMetric.GAP;
+            } else if (unevenMetricString.equals("variance")) {
+                unevenMetric = UnevenMetric.VARIANCE;
+            } else if (unevenMetricString.equals("variation-coefficient")) {
+                unevenMetric = UnevenMetric.VARIATION_COEFFICIENT;
+            } else {
+                throw new FloodlightModuleException("Not recognized uneven metric set " + unevenMetricString);
+            }
+            log.info("Uneven metric set to " + unevenMetric);
+        }
+        return unevenMetric;
+    }
+
     @Override
     public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
         super.startUp(context);
@@ -170,6 +241,8 @@ public class SecureRoutingManager extends RoutingManager implements ISecureRouti
 
         if(decision.isSolved() == false) {
             decision.setPath(new Path(null, ImmutableList.of()));
+        } else {
+            statisticsService.sampleFrequently(decision.getPath().getPath());
         }
 
         return decision;
@@ -183,6 +256,8 @@ public class SecureRoutingManager extends RoutingManager implements ISecureRouti
         secureRoutingStatisticsService.getSecureRoutingStatistics().addDecision(decision);
         if(decision.isSolved() == false) {
             decision.setPath(new Path(null, ImmutableList.of()));
+        } else {
+            statisticsService.sampleFrequently(decision.getPath().getPath());
         }
         return decision;
     }
@@ -0,0 +1,391 @@
+package pl.sszwaczyk.routing.solver;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
+import net.floodlightcontroller.linkdiscovery.Link;
+import net.floodlightcontroller.routing.IRoutingService;
+import net.floodlightcontroller.routing.Path;
+import net.floodlightcontroller.routing.PathId;
+import net.floodlightcontroller.statistics.IStatisticsService;
+import net.floodlightcontroller.statistics.SwitchPortBandwidth;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.sszwaczyk.path.IPathPropertiesService;
+import pl.sszwaczyk.security.SecurityDimension;
+import pl.sszwaczyk.security.dtsp.DTSP;
+import pl.sszwaczyk.security.dtsp.IDTSPService;
+import pl.sszwaczyk.security.properties.ISecurityPropertiesService;
+import pl.sszwaczyk.security.properties.SecurityPropertiesSnapshot;
+import pl.sszwaczyk.security.risk.IRiskCalculationService;
+import pl.sszwaczyk.security.risk.Risks;
+import pl.sszwaczyk.service.Service;
+import pl.sszwaczyk.uneven.IUnevenService;
+import pl.sszwaczyk.uneven.UnevenMetric;
+import pl.sszwaczyk.uneven.UnevenModel;
+import pl.sszwaczyk.user.User;
+
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Resource constrained shortest path solver. Instead of enumerating k shortest paths and filtering
+ * them, it runs a label setting search from src to dst which never extends a partial path over
+ * a link without required bandwidth and drops partial paths whose latency or risk already breaks
+ * the DTSP bound. Path properties can only decrease (and so risks only increase) when a path is
+ * extended, so such partial paths can never become feasible. Links and switches with unknown
+ * properties are skipped, as path properties service does for whole paths.
+ *
+ * Labels are expanded in order of path cost (hop count or latency as routing metric), then risk
+ * distance, so the first label reaching dst is the feasible optimum. The search is run with
+ * acceptable risks as bound (RAR-BF) and, when no such path exists, with max risks (RAR-RF).
+ * A label is dropped when another label at the same switch is not worse in cost, latency and any
+ * security property.
+ */
+@Builder
+@AllArgsConstructor
+public class ConstrainedPathSolver implements Solver {
+
+    private static Logger log = LoggerFactory.getLogger(ConstrainedPathSolver.class);
+
+    private IRoutingService routingService;
+    private ILinkDiscoveryService linkService;
+    private ISecurityPropertiesService securityPropertiesService;
+    private IRiskCalculationService riskService;
+    private IDTSPService dtspService;
+    private IPathPropertiesService pathPropertiesService;
+    private IStatisticsService statisticsService;
+    private IUnevenService unevenService;
+
+    private UnevenMetric unevenMetric;
+    //stop search after creating that many labels, 0 for no limit
+    private int maxLabels;
+    //solveShortest does not search so it is delegated
+    private Solver shortestSolver;
+
+    @Override
+    public Decision solve(User user, Service service, DatapathId src, OFPort srcPort, DatapathId dst, OFPort dstPort) {
+        DTSP dtsp = dtspService.getDTSPForService(service);
+        Risks risks = calculateRisks(service);
+        Map<SecurityDimension, Float> acceptableRisks = risks.getAcceptableRisks();
+        Map<SecurityDimension, Float> maxRisks = risks.getMaxRisks();
+        UnevenModel unevenModel = unevenService.getUnevenModel();
+        Double unevenBefore = unevenModel.getUneven(unevenMetric);
+
+        SearchEffort effort = new SearchEffort();
+        Graph graph = new Graph(dtsp, effort);
+
+        SolveRegion region = SolveRegion.RAR_BF;
+        Label label = graph.search(src, dst, acceptableRisks, null);
+        if(label == null && !effort.isLabelsLimitReached()) {
+            region = SolveRegion.RAR_RF;
+            label = graph.search(src, dst, maxRisks, acceptableRisks);
+        }
+        log.info("Constrained search between {} and {} finished with {}", new Object[] { src, dst, effort });
+
+        if(label == null) {
+            Reason reason;
+            if(effort.getPrunedRisk() > 0 || (effort.getPrunedLatency() == 0 && effort.getPrunedBandwidth() == 0)) {
+                reason = Reason.CANNOT_FULFILL_DTSP;
+            } else if(effort.getPrunedLatency() > 0) {
+                reason = Reason.CANNOT_FULFILL_LATENCY;
+            } else {
+                reason = Reason.CANNOT_FULFILL_BANDWIDTH;
+            }
+            log.info("Cannot find path to realize service " + service.getId());
+            return Decision.builder()
+                    .id(UUID.randomUUID().toString())
+                    .user(user)
+                    .service(service)
+                    .acceptableRisks(acceptableRisks)
+                    .maxRisks(maxRisks)
+                    .solved(false)
+                    .reason(reason)
+                    .date(LocalTime.now())
+                    .searchEffort(effort)
+                    .build();
+        }
+
+        List<NodePortTuple> hops = hops(label);
+        /* predicted on inter-switch ports only, as for paths of the k shortest path solver */
+        double unevenAfter = unevenModel.getUnevenIfAdded(unevenMetric, hops, dtsp.getService().getBandwidth().longValue());
+        Path path = toPath(label, hops, src, srcPort, dst, dstPort);
+        Map<SecurityDimension, Float> pathRisks = label.risks();
+        log.info("Path {} in {} with distance {}", new Object[] { path, region, label.distance });
+        return Decision.builder()
+                .id(UUID.randomUUID().toString())
+                .user(user)
+                .service(service)
+                .acceptableRisks(acceptableRisks)
+                .maxRisks(maxRisks)
+                .solved(true)
+                .unevenBefore(unevenBefore)
+                .unevenAfter(unevenAfter)
+                .region(region)
+                .value(label.distance)
+                .risks(pathRisks)
+                .risk(label.rc + label.ri + label.ra + label.rt)
+                .date(LocalTime.now())
+                .path(path)
+                .pathLength(path.getHopCount())
+                .pathLatency(path.getLatency().getValue())
+                .searchEffort(effort)
+                .build();
+    }
+
+    @Override
+    public Decision solveShortest(User user, Service service, DatapathId src, OFPort srcPort, DatapathId dst, OFPort dstPort) {
+        return shortestSolver.solveShortest(user, service, src, srcPort, dst, dstPort);
+    }
+
+    /* inter-switch ports of links the label was reached over */
+    private List<NodePortTuple> hops(Label label) {
+        LinkedList<NodePortTuple> npts = new LinkedList<>();
+        for(Label l = label; l.via != null; l = l.parent) {
+            npts.addFirst(new NodePortTuple(l.via.getDst(), l.via.getDstPort()));
+            npts.addFirst(new NodePortTuple(l.via.getSrc(), l.via.getSrcPort()));
+        }
+        return npts;
+    }
+
+    private Path toPath(Label label, List<NodePortTuple> hops, DatapathId src, OFPort srcPort, DatapathId dst, OFPort dstPort) {
+        List<NodePortTuple> npts = new ArrayList<>(hops.size() + 2);
+        npts.add(new NodePortTuple(src, srcPort));
+        npts.addAll(hops);
+        npts.add(new NodePortTuple(dst, dstPort));
+
+        Path path = new Path(new PathId(src, dst), npts);
+        path.setHopCount(hops.size() / 2);
+        path.setLatency(U64.of(label.latency));
+        return path;
+    }
+
+    /**
+     * Links and element properties read once per decision, shared by both searches.
+     */
+    private class Graph {
+
+        private final Map<DatapathId, List<Link>> adjacency = new HashMap<>();
+        private final SecurityPropertiesSnapshot properties;
+        private final float consequenceC, consequenceI, consequenceA, consequenceT;
+        private final Double bandwidth;
+        private final Long maxLatency;
+        private final boolean latencyCost;
+        private final SearchEffort effort;
+
+        Graph(DTSP dtsp, SearchEffort effort) {
+            this.properties = securityPropertiesService.getSecurityPropertiesSnapshot();
+            Map<SecurityDimension, Float> consequences = dtsp.getConsequences();
+            this.consequenceC = consequences.get(SecurityDimension.CONFIDENTIALITY);
+            this.consequenceI = consequences.get(SecurityDimension.INTEGRITY);
+            this.consequenceA = consequences.get(SecurityDimension.AVAILABILITY);
+            this.consequenceT = consequences.get(SecurityDimension.TRUST);
+            this.bandwidth = dtsp.getService().getBandwidth();
+            this.maxLatency = dtsp.getService().getMaxLatency();
+            this.latencyCost = routingService.getPathMetric() == IRoutingService.PATH_METRIC.LATENCY;
+            this.effort = effort;
+            for(Link link: linkService.getLinks().keySet()) {
+                adjacency.computeIfAbsent(link.getSrc(), k -> new ArrayList<>()).add(link);
+            }
+        }
+
+        /**
+         * @param bound risks which partial paths cannot exceed
+         * @param acceptable if not null distance is measured as excess over acceptable risks (RAR-RF)
+         */
+        Label search(DatapathId src, DatapathId dst, Map<SecurityDimension, Float> bound, Map<SecurityDimension, Float> acceptable) {
+            Map<DatapathId, List<Label>> labels = new HashMap<>();
+            PriorityQueue<Label> queue = new PriorityQueue<>();
+
+            Label start = label(null, src, null, 0, 0, 1f, 1f, 1f,
+                    pathPropertiesService.aggregate(1f, properties.getTrust(src)), acceptable);
+            if(!inBound(start, bound)) {
+                effort.setPrunedRisk(effort.getPrunedRisk() + 1);
+                return null;
+            }
+            labels.computeIfAbsent(src, k -> new ArrayList<>()).add(start);
+            queue.add(start);
+
+            while(!queue.isEmpty()) {
+                Label current = queue.poll();
+                if(current.dominated) {
+                    continue;
+                }
+                effort.setLabelsExpanded(effort.getLabelsExpanded() + 1);
+                if(current.node.equals(dst)) {
+                    return current;
+                }
+
+                for(Link link: adjacency.getOrDefault(current.node, Collections.emptyList())) {
+                    if(!hasBandwidth(link.getSrc(), link.getSrcPort()) || !hasBandwidth(link.getDst(), link.getDstPort())) {
+                        effort.setPrunedBandwidth(effort.getPrunedBandwidth() + 1);
+                        continue;
+                    }
+
+                    long linkLatency = Math.max(0, link.getLatency() == null ? 0 : link.getLatency().getValue());
+                    long latency = current.latency + linkLatency;
+                    if(maxLatency != null && latency > maxLatency) {
+                        effort.setPrunedLatency(effort.getPrunedLatency() + 1);
+                        continue;
+                    }
+
+                    long cost = current.cost + (latencyCost ? linkLatency : 1);
+                    int ordinal = properties.getLinkOrdinal(link);
+                    Label next = label(current, link.getDst(), link, cost, latency,
+                            pathPropertiesService.aggregate(current.c, properties.getConfidentiality(ordinal)),
+                            pathPropertiesService.aggregate(current.i, properties.getIntegrity(ordinal)),
+                            pathPropertiesService.aggregate(current.a, properties.getAvailability(ordinal)),
+                            pathPropertiesService.aggregate(current.t, properties.getTrust(link.getDst())),
+                            acceptable);
+                    if(!inBound(next, bound)) {
+                        effort.setPrunedRisk(effort.getPrunedRisk() + 1);
+                        continue;
+                    }
+
+                    if(!addIfNotDominated(labels.computeIfAbsent(next.node, k -> new ArrayList<>()), next)) {
+                        effort.setLabelsDominated(effort.getLabelsDominated() + 1);
+                        continue;
+                    }
+                    queue.add(next);
+
+                    effort.setLabelsCreated(effort.getLabelsCreated() + 1);
+                    if(maxLabels > 0 && effort.getLabelsCreated() >= maxLabels) {
+                        log.warn("Constrained search between {} and {} stopped after {} labels", new Object[] { src, dst, maxLabels });
+                        effort.setLabelsLimitReached(true);
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private boolean addIfNotDominated(List<Label> atNode, Label label) {
+            Iterator<Label> it = atNode.iterator();
+            while(it.hasNext()) {
+                Label other = it.next();
+                if(other.dominates(label)) {
+                    return false;
+                }
+                if(label.dominates(other)) {
+                    other.dominated = true;
+                    it.remove();
+                }
+            }
+            atNode.add(label);
+            return true;
+        }
+
+        private Label label(Label parent, DatapathId node, Link via, long cost, long latency,
+                            float c, float i, float a, float t, Map<SecurityDimension, Float> acceptable) {
+            if(parent != null && parent.c == c && parent.i == i && parent.a == a && parent.t == t) {
+                return new Label(parent, node, via, cost, latency, c, i, a, t,
+                        parent.rc, parent.ri, parent.ra, parent.rt, acceptable);
+            }
+            return new Label(parent, node, via, cost, latency, c, i, a, t,
+                    riskService.calculateRisk(c, consequenceC), riskService.calculateRisk(i, consequenceI),
+                    riskService.calculateRisk(a, consequenceA), riskService.calculateRisk(t, consequenceT), acceptable);
+        }
+
+        private boolean inBound(Label label, Map<SecurityDimension, Float> bound) {
+            return label.rc <= bound.get(SecurityDimension.CONFIDENTIALITY)
+                    && label.ri <= bound.get(SecurityDimension.INTEGRITY)
+                    && label.ra <= bound.get(SecurityDimension.AVAILABILITY)
+                    && label.rt <= bound.get(SecurityDimension.TRUST);
+        }
+
+        private boolean hasBandwidth(DatapathId sw, OFPort port) {
+            if(bandwidth == null) {
+                return true;
+            }
+            SwitchPortBandwidth bandwidthConsumption = statisticsService.getBandwidthConsumption(sw, port);
+            return bandwidthConsumption == null || (bandwidthConsumption.getAvailableTxBandwidth() * 1000) >= bandwidth;
+        }
+    }
+
+    private static final class Label implements Comparable<Label> {
+
+        final Label parent;
+        final DatapathId node;
+        final Link via;
+        final long cost;
+        final long latency;
+        final float c, i, a, t;
+        final float rc, ri, ra, rt;
+        final double distance;
+        boolean dominated = false;
+
+        Label(Label parent, DatapathId node, Link via, long cost, long latency,
+              float c, float i, float a, float t, float rc, float ri, float ra, float rt,
+              Map<SecurityDimension, Float> acceptable) {
+            this.parent = parent;
+            this.node = node;
+            this.via = via;
+            this.cost = cost;
+            this.latency = latency;
+            this.c = c;
+            this.i = i;
+            this.a = a;
+            this.t = t;
+            this.rc = rc;
+            this.ri = ri;
+            this.ra = ra;
+            this.rt = rt;
+            if(acceptable == null) {
+                this.distance = Math.sqrt(Math.pow(rc, 2) + Math.pow(ri, 2) + Math.pow(ra, 2) + Math.pow(rt, 2));
+            } else {
+                this.distance = Math.sqrt(Math.pow(excess(rc, acceptable.get(SecurityDimension.CONFIDENTIALITY)), 2)
+                        + Math.pow(excess(ri, acceptable.get(SecurityDimension.INTEGRITY)), 2)
+                        + Math.pow(excess(ra, acceptable.get(SecurityDimension.AVAILABILITY)), 2)
+                        + Math.pow(excess(rt, acceptable.get(SecurityDimension.TRUST)), 2));
+            }
+        }
+
+        private static float excess(float risk, float acceptable) {
+            return Math.max(0f, risk - acceptable);
+        }
+
+        boolean dominates(Label o) {
+            return cost <= o.cost && latency <= o.latency
+                    && c >= o.c && i >= o.i && a >= o.a && t >= o.t;
+        }
+
+        Map<SecurityDimension, Float> risks() {
+            Map<SecurityDimension, Float> risks = new HashMap<>();
+            risks.put(SecurityDimension.CONFIDENTIALITY, rc);
+            risks.put(SecurityDimension.INTEGRITY, ri);
+            risks.put(SecurityDimension.AVAILABILITY, ra);
+            risks.put(SecurityDimension.TRUST, rt);
+            return risks;
+        }
+
+        @Override
+        public int compareTo(Label o) {
+            int result = Long.compare(cost, o.cost);
+            if(result == 0) {
+                result = Double.compare(distance, o.distance);
+            }
+            if(result == 0) {
+                result = Long.compare(latency, o.latency);
+            }
+            return result;
+        }
+    }
+
+    private Risks calculateRisks(Service service) {
+        DTSP dtsp = dtspService.getDTSPForService(service);
+        Map<SecurityDimension, Float> acceptableRisks = riskService.calculateRisk(dtsp.getRequirements(), dtsp.getConsequences());
+        Map<SecurityDimension, Float> maxRisks = new HashMap<>();
+        Map<SecurityDimension, Float> increase = dtsp.getAcceptableRiskIncrease();
+        maxRisks.put(SecurityDimension.CONFIDENTIALITY, acceptableRisks.get(SecurityDimension.CONFIDENTIALITY) + acceptableRisks.get(SecurityDimension.CONFIDENTIALITY) * (increase.get(SecurityDimension.CONFIDENTIALITY) / 100.0f));
+        maxRisks.put(SecurityDimension.INTEGRITY, acceptableRisks.get(SecurityDimension.INTEGRITY) + acceptableRisks.get(SecurityDimension.INTEGRITY) * (increase.get(SecurityDimension.INTEGRITY) / 100.0f));
+        maxRisks.put(SecurityDimension.AVAILABILITY, acceptableRisks.get(SecurityDimension.AVAILABILITY) + acceptableRisks.get(SecurityDimension.AVAILABILITY) * (increase.get(SecurityDimension.AVAILABILITY) / 100.0f));
+        maxRisks.put(SecurityDimension.TRUST, acceptableRisks.get(SecurityDimension.TRUST) + acceptableRisks.get(SecurityDimension.TRUST) * (increase.get(SecurityDimension.TRUST) / 100.0f));
+        log.debug("Acceptable risks for service {} are {}", service, acceptableRisks);
+        log.debug("Max risks for service {} are {}", service, maxRisks);
+        return new Risks(acceptableRisks, maxRisks);
+    }
+}
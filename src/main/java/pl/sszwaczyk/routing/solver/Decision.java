@@ -45,4 +45,7 @@ public class Decision {
     private long pathLatency;
     private Path path;
 
+    //null if solver does not count search effort
+    private SearchEffort searchEffort;
+
 }
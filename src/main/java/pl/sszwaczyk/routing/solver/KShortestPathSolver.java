@@ -5,12 +5,12 @@ import lombok.Builder;
 import net.floodlightcontroller.core.types.NodePortTuple;
 import net.floodlightcontroller.routing.IRoutingService;
 import net.floodlightcontroller.routing.Path;
+import net.floodlightcontroller.routing.PathCursor;
 import net.floodlightcontroller.routing.PathId;
 import net.floodlightcontroller.statistics.IStatisticsService;
 import net.floodlightcontroller.statistics.SwitchPortBandwidth;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.OFPort;
-import org.projectfloodlight.openflow.types.U64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.sszwaczyk.path.IPathPropertiesService;
@@ -22,6 +22,7 @@ import pl.sszwaczyk.security.risk.Risks;
 import pl.sszwaczyk.service.Service;
 import pl.sszwaczyk.uneven.IUnevenService;
 import pl.sszwaczyk.uneven.UnevenMetric;
+import pl.sszwaczyk.uneven.UnevenModel;
 import pl.sszwaczyk.user.User;
 
 import java.time.LocalTime;
@@ -29,6 +30,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 @Builder
@@ -48,6 +51,8 @@ public class KShortestPathSolver implements Solver {
     private int maxPaths;
     private boolean chooseMinUneven;
     private UnevenMetric unevenMetric;
+    //if set candidate paths of a batch are evaluated in parallel on this pool
+    private ForkJoinPool evaluationPool;
 
     @Override
     public Decision solve(User user, Service service, DatapathId src, OFPort srcPort, DatapathId dst, OFPort dstPort) {
@@ -55,8 +60,8 @@ public class KShortestPathSolver implements Solver {
         Risks risks = calculateRisks(service);
         Map<SecurityDimension, Float> acceptableRisks = risks.getAcceptableRisks();
         Map<SecurityDimension, Float> maxRisks = risks.getMaxRisks();
-        Map<NodePortTuple, SwitchPortBandwidth> actualBandwidthConsumption = statisticsService.getBandwidthConsumption();
-        Double unevenBefore = unevenService.getUneven(unevenMetric);
+        UnevenModel unevenModel = unevenService.getUnevenModel();
+        Double unevenBefore = unevenModel.getUneven(unevenMetric);
         Double unevenAfter = Double.MAX_VALUE;
 
         Path path = null;
@@ -68,22 +73,20 @@ public class KShortestPathSolver implements Solver {
         Map<SecurityDimension, Float> rarRfPathRisks = null;
         Reason reason = null;
 
-        int lastSize = 0;
+        PathCursor cursor = routingService.getPathCursor(src, dst);
         boolean wasPathChecked = false;
         while(rarBfPath == null && rarRfPath == null) {
+            int lastSize = cursor.getPosition();
             if(lastSize >= maxPaths) {
                 break;
             }
 
-            List<Path> paths = routingService.getPathsSlow(src, dst, k + lastSize);
-            if(paths.size() <= lastSize) {
-                log.error("Break");
+            List<Path> paths = cursor.next(k);
+            if(paths.isEmpty()) {
+                log.info("No more paths between " + src + " and " + dst);
                 break;
             }
-            log.info("Searching shortests paths between " + (lastSize + 1) + " and " + paths.size());
-            int pathsSize = paths.size();
-            paths = paths.subList(lastSize, paths.size());
-            lastSize = pathsSize;
+            log.info("Searching shortests paths between " + (lastSize + 1) + " and " + cursor.getPosition());
 
 
             reason = null;
@@ -107,39 +110,15 @@ public class KShortestPathSolver implements Solver {
 
             log.info("Filtered size = " + filteredPaths.size());
 
-            for(Path p: filteredPaths) {
+            // Candidates are evaluated (possibly in parallel) first and then chosen from
+            // in path rank order, so ties are always broken in favour of the shorter path
+            List<Candidate> candidates = evaluate(filteredPaths, dtsp, unevenModel);
+            for(Candidate candidate: candidates) {
                 wasPathChecked = true;
                 reason = Reason.CANNOT_FULFILL_DTSP;
-                log.info("Checking path " + p);
-
-                Map<SecurityDimension, Float> pathProperties = pathPropertiesService.calculatePathProperties(p);
-                Map<SecurityDimension, Float> pathRisks = riskService.calculateRisk(pathProperties, dtsp.getConsequences());
-
-                Map<NodePortTuple, SwitchPortBandwidth> predicateBandwidthConsumption = new HashMap<>();
-                List<NodePortTuple> npts = p.getPath();
-                actualBandwidthConsumption.forEach((nodePortTuple, switchPortBandwidth) -> {
-                    if(npts.contains(nodePortTuple)) {
-                        predicateBandwidthConsumption.put(nodePortTuple, SwitchPortBandwidth.of(switchPortBandwidth.getSwitchId(),
-                                switchPortBandwidth.getSwitchPort(),
-                                switchPortBandwidth.getLinkSpeedBitsPerSec(),
-                                switchPortBandwidth.getBitsPerSecondRx(),
-                                U64.of(switchPortBandwidth.getBitsPerSecondTx().getValue() + dtsp.getService().getBandwidth().longValue()),
-                                switchPortBandwidth.getPriorByteValueRx(),
-                                switchPortBandwidth.getPriorByteValueTx()));
-                    } else {
-                        //copy actual
-                        predicateBandwidthConsumption.put(nodePortTuple, SwitchPortBandwidth.of(switchPortBandwidth.getSwitchId(),
-                                switchPortBandwidth.getSwitchPort(),
-                                switchPortBandwidth.getLinkSpeedBitsPerSec(),
-                                switchPortBandwidth.getBitsPerSecondRx(),
-                                switchPortBandwidth.getBitsPerSecondTx(),
-                                switchPortBandwidth.getPriorByteValueRx(),
-                                switchPortBandwidth.getPriorByteValueTx()));
-                    }
-                });
-                Double pathUnevenAfter = unevenService.getUneven(unevenMetric, predicateBandwidthConsumption);
-                long latency = p.getLatency().getValue();
-                log.debug("Uneven after = " + pathUnevenAfter + " and latency = " + latency);
+                Path p = candidate.path;
+                Map<SecurityDimension, Float> pathRisks = candidate.risks;
+                Double pathUnevenAfter = candidate.unevenAfter;
 
                 if(isPathRiskInRange(acceptableRisks, pathRisks)) {
                     if(rarBfPath == null) {
@@ -285,8 +264,8 @@ public class KShortestPathSolver implements Solver {
         Risks risks = calculateRisks(service);
         Map<SecurityDimension, Float> acceptableRisks = risks.getAcceptableRisks();
         Map<SecurityDimension, Float> maxRisks = risks.getMaxRisks();
-        Map<NodePortTuple, SwitchPortBandwidth> actualBandwidthConsumption = statisticsService.getBandwidthConsumption();
-        Double unevenBefore = unevenService.getUneven(unevenMetric);
+        UnevenModel unevenModel = unevenService.getUnevenModel();
+        Double unevenBefore = unevenModel.getUneven(unevenMetric);
         Double unevenAfter = Double.MAX_VALUE;
 
         List<Path> paths = routingService.getPathsSlow(src, dst, 1);
@@ -321,29 +300,7 @@ public class KShortestPathSolver implements Solver {
         Map<SecurityDimension, Float> pathProperties = pathPropertiesService.calculatePathProperties(path);
         Map<SecurityDimension, Float> pathRisks = riskService.calculateRisk(pathProperties, dtsp.getConsequences());
 
-        Map<NodePortTuple, SwitchPortBandwidth> predicateBandwidthConsumption = new HashMap<>();
-        List<NodePortTuple> npts = path.getPath();
-        actualBandwidthConsumption.forEach((nodePortTuple, switchPortBandwidth) -> {
-            if(npts.contains(nodePortTuple)) {
-                predicateBandwidthConsumption.put(nodePortTuple, SwitchPortBandwidth.of(switchPortBandwidth.getSwitchId(),
-                        switchPortBandwidth.getSwitchPort(),
-                        switchPortBandwidth.getLinkSpeedBitsPerSec(),
-                        switchPortBandwidth.getBitsPerSecondRx(),
-                        U64.of(switchPortBandwidth.getBitsPerSecondTx().getValue() + dtsp.getService().getBandwidth().longValue()),
-                        switchPortBandwidth.getPriorByteValueRx(),
-                        switchPortBandwidth.getPriorByteValueTx()));
-            } else {
-                //copy actual
-                predicateBandwidthConsumption.put(nodePortTuple, SwitchPortBandwidth.of(switchPortBandwidth.getSwitchId(),
-                        switchPortBandwidth.getSwitchPort(),
-                        switchPortBandwidth.getLinkSpeedBitsPerSec(),
-                        switchPortBandwidth.getBitsPerSecondRx(),
-                        switchPortBandwidth.getBitsPerSecondTx(),
-                        switchPortBandwidth.getPriorByteValueRx(),
-                        switchPortBandwidth.getPriorByteValueTx()));
-            }
-        });
-        Double pathUnevenAfter = unevenService.getUneven(unevenMetric, predicateBandwidthConsumption);
+        Double pathUnevenAfter = unevenModel.getUnevenIfAdded(unevenMetric, path.getPath(), dtsp.getService().getBandwidth().longValue());
         long latency = path.getLatency().getValue();
         log.debug("Uneven after = " + pathUnevenAfter + " and latency = " + latency);
 
@@ -389,6 +346,50 @@ public class KShortestPathSolver implements Solver {
 
     }
 
+    private List<Candidate> evaluate(List<Path> paths, DTSP dtsp, UnevenModel unevenModel) {
+        if(evaluationPool == null || paths.size() < 2) {
+            return paths.stream()
+                    .map(p -> evaluate(p, dtsp, unevenModel))
+                    .collect(Collectors.toList());
+        }
+
+        // Parallel stream run inside the pool uses its workers; collect keeps path order
+        try {
+            return evaluationPool.submit(() -> paths.parallelStream()
+                    .map(p -> evaluate(p, dtsp, unevenModel.copy()))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating candidate paths", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot evaluate candidate paths", e.getCause());
+        }
+    }
+
+    private Candidate evaluate(Path p, DTSP dtsp, UnevenModel unevenModel) {
+        log.info("Checking path " + p);
+        Map<SecurityDimension, Float> pathProperties = pathPropertiesService.calculatePathProperties(p);
+        Map<SecurityDimension, Float> pathRisks = riskService.calculateRisk(pathProperties, dtsp.getConsequences());
+
+        double pathUnevenAfter = unevenModel.getUnevenIfAdded(unevenMetric, p.getPath(), dtsp.getService().getBandwidth().longValue());
+        long latency = p.getLatency().getValue();
+        log.debug("Uneven after = " + pathUnevenAfter + " and latency = " + latency);
+        return new Candidate(p, pathRisks, pathUnevenAfter);
+    }
+
+    private static final class Candidate {
+
+        private final Path path;
+        private final Map<SecurityDimension, Float> risks;
+        private final double unevenAfter;
+
+        private Candidate(Path path, Map<SecurityDimension, Float> risks, double unevenAfter) {
+            this.path = path;
+            this.risks = risks;
+            this.unevenAfter = unevenAfter;
+        }
+    }
+
     private boolean isLatencyFullfilled(Path path, Long maxLatency) {
         if(path.getLatency().getValue() > maxLatency) {
             log.info("Path not fullfill latency " + path.toString() + " because of Latency. Path Latency = " + path.getLatency().getValue() + " ms");
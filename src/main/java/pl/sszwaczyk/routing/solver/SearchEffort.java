@@ -0,0 +1,21 @@
+package pl.sszwaczyk.routing.solver;
+
+import lombok.Data;
+
+/**
+ * Counters describing how much work a search based solver did to reach its decision.
+ */
+@Data
+public class SearchEffort {
+
+    private long labelsCreated;
+    private long labelsExpanded;
+    private long labelsDominated;
+
+    private long prunedBandwidth;
+    private long prunedLatency;
+    private long prunedRisk;
+
+    private boolean labelsLimitReached;
+
+}
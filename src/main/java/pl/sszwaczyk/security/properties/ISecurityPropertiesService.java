@@ -17,4 +17,9 @@ public interface ISecurityPropertiesService extends IFloodlightService {
     void setLinkSecurityProperties(LinkSecurityProperties properties);
 
     void addListener(ISecurityPropertiesChangedListener listener);
+
+    /**
+     * Current security properties of switches and links in primitive form, for hot paths.
+     */
+    SecurityPropertiesSnapshot getSecurityPropertiesSnapshot();
 }
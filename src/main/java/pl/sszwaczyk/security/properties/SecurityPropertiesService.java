@@ -19,7 +19,9 @@ import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
 import net.floodlightcontroller.linkdiscovery.Link;
 import net.floodlightcontroller.linkdiscovery.internal.LinkInfo;
 import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.statistics.IStatisticsListener;
 import net.floodlightcontroller.statistics.IStatisticsService;
+import net.floodlightcontroller.statistics.PortStatisticsSnapshot;
 import net.floodlightcontroller.statistics.SwitchPortBandwidth;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import org.projectfloodlight.openflow.protocol.OFPortDesc;
@@ -62,6 +64,18 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
     private Map<String, SwitchSecurityProperties> initSwitchesSecurityProperites = new HashMap<>();
     private Map<Link, LinkSecurityProperties> initLinkSecurityProperties = new HashMap<>();
 
+    private final SecurityPropertiesStore store = new SecurityPropertiesStore();
+
+    private static final int DEFAULT_SOC_BATCH_WINDOW = 20; //ms
+    private static final int DEFAULT_SOC_BATCH_MAX_EVENTS = 100;
+    private int socBatchWindow = DEFAULT_SOC_BATCH_WINDOW;
+    private int socBatchMaxEvents = DEFAULT_SOC_BATCH_MAX_EVENTS;
+
+    /* SOC updates are applied right away, listeners are notified once per batch */
+    private final Object batchLock = new Object();
+    private final Object flushLock = new Object();
+    private SOCUpdateBatch batch = new SOCUpdateBatch();
+
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleServices() {
         Collection<Class<? extends IFloodlightService>> s =
@@ -125,6 +139,22 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
             readFromFile = false;
             log.info("Read Security Properties not set. Set default to " + readFromFile);
         }
+
+        tmp = configParameters.get("soc-batch-window");
+        if(tmp != null && !tmp.isEmpty()) {
+            socBatchWindow = Integer.parseInt(tmp);
+            log.info("SOC updates batch window set to {} ms.", socBatchWindow);
+        } else {
+            log.info("SOC updates batch window not configured. Using {} ms.", socBatchWindow);
+        }
+
+        tmp = configParameters.get("soc-batch-max-events");
+        if(tmp != null && !tmp.isEmpty()) {
+            socBatchMaxEvents = Integer.parseInt(tmp);
+            log.info("SOC updates batch max events set to {}.", socBatchMaxEvents);
+        } else {
+            log.info("SOC updates batch max events not configured. Using {}.", socBatchMaxEvents);
+        }
     }
 
     private void loadInitSecurityProperties(String repositoryFile) throws FloodlightModuleException {
@@ -164,7 +194,7 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
         linkService.addListener(this);
         socService.addListener(this);
         if(enableLinkAvaialabilityUtilizationActualization) {
-            threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new LinkAvailabilityUtilizationActualizator(), 10, 10, TimeUnit.SECONDS);
+            statisticsService.addStatisticsListener(new LinkAvailabilityUtilizationActualizator());
         }
     }
 
@@ -175,14 +205,14 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
         if(readFromFile) {
             SwitchSecurityProperties switchSecurityProperties = initSwitchesSecurityProperites.get(switchId.toString());
             if(switchSecurityProperties != null) {
-                newSwitch.getAttributes().put(SecurityDimension.TRUST, switchSecurityProperties.getTrust());
+                setTrust(newSwitch, switchSecurityProperties.getTrust());
                 log.info("Trust for new switch {} set to {}", switchId, switchSecurityProperties.getTrust());
             } else {
                 log.warn("Init Security Properties for switch " + switchId + " not found! Setting to 0.99.");
-                newSwitch.getAttributes().put(SecurityDimension.TRUST, 0.99f);
+                setTrust(newSwitch, 0.99f);
             }
         } else {
-            newSwitch.getAttributes().put(SecurityDimension.TRUST, 0.99f);
+            setTrust(newSwitch, 0.99f);
             log.info("Trust for new switch {} set to 0.99", switchId);
         }
 
@@ -190,6 +220,7 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
 
     @Override
     public void switchRemoved(DatapathId switchId) {
+        store.removeSwitch(switchId);
     }
 
     @Override
@@ -211,50 +242,50 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
     @Override
     public void linkDiscoveryUpdate(List<LDUpdate> updateList) {
         for(LDUpdate ldUpdate: updateList) {
-            if(ldUpdate.getOperation().equals(UpdateOperation.LINK_UPDATED)) {
-                for(Link link: linkService.getLinks().keySet()) {
-                    if(link.getSrc().equals(ldUpdate.getSrc())
-                        && link.getDst().equals(ldUpdate.getDst())
-                        && link.getSrcPort().equals(ldUpdate.getSrcPort())
-                        && link.getDstPort().equals(ldUpdate.getDstPort())
-                        && link.getSecurityProperties() == null) {
-                            log.debug("Handling link update ({})", link);
-                            if(readFromFile) {
-                                LinkSecurityProperties linkSecurityProperties = initLinkSecurityProperties.get(link);
-                                if(linkSecurityProperties != null) {
-                                    Map<SecurityDimension, Float> securityProperties = new HashMap<>();
-                                    securityProperties.put(SecurityDimension.CONFIDENTIALITY, linkSecurityProperties.getConfidentiality());
-                                    securityProperties.put(SecurityDimension.INTEGRITY, linkSecurityProperties.getIntegrity());
-                                    securityProperties.put(SecurityDimension.AVAILABILITY, linkSecurityProperties.getAvailability());
-                                    link.setSecurityProperties(securityProperties);
-                                    log.info("C, I, A for new link " + link + " set to " + linkSecurityProperties.getConfidentiality() + ", " + linkSecurityProperties.getIntegrity() + ", " + linkSecurityProperties.getAvailability());
-                                } else {
-                                    log.warn("Init Security Properties for link " + link + " not found! Setting to 0.99.");
-                                    Map<SecurityDimension, Float> securityProperties = new HashMap<>();
-                                    securityProperties.put(SecurityDimension.CONFIDENTIALITY, 0.99f);
-                                    securityProperties.put(SecurityDimension.INTEGRITY, 0.99f);
-                                    securityProperties.put(SecurityDimension.AVAILABILITY, 0.99f);
-                                    link.setSecurityProperties(securityProperties);
-                                }
-                            } else {
-                                Map<SecurityDimension, Float> securityProperties = new HashMap<>();
-                                securityProperties.put(SecurityDimension.CONFIDENTIALITY, 0.99f);
-                                securityProperties.put(SecurityDimension.INTEGRITY, 0.99f);
-                                securityProperties.put(SecurityDimension.AVAILABILITY, 0.99f);
-                                link.setSecurityProperties(securityProperties);
-                                log.info("C, I, A for new link {} set to 0.99", link);
-                            }
-
-                            LinkSecurityProperties p = new LinkSecurityProperties();
-                            p.setSrc(link.getSrc().toString());
-                            p.setSrcPort(link.getSrcPort().getPortNumber());
-                            p.setDst(link.getDst().toString());
-                            p.setDstPort(link.getDstPort().getPortNumber());
-                            p.setAvailability(0.99f);
-                            p.setIntegrity((float) ThreadLocalRandom.current().nextDouble(0.85, 0.95));
-                            p.setConfidentiality((float) ThreadLocalRandom.current().nextDouble(0.85, 0.95));
-                            initLinkSecurityProperties.put(link, p);
+            if(ldUpdate.getOperation().equals(UpdateOperation.LINK_REMOVED)) {
+                store.removeLink(new Link(ldUpdate.getSrc(), ldUpdate.getSrcPort(), ldUpdate.getDst(), ldUpdate.getDstPort(), U64.ZERO));
+            } else if(ldUpdate.getOperation().equals(UpdateOperation.LINK_UPDATED)) {
+                Link link = linkService.getLink(ldUpdate.getSrc(), ldUpdate.getSrcPort(), ldUpdate.getDst(), ldUpdate.getDstPort());
+                if(link != null && link.getSecurityProperties() == null) {
+                    log.debug("Handling link update ({})", link);
+                    if(readFromFile) {
+                        LinkSecurityProperties linkSecurityProperties = initLinkSecurityProperties.get(link);
+                        if(linkSecurityProperties != null) {
+                            Map<SecurityDimension, Float> securityProperties = new HashMap<>();
+                            securityProperties.put(SecurityDimension.CONFIDENTIALITY, linkSecurityProperties.getConfidentiality());
+                            securityProperties.put(SecurityDimension.INTEGRITY, linkSecurityProperties.getIntegrity());
+                            securityProperties.put(SecurityDimension.AVAILABILITY, linkSecurityProperties.getAvailability());
+                            link.setSecurityProperties(securityProperties);
+                            storeLink(link);
+                            log.info("C, I, A for new link " + link + " set to " + linkSecurityProperties.getConfidentiality() + ", " + linkSecurityProperties.getIntegrity() + ", " + linkSecurityProperties.getAvailability());
+                        } else {
+                            log.warn("Init Security Properties for link " + link + " not found! Setting to 0.99.");
+                            Map<SecurityDimension, Float> securityProperties = new HashMap<>();
+                            securityProperties.put(SecurityDimension.CONFIDENTIALITY, 0.99f);
+                            securityProperties.put(SecurityDimension.INTEGRITY, 0.99f);
+                            securityProperties.put(SecurityDimension.AVAILABILITY, 0.99f);
+                            link.setSecurityProperties(securityProperties);
+                            storeLink(link);
+                        }
+                    } else {
+                        Map<SecurityDimension, Float> securityProperties = new HashMap<>();
+                        securityProperties.put(SecurityDimension.CONFIDENTIALITY, 0.99f);
+                        securityProperties.put(SecurityDimension.INTEGRITY, 0.99f);
+                        securityProperties.put(SecurityDimension.AVAILABILITY, 0.99f);
+                        link.setSecurityProperties(securityProperties);
+                        storeLink(link);
+                        log.info("C, I, A for new link {} set to 0.99", link);
                     }
+
+                    LinkSecurityProperties p = new LinkSecurityProperties();
+                    p.setSrc(link.getSrc().toString());
+                    p.setSrcPort(link.getSrcPort().getPortNumber());
+                    p.setDst(link.getDst().toString());
+                    p.setDstPort(link.getDstPort().getPortNumber());
+                    p.setAvailability(0.99f);
+                    p.setIntegrity((float) ThreadLocalRandom.current().nextDouble(0.85, 0.95));
+                    p.setConfidentiality((float) ThreadLocalRandom.current().nextDouble(0.85, 0.95));
+                    initLinkSecurityProperties.put(link, p);
                 }
             }
         }
@@ -269,60 +300,131 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
         List<DatapathId> dpids = socUpdate.getSwitches();
         Map<SecurityDimension, Float> securityPropertiesDifference = socUpdate.getSecurityPropertiesDifference();
 
-        List<IOFSwitch> switches = new ArrayList<>();
-        if(type.equals(SOCUpdateType.THREAT_ACTIVATED)) {
+        boolean flushNow;
+        synchronized (batchLock) {
+            if(type.equals(SOCUpdateType.THREAT_ACTIVATED)) {
+
+                for(DatapathId dpid: dpids) {
+
+                    IOFSwitch s = switchService.getSwitch(dpid);
+                    Float actualTrust = (Float) s.getAttributes().get(SecurityDimension.TRUST);
+                    batch.trustBefore.putIfAbsent(dpid, actualTrust);
+                    Float trustDifference = securityPropertiesDifference.get(SecurityDimension.TRUST);
+                    if(trustDifference > actualTrust) {
+                        log.warn("New threat TRUST difference more than actual TRUST for switch {}. Setting TRUST to 0.", dpid);
+                        setTrust(s, 0.0f);
+                    } else {
+                        setTrust(s, actualTrust - trustDifference);
+                        log.debug("Set TRUST for switch {} to {}", dpid, s.getAttributes().get(SecurityDimension.TRUST));
+                    }
 
-            for(DatapathId dpid: dpids) {
+                    for(Link link: switchLinks(dpid)) {
+                        batch.linksBefore.putIfAbsent(link, new LinkBefore(dpid, link));
+                        activateThreatOnLink(securityPropertiesDifference, link);
+                    }
 
-                IOFSwitch s = switchService.getSwitch(dpid);
-                switches.add(s);
-                Float actualTrust = (Float) s.getAttributes().get(SecurityDimension.TRUST);
-                Float trustDifference = securityPropertiesDifference.get(SecurityDimension.TRUST);
-                if(trustDifference > actualTrust) {
-                    log.warn("New threat TRUST difference more than actual TRUST for switch {}. Setting TRUST to 0.", dpid);
-                    s.getAttributes().put(SecurityDimension.TRUST, 0.0f);
-                } else {
-                    s.getAttributes().put(SecurityDimension.TRUST, actualTrust - trustDifference);
-                    log.debug("Set TRUST for switch {} to {}", dpid, s.getAttributes().get(SecurityDimension.TRUST));
                 }
 
-                Set<Link> links = linkService.getSwitchLinks().get(dpid);
-                for(Link link: links) {
-                    activateThreatOnLink(securityPropertiesDifference, link);
-                }
+            } else if(type.equals(SOCUpdateType.THREAT_ENDED)) {
+
+                for(DatapathId dpid: dpids) {
+
+                    IOFSwitch s = switchService.getSwitch(dpid);
+                    Float actualTrust = (Float) s.getAttributes().get(SecurityDimension.TRUST);
+                    batch.trustBefore.putIfAbsent(dpid, actualTrust);
+                    Float trustDifference = securityPropertiesDifference.get(SecurityDimension.TRUST);
+                    if(actualTrust + trustDifference > 0.99) {
+                        log.warn("Threat ended TRUST plus actual TRUST is more than 0.99 for switch {}. Setting TRUST to 0.99", dpid);
+                        setTrust(s, 0.99f);
+                    } else {
+                        setTrust(s, actualTrust + trustDifference);
+                        log.debug("Set TRUST for switch {} to {}", dpid, s.getAttributes().get(SecurityDimension.TRUST));
+                    }
 
+                    for(Link link: switchLinks(dpid)) {
+                        batch.linksBefore.putIfAbsent(link, new LinkBefore(dpid, link));
+                        deactivateThreatOnLink(securityPropertiesDifference, link);
+                    }
+
+                }
 
             }
 
-            sendUpdates(SecurityPropertiesUpdateType.PROPERTIES_DOWN, switches);
+            batch.events++;
+            flushNow = socBatchWindow <= 0 || batch.events >= socBatchMaxEvents;
+            if(!flushNow && batch.events == 1) {
+                threadPoolService.getScheduledExecutor().schedule(this::flushSOCUpdates, socBatchWindow, TimeUnit.MILLISECONDS);
+            }
+        }
 
-        } else if(type.equals(SOCUpdateType.THREAT_ENDED)) {
+        if(flushNow) {
+            flushSOCUpdates();
+        }
+    }
 
-            for(DatapathId dpid: dpids) {
+    private Set<Link> switchLinks(DatapathId dpid) {
+        Set<Link> links = linkService.getSwitchLinks().get(dpid);
+        return links == null ? Collections.emptySet() : links;
+    }
 
-                IOFSwitch s = switchService.getSwitch(dpid);
-                switches.add(s);
-                Float actualTrust = (Float) s.getAttributes().get(SecurityDimension.TRUST);
-                Float trustDifference = securityPropertiesDifference.get(SecurityDimension.TRUST);
-                if(actualTrust + trustDifference > 0.99) {
-                    log.warn("Threat ended TRUST plus actual TRUST is more than 0.99 for switch {}. Setting TRUST to 0.99", dpid);
-                    s.getAttributes().put(SecurityDimension.TRUST, 0.99f);
-                } else {
-                    s.getAttributes().put(SecurityDimension.TRUST, actualTrust + trustDifference);
-                    log.debug("Set TRUST for switch {} to {}", dpid, s.getAttributes().get(SecurityDimension.TRUST));
+    /**
+     * Sends one update for all SOC updates applied since the last flush. Switches whose trust
+     * and links ended up where they were before the batch are left out. The update is
+     * PROPERTIES_DOWN if any property in the batch decreased.
+     */
+    private void flushSOCUpdates() {
+        synchronized (flushLock) {
+            SOCUpdateBatch flushed;
+            synchronized (batchLock) {
+                if(batch.events == 0) {
+                    return;
                 }
+                flushed = batch;
+                batch = new SOCUpdateBatch();
+            }
 
-                Set<Link> links = linkService.getSwitchLinks().get(dpid);
-                for(Link link: links) {
-                    deactivateThreatOnLink(securityPropertiesDifference, link);
+            boolean down = false;
+            Set<DatapathId> changed = new LinkedHashSet<>();
+            for(Map.Entry<DatapathId, Float> e: flushed.trustBefore.entrySet()) {
+                IOFSwitch s = switchService.getSwitch(e.getKey());
+                Float trust = s == null ? null : (Float) s.getAttributes().get(SecurityDimension.TRUST);
+                if(trust != null && !trust.equals(e.getValue())) {
+                    changed.add(e.getKey());
+                    down |= trust < e.getValue();
+                }
+            }
+            for(Map.Entry<Link, LinkBefore> e: flushed.linksBefore.entrySet()) {
+                Link link = e.getKey();
+                LinkBefore before = e.getValue();
+                if(link.getSecurityProperties() == null) {
+                    continue;
+                }
+                boolean linkDown = link.getConfidentiality() < before.confidentiality
+                        || link.getIntegrity() < before.integrity
+                        || link.getAvailability() < before.availability;
+                boolean linkUp = link.getConfidentiality() > before.confidentiality
+                        || link.getIntegrity() > before.integrity
+                        || link.getAvailability() > before.availability;
+                if(linkDown || linkUp) {
+                    changed.add(before.dpid);
+                    down |= linkDown;
                 }
-
             }
 
-            sendUpdates(SecurityPropertiesUpdateType.PROPERTIES_UP, switches);
-
+            log.debug("Merged {} SOC updates changing {} switches", flushed.events, changed.size());
+            if(changed.isEmpty()) {
+                return;
+            }
+            List<IOFSwitch> switches = new ArrayList<>();
+            for(DatapathId dpid: changed) {
+                IOFSwitch s = switchService.getSwitch(dpid);
+                if(s != null) {
+                    switches.add(s);
+                }
+            }
+            sendUpdates(down ? SecurityPropertiesUpdateType.PROPERTIES_DOWN : SecurityPropertiesUpdateType.PROPERTIES_UP,
+                    switches, new ArrayList<>(), flushed.events);
         }
-
     }
 
     @Override
@@ -365,9 +467,9 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
         IOFSwitch s = switchService.getSwitch(DatapathId.of(properties.getSwitchDpid()));
         Float oldTrust = (Float) s.getAttributes().get(SecurityDimension.TRUST);
         Float newTrust = properties.getTrust();
-        s.getAttributes().put(SecurityDimension.TRUST, newTrust);
+        setTrust(s, newTrust);
         log.debug("Set TRUST for switch {} to {}",properties.getSwitchDpid(), newTrust);
-        sendUpdates(oldTrust > newTrust ? SecurityPropertiesUpdateType.PROPERTIES_DOWN : SecurityPropertiesUpdateType.PROPERTIES_UP, Lists.newArrayList(s));
+        sendUpdates(oldTrust > newTrust ? SecurityPropertiesUpdateType.PROPERTIES_DOWN : SecurityPropertiesUpdateType.PROPERTIES_UP, Lists.newArrayList(s), new ArrayList<>());
     }
 
     @Override
@@ -377,13 +479,19 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
                 DatapathId.of(properties.getDst()),
                 OFPort.of(properties.getDstPort()));
         if(link != null) {
+            boolean down = properties.getConfidentiality() < link.getConfidentiality()
+                    || properties.getIntegrity() < link.getIntegrity()
+                    || properties.getAvailability() < link.getAvailability();
             link.setConfidentiality(properties.getConfidentiality());
             link.setIntegrity(properties.getIntegrity());
             link.setAvailability(properties.getAvailability());
+            storeLink(link);
             log.debug("Set new C, I, A for link {}", link);
             log.debug("Confidentiality = {}", link.getConfidentiality());
             log.debug("Integrity = {}", link.getIntegrity());
             log.debug("Availability = {}", link.getAvailability());
+            sendUpdates(down ? SecurityPropertiesUpdateType.PROPERTIES_DOWN : SecurityPropertiesUpdateType.PROPERTIES_UP,
+                    new ArrayList<>(), Lists.newArrayList(link));
         }
     }
 
@@ -392,6 +500,20 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
         listeners.add(listener);
     }
 
+    @Override
+    public SecurityPropertiesSnapshot getSecurityPropertiesSnapshot() {
+        return store.getSnapshot();
+    }
+
+    private void setTrust(IOFSwitch s, float trust) {
+        s.getAttributes().put(SecurityDimension.TRUST, trust);
+        store.setTrust(s.getId(), trust);
+    }
+
+    private void storeLink(Link link) {
+        store.setLink(link, link.getConfidentiality(), link.getIntegrity(), link.getAvailability());
+    }
+
     private void activateThreatOnLink(Map<SecurityDimension, Float> securityPropertiesDifference, Link link) {
         Float actualConfidentiality = link.getConfidentiality();
         Float confidentialityDifference = securityPropertiesDifference.get(SecurityDimension.CONFIDENTIALITY);
@@ -419,6 +541,7 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
         } else {
             link.setAvailability(actualAvailability - availabilityDifference);
         }
+        storeLink(link);
 
         log.debug("Set new C, I, A for link {}", link);
         log.debug("Confidentiality = {}", link.getConfidentiality());
@@ -453,6 +576,7 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
         } else {
             link.setAvailability(actualAvailability + availabilityDifference);
         }
+        storeLink(link);
 
         log.debug("Set new C, I, A for link {}", link);
         log.debug("Confidentiality = {}", link.getConfidentiality());
@@ -460,10 +584,17 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
         log.debug("Availability = {}", link.getAvailability());
     }
 
-    private void sendUpdates(SecurityPropertiesUpdateType type, List<IOFSwitch> switches) {
+    private void sendUpdates(SecurityPropertiesUpdateType type, List<IOFSwitch> switches, List<Link> links) {
+        sendUpdates(type, switches, links, 1);
+    }
+
+    private void sendUpdates(SecurityPropertiesUpdateType type, List<IOFSwitch> switches, List<Link> links, int events) {
         SecurityPropertiesUpdate update = SecurityPropertiesUpdate.builder()
                 .type(type)
                 .switches(switches)
+                .links(links)
+                .version(store.getVersion())
+                .events(events)
                 .build();
         log.debug("Sending updates about security properties changed...");
         for(ISecurityPropertiesChangedListener l: listeners) {
@@ -471,14 +602,15 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
         }
     }
 
-    class LinkAvailabilityUtilizationActualizator implements Runnable {
+    /* only ports measured in the round are updated, others did not change since the previous one */
+    class LinkAvailabilityUtilizationActualizator implements IStatisticsListener {
 
         @Override
-        public void run() {
+        public void portStatisticsCollected(PortStatisticsSnapshot snapshot) {
             log.debug("Updating link availability based on utilization...");
-            Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption = statisticsService.getBandwidthConsumption();
-            for(Map.Entry<NodePortTuple, SwitchPortBandwidth> entry: bandwidthConsumption.entrySet()) {
-                NodePortTuple npt = entry.getKey();
+            Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption = snapshot.getBandwidthConsumption();
+            List<Link> changed = new ArrayList<>();
+            for(NodePortTuple npt: snapshot.getUpdatedPorts()) {
                 log.debug("Updating npt " + npt);
                 Link link = linkService.getLink(npt.getNodeId(), npt.getPortId());
                 if(link == null) {
@@ -489,11 +621,44 @@ public class SecurityPropertiesService implements IFloodlightModule, IOFSwitchLi
                 SwitchPortBandwidth switchPortBandwidth = bandwidthConsumption.get(npt);
                 double txUtilization = switchPortBandwidth.getTxUtilization();
                 float linkAvailability = 0.99f - (float) txUtilization;
+                Float oldAvailability = link.getAvailability();
                 link.setAvailability(linkAvailability);
+                storeLink(link);
                 log.debug("Set link availability to " + linkAvailability + " due to utilization change");
+                if(oldAvailability == null || linkAvailability != oldAvailability) {
+                    changed.add(link);
+                }
+            }
+
+            /*
+             * Not PROPERTIES_DOWN: a transfer lowers the availability of its own links, so tearing
+             * down or rerouting transfers on it would make them oscillate between paths.
+             */
+            if(!changed.isEmpty()) {
+                sendUpdates(SecurityPropertiesUpdateType.LINK_UTILIZATION, new ArrayList<>(), changed);
             }
 
         }
 
     }
+
+    private static class SOCUpdateBatch {
+        private final Map<DatapathId, Float> trustBefore = new LinkedHashMap<>();
+        private final Map<Link, LinkBefore> linksBefore = new LinkedHashMap<>();
+        private int events = 0;
+    }
+
+    private static class LinkBefore {
+        private final DatapathId dpid;
+        private final float confidentiality;
+        private final float integrity;
+        private final float availability;
+
+        private LinkBefore(DatapathId dpid, Link link) {
+            this.dpid = dpid;
+            this.confidentiality = link.getConfidentiality();
+            this.integrity = link.getIntegrity();
+            this.availability = link.getAvailability();
+        }
+    }
 }
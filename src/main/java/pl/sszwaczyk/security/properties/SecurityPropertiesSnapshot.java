@@ -0,0 +1,83 @@
+package pl.sszwaczyk.security.properties;
+
+import net.floodlightcontroller.linkdiscovery.Link;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+
+import java.util.Map;
+
+/**
+ * Immutable view of security properties of all switches and links at some version of
+ * {@link SecurityPropertiesStore}. Properties are kept in float arrays indexed by switch
+ * and link ordinals, unknown properties are NaN.
+ */
+public class SecurityPropertiesSnapshot {
+
+    private final long version;
+
+    /* shared with the store, ordinals are only ever added and never change */
+    private final Map<DatapathId, Integer> switchOrdinals;
+    private final Map<Link, Integer> linkOrdinals;
+
+    private final float[] trust;
+    private final float[] confidentiality;
+    private final float[] integrity;
+    private final float[] availability;
+
+    SecurityPropertiesSnapshot(long version,
+                               Map<DatapathId, Integer> switchOrdinals, Map<Link, Integer> linkOrdinals,
+                               float[] trust, float[] confidentiality, float[] integrity, float[] availability) {
+        this.version = version;
+        this.switchOrdinals = switchOrdinals;
+        this.linkOrdinals = linkOrdinals;
+        this.trust = trust;
+        this.confidentiality = confidentiality;
+        this.integrity = integrity;
+        this.availability = availability;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return ordinal of the switch or -1 if switch is not known to this snapshot
+     */
+    public int getSwitchOrdinal(DatapathId dpid) {
+        Integer ordinal = switchOrdinals.get(dpid);
+        return ordinal == null || ordinal >= trust.length ? -1 : ordinal;
+    }
+
+    /**
+     * @return ordinal of the link or -1 if link is not known to this snapshot
+     */
+    public int getLinkOrdinal(Link link) {
+        Integer ordinal = linkOrdinals.get(link);
+        return ordinal == null || ordinal >= confidentiality.length ? -1 : ordinal;
+    }
+
+    public int getLinkOrdinal(DatapathId src, OFPort srcPort, DatapathId dst, OFPort dstPort) {
+        return getLinkOrdinal(new Link(src, srcPort, dst, dstPort, U64.ZERO));
+    }
+
+    public float getTrust(int switchOrdinal) {
+        return switchOrdinal < 0 ? Float.NaN : trust[switchOrdinal];
+    }
+
+    public float getTrust(DatapathId dpid) {
+        return getTrust(getSwitchOrdinal(dpid));
+    }
+
+    public float getConfidentiality(int linkOrdinal) {
+        return linkOrdinal < 0 ? Float.NaN : confidentiality[linkOrdinal];
+    }
+
+    public float getIntegrity(int linkOrdinal) {
+        return linkOrdinal < 0 ? Float.NaN : integrity[linkOrdinal];
+    }
+
+    public float getAvailability(int linkOrdinal) {
+        return linkOrdinal < 0 ? Float.NaN : availability[linkOrdinal];
+    }
+}
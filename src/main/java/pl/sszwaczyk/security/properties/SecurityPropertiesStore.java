@@ -0,0 +1,118 @@
+package pl.sszwaczyk.security.properties;
+
+import net.floodlightcontroller.linkdiscovery.Link;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.U64;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense store of switch trust and link C, I, A. Every switch and link gets an ordinal
+ * when first set, which it keeps also after removal (its properties become NaN), so
+ * properties live in plain float arrays.
+ *
+ * Writes are serialized and bump the version. Readers take a {@link SecurityPropertiesSnapshot},
+ * which is copied lazily on the first read after a write and shared until the next one.
+ */
+public class SecurityPropertiesStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ConcurrentHashMap<DatapathId, Integer> switchOrdinals = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Link, Integer> linkOrdinals = new ConcurrentHashMap<>();
+
+    private float[] trust = nan(INITIAL_CAPACITY);
+    private float[] confidentiality = nan(INITIAL_CAPACITY);
+    private float[] integrity = nan(INITIAL_CAPACITY);
+    private float[] availability = nan(INITIAL_CAPACITY);
+
+    private long version = 0;
+    private volatile SecurityPropertiesSnapshot snapshot;
+
+    public synchronized void setTrust(DatapathId dpid, float value) {
+        trust = ensureCapacity(trust, switchOrdinal(dpid));
+        trust[switchOrdinals.get(dpid)] = value;
+        changed();
+    }
+
+    public synchronized void removeSwitch(DatapathId dpid) {
+        Integer ordinal = switchOrdinals.get(dpid);
+        if(ordinal != null) {
+            trust[ordinal] = Float.NaN;
+            changed();
+        }
+    }
+
+    public synchronized void setLink(Link link, float c, float i, float a) {
+        int ordinal = linkOrdinal(link);
+        confidentiality = ensureCapacity(confidentiality, ordinal);
+        integrity = ensureCapacity(integrity, ordinal);
+        availability = ensureCapacity(availability, ordinal);
+        confidentiality[ordinal] = c;
+        integrity[ordinal] = i;
+        availability[ordinal] = a;
+        changed();
+    }
+
+    public synchronized void removeLink(Link link) {
+        Integer ordinal = linkOrdinals.get(link);
+        if(ordinal != null) {
+            confidentiality[ordinal] = Float.NaN;
+            integrity[ordinal] = Float.NaN;
+            availability[ordinal] = Float.NaN;
+            changed();
+        }
+    }
+
+    public SecurityPropertiesSnapshot getSnapshot() {
+        SecurityPropertiesSnapshot s = snapshot;
+        if(s != null) {
+            return s;
+        }
+        synchronized (this) {
+            if(snapshot == null) {
+                snapshot = new SecurityPropertiesSnapshot(version, switchOrdinals, linkOrdinals,
+                        Arrays.copyOf(trust, switchOrdinals.size()),
+                        Arrays.copyOf(confidentiality, linkOrdinals.size()),
+                        Arrays.copyOf(integrity, linkOrdinals.size()),
+                        Arrays.copyOf(availability, linkOrdinals.size()));
+            }
+            return snapshot;
+        }
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private void changed() {
+        version++;
+        snapshot = null;
+    }
+
+    private int switchOrdinal(DatapathId dpid) {
+        return switchOrdinals.computeIfAbsent(dpid, k -> switchOrdinals.size());
+    }
+
+    private int linkOrdinal(Link link) {
+        // Links from link discovery carry mutable latency and properties, keep a plain key
+        Link key = new Link(link.getSrc(), link.getSrcPort(), link.getDst(), link.getDstPort(), U64.ZERO);
+        return linkOrdinals.computeIfAbsent(key, k -> linkOrdinals.size());
+    }
+
+    private static float[] ensureCapacity(float[] array, int ordinal) {
+        if(ordinal < array.length) {
+            return array;
+        }
+        float[] bigger = Arrays.copyOf(array, Math.max(ordinal + 1, array.length * 2));
+        Arrays.fill(bigger, array.length, bigger.length, Float.NaN);
+        return bigger;
+    }
+
+    private static float[] nan(int size) {
+        float[] array = new float[size];
+        Arrays.fill(array, Float.NaN);
+        return array;
+    }
+}
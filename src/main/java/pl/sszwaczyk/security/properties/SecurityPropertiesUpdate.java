@@ -13,5 +13,11 @@ public class SecurityPropertiesUpdate {
 
     private SecurityPropertiesUpdateType type;
     private List<IOFSwitch> switches;
+    private List<Link> links;
+
+    /* version of security properties store after the change */
+    private long version;
+    /* number of source events (e.g. SOC updates) merged into this update */
+    private int events;
 
 }
@@ -2,6 +2,9 @@ package pl.sszwaczyk.security.properties;
 
 public enum SecurityPropertiesUpdateType {
 
-    PROPERTIES_UP, PROPERTIES_DOWN
+    PROPERTIES_UP, PROPERTIES_DOWN,
+
+    /* availability of links derived from their utilization changed; transfers are not re-evaluated */
+    LINK_UTILIZATION
 
 }
@@ -10,4 +10,6 @@ public interface IRiskCalculationService extends IFloodlightService {
     Map<SecurityDimension, Float> calculateRisk(Map<SecurityDimension, Float> securityProperties,
                                                 Map<SecurityDimension, Float> consequences);
 
+    float calculateRisk(float securityProperty, float consequences);
+
 }
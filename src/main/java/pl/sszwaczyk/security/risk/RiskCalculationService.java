@@ -73,4 +73,9 @@ public class RiskCalculationService implements IFloodlightModule, IRiskCalculati
         }
         return risks;
     }
+
+    @Override
+    public float calculateRisk(float securityProperty, float consequences) {
+        return riskCalculator.calculateRisk(securityProperty, consequences);
+    }
 }
@@ -2,7 +2,7 @@ package pl.sszwaczyk.security.risk.calculator;
 
 import pl.sszwaczyk.security.SecurityDimension;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 public class LogRiskCalculator implements RiskCalculator {
@@ -13,21 +13,21 @@ public class LogRiskCalculator implements RiskCalculator {
 
         float confidentiality = securityProperties.get(SecurityDimension.CONFIDENTIALITY);
         float confidentialityConsequences = consequences.get(SecurityDimension.CONFIDENTIALITY);
-        float riskC = (float) ((1 - confidentiality) * (Math.log10(confidentiality) * confidentialityConsequences) * (-1));
+        float riskC = calculateRisk(confidentiality, confidentialityConsequences);
 
         float integrity = securityProperties.get(SecurityDimension.INTEGRITY);
         float integrityConsequences = consequences.get(SecurityDimension.INTEGRITY);
-        float riskI = (float) ((1 - integrity) * (Math.log10(integrity) * integrityConsequences) * (-1));
+        float riskI = calculateRisk(integrity, integrityConsequences);
 
         float availability = securityProperties.get(SecurityDimension.AVAILABILITY);
         float availabilityConsequences = consequences.get(SecurityDimension.AVAILABILITY);
-        float riskA = (float) ((1 - availability) * (Math.log10(availability) * availabilityConsequences) * (-1));
+        float riskA = calculateRisk(availability, availabilityConsequences);
 
         float trust = securityProperties.get(SecurityDimension.TRUST);
         float trustConsequences = consequences.get(SecurityDimension.TRUST);
-        float riskT = (float) ((1 - trust) * (Math.log10(trust) * trustConsequences) * (-1));
+        float riskT = calculateRisk(trust, trustConsequences);
 
-        Map<SecurityDimension, Float> risks = new HashMap<>();
+        Map<SecurityDimension, Float> risks = new EnumMap<>(SecurityDimension.class);
         risks.put(SecurityDimension.CONFIDENTIALITY, riskC);
         risks.put(SecurityDimension.INTEGRITY, riskI);
         risks.put(SecurityDimension.AVAILABILITY, riskA);
@@ -36,4 +36,9 @@ public class LogRiskCalculator implements RiskCalculator {
         return risks;
     }
 
+    @Override
+    public float calculateRisk(float securityProperty, float consequences) {
+        return (float) ((1 - securityProperty) * (Math.log10(securityProperty) * consequences) * (-1));
+    }
+
 }
@@ -9,4 +9,9 @@ public interface RiskCalculator {
     Map<SecurityDimension, Float> calculateRisk(Map<SecurityDimension, Float> securityProperties,
                                                 Map<SecurityDimension, Float> consequences);
 
+    /**
+     * Risk in one security dimension.
+     */
+    float calculateRisk(float securityProperty, float consequences);
+
 }
@@ -2,6 +2,8 @@ package pl.sszwaczyk.security.threat;
 
 import net.floodlightcontroller.core.module.IFloodlightService;
 
+import java.io.IOException;
+
 public interface IThreatService extends IFloodlightService {
 
     void addListener(IThreatListener listener);
@@ -9,4 +11,18 @@ public interface IThreatService extends IFloodlightService {
     void startThreat(Threat threat);
 
     void stopThreat(Threat threat);
+
+    /**
+     * Schedules all threats of a scenario file (JSON with "threats" list of
+     * {@link ThreatScenarioEntry}) relative to now.
+     *
+     * @return number of scheduled threats
+     */
+    int replayScenario(String file) throws IOException;
+
+    /**
+     * Cancels threats generation and all not yet started threats. Active threats
+     * keep their scheduled end.
+     */
+    void cancelScheduledThreats();
 }
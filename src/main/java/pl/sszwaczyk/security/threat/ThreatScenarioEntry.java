@@ -0,0 +1,23 @@
+package pl.sszwaczyk.security.threat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One threat of a replayed scenario. Times are in milliseconds, start is relative
+ * to the start of the replay.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThreatScenarioEntry {
+
+    private String id;
+    private List<String> switches;
+    private long start;
+    private long duration;
+
+}
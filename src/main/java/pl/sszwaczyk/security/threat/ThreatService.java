@@ -1,5 +1,9 @@
 package pl.sszwaczyk.security.threat;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
@@ -17,8 +21,13 @@ import pl.sszwaczyk.security.threat.generator.UniformThreatsGenerator;
 import pl.sszwaczyk.security.threat.generator.UniformTimeBetweenThreatsGenerator;
 import pl.sszwaczyk.security.threat.web.ThreatWebRoutable;
 
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class ThreatService implements IFloodlightModule, IThreatService {
@@ -31,9 +40,21 @@ public class ThreatService implements IFloodlightModule, IThreatService {
 
     private List<IThreatListener> listeners = new ArrayList<>();
 
-    private List<Threat> actualThreats = new ArrayList<>();
+    private Set<Threat> actualThreats = new LinkedHashSet<>();
     private List<DatapathId> actualAttackedSwitches = new ArrayList<>();
 
+    /* Single thread runs all threat starts and ends in order of their time */
+    private ScheduledThreadPoolExecutor scheduler;
+    private Map<String, ScheduledFuture<?>> scheduledEnds = new ConcurrentHashMap<>();
+    /* bumped on cancellation, threat starts scheduled before are skipped */
+    private AtomicLong replayGeneration = new AtomicLong();
+    /* guards generationTask, so that a cancel cannot slip between the check and the reschedule */
+    private final Object generationLock = new Object();
+    private ScheduledFuture<?> generationTask;
+
+    private String scenarioFile;
+    private long scenarioStartTime = 0; //seconds
+
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleServices() {
         Collection<Class<? extends IFloodlightService>> s =
@@ -66,7 +87,23 @@ public class ThreatService implements IFloodlightModule, IThreatService {
         switchService = context.getServiceImpl(IOFSwitchService.class);
         routingService = context.getServiceImpl(IRoutingService.class);
 
+        scheduler = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("threat-scheduler-%d").setDaemon(true).build());
+        scheduler.setRemoveOnCancelPolicy(true);
+
         Map<String, String> configParameters = context.getConfigParams(this);
+        scenarioFile = configParameters.get("scenario-file");
+        if(scenarioFile != null && !scenarioFile.isEmpty()) {
+            log.info("Threat scenario file set to {}.", scenarioFile);
+            String tmp = configParameters.get("scenario-start-time");
+            if(tmp != null && !tmp.isEmpty()) {
+                scenarioStartTime = Long.parseLong(tmp);
+                log.info("Threat scenario start time set to {} seconds.", scenarioStartTime);
+            } else {
+                log.info("Threat scenario start time not configured. Using {} seconds.", scenarioStartTime);
+            }
+        }
+
         boolean enableThreatsGenerator = Boolean.parseBoolean(configParameters.get("enable-threats-generator"));
         if(enableThreatsGenerator) {
             log.info("Threats generator enabled. Running threats generator...");
@@ -108,6 +145,15 @@ public class ThreatService implements IFloodlightModule, IThreatService {
     @Override
     public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
         restApiService.addRestletRoutable(new ThreatWebRoutable());
+        if(scenarioFile != null && !scenarioFile.isEmpty()) {
+            scheduler.schedule(() -> {
+                try {
+                    replayScenario(scenarioFile);
+                } catch (IOException e) {
+                    log.error("Cannot replay threat scenario " + scenarioFile, e);
+                }
+            }, scenarioStartTime, TimeUnit.SECONDS);
+        }
     }
 
     @Override
@@ -117,12 +163,19 @@ public class ThreatService implements IFloodlightModule, IThreatService {
 
     @Override
     public void startThreat(Threat threat) {
+        startThreat(threat, threat.getDuration() * 1000L);
+    }
+
+    private synchronized void startThreat(Threat threat, long durationMillis) {
+        if(threat.getId() == null) {
+            threat.setId(UUID.randomUUID().toString());
+        }
         log.info("Starting threat {}", threat);
         threat.setStartTime(LocalTime.now());
         for(IThreatListener listener: listeners) {
             listener.threatStarted(threat);
-            scheduleThreatEnd(threat);
         }
+        scheduleThreatEnd(threat, durationMillis);
 
         actualThreats.add(threat);
         log.info("Threat {} added to actual threats.", threat);
@@ -133,7 +186,16 @@ public class ThreatService implements IFloodlightModule, IThreatService {
     }
 
     @Override
-    public void stopThreat(Threat threat) {
+    public synchronized void stopThreat(Threat threat) {
+        ScheduledFuture<?> end = scheduledEnds.remove(threat.getId());
+        if(end != null) {
+            end.cancel(false);
+        }
+        if(!actualThreats.contains(threat)) {
+            log.info("Threat {} is not active.", threat);
+            return;
+        }
+
         log.info("Stopping threat {}", threat);
         for(IThreatListener listener: listeners) {
             listener.threatEnded(threat);
@@ -148,59 +210,117 @@ public class ThreatService implements IFloodlightModule, IThreatService {
 
     }
 
+    @Override
+    public int replayScenario(String file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode root = mapper.readTree(new File(file));
+        List<ThreatScenarioEntry> entries = mapper.readValue(mapper.treeAsTokens(root.path("threats")),
+                new TypeReference<List<ThreatScenarioEntry>>() {});
+        log.info("Replaying {} threats from scenario {}", entries.size(), file);
+
+        long replayStart = System.currentTimeMillis();
+        long generation = replayGeneration.get();
+        AtomicInteger remaining = new AtomicInteger(entries.size());
+        Map<String, Integer> occurrences = new HashMap<>();
+        for(ThreatScenarioEntry entry: entries) {
+            Threat threat = new Threat();
+            threat.setId(entry.getId() != null ? uniqueId(entry.getId(), occurrences) : UUID.randomUUID().toString());
+            threat.setSwitches(entry.getSwitches().stream().map(DatapathId::of).collect(Collectors.toList()));
+            threat.setDuration((int) (entry.getDuration() / 1000));
+
+            scheduler.schedule(() -> {
+                if(generation != replayGeneration.get()) {
+                    return;
+                }
+                startThreat(threat, entry.getDuration());
+                if(remaining.decrementAndGet() == 0) {
+                    log.info("All {} threats of scenario {} started in {} ms",
+                            new Object[] { entries.size(), file, System.currentTimeMillis() - replayStart });
+                }
+            }, entry.getStart(), TimeUnit.MILLISECONDS);
+        }
+        return entries.size();
+    }
+
+    /*
+     * Ends of threats are scheduled by id, so a repeated id would cancel the end of the earlier
+     * threat and leave it active forever.
+     */
+    private String uniqueId(String id, Map<String, Integer> occurrences) {
+        int occurrence = occurrences.merge(id, 1, Integer::sum);
+        if(occurrence == 1) {
+            return id;
+        }
+        String unique = id + "-" + occurrence;
+        while(occurrences.putIfAbsent(unique, 1) != null) {
+            unique = id + "-" + ++occurrence;
+        }
+        log.warn("Threat id {} repeated in scenario. Replaying it as {}", id, unique);
+        return unique;
+    }
+
+    @Override
+    public void cancelScheduledThreats() {
+        synchronized (generationLock) {
+            if(generationTask != null) {
+                generationTask.cancel(false);
+                generationTask = null;
+            }
+        }
+        replayGeneration.incrementAndGet();
+        log.info("Threats generation and scheduled threats cancelled");
+    }
+
     public void threatGenerationTask(IThreatGenerator threatGenerator, ITimeBetweenThreatsGenerator timeBetweenThreatsGenerator, boolean canAttackSameSwitch) {
-        while (true) {
+        synchronized (this) {
             if (!canAttackSameSwitch && actualAttackedSwitches.containsAll(switchService.getAllSwitchDpids())) {
                 log.info("All switches attacked and cannot attack same switch twice.");
-                sleepToNextThreat(timeBetweenThreatsGenerator.generateTimeBetweenThreats());
-                continue;
-            }
+            } else {
+                Threat threat = threatGenerator.generateThreat();
+                boolean isAnySwitchAlreadyAttacked = CollectionUtils.containsAny(actualAttackedSwitches, threat.getSwitches());
+                if (!canAttackSameSwitch && isAnySwitchAlreadyAttacked) {
+                    log.info("Threat contains already attacked switch and cannot attack same switch twice.");
+                    scheduleNextThreat(0, threatGenerator, timeBetweenThreatsGenerator, canAttackSameSwitch);
+                    return;
+                }
 
-            Threat threat = threatGenerator.generateThreat();
-            boolean isAnySwitchAlreadyAttacked = CollectionUtils.containsAny(actualAttackedSwitches, threat.getSwitches());
-            if (!canAttackSameSwitch && isAnySwitchAlreadyAttacked) {
-                log.info("Threat contains already attacked switch and cannot attack same switch twice.");
-                continue;
+                startThreat(threat);
             }
-
-            startThreat(threat);
-
-            sleepToNextThreat(timeBetweenThreatsGenerator.generateTimeBetweenThreats());
         }
+
+        long time = timeBetweenThreatsGenerator.generateTimeBetweenThreats();
+        log.info("Next threat will be generated in {} seconds", time / 1000);
+        scheduleNextThreat(time, threatGenerator, timeBetweenThreatsGenerator, canAttackSameSwitch);
     }
 
-    private void sleepToNextThreat(long time) {
-        try {
-            log.info("Sleeping between next threat generation for {} seconds", time / 1000);
-            Thread.sleep(time);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    private void scheduleNextThreat(long delayMillis, IThreatGenerator threatGenerator,
+                                    ITimeBetweenThreatsGenerator timeBetweenThreatsGenerator,
+                                    boolean canAttackSameSwitch) {
+        synchronized (generationLock) {
+            if(generationTask == null || generationTask.isCancelled()) {
+                return;
+            }
+            generationTask = scheduler.schedule(
+                    () -> threatGenerationTask(threatGenerator, timeBetweenThreatsGenerator, canAttackSameSwitch),
+                    delayMillis, TimeUnit.MILLISECONDS);
         }
     }
 
     private void scheduleThreatsGeneration(long delay, IThreatGenerator uniformThreatsGenerator,
                                            ITimeBetweenThreatsGenerator timeBetweenThreatsGenerator,
                                            boolean canAttackSameSwitch) {
-        new Timer().schedule(
-                new TimerTask() {
-                    @Override
-                    public void run() {
-                        threatGenerationTask(uniformThreatsGenerator, timeBetweenThreatsGenerator, canAttackSameSwitch);
-                    }
-                },
-                delay * 1000
-        );
-    }
-
-    private void scheduleThreatEnd(Threat threat) {
-        new Timer().schedule(
-                new TimerTask() {
-                    @Override
-                    public void run() {
-                        stopThreat(threat);
-                    }
-                },
-                threat.getDuration() * 1000
-        );
+        synchronized (generationLock) {
+            generationTask = scheduler.schedule(
+                    () -> threatGenerationTask(uniformThreatsGenerator, timeBetweenThreatsGenerator, canAttackSameSwitch),
+                    delay, TimeUnit.SECONDS);
+        }
+    }
+
+    private void scheduleThreatEnd(Threat threat, long durationMillis) {
+        ScheduledFuture<?> end = scheduler.schedule(() -> stopThreat(threat), durationMillis, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = scheduledEnds.put(threat.getId(), end);
+        if(previous != null) {
+            previous.cancel(false);
+        }
     }
 }
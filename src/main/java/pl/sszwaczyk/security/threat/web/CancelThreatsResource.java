@@ -0,0 +1,22 @@
+package pl.sszwaczyk.security.threat.web;
+
+import org.restlet.resource.Post;
+import org.restlet.resource.ServerResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.sszwaczyk.security.threat.IThreatService;
+
+public class CancelThreatsResource extends ServerResource {
+
+    protected static Logger log = LoggerFactory.getLogger(CancelThreatsResource.class);
+
+    @Post("cancel")
+    public void cancelScheduledThreats() {
+        IThreatService threatService =
+                (IThreatService) getContext().getAttributes().
+                        get(IThreatService.class.getCanonicalName());
+
+        log.info("Cancelling scheduled threats from REST API.");
+        threatService.cancelScheduledThreats();
+    }
+}
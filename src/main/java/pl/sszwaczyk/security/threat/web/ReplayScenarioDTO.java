@@ -0,0 +1,16 @@
+package pl.sszwaczyk.security.threat.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplayScenarioDTO {
+
+    private String file;
+
+}
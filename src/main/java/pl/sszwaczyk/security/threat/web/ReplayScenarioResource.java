@@ -0,0 +1,30 @@
+package pl.sszwaczyk.security.threat.web;
+
+import org.restlet.resource.Post;
+import org.restlet.resource.ServerResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.sszwaczyk.security.threat.IThreatService;
+
+import java.io.IOException;
+
+public class ReplayScenarioResource extends ServerResource {
+
+    protected static Logger log = LoggerFactory.getLogger(ReplayScenarioResource.class);
+
+    @Post("replay")
+    public String replayScenario(ReplayScenarioDTO replayScenarioDTO) {
+        IThreatService threatService =
+                (IThreatService) getContext().getAttributes().
+                        get(IThreatService.class.getCanonicalName());
+
+        log.info("Replaying threat scenario {} from REST API.", replayScenarioDTO.getFile());
+        try {
+            int threats = threatService.replayScenario(replayScenarioDTO.getFile());
+            return "{\"threats\": " + threats + "}";
+        } catch (IOException e) {
+            log.error("Cannot replay threat scenario " + replayScenarioDTO.getFile(), e);
+            return "{\"error\": \"Cannot read scenario file\"}";
+        }
+    }
+}
@@ -11,6 +11,8 @@ public class ThreatWebRoutable implements RestletRoutable {
     public Restlet getRestlet(Context context) {
         Router router = new Router(context);
         router.attach("/generate", GenerateThreatResource.class);
+        router.attach("/replay", ReplayScenarioResource.class);
+        router.attach("/cancel", CancelThreatsResource.class);
         return router;
     }
 
@@ -2,6 +2,11 @@ package pl.sszwaczyk.service;
 
 import net.floodlightcontroller.core.FloodlightContext;
 import net.floodlightcontroller.core.module.IFloodlightService;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.TransportPort;
+
+import java.io.IOException;
+import java.util.List;
 
 public interface IServiceService extends IFloodlightService {
 
@@ -9,6 +14,15 @@ public interface IServiceService extends IFloodlightService {
 
     Service getServiceByAddrAndPort(String srcAddr, int srcPort);
 
+    Service getService(IPv4Address srcAddr, TransportPort srcPort);
+
     Service getServiceFromCntx(FloodlightContext cntx);
 
+    List<Service> getServices();
+
+    /**
+     * Reloads services from repository file. Lookups running meanwhile use previous services.
+     */
+    void reload() throws IOException;
+
 }
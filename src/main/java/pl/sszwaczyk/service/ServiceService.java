@@ -7,14 +7,22 @@ import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
 import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.packet.IPv4;
+import net.floodlightcontroller.packet.TCP;
+import net.floodlightcontroller.threadpool.IThreadPoolService;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.TransportPort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import pl.sszwaczyk.utils.AddressAndPort;
+import pl.sszwaczyk.classifier.IPacketClassifierService;
+import pl.sszwaczyk.classifier.PacketClassification;
+import pl.sszwaczyk.utils.LongKeyIndex;
 import pl.sszwaczyk.utils.PacketUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class ServiceService implements IFloodlightModule, IServiceService {
 
@@ -22,7 +30,13 @@ public class ServiceService implements IFloodlightModule, IServiceService {
 
     private static String DEFAULT_SERVICE_REPOSITORY_FILE = "src/main/resources/repositories/services.json";
 
-    private List<Service> services;
+    private IThreadPoolService threadPoolService;
+
+    private int reloadPeriod = 0; //seconds, 0 disables reloading
+    private long loadedLastModified;
+
+    /* replaced as a whole on reload so readers never block nor see a half loaded repository */
+    private volatile Repository repository;
 
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleServices() {
@@ -42,11 +56,16 @@ public class ServiceService implements IFloodlightModule, IServiceService {
 
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleDependencies() {
-        return null;
+        Collection<Class<? extends IFloodlightService>> l =
+                new ArrayList<Class<? extends IFloodlightService>>();
+        l.add(IThreadPoolService.class);
+        return l;
     }
 
     @Override
     public void init(FloodlightModuleContext context) throws FloodlightModuleException {
+        threadPoolService = context.getServiceImpl(IThreadPoolService.class);
+
         Map<String, String> configParameters = context.getConfigParams(this);
         String tmp = configParameters.get("repository-file");
         if (tmp != null) {
@@ -56,6 +75,14 @@ public class ServiceService implements IFloodlightModule, IServiceService {
             log.info("Default services repository not configured. Using {}.", DEFAULT_SERVICE_REPOSITORY_FILE);
         }
 
+        tmp = configParameters.get("reload-period");
+        if (tmp != null && !tmp.isEmpty()) {
+            reloadPeriod = Integer.parseInt(tmp);
+            log.info("Services repository reload period set to {} seconds.", reloadPeriod);
+        } else {
+            log.info("Services repository reload period not configured. Reloading disabled.");
+        }
+
         try {
             loadServices();
         } catch (IOException e) {
@@ -66,36 +93,63 @@ public class ServiceService implements IFloodlightModule, IServiceService {
 
     @Override
     public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
-
+        if(reloadPeriod > 0) {
+            threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new RepositoryReloader(), reloadPeriod, reloadPeriod, TimeUnit.SECONDS);
+        }
     }
 
     @Override
     public Service getServiceById(String id) {
-        return services.stream().filter(s -> s.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return repository.byId.get(id);
     }
 
     @Override
     public Service getServiceByAddrAndPort(String srcAddr, int srcPort) {
-        return services.stream().filter(s -> s.getIp().equals(srcAddr) && s.getPort().equals(srcPort))
-                .findFirst()
-                .orElse(null);
+        return getService(IPv4Address.of(srcAddr), TransportPort.of(srcPort));
+    }
+
+    @Override
+    public Service getService(IPv4Address srcAddr, TransportPort srcPort) {
+        return repository.byAddrAndPort.get(LongKeyIndex.key(srcAddr, srcPort));
     }
 
     @Override
     public Service getServiceFromCntx(FloodlightContext cntx) {
-        AddressAndPort addressAndPort = PacketUtils.getSrcAddressAndSrcTCPPort(cntx);
-        if(addressAndPort != null) {
-            return getServiceByAddrAndPort(addressAndPort.getAddress(), addressAndPort.getPort());
+        PacketClassification classification = IPacketClassifierService.fcStore.get(cntx, IPacketClassifierService.CONTEXT_CLASSIFICATION);
+        if(classification != null) {
+            return classification.getService();
+        }
+        IPv4 ipv4 = PacketUtils.getTCPOverIPv4(cntx);
+        if(ipv4 != null) {
+            return getService(ipv4.getSourceAddress(), ((TCP) ipv4.getPayload()).getSourcePort());
         }
         return null;
     }
 
-    private void loadServices() throws IOException {
-        File usersFile = new File(DEFAULT_SERVICE_REPOSITORY_FILE);
+    @Override
+    public List<Service> getServices() {
+        return repository.services;
+    }
+
+    @Override
+    public void reload() throws IOException {
+        loadServices();
+    }
+
+    private synchronized void loadServices() throws IOException {
+        File servicesFile = new File(DEFAULT_SERVICE_REPOSITORY_FILE);
+        long lastModified = servicesFile.lastModified();
         ObjectMapper objectMapper = new ObjectMapper();
-        services = objectMapper.readValue(usersFile, new TypeReference<List<Service>>(){});
+        List<Service> services = objectMapper.readValue(servicesFile, new TypeReference<List<Service>>(){});
+
+        Map<String, Service> byId = new HashMap<>();
+        Map<Long, Service> byAddrAndPort = new HashMap<>();
+        for (Service service: services) {
+            byId.putIfAbsent(service.getId(), service);
+            byAddrAndPort.putIfAbsent(LongKeyIndex.key(IPv4Address.of(service.getIp()), TransportPort.of(service.getPort())), service);
+        }
+        repository = new Repository(Collections.unmodifiableList(services), byId, LongKeyIndex.of(byAddrAndPort));
+        loadedLastModified = lastModified;
 
         if(log.isDebugEnabled()) {
             log.debug("Loaded services:");
@@ -104,4 +158,34 @@ public class ServiceService implements IFloodlightModule, IServiceService {
             }
         }
     }
+
+    private static class Repository {
+        private final List<Service> services;
+        private final Map<String, Service> byId;
+        private final LongKeyIndex<Service> byAddrAndPort;
+
+        private Repository(List<Service> services, Map<String, Service> byId, LongKeyIndex<Service> byAddrAndPort) {
+            this.services = services;
+            this.byId = byId;
+            this.byAddrAndPort = byAddrAndPort;
+        }
+    }
+
+    class RepositoryReloader implements Runnable {
+
+        @Override
+        public void run() {
+            File servicesFile = new File(DEFAULT_SERVICE_REPOSITORY_FILE);
+            if(servicesFile.lastModified() == loadedLastModified) {
+                return;
+            }
+            log.info("Services repository file {} changed. Reloading...", DEFAULT_SERVICE_REPOSITORY_FILE);
+            try {
+                reload();
+            } catch (IOException e) {
+                log.error("Cannot reload services from file because {}. Keeping previous services.", e.getMessage());
+            }
+        }
+
+    }
 }
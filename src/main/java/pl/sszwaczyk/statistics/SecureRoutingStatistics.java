@@ -1,5 +1,6 @@
 package pl.sszwaczyk.statistics;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import pl.sszwaczyk.routing.solver.Decision;
 import pl.sszwaczyk.routing.solver.SolveRegion;
@@ -7,7 +8,9 @@ import pl.sszwaczyk.security.SecurityDimension;
 import pl.sszwaczyk.security.threat.Threat;
 import pl.sszwaczyk.security.threat.ThreatWithInfluence;
 import pl.sszwaczyk.service.Service;
+import pl.sszwaczyk.statistics.sink.IStatisticsSinkService;
 import pl.sszwaczyk.user.User;
+import pl.sszwaczyk.utils.RollingWindow;
 
 import java.time.LocalTime;
 import java.util.ArrayList;
@@ -18,9 +21,13 @@ import java.util.Map;
 @Data
 public class SecureRoutingStatistics {
 
-    private List<Decision> decisions = new ArrayList<>();
+    /* only the most recent decisions and threats are kept in memory, full history goes to the sink */
+    private final RollingWindow<Decision> decisions;
 
-    private List<ThreatWithInfluence> threats = new ArrayList<>();
+    private final RollingWindow<ThreatWithInfluence> threats;
+
+    @JsonIgnore
+    private final IStatisticsSinkService sink;
 
     List<ServerResponse> realizedList = new ArrayList<>();
 
@@ -34,8 +41,23 @@ public class SecureRoutingStatistics {
 
     private Map<User, Map<Service, RelationStats>> relationStatsMap = new HashMap();
 
+    public SecureRoutingStatistics(int window, IStatisticsSinkService sink) {
+        this.decisions = new RollingWindow<>(window);
+        this.threats = new RollingWindow<>(window);
+        this.sink = sink;
+    }
+
+    public List<Decision> getDecisions() {
+        return decisions.getItems();
+    }
+
+    public List<ThreatWithInfluence> getThreats() {
+        return threats.getItems();
+    }
+
     public void addDecision(Decision decision) {
-        decisions.add(decision);
+        decisions.append(decision);
+        sink.recordDecision(decision);
     }
 
     public void addThreat(Threat threat, Map<SecurityDimension, Float> influence) {
@@ -43,6 +65,7 @@ public class SecureRoutingStatistics {
                 .threat(threat)
                 .influence(influence)
                 .build();
-        threats.add(threatWithInfluence);
+        threats.append(threatWithInfluence);
+        sink.recordThreat(threatWithInfluence);
     }
 }
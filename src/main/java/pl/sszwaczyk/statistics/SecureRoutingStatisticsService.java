@@ -9,7 +9,7 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +25,7 @@ import pl.sszwaczyk.routing.solver.SolveRegion;
 import pl.sszwaczyk.security.SecurityDimension;
 import pl.sszwaczyk.security.threat.ThreatWithInfluence;
 import pl.sszwaczyk.service.Service;
+import pl.sszwaczyk.statistics.sink.IStatisticsSinkService;
 import pl.sszwaczyk.statistics.web.SecureRoutingStatisticsRoutable;
 import pl.sszwaczyk.uneven.UnevenMetric;
 import pl.sszwaczyk.user.User;
@@ -41,9 +42,14 @@ public class SecureRoutingStatisticsService implements IFloodlightModule, ISecur
     private ISecureFlowsRepository secureFlowsRepository;
     private ILinkStatisticsRepository linkStatisticsRepository;
     private IRestApiService restApiService;
+    private IStatisticsSinkService statisticsSinkService;
 
     private SecureRoutingStatistics statistics;
 
+    private static int DEFAULT_WINDOW = 100000;
+    /* rows of a sheet kept in memory while exporting, older ones are flushed to disk */
+    private static final int EXPORT_ROW_WINDOW = 100;
+
     private static PendingClassification PENDING_CLASSIFICATION = PendingClassification.REALIZED;
 
     @Override
@@ -69,6 +75,7 @@ public class SecureRoutingStatisticsService implements IFloodlightModule, ISecur
         l.add(IRestApiService.class);
         l.add(ISecureFlowsRepository.class);
         l.add(ILinkStatisticsRepository.class);
+        l.add(IStatisticsSinkService.class);
         return l;
     }
 
@@ -77,10 +84,18 @@ public class SecureRoutingStatisticsService implements IFloodlightModule, ISecur
         secureFlowsRepository = context.getServiceImpl(ISecureFlowsRepository.class);
         linkStatisticsRepository = context.getServiceImpl(ILinkStatisticsRepository.class);
         restApiService = context.getServiceImpl(IRestApiService.class);
-
-        statistics = new SecureRoutingStatistics();
+        statisticsSinkService = context.getServiceImpl(IStatisticsSinkService.class);
 
         Map<String, String> configParameters = context.getConfigParams(this);
+        String tmp = configParameters.get("window");
+        if (tmp != null && !tmp.isEmpty()) {
+            DEFAULT_WINDOW = Integer.parseInt(tmp);
+            log.info("Statistics window set to {}.", DEFAULT_WINDOW);
+        } else {
+            log.info("Statistics window not configured. Using {}.", DEFAULT_WINDOW);
+        }
+        statistics = new SecureRoutingStatistics(DEFAULT_WINDOW, statisticsSinkService);
+
         boolean snapshotOnExit = Boolean.parseBoolean(configParameters.get("snapshot-on-exit"));
         if(snapshotOnExit) {
             log.info("Snapshot statistics on exit enabled");
@@ -112,7 +127,8 @@ public class SecureRoutingStatisticsService implements IFloodlightModule, ISecur
     @Override
     public String snapshotStatisticsToFile(String statsFile) {
         log.info("Saving secure routing statistics to file...");
-        Workbook workbook = new XSSFWorkbook();
+        statisticsSinkService.flush();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXPORT_ROW_WINDOW);
 
         createDecisionsStatitisticsSheet(workbook);
 
@@ -135,6 +151,8 @@ public class SecureRoutingStatisticsService implements IFloodlightModule, ISecur
         } catch (IOException e) {
             e.printStackTrace();
             log.error("Cannot save secure routing statistics to file " + statsFile + " because " + e.getMessage());
+        } finally {
+            workbook.dispose();
         }
 
         log.info("Snapshot of secure routing statistics saved to " + statsFile);
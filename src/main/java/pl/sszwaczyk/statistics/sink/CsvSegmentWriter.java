@@ -0,0 +1,118 @@
+package pl.sszwaczyk.statistics.sink;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends CSV rows to segment files {@code <directory>/<name>-<segment>.csv}. Every segment
+ * starts with the header and a new one is opened after segmentRows rows, so written segments
+ * are never touched again. Segments of previous runs in the same directory are kept, numbering
+ * continues after them.
+ */
+public class CsvSegmentWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvSegmentWriter.class);
+
+    private final File directory;
+    private final String name;
+    private final String[] header;
+    private final int segmentRows;
+
+    private BufferedWriter writer;
+    private int segment = 0;
+    private int rows = 0;
+    private boolean failed = false;
+
+    public CsvSegmentWriter(File directory, String name, int segmentRows, String... header) {
+        this.directory = directory;
+        this.name = name;
+        this.segmentRows = segmentRows;
+        this.header = header;
+    }
+
+    public synchronized void append(Object... values) {
+        if(failed) {
+            return;
+        }
+        try {
+            if(writer == null || (segmentRows > 0 && rows >= segmentRows)) {
+                openNextSegment();
+            }
+            writeRow(values);
+            rows++;
+        } catch (IOException e) {
+            failed = true;
+            log.error("Cannot write " + name + " statistics to " + directory + ". Writer disabled", e);
+        }
+    }
+
+    public synchronized void flush() {
+        if(writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Cannot flush " + name + " statistics", e);
+        }
+    }
+
+    public synchronized void close() {
+        if(writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.error("Cannot close " + name + " statistics", e);
+        }
+        writer = null;
+    }
+
+    private void openNextSegment() throws IOException {
+        close();
+        File file;
+        while(true) {
+            file = new File(directory, String.format("%s-%05d.csv", name, segment++));
+            try {
+                writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                log.trace("Segment {} already exists, skipping it", file);
+            }
+        }
+        rows = 0;
+        writeRow((Object[]) header);
+        log.debug("Writing {} statistics to segment {}", name, file);
+    }
+
+    private void writeRow(Object... values) throws IOException {
+        for(int i = 0; i < values.length; i++) {
+            if(i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values[i]));
+        }
+        writer.newLine();
+    }
+
+    private static String escape(Object value) {
+        if(value == null) {
+            return "";
+        }
+        String s = value.toString();
+        if(s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,28 @@
+package pl.sszwaczyk.statistics.sink;
+
+import net.floodlightcontroller.core.module.IFloodlightService;
+import pl.sszwaczyk.repository.flow.Flow;
+import pl.sszwaczyk.repository.link.LinkUtilizationAtTime;
+import pl.sszwaczyk.routing.solver.Decision;
+import pl.sszwaczyk.security.threat.ThreatWithInfluence;
+
+/**
+ * Streams statistics to append only CSV segment files as they happen, so complete
+ * experiment history does not have to be kept in memory. All methods are no-op when
+ * the sink is disabled.
+ */
+public interface IStatisticsSinkService extends IFloodlightService {
+
+    boolean isEnabled();
+
+    void recordDecision(Decision decision);
+
+    void recordFinishedFlow(Flow flow);
+
+    void recordThreat(ThreatWithInfluence threat);
+
+    void recordLinkUtilization(LinkUtilizationAtTime utilization);
+
+    void flush();
+
+}
@@ -0,0 +1,250 @@
+package pl.sszwaczyk.statistics.sink;
+
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.module.FloodlightModuleException;
+import net.floodlightcontroller.core.module.IFloodlightModule;
+import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.threadpool.IThreadPoolService;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.sszwaczyk.repository.flow.Flow;
+import pl.sszwaczyk.repository.link.LinkUtilizationAtTime;
+import pl.sszwaczyk.routing.solver.Decision;
+import pl.sszwaczyk.security.SecurityDimension;
+import pl.sszwaczyk.security.threat.ThreatWithInfluence;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class StatisticsSink implements IFloodlightModule, IStatisticsSinkService {
+
+    private Logger log = LoggerFactory.getLogger(StatisticsSink.class);
+
+    private static int DEFAULT_SEGMENT_ROWS = 100000;
+    private static int DEFAULT_FLUSH_PERIOD = 5; //seconds
+
+    private IThreadPoolService threadPoolService;
+
+    private boolean enabled = false;
+    private int flushPeriod = DEFAULT_FLUSH_PERIOD;
+
+    private CsvSegmentWriter decisions;
+    private CsvSegmentWriter finishedFlows;
+    private CsvSegmentWriter threats;
+    private CsvSegmentWriter linkUtilization;
+
+    @Override
+    public Collection<Class<? extends IFloodlightService>> getModuleServices() {
+        Collection<Class<? extends IFloodlightService>> s =
+                new HashSet<Class<? extends IFloodlightService>>();
+        s.add(IStatisticsSinkService.class);
+        return s;
+    }
+
+    @Override
+    public Map<Class<? extends IFloodlightService>, IFloodlightService> getServiceImpls() {
+        Map<Class<? extends IFloodlightService>, IFloodlightService> m =
+                new HashMap<Class<? extends IFloodlightService>, IFloodlightService>();
+        m.put(IStatisticsSinkService.class, this);
+        return m;
+    }
+
+    @Override
+    public Collection<Class<? extends IFloodlightService>> getModuleDependencies() {
+        Collection<Class<? extends IFloodlightService>> l =
+                new ArrayList<Class<? extends IFloodlightService>>();
+        l.add(IThreadPoolService.class);
+        return l;
+    }
+
+    @Override
+    public void init(FloodlightModuleContext context) throws FloodlightModuleException {
+        threadPoolService = context.getServiceImpl(IThreadPoolService.class);
+
+        Map<String, String> configParameters = context.getConfigParams(this);
+        String directory = configParameters.get("directory");
+        if(directory == null || directory.isEmpty()) {
+            log.info("Statistics sink directory not configured. Statistics will be kept only in memory");
+            return;
+        }
+
+        File dir = new File(directory);
+        if(!dir.isDirectory() && !dir.mkdirs()) {
+            throw new FloodlightModuleException("Cannot create statistics sink directory " + directory);
+        }
+
+        int segmentRows = DEFAULT_SEGMENT_ROWS;
+        String tmp = configParameters.get("segment-rows");
+        if(tmp != null && !tmp.isEmpty()) {
+            segmentRows = Integer.parseInt(tmp);
+            log.info("Statistics sink segment rows set to {}.", segmentRows);
+        } else {
+            log.info("Statistics sink segment rows not configured. Using {}.", segmentRows);
+        }
+
+        tmp = configParameters.get("flush-period");
+        if(tmp != null && !tmp.isEmpty()) {
+            flushPeriod = Integer.parseInt(tmp);
+            log.info("Statistics sink flush period set to {} seconds.", flushPeriod);
+        } else {
+            log.info("Statistics sink flush period not configured. Using {} seconds.", flushPeriod);
+        }
+
+        decisions = new CsvSegmentWriter(dir, "decisions", segmentRows,
+                "ID", "User", "Service",
+                "Acceptable Risk C", "Acceptable Risk I", "Acceptable Risk A", "Acceptable Risk T",
+                "Max Risk C", "Max Risk I", "Max Risk A", "Max Risk T",
+                "Date", "Time [ms]", "Solved", "Reason", "Uneven before", "Uneven after", "Region", "Value",
+                "Risk C", "Risk I", "Risk A", "Risk T", "Aggregated Risk", "Path length", "Path");
+        finishedFlows = new CsvSegmentWriter(dir, "finished-flows", segmentRows,
+                "Flow start time", "Flow end time", "Flow duration [ms]",
+                "Service", "Service Addr", "Service Port", "User", "User Addr", "User Port", "Status", "Decisions");
+        threats = new CsvSegmentWriter(dir, "threats", segmentRows,
+                "ID", "Start time", "Duration", "Switches", "C", "I", "A", "T");
+        linkUtilization = new CsvSegmentWriter(dir, "link-utilization", segmentRows,
+                "Date", "Datapath ID", "Port",
+                "TX Utilization", "TX Utilization [%]", "RX Utilization", "RX Utilization [%]");
+        enabled = true;
+        log.info("Statistics will be streamed to {}", dir.getAbsolutePath());
+    }
+
+    @Override
+    public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
+        if(!enabled) {
+            return;
+        }
+        threadPoolService.getScheduledExecutor().scheduleAtFixedRate(this::flush, flushPeriod, flushPeriod, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void recordDecision(Decision decision) {
+        if(!enabled || decision == null) {
+            return;
+        }
+        Map<SecurityDimension, Float> acceptableRisks = decision.getAcceptableRisks();
+        Map<SecurityDimension, Float> maxRisks = decision.getMaxRisks();
+        Map<SecurityDimension, Float> risks = decision.getRisks();
+        boolean solved = decision.isSolved();
+        decisions.append(decision.getId(),
+                decision.getUser() == null ? null : decision.getUser().getId(),
+                decision.getService() == null ? null : decision.getService().getId(),
+                get(acceptableRisks, SecurityDimension.CONFIDENTIALITY),
+                get(acceptableRisks, SecurityDimension.INTEGRITY),
+                get(acceptableRisks, SecurityDimension.AVAILABILITY),
+                get(acceptableRisks, SecurityDimension.TRUST),
+                get(maxRisks, SecurityDimension.CONFIDENTIALITY),
+                get(maxRisks, SecurityDimension.INTEGRITY),
+                get(maxRisks, SecurityDimension.AVAILABILITY),
+                get(maxRisks, SecurityDimension.TRUST),
+                decision.getDate(),
+                decision.getTime(),
+                solved,
+                solved ? null : decision.getReason(),
+                solved ? decision.getUnevenBefore() : null,
+                solved ? decision.getUnevenAfter() : null,
+                solved ? decision.getRegion() : null,
+                solved ? decision.getValue() : null,
+                solved ? get(risks, SecurityDimension.CONFIDENTIALITY) : null,
+                solved ? get(risks, SecurityDimension.INTEGRITY) : null,
+                solved ? get(risks, SecurityDimension.AVAILABILITY) : null,
+                solved ? get(risks, SecurityDimension.TRUST) : null,
+                solved ? decision.getRisk() : null,
+                solved ? decision.getPathLength() : null,
+                solved ? decision.getPath() : null);
+    }
+
+    @Override
+    public void recordFinishedFlow(Flow flow) {
+        if(!enabled || flow == null) {
+            return;
+        }
+        StringBuilder ids = new StringBuilder();
+        if(flow.getDecisions() != null) {
+            for(Decision decision: flow.getDecisions()) {
+                if(ids.length() > 0) {
+                    ids.append(';');
+                }
+                ids.append(decision.getId());
+            }
+        }
+        finishedFlows.append(flow.getStartTime(),
+                flow.getEndTime(),
+                flow.getDuration(),
+                flow.getService() == null ? null : flow.getService().getId(),
+                flow.getAp().getSrc().getAddress(),
+                flow.getAp().getSrc().getPort(),
+                flow.getUser() == null ? null : flow.getUser().getId(),
+                flow.getAp().getDst().getAddress(),
+                flow.getAp().getDst().getPort(),
+                flow.getFlowStatus(),
+                ids);
+    }
+
+    @Override
+    public void recordThreat(ThreatWithInfluence twi) {
+        if(!enabled || twi == null) {
+            return;
+        }
+        StringBuilder switches = new StringBuilder();
+        for(DatapathId dpid: twi.getThreat().getSwitches()) {
+            if(switches.length() > 0) {
+                switches.append(';');
+            }
+            switches.append(dpid);
+        }
+        Map<SecurityDimension, Float> influence = twi.getInfluence();
+        threats.append(twi.getThreat().getId(),
+                twi.getThreat().getStartTime(),
+                twi.getThreat().getDuration(),
+                switches,
+                get(influence, SecurityDimension.CONFIDENTIALITY),
+                get(influence, SecurityDimension.INTEGRITY),
+                get(influence, SecurityDimension.AVAILABILITY),
+                get(influence, SecurityDimension.TRUST));
+    }
+
+    @Override
+    public void recordLinkUtilization(LinkUtilizationAtTime luat) {
+        if(!enabled || luat == null) {
+            return;
+        }
+        linkUtilization.append(luat.getDate(),
+                luat.getDatapathId(),
+                luat.getPt().getPortNumber(),
+                luat.getTxUtilization(),
+                luat.getTxUtilizationPercent(),
+                luat.getRxUtilization(),
+                luat.getRxUtilizationPercent());
+    }
+
+    @Override
+    public void flush() {
+        if(!enabled) {
+            return;
+        }
+        decisions.flush();
+        finishedFlows.flush();
+        threats.flush();
+        linkUtilization.flush();
+    }
+
+    private void close() {
+        log.info("Closing statistics sink...");
+        decisions.close();
+        finishedFlows.close();
+        threats.close();
+        linkUtilization.close();
+    }
+
+    private static Float get(Map<SecurityDimension, Float> map, SecurityDimension dimension) {
+        return map == null ? null : map.get(dimension);
+    }
+}
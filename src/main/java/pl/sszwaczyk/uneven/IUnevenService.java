@@ -4,16 +4,45 @@ import net.floodlightcontroller.core.module.IFloodlightService;
 import net.floodlightcontroller.core.types.NodePortTuple;
 import net.floodlightcontroller.statistics.SwitchPortBandwidth;
 
+import java.util.List;
 import java.util.Map;
 
 public interface IUnevenService extends IFloodlightService {
 
+    /**
+     * Uneven of the latest port statistics round, not recomputed on call.
+     */
     Map<UnevenMetric, Double> getUneven();
 
     Map<UnevenMetric, Double> getUneven(Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption);
 
+    /**
+     * Uneven of the latest port statistics round, not recomputed on call.
+     */
     Double getUneven(UnevenMetric metric);
 
     Double getUneven(UnevenMetric metric, Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption);
 
+    /**
+     * Uneven of the latest port statistics round together with its timestamp.
+     */
+    UnevenSample getLatestUneven();
+
+    /**
+     * Uneven of the kept statistics rounds with timestamp (ms since epoch) in [from, to], oldest first.
+     */
+    List<UnevenSample> getUnevenHistory(long from, long to);
+
+    /**
+     * Model of the latest port statistics round. Every call returns a separate copy,
+     * so it can be queried without synchronization.
+     */
+    UnevenModel getUnevenModel();
+
+    /**
+     * Model of the given bandwidth consumption for predicting uneven after adding
+     * bandwidth on a path without copying the consumption map.
+     */
+    UnevenModel getUnevenModel(Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption);
+
 }
@@ -0,0 +1,214 @@
+package pl.sszwaczyk.uneven;
+
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.statistics.SwitchPortBandwidth;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of Tx utilization of all ports prepared for predicting uneven metrics.
+ *
+ * Running sums of utilization and ports ordered by utilization are computed once,
+ * so {@link #getUnevenIfAdded(UnevenMetric, List, long)} answers "what would the uneven
+ * be if bandwidth was added on these ports" in O(ports on path) without allocating.
+ * Results are the same as computing the metric (gap, variance or variation coefficient
+ * of Tx utilization of all ports but LOCAL and CONTROLLER) over a copy of the bandwidth
+ * map with bandwidth added to Tx of the given ports.
+ *
+ * Not thread safe - create one model per decision, or a {@link #copy()} per thread
+ * querying it concurrently.
+ */
+public class UnevenModel {
+
+    private final boolean empty;
+    private final int n;
+    private final Map<NodePortTuple, Integer> index;
+    private final long[] txBits;
+    private final long[] speed;
+    private final double[] utilization;
+    /* indexes of ports ordered by utilization ascending */
+    private final int[] byUtilization;
+
+    /* sums of (utilization - shift) and its squares, shifted by mean for numerical stability */
+    private final double shift;
+    private final double sum;
+    private final double sumSq;
+
+    /* ports changed in the current query are marked with the query stamp */
+    private final int[] marks;
+    private int stamp = 0;
+
+    private UnevenModel(Map<NodePortTuple, SwitchPortBandwidth> bandwidth) {
+        empty = bandwidth.isEmpty();
+        index = new HashMap<>();
+        long[] tx = new long[bandwidth.size()];
+        long[] sp = new long[bandwidth.size()];
+        double[] u = new double[bandwidth.size()];
+        int i = 0;
+        for(Map.Entry<NodePortTuple, SwitchPortBandwidth> e: bandwidth.entrySet()) {
+            SwitchPortBandwidth b = e.getValue();
+            if(OFPort.LOCAL.equals(b.getSwitchPort()) || OFPort.CONTROLLER.equals(b.getSwitchPort())) {
+                continue;
+            }
+            index.put(e.getKey(), i);
+            tx[i] = b.getBitsPerSecondTx().getValue();
+            sp[i] = b.getLinkSpeedBitsPerSec().getValue();
+            u[i] = b.getTxUtilization();
+            i++;
+        }
+        n = i;
+        txBits = Arrays.copyOf(tx, n);
+        speed = Arrays.copyOf(sp, n);
+        utilization = Arrays.copyOf(u, n);
+        marks = new int[n];
+
+        Integer[] order = new Integer[n];
+        for(int j = 0; j < n; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(j -> utilization[j]));
+        byUtilization = new int[n];
+        for(int j = 0; j < n; j++) {
+            byUtilization[j] = order[j];
+        }
+
+        double total = 0;
+        for(int j = 0; j < n; j++) {
+            total += utilization[j];
+        }
+        shift = n == 0 ? 0 : total / n;
+        double s = 0;
+        double sq = 0;
+        for(int j = 0; j < n; j++) {
+            double d = utilization[j] - shift;
+            s += d;
+            sq += d * d;
+        }
+        sum = s;
+        sumSq = sq;
+    }
+
+    /* shares the snapshot, only query marks are separate */
+    private UnevenModel(UnevenModel other) {
+        empty = other.empty;
+        n = other.n;
+        index = other.index;
+        txBits = other.txBits;
+        speed = other.speed;
+        utilization = other.utilization;
+        byUtilization = other.byUtilization;
+        shift = other.shift;
+        sum = other.sum;
+        sumSq = other.sumSq;
+        marks = new int[n];
+    }
+
+    /**
+     * Model over the same snapshot which can be queried independently of this one.
+     */
+    public UnevenModel copy() {
+        return new UnevenModel(this);
+    }
+
+    public static UnevenModel of(Map<NodePortTuple, SwitchPortBandwidth> bandwidth) {
+        return new UnevenModel(bandwidth);
+    }
+
+    public double getUneven(UnevenMetric metric) {
+        double min = n == 0 ? Double.NaN : utilization[byUtilization[0]];
+        double max = n == 0 ? Double.NaN : utilization[byUtilization[n - 1]];
+        return uneven(metric, sum, sumSq, min, max);
+    }
+
+    /**
+     * Predicts uneven after adding bandwidth (b/s) to Tx of given ports. Ports unknown
+     * to the snapshot are ignored, as are repeated ports.
+     */
+    public double getUnevenIfAdded(UnevenMetric metric, List<NodePortTuple> ports, long bandwidth) {
+        stamp++;
+        double s = sum;
+        double sq = sumSq;
+        double changedMin = Double.POSITIVE_INFINITY;
+        double changedMax = Double.NEGATIVE_INFINITY;
+        for(int p = 0; p < ports.size(); p++) {
+            Integer i = index.get(ports.get(p));
+            if(i == null || marks[i] == stamp) {
+                continue;
+            }
+            marks[i] = stamp;
+            double after = utilization(txBits[i] + bandwidth, speed[i]);
+            double dBefore = utilization[i] - shift;
+            double dAfter = after - shift;
+            s += dAfter - dBefore;
+            sq += dAfter * dAfter - dBefore * dBefore;
+            changedMin = Math.min(changedMin, after);
+            changedMax = Math.max(changedMax, after);
+        }
+
+        double min = changedMin;
+        for(int j = 0; j < n; j++) {
+            int i = byUtilization[j];
+            if(marks[i] != stamp) {
+                min = Math.min(min, utilization[i]);
+                break;
+            }
+        }
+        double max = changedMax;
+        for(int j = n - 1; j >= 0; j--) {
+            int i = byUtilization[j];
+            if(marks[i] != stamp) {
+                max = Math.max(max, utilization[i]);
+                break;
+            }
+        }
+        if(n == 0) {
+            min = Double.NaN;
+            max = Double.NaN;
+        }
+        return uneven(metric, s, sq, min, max);
+    }
+
+    private double uneven(UnevenMetric metric, double s, double sq, double min, double max) {
+        switch (metric) {
+            case GAP:
+                if(empty) {
+                    return 0d;
+                }
+                double gapMin = n == 0 ? 1 : Math.min(1, min);
+                double gapMax = n == 0 ? 0 : Math.max(0, max);
+                return gapMax - gapMin;
+            case GAP_PERCENT:
+                return 0d;
+            case VARIANCE:
+                return variance(s, sq);
+            case VARIATION_COEFFICIENT:
+                double mean = n == 0 ? Double.NaN : shift + s / n;
+                return Math.sqrt(variance(s, sq)) / mean;
+        }
+        return 0d;
+    }
+
+    /* bias corrected variance as commons-math Variance */
+    private double variance(double s, double sq) {
+        if(n == 0) {
+            return Double.NaN;
+        }
+        if(n == 1) {
+            return 0d;
+        }
+        return Math.max(0d, (sq - s * s / n) / (n - 1));
+    }
+
+    /* same formula as SwitchPortBandwidth */
+    private static double utilization(long txBits, long speed) {
+        if(speed == 0) {
+            return 0d;
+        }
+        return ((double) (txBits / 1000)) / (double) speed;
+    }
+}
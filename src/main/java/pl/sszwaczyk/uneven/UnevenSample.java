@@ -0,0 +1,22 @@
+package pl.sszwaczyk.uneven;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Uneven metrics computed from one port statistics collection round.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnevenSample {
+
+    private long version; //of PortStatisticsSnapshot the sample was computed from
+    private long timestamp; //ms since epoch
+
+    private Map<UnevenMetric, Double> uneven;
+
+}
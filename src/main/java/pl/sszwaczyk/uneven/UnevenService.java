@@ -6,27 +6,40 @@ import net.floodlightcontroller.core.module.IFloodlightModule;
 import net.floodlightcontroller.core.module.IFloodlightService;
 import net.floodlightcontroller.core.types.NodePortTuple;
 import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.statistics.IStatisticsListener;
 import net.floodlightcontroller.statistics.IStatisticsService;
+import net.floodlightcontroller.statistics.PortStatisticsSnapshot;
 import net.floodlightcontroller.statistics.SwitchPortBandwidth;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import pl.sszwaczyk.uneven.calculator.GapUnevenCalculator;
-import pl.sszwaczyk.uneven.calculator.VarianceUnevenCalculator;
-import pl.sszwaczyk.uneven.calculator.VariationCoefficientUnevenCalculator;
 import pl.sszwaczyk.uneven.web.UnevenRoutable;
+import pl.sszwaczyk.utils.RollingWindow;
 
 import java.util.*;
 
-public class UnevenService implements IFloodlightModule, IUnevenService {
+/**
+ * Keeps uneven metrics of the latest port statistics round. Metrics are computed once per
+ * round when {@link IStatisticsService} publishes new statistics, so reading them is O(1).
+ * Samples of the last history-size rounds are kept for trend analysis.
+ */
+public class UnevenService implements IFloodlightModule, IUnevenService, IStatisticsListener {
+
+    private static final int DEFAULT_HISTORY_SIZE = 360;
+
+    private static final UnevenMetric[] METRICS = {
+            UnevenMetric.GAP, UnevenMetric.VARIANCE, UnevenMetric.VARIATION_COEFFICIENT
+    };
 
     private Logger log = LoggerFactory.getLogger(IUnevenService.class);
 
     private IRestApiService restApiService;
     private IStatisticsService statisticsService;
 
-    private GapUnevenCalculator gapUnevenCalculator;
-    private VarianceUnevenCalculator varianceUnevenCalculator;
-    private VariationCoefficientUnevenCalculator variationCoefficientUnevenCalculator;
+    private int historySize = DEFAULT_HISTORY_SIZE;
+    private RollingWindow<UnevenSample> history;
+
+    private volatile UnevenModel latestModel;
+    private volatile UnevenSample latest;
 
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleServices() {
@@ -58,60 +71,87 @@ public class UnevenService implements IFloodlightModule, IUnevenService {
         restApiService = context.getServiceImpl(IRestApiService.class);
         statisticsService = context.getServiceImpl(IStatisticsService.class);
 
-        gapUnevenCalculator = new GapUnevenCalculator();
-        varianceUnevenCalculator = new VarianceUnevenCalculator();
-        variationCoefficientUnevenCalculator = new VariationCoefficientUnevenCalculator();
+        Map<String, String> configParameters = context.getConfigParams(this);
+        String tmp = configParameters.get("history-size");
+        if (tmp != null && !tmp.isEmpty()) {
+            historySize = Integer.parseInt(tmp);
+            log.info("Uneven history size set to {}.", historySize);
+        } else {
+            log.info("Uneven history size not configured. Using {}.", historySize);
+        }
+        history = new RollingWindow<>(historySize);
     }
 
     @Override
     public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
         restApiService.addRestletRoutable(new UnevenRoutable());
+        portStatisticsCollected(statisticsService.getPortStatisticsSnapshot());
+        statisticsService.addStatisticsListener(this);
     }
 
     @Override
-    public Map<UnevenMetric, Double> getUneven() {
+    public void portStatisticsCollected(PortStatisticsSnapshot snapshot) {
         log.debug("Calculating uneven use of resources...");
-        Map<UnevenMetric, Double> unevens = new HashMap<>();
-
-        Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption = statisticsService.getBandwidthConsumption();
-
-        unevens.put(gapUnevenCalculator.getMetric(), gapUnevenCalculator.calculateUneven(bandwidthConsumption));
-        unevens.put(varianceUnevenCalculator.getMetric(), varianceUnevenCalculator.calculateUneven(bandwidthConsumption));
-        unevens.put(variationCoefficientUnevenCalculator.getMetric(), variationCoefficientUnevenCalculator.calculateUneven(bandwidthConsumption));
+        UnevenModel model = UnevenModel.of(snapshot.getBandwidthConsumption());
+        UnevenSample sample = new UnevenSample(snapshot.getVersion(), snapshot.getTimestamp(), unevens(model));
+        latestModel = model;
+        latest = sample;
+        history.append(sample);
+    }
 
-        return unevens;
+    @Override
+    public Map<UnevenMetric, Double> getUneven() {
+        return latest.getUneven();
     }
 
     @Override
     public Map<UnevenMetric, Double> getUneven(Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption) {
         log.debug("Calculating uneven use of resources...");
-        Map<UnevenMetric, Double> unevens = new HashMap<>();
-
-        unevens.put(gapUnevenCalculator.getMetric(), gapUnevenCalculator.calculateUneven(bandwidthConsumption));
-        unevens.put(varianceUnevenCalculator.getMetric(), varianceUnevenCalculator.calculateUneven(bandwidthConsumption));
-        unevens.put(variationCoefficientUnevenCalculator.getMetric(), variationCoefficientUnevenCalculator.calculateUneven(bandwidthConsumption));
-
-        return unevens;
+        return unevens(UnevenModel.of(bandwidthConsumption));
     }
 
     @Override
     public Double getUneven(UnevenMetric metric) {
-        Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption = statisticsService.getBandwidthConsumption();
-        return getUneven(metric, bandwidthConsumption);
+        Double uneven = latest.getUneven().get(metric);
+        return uneven == null ? 0d : uneven;
     }
 
     @Override
     public Double getUneven(UnevenMetric metric, Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption) {
-        switch (metric) {
-            case GAP:
-                return gapUnevenCalculator.calculateUneven(bandwidthConsumption);
-            case GAP_PERCENT:
-                return 0d;
-            case VARIANCE:
-                return varianceUnevenCalculator.calculateUneven(bandwidthConsumption);
-            case VARIATION_COEFFICIENT:
-                return variationCoefficientUnevenCalculator.calculateUneven(bandwidthConsumption);
+        return UnevenModel.of(bandwidthConsumption).getUneven(metric);
+    }
+
+    @Override
+    public UnevenSample getLatestUneven() {
+        return latest;
+    }
+
+    @Override
+    public List<UnevenSample> getUnevenHistory(long from, long to) {
+        List<UnevenSample> samples = new ArrayList<>();
+        for(UnevenSample sample: history.getItems()) {
+            if(sample.getTimestamp() >= from && sample.getTimestamp() <= to) {
+                samples.add(sample);
+            }
+        }
+        return samples;
+    }
+
+    @Override
+    public UnevenModel getUnevenModel() {
+        return latestModel.copy();
+    }
+
+    @Override
+    public UnevenModel getUnevenModel(Map<NodePortTuple, SwitchPortBandwidth> bandwidthConsumption) {
+        return UnevenModel.of(bandwidthConsumption);
+    }
+
+    private static Map<UnevenMetric, Double> unevens(UnevenModel model) {
+        Map<UnevenMetric, Double> unevens = new EnumMap<>(UnevenMetric.class);
+        for(UnevenMetric metric: METRICS) {
+            unevens.put(metric, model.getUneven(metric));
         }
-        return 0d;
+        return Collections.unmodifiableMap(unevens);
     }
 }
@@ -0,0 +1,29 @@
+package pl.sszwaczyk.uneven.web;
+
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+import pl.sszwaczyk.uneven.IUnevenService;
+import pl.sszwaczyk.uneven.UnevenSample;
+
+import java.util.List;
+
+/**
+ * Uneven of kept statistics rounds. Optional from and to query parameters (ms since epoch)
+ * limit returned samples to that range.
+ */
+public class UnevenHistoryResource extends ServerResource {
+
+    @Get("json")
+    public List<UnevenSample> getUnevenHistory() {
+        IUnevenService unevenService =
+                (IUnevenService) getContext().getAttributes().
+                        get(IUnevenService.class.getCanonicalName());
+
+        String from = getQueryValue("from");
+        String to = getQueryValue("to");
+
+        return unevenService.getUnevenHistory(
+                from == null ? 0 : Long.parseLong(from),
+                to == null ? Long.MAX_VALUE : Long.parseLong(to));
+    }
+}
@@ -0,0 +1,18 @@
+package pl.sszwaczyk.uneven.web;
+
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+import pl.sszwaczyk.uneven.IUnevenService;
+import pl.sszwaczyk.uneven.UnevenSample;
+
+public class UnevenLatestResource extends ServerResource {
+
+    @Get("json")
+    public UnevenSample getLatestUneven() {
+        IUnevenService unevenService =
+                (IUnevenService) getContext().getAttributes().
+                        get(IUnevenService.class.getCanonicalName());
+
+        return unevenService.getLatestUneven();
+    }
+}
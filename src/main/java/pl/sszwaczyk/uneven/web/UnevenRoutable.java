@@ -11,6 +11,8 @@ public class UnevenRoutable implements RestletRoutable {
     public Restlet getRestlet(Context context) {
         Router router = new Router(context);
         router.attach("/all", UnevenResource.class);
+        router.attach("/latest", UnevenLatestResource.class);
+        router.attach("/history", UnevenHistoryResource.class);
         return router;
     }
 
@@ -2,11 +2,24 @@ package pl.sszwaczyk.user;
 
 import net.floodlightcontroller.core.FloodlightContext;
 import net.floodlightcontroller.core.module.IFloodlightService;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.io.IOException;
+import java.util.List;
 
 public interface IUserService extends IFloodlightService {
 
     User getUserByIp(String ip);
 
+    User getUser(IPv4Address ip);
+
     User getUserFromCntx(FloodlightContext cntx);
 
+    List<User> getUsers();
+
+    /**
+     * Reloads users from repository file. Lookups running meanwhile use previous users.
+     */
+    void reload() throws IOException;
+
 }
@@ -7,14 +7,20 @@ import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
 import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.packet.IPv4;
+import net.floodlightcontroller.threadpool.IThreadPoolService;
+import org.projectfloodlight.openflow.types.IPv4Address;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import pl.sszwaczyk.utils.AddressAndPort;
+import pl.sszwaczyk.classifier.IPacketClassifierService;
+import pl.sszwaczyk.classifier.PacketClassification;
+import pl.sszwaczyk.utils.LongKeyIndex;
 import pl.sszwaczyk.utils.PacketUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class UserService implements IFloodlightModule, IUserService {
 
@@ -22,7 +28,13 @@ public class UserService implements IFloodlightModule, IUserService {
 
     private static String DEFAULT_USER_REPOSITORY_FILE = "src/main/resources/repositories/users.json";
 
-    private List<User> users;
+    private IThreadPoolService threadPoolService;
+
+    private int reloadPeriod = 0; //seconds, 0 disables reloading
+    private long loadedLastModified;
+
+    /* replaced as a whole on reload so readers never block nor see a half loaded repository */
+    private volatile Repository repository;
 
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleServices() {
@@ -42,11 +54,16 @@ public class UserService implements IFloodlightModule, IUserService {
 
     @Override
     public Collection<Class<? extends IFloodlightService>> getModuleDependencies() {
-        return null;
+        Collection<Class<? extends IFloodlightService>> l =
+                new ArrayList<Class<? extends IFloodlightService>>();
+        l.add(IThreadPoolService.class);
+        return l;
     }
 
     @Override
     public void init(FloodlightModuleContext context) throws FloodlightModuleException {
+        threadPoolService = context.getServiceImpl(IThreadPoolService.class);
+
         Map<String, String> configParameters = context.getConfigParams(this);
         String tmp = configParameters.get("repository-file");
         if (tmp != null) {
@@ -56,6 +73,14 @@ public class UserService implements IFloodlightModule, IUserService {
             log.info("Default users repository not configured. Using {}.", DEFAULT_USER_REPOSITORY_FILE);
         }
 
+        tmp = configParameters.get("reload-period");
+        if (tmp != null && !tmp.isEmpty()) {
+            reloadPeriod = Integer.parseInt(tmp);
+            log.info("Users repository reload period set to {} seconds.", reloadPeriod);
+        } else {
+            log.info("Users repository reload period not configured. Reloading disabled.");
+        }
+
         try {
             loadUsers();
         } catch (IOException e) {
@@ -66,36 +91,90 @@ public class UserService implements IFloodlightModule, IUserService {
 
     @Override
     public void startUp(FloodlightModuleContext context) throws FloodlightModuleException {
-
+        if(reloadPeriod > 0) {
+            threadPoolService.getScheduledExecutor().scheduleAtFixedRate(new RepositoryReloader(), reloadPeriod, reloadPeriod, TimeUnit.SECONDS);
+        }
     }
 
     @Override
     public User getUserByIp(String ip) {
-        return users.stream().filter(u -> u.getIp().equals(ip))
-                .findFirst()
-                .orElse(null);
+        return getUser(IPv4Address.of(ip));
+    }
+
+    @Override
+    public User getUser(IPv4Address ip) {
+        return repository.byIp.get(LongKeyIndex.key(ip));
     }
 
     @Override
     public User getUserFromCntx(FloodlightContext cntx) {
-        AddressAndPort addressAndPort = PacketUtils.getDstAddressAndDstTCPPort(cntx);
-        if(addressAndPort != null) {
-            return getUserByIp(addressAndPort.getAddress());
+        PacketClassification classification = IPacketClassifierService.fcStore.get(cntx, IPacketClassifierService.CONTEXT_CLASSIFICATION);
+        if(classification != null) {
+            return classification.getUser();
+        }
+        IPv4 ipv4 = PacketUtils.getTCPOverIPv4(cntx);
+        if(ipv4 != null) {
+            return getUser(ipv4.getDestinationAddress());
         }
         return null;
     }
 
-    private void loadUsers() throws IOException {
+    @Override
+    public List<User> getUsers() {
+        return repository.users;
+    }
+
+    @Override
+    public void reload() throws IOException {
+        loadUsers();
+    }
+
+    private synchronized void loadUsers() throws IOException {
         File usersFile = new File(DEFAULT_USER_REPOSITORY_FILE);
+        long lastModified = usersFile.lastModified();
         ObjectMapper objectMapper = new ObjectMapper();
-        users = objectMapper.readValue(usersFile, new TypeReference<List<User>>(){});
+        List<User> loaded = objectMapper.readValue(usersFile, new TypeReference<List<User>>(){});
+
+        Map<Long, User> byIp = new HashMap<>();
+        for (User user: loaded) {
+            byIp.putIfAbsent(LongKeyIndex.key(IPv4Address.of(user.getIp())), user);
+        }
+        repository = new Repository(Collections.unmodifiableList(loaded), LongKeyIndex.of(byIp));
+        loadedLastModified = lastModified;
 
         if(log.isDebugEnabled()) {
             log.debug("Loaded users:");
-            for (User user: users) {
+            for (User user: loaded) {
                 log.debug(user.toString());
             }
         }
     }
 
+    private static class Repository {
+        private final List<User> users;
+        private final LongKeyIndex<User> byIp;
+
+        private Repository(List<User> users, LongKeyIndex<User> byIp) {
+            this.users = users;
+            this.byIp = byIp;
+        }
+    }
+
+    class RepositoryReloader implements Runnable {
+
+        @Override
+        public void run() {
+            File usersFile = new File(DEFAULT_USER_REPOSITORY_FILE);
+            if(usersFile.lastModified() == loadedLastModified) {
+                return;
+            }
+            log.info("Users repository file {} changed. Reloading...", DEFAULT_USER_REPOSITORY_FILE);
+            try {
+                reload();
+            } catch (IOException e) {
+                log.error("Cannot reload users from file because {}. Keeping previous users.", e.getMessage());
+            }
+        }
+
+    }
 }
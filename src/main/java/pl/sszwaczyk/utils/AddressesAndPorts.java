@@ -3,6 +3,8 @@ package pl.sszwaczyk.utils;
 import lombok.Builder;
 import lombok.Data;
 import net.floodlightcontroller.core.FloodlightContext;
+import pl.sszwaczyk.classifier.IPacketClassifierService;
+import pl.sszwaczyk.classifier.PacketClassification;
 
 @Data
 @Builder
@@ -12,6 +14,10 @@ public class AddressesAndPorts {
     private AddressAndPort dst;
 
     public static AddressesAndPorts fromCntx(FloodlightContext cntx) {
+        PacketClassification classification = IPacketClassifierService.fcStore.get(cntx, IPacketClassifierService.CONTEXT_CLASSIFICATION);
+        if(classification != null && classification.getAp() != null) {
+            return classification.getAp();
+        }
         AddressesAndPorts addressesAndPorts = AddressesAndPorts.builder().build();
         addressesAndPorts.setSrc(PacketUtils.getSrcAddressAndSrcTCPPort(cntx));
         addressesAndPorts.setDst(PacketUtils.getDstAddressAndDstTCPPort(cntx));
@@ -0,0 +1,75 @@
+package pl.sszwaczyk.utils;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.TransportPort;
+
+import java.util.Map;
+
+/**
+ * Immutable open addressing (linear probing) map from primitive long keys to values.
+ * Built once from a map and then only read, so it can be shared between threads
+ * and replaced as a whole (e.g. on repository reload) without locking readers.
+ */
+public class LongKeyIndex<V> {
+
+    private final long[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    private LongKeyIndex(Map<Long, V> entries) {
+        int capacity = Integer.highestOneBit(Math.max(4, entries.size() * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = entries.size();
+        for(Map.Entry<Long, V> e: entries.entrySet()) {
+            long key = e.getKey();
+            int i = slot(key);
+            while(values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = e.getValue();
+        }
+    }
+
+    public static <V> LongKeyIndex<V> of(Map<Long, V> entries) {
+        return new LongKeyIndex<>(entries);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = slot(key);
+        Object v;
+        while((v = values[i]) != null) {
+            if(keys[i] == key) {
+                return (V) v;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public static long key(IPv4Address address) {
+        return address.getInt() & 0xFFFFFFFFL;
+    }
+
+    public static long key(IPv4Address address, TransportPort port) {
+        return (key(address) << 16) | port.getPort();
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "LongKeyIndex [size=" + size + ", capacity=" + keys.length + "]";
+    }
+}
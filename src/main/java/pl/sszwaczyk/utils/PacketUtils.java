@@ -10,6 +10,20 @@ import org.projectfloodlight.openflow.types.IpProtocol;
 
 public class PacketUtils {
 
+    /**
+     * @return IPv4 packet from PACKET_IN payload if it carries TCP, null otherwise
+     */
+    public static IPv4 getTCPOverIPv4(FloodlightContext cntx) {
+        Ethernet eth = IFloodlightProviderService.bcStore.get(cntx, IFloodlightProviderService.CONTEXT_PI_PAYLOAD);
+        if(eth != null && eth.getEtherType() == EthType.IPv4) {
+            IPv4 ipv4 = (IPv4) eth.getPayload();
+            if (ipv4.getProtocol() == IpProtocol.TCP) {
+                return ipv4;
+            }
+        }
+        return null;
+    }
+
     public static AddressAndPort getSrcAddressAndSrcTCPPort(FloodlightContext cntx) {
         Ethernet eth = IFloodlightProviderService.bcStore.get(cntx, IFloodlightProviderService.CONTEXT_PI_PAYLOAD);
         if(eth.getEtherType() == EthType.IPv4) {
@@ -0,0 +1,53 @@
+package pl.sszwaczyk.utils;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append only window of the most recent items. Appending is lock free and O(1). When limit is
+ * greater than 0 only the last limit items are kept and the oldest ones are dropped,
+ * otherwise the window grows without bound.
+ */
+public class RollingWindow<T> {
+
+    private final ConcurrentLinkedQueue<T> items = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final int limit;
+
+    public RollingWindow(int limit) {
+        this.limit = limit;
+    }
+
+    public void append(T item) {
+        items.add(item);
+        appended.incrementAndGet();
+        if(limit > 0 && size.incrementAndGet() > limit) {
+            if(items.poll() != null) {
+                size.decrementAndGet();
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    public ImmutableList<T> getItems() {
+        return ImmutableList.copyOf(items);
+    }
+
+    public long getAppended() {
+        return appended.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
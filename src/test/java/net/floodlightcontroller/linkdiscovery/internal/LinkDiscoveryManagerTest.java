@@ -26,6 +26,7 @@ import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -57,6 +58,8 @@ import net.floodlightcontroller.packet.UDP;
 import net.floodlightcontroller.restserver.IRestApiService;
 import net.floodlightcontroller.restserver.RestApiServer;
 import net.floodlightcontroller.routing.IRoutingService;
+import net.floodlightcontroller.routing.Path;
+import net.floodlightcontroller.routing.PathId;
 import net.floodlightcontroller.storage.IStorageSourceService;
 import net.floodlightcontroller.storage.memory.MemoryStorageSource;
 import net.floodlightcontroller.test.FloodlightTestCase;
@@ -242,6 +245,56 @@ public class LinkDiscoveryManagerTest extends FloodlightTestCase {
         assertTrue(linkDiscovery.links.isEmpty());
     }
 
+    @Test
+    public void testGetLink() throws Exception {
+        LinkDiscoveryManager linkDiscovery = getLinkDiscoveryManager();
+
+        Link lt = new Link(DatapathId.of(1L), OFPort.of(2), DatapathId.of(2L), OFPort.of(1), U64.ZERO);
+        LinkInfo info = new LinkInfo(new Date(),
+                new Date(), null);
+        linkDiscovery.addOrUpdateLink(lt, info);
+
+        // lookups return the instance kept in links
+        assertSame(lt, linkDiscovery.getLink(DatapathId.of(1L), OFPort.of(2), DatapathId.of(2L), OFPort.of(1)));
+        assertSame(lt, linkDiscovery.getLink(DatapathId.of(1L), OFPort.of(2)));
+        assertNull(linkDiscovery.getLink(DatapathId.of(1L), OFPort.of(2), DatapathId.of(2L), OFPort.of(3)));
+        assertNull(linkDiscovery.getLink(DatapathId.of(2L), OFPort.of(1)));
+
+        linkDiscovery.deleteLinks(Collections.singletonList(lt), "Test");
+        assertNull(linkDiscovery.getLink(DatapathId.of(1L), OFPort.of(2), DatapathId.of(2L), OFPort.of(1)));
+        assertNull(linkDiscovery.getLink(DatapathId.of(1L), OFPort.of(2)));
+    }
+
+    @Test
+    public void testResolveLinks() throws Exception {
+        LinkDiscoveryManager linkDiscovery = getLinkDiscoveryManager();
+
+        Link lt1 = new Link(DatapathId.of(1L), OFPort.of(2), DatapathId.of(2L), OFPort.of(1), U64.ZERO);
+        Link lt2 = new Link(DatapathId.of(2L), OFPort.of(3), DatapathId.of(3L), OFPort.of(1), U64.ZERO);
+        linkDiscovery.addOrUpdateLink(lt1, new LinkInfo(new Date(), new Date(), null));
+        linkDiscovery.addOrUpdateLink(lt2, new LinkInfo(new Date(), new Date(), null));
+
+        // path with host ports on the first and last switch
+        Path path = new Path(new PathId(DatapathId.of(1L), DatapathId.of(3L)), Arrays.asList(
+                new NodePortTuple(DatapathId.of(1L), OFPort.of(5)),
+                new NodePortTuple(DatapathId.of(1L), OFPort.of(2)),
+                new NodePortTuple(DatapathId.of(2L), OFPort.of(1)),
+                new NodePortTuple(DatapathId.of(2L), OFPort.of(3)),
+                new NodePortTuple(DatapathId.of(3L), OFPort.of(1)),
+                new NodePortTuple(DatapathId.of(3L), OFPort.of(5))));
+        List<Link> resolved = linkDiscovery.resolveLinks(path);
+        assertEquals(2, resolved.size());
+        assertSame(lt1, resolved.get(0));
+        assertSame(lt2, resolved.get(1));
+
+        // unknown hops resolve to null
+        linkDiscovery.deleteLinks(Collections.singletonList(lt2), "Test");
+        resolved = linkDiscovery.resolveLinks(path);
+        assertEquals(2, resolved.size());
+        assertSame(lt1, resolved.get(0));
+        assertNull(resolved.get(1));
+    }
+
     @Test
     public void testAddOrUpdateLinkToSelf() throws Exception {
         LinkDiscoveryManager linkDiscovery = getLinkDiscoveryManager();
@@ -7,15 +7,25 @@ import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.test.MockThreadPoolService;
 import net.floodlightcontroller.core.types.NodePortTuple;
 import net.floodlightcontroller.test.FloodlightTestCase;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import org.easymock.EasyMock;
 import org.projectfloodlight.openflow.protocol.*;
 
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
 import org.projectfloodlight.openflow.protocol.OFFactories;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 import org.junit.*;
@@ -37,6 +47,9 @@ public class StatisticsTest extends FloodlightTestCase {
     private static OFVersion inputOFVersion;
     private static Long expectedSpeed;
 
+    /* collector state is static, so every test gets switches not seen before */
+    private static final AtomicLong nextDpid = new AtomicLong(100);
+
     @Override
     public void setUp() throws Exception {
         super.setUp();
@@ -51,10 +64,14 @@ public class StatisticsTest extends FloodlightTestCase {
 
         fmc.addService(IThreadPoolService.class, threadpool);
         fmc.addService(IOFSwitchService.class, switchService);
+        fmc.addConfigParam(statsCollector, "minSwitchRequestIntervalMs", "500");
+        fmc.addConfigParam(statsCollector, "adaptiveSamplingEnabled", "false");
+        fmc.addConfigParam(statsCollector, "adaptiveMinPeriodMs", "250");
 
         threadpool.init(fmc);
         statsCollector.init(fmc);
         threadpool.startUp(fmc);
+        statsCollector.setPortStatsPeriod(1); /* rounds expire 750ms after they start */
 
     }
 
@@ -103,6 +120,166 @@ public class StatisticsTest extends FloodlightTestCase {
 
     }
 
+    /**
+     * A round completes when a switch does not reply in time, and its request is cancelled
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRoundCompletesWithoutReply() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        SettableFuture<List<OFPortStatsReply>> never = SettableFuture.create();
+        IOFSwitch replying = getReplyingSwitch(DatapathId.of(nextDpid.getAndIncrement()), requests, new AtomicLong());
+        IOFSwitch silent = getSwitch(DatapathId.of(nextDpid.getAndIncrement()), requests, () -> never);
+        setSwitches(replying, silent);
+        BlockingQueue<PortStatisticsSnapshot> snapshots = listen();
+
+        statsCollector.new PortStatsCollector().run();
+
+        assertNotNull(snapshots.poll(5, TimeUnit.SECONDS));
+        assertEquals(2, requests.get());
+        assertTrue(never.isCancelled());
+    }
+
+    /**
+     * A switch is not asked again within minSwitchRequestIntervalMs, the round completes without it
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMinSwitchRequestInterval() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        setSwitches(getReplyingSwitch(DatapathId.of(nextDpid.getAndIncrement()), requests, new AtomicLong()));
+        BlockingQueue<PortStatisticsSnapshot> snapshots = listen();
+
+        StatisticsCollector.PortStatsCollector collector = statsCollector.new PortStatsCollector();
+        collector.run();
+        collector.run();
+
+        assertNotNull(snapshots.poll(5, TimeUnit.SECONDS));
+        assertNotNull(snapshots.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    /**
+     * Every round publishes a snapshot one version after the previous one
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSnapshotVersionsIncrease() throws Exception {
+        setSwitches(); /* rounds without switches complete right away */
+        BlockingQueue<PortStatisticsSnapshot> snapshots = listen();
+        long version = statsCollector.getPortStatisticsSnapshot().getVersion();
+
+        StatisticsCollector.PortStatsCollector collector = statsCollector.new PortStatsCollector();
+        for (int i = 0; i < 3; i++) {
+            collector.run();
+        }
+
+        for (int i = 1; i <= 3; i++) {
+            PortStatisticsSnapshot snapshot = snapshots.poll(5, TimeUnit.SECONDS);
+            assertNotNull(snapshot);
+            assertEquals(version + i, snapshot.getVersion());
+            assertFalse(snapshot.isPartial());
+        }
+        assertEquals(version + 3, statsCollector.getPortStatisticsSnapshot().getVersion());
+    }
+
+    /**
+     * A hot port is sampled adaptively after a round, and when it goes idle its period doubles
+     * with every sample until the port is left to the regular rounds
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHotPortBacksOff() throws Exception {
+        fmc.addConfigParam(statsCollector, "adaptiveSamplingEnabled", "true");
+        fmc.addConfigParam(statsCollector, "adaptiveMinPeriodMs", "10");
+        fmc.addConfigParam(statsCollector, "minSwitchRequestIntervalMs", "0");
+        statsCollector.init(fmc);
+
+        DatapathId dpid = DatapathId.of(nextDpid.getAndIncrement());
+        AtomicLong txBytes = new AtomicLong();
+        setSwitches(getReplyingSwitch(dpid, new AtomicInteger(), txBytes));
+        BlockingQueue<PortStatisticsSnapshot> snapshots = listen();
+
+        /* the first round only reads the counters, the second one measures port 1 far over its 100 kbps */
+        StatisticsCollector.PortStatsCollector collector = statsCollector.new PortStatsCollector();
+        collector.run();
+        assertNotNull(snapshots.poll(5, TimeUnit.SECONDS));
+        txBytes.set(1000000);
+        collector.run();
+        assertNotNull(snapshots.poll(5, TimeUnit.SECONDS));
+
+        PortSamplingRate rate = getSamplingRate(dpid);
+        assertTrue(rate.isAdaptive());
+        assertEquals(10, rate.getPeriodMs());
+
+        /* idle from now on */
+        for (int i = 0; i < 30 && rate.isAdaptive(); i++) {
+            long period = rate.getPeriodMs();
+            Thread.sleep(period + 5);
+            statsCollector.sampler.run();
+            rate = getSamplingRate(dpid);
+            assertTrue(rate.getPeriodMs() >= period);
+        }
+        assertFalse(rate.isAdaptive());
+        assertEquals(1000, rate.getPeriodMs());
+    }
+
+    private PortSamplingRate getSamplingRate(DatapathId dpid) {
+        for (PortSamplingRate rate : statsCollector.getPortSamplingRates()) {
+            if (rate.getSwitchId().equals(dpid.toString()) && rate.getPort() == 1) {
+                return rate;
+            }
+        }
+        fail("No sampling rate of port 1 of switch " + dpid);
+        return null;
+    }
+
+    private BlockingQueue<PortStatisticsSnapshot> listen() {
+        BlockingQueue<PortStatisticsSnapshot> snapshots = new LinkedBlockingQueue<>();
+        statsCollector.addStatisticsListener(snapshots::add);
+        return snapshots;
+    }
+
+    private void setSwitches(IOFSwitch... switches) {
+        Map<DatapathId, IOFSwitch> switchMap = new HashMap<>();
+        for (IOFSwitch sw : switches) {
+            switchMap.put(sw.getId(), sw);
+        }
+        getMockSwitchService().setSwitches(switchMap);
+    }
+
+    /* switch replying right away with statistics of port 1, which has sent txBytes so far */
+    private IOFSwitch getReplyingSwitch(DatapathId dpid, AtomicInteger requests, AtomicLong txBytes) {
+        OFFactory factory = OFFactories.getFactory(inputOFVersion);
+        return getSwitch(dpid, requests, () -> Futures.immediateFuture(Collections.singletonList(
+                factory.buildPortStatsReply()
+                        .setEntries(Collections.singletonList(factory.buildPortStatsEntry()
+                                .setPortNo(OFPort.of(1))
+                                .setRxBytes(U64.ZERO)
+                                .setTxBytes(U64.of(txBytes.get()))
+                                .build()))
+                        .build())));
+    }
+
+    private IOFSwitch getSwitch(DatapathId dpid, AtomicInteger requests,
+            Supplier<ListenableFuture<List<OFPortStatsReply>>> replies) {
+        IOFSwitch sw = EasyMock.createNiceMock(IOFSwitch.class);
+        OFFactory factory = OFFactories.getFactory(inputOFVersion);
+        expect(sw.getId()).andReturn(dpid).anyTimes();
+        expect(sw.getOFFactory()).andReturn(factory).anyTimes();
+        expect(sw.getPort(OFPort.of(1))).andReturn(getPortDesc(factory)).anyTimes();
+        expect(sw.writeStatsRequest(EasyMock.<OFPortStatsRequest>anyObject())).andAnswer(() -> {
+            requests.incrementAndGet();
+            return replies.get();
+        }).anyTimes();
+        replay(sw);
+        return sw;
+    }
+
     private IOFSwitch getSwitchByOFVersion(OFVersion inputOFVersion) {
         IOFSwitch sw = EasyMock.createMock(IOFSwitch.class);
         OFFactory inputFactory = OFFactories.getFactory(inputOFVersion);
@@ -110,32 +287,31 @@ public class StatisticsTest extends FloodlightTestCase {
         reset(sw);
         expect(sw.getId()).andReturn(DatapathId.of(1L)).anyTimes();
         expect(sw.getOFFactory()).andReturn(inputFactory).anyTimes();
+        expect(sw.getPort(OFPort.of(1))).andReturn(getPortDesc(inputFactory)).anyTimes();
+        replay(sw);
+        return sw;
+    }
 
-        switch (inputOFVersion){
-            case OF_11:
-            case OF_12:
-            case OF_13:
-                expect(sw.getPort(OFPort.of(1))).andReturn(inputFactory.buildPortDesc()
-                        .setPortNo(OFPort.of(1))
-                        .setName("eth1")
-                        .setCurrSpeed(100L)
-                        .build()).anyTimes();
-                replay(sw);
-                break;
-
+    /* port 1 of 100 kbps */
+    private OFPortDesc getPortDesc(OFFactory inputFactory) {
+        switch (inputFactory.getVersion()){
             case OF_14:
             case OF_15:
-                expect(sw.getPort(OFPort.of(1))).andReturn(inputFactory.buildPortDesc()
+                return inputFactory.buildPortDesc()
                         .setPortNo(OFPort.of(1))
                         .setName("eth1")
                         .setProperties(Collections.singletonList(inputFactory.buildPortDescPropEthernet().
                                 setCurrSpeed(100L).
                                 build()))
-                        .build()).anyTimes();
-                replay(sw);
+                        .build();
 
+            default:
+                return inputFactory.buildPortDesc()
+                        .setPortNo(OFPort.of(1))
+                        .setName("eth1")
+                        .setCurrSpeed(100L)
+                        .build();
         }
-        return sw;
     }
 
 }
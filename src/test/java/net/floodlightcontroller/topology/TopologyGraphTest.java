@@ -0,0 +1,109 @@
+package net.floodlightcontroller.topology;
+
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.linkdiscovery.Link;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TopologyGraphTest {
+    private TopologyGraph graph;
+    private Link l12, l13, l24, l34;
+
+    /*
+     *   1 ---> 2
+     *   |      |
+     *   v      v
+     *   3 ---> 4
+     */
+    @Before
+    public void setUp() {
+        l12 = new Link(DatapathId.of(1), OFPort.of(1), DatapathId.of(2), OFPort.of(1), U64.ZERO);
+        l13 = new Link(DatapathId.of(1), OFPort.of(2), DatapathId.of(3), OFPort.of(1), U64.ZERO);
+        l24 = new Link(DatapathId.of(2), OFPort.of(2), DatapathId.of(4), OFPort.of(1), U64.ZERO);
+        l34 = new Link(DatapathId.of(3), OFPort.of(2), DatapathId.of(4), OFPort.of(2), U64.ZERO);
+
+        Set<DatapathId> switches = new HashSet<DatapathId>();
+        Map<NodePortTuple, Set<Link>> links = new HashMap<NodePortTuple, Set<Link>>();
+        for (Link l : new Link[] { l12, l13, l24, l34 }) {
+            switches.add(l.getSrc());
+            switches.add(l.getDst());
+            addLink(links, new NodePortTuple(l.getSrc(), l.getSrcPort()), l);
+            addLink(links, new NodePortTuple(l.getDst(), l.getDstPort()), l);
+        }
+        graph = new TopologyGraph(switches, links);
+    }
+
+    private void addLink(Map<NodePortTuple, Set<Link>> links, NodePortTuple npt, Link l) {
+        if (!links.containsKey(npt)) {
+            links.put(npt, new HashSet<Link>());
+        }
+        links.get(npt).add(l);
+    }
+
+    private int index(long dpid) {
+        return graph.getSwitchIndex(DatapathId.of(dpid));
+    }
+
+    @Test
+    public void testIndices() {
+        assertEquals(4, graph.getSwitchCount());
+        assertEquals(4, graph.getLinkCount());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(DatapathId.of(i + 1), graph.getSwitch(i));
+        }
+        assertEquals(-1, graph.getSwitchIndex(DatapathId.of(5)));
+        int l = graph.getLinkIndex(l24);
+        assertEquals(l24, graph.getLink(l));
+        assertEquals(index(2), graph.getLinkSrc(l));
+        assertEquals(index(4), graph.getLinkDst(l));
+        assertArrayEquals(new int[] { l }, graph.getLinksIntoPort(new NodePortTuple(DatapathId.of(4), OFPort.of(1))));
+        assertEquals(0, graph.getLinksIntoPort(new NodePortTuple(DatapathId.of(1), OFPort.of(1))).length);
+    }
+
+    @Test
+    public void testDijkstra() {
+        Map<Link, Integer> linkCost = new HashMap<Link, Integer>();
+        linkCost.put(l12, 5);
+        int[] cost = graph.getLinkCosts(linkCost);
+        int[] dist = new int[4];
+        int[] treeLink = new int[4];
+
+        /* towards 4, the cheaper way from 1 is over 3 */
+        graph.dijkstra(index(4), cost, true, null, null, dist, treeLink);
+        assertEquals(2, dist[index(1)]);
+        assertEquals(graph.getLinkIndex(l13), treeLink[index(1)]);
+        assertEquals(-1, treeLink[index(4)]);
+
+        /* from 1, switch 2 is reached over the expensive link only */
+        graph.dijkstra(index(1), cost, false, null, null, dist, treeLink);
+        assertEquals(5, dist[index(2)]);
+        assertEquals(2, dist[index(4)]);
+
+        /* excluding switch 3 or the link 3 -> 4 forces the path over 2 */
+        BitSet excludedSwitches = new BitSet();
+        excludedSwitches.set(index(3));
+        graph.dijkstra(index(4), cost, true, excludedSwitches, null, dist, treeLink);
+        assertEquals(6, dist[index(1)]);
+        assertEquals(graph.getLinkIndex(l12), treeLink[index(1)]);
+        assertEquals(TopologyInstance.MAX_PATH_WEIGHT, dist[index(3)]);
+
+        BitSet excludedLinks = new BitSet();
+        excludedLinks.set(graph.getLinkIndex(l34));
+        graph.dijkstra(index(4), cost, true, null, excludedLinks, dist, treeLink);
+        assertEquals(6, dist[index(1)]);
+        assertEquals(TopologyInstance.MAX_PATH_WEIGHT, dist[index(3)]);
+        assertEquals(-1, treeLink[index(3)]);
+    }
+}
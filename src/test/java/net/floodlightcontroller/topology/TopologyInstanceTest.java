@@ -27,9 +27,14 @@ import net.floodlightcontroller.debugcounter.IDebugCounterService;
 import net.floodlightcontroller.debugcounter.MockDebugCounterService;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscovery;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
+import net.floodlightcontroller.linkdiscovery.Link;
 import net.floodlightcontroller.routing.IRoutingService;
 import net.floodlightcontroller.routing.Path;
+import net.floodlightcontroller.routing.PathId;
 import net.floodlightcontroller.routing.RoutingManager;
+import net.floodlightcontroller.statistics.IStatisticsService;
+import net.floodlightcontroller.statistics.PortStatisticsSnapshot;
+import net.floodlightcontroller.statistics.SwitchPortBandwidth;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import org.easymock.EasyMock;
 import org.junit.Before;
@@ -42,12 +47,18 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static net.floodlightcontroller.routing.IRoutingService.PATH_METRIC.HOPCOUNT;
 import static net.floodlightcontroller.routing.IRoutingService.PATH_METRIC.LATENCY;
+import static net.floodlightcontroller.routing.IRoutingService.PATH_METRIC.UTILIZATION;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class TopologyInstanceTest {
@@ -933,4 +944,221 @@ public class TopologyInstanceTest {
         verifyRoute(r10, r10.size());
     }
     
-}
\ No newline at end of file
+
+    @Test
+    public void testParallelPathComputation() throws Exception {
+        int [][] linkArray = {
+                {1, 1, 2, 1, DIRECT_LINK},
+                {1, 2, 4, 1, DIRECT_LINK},
+                {2, 2, 3, 1, DIRECT_LINK},
+                {3, 3, 5, 2, DIRECT_LINK},
+                {3, 4, 6, 2, DIRECT_LINK},
+                {4, 2, 2, 3, DIRECT_LINK},
+                {4, 3, 3, 2, DIRECT_LINK},
+                {4, 4, 5, 1, DIRECT_LINK},
+                {5, 3, 6, 1, DIRECT_LINK},
+        };
+        int [] lat = {3,2,4,2,1,1,2,3,2};
+        int k = 3;
+
+        /* paths computed serially before the instance is published */
+        topologyManager.setPathMetric(LATENCY);
+        configureTopology(linkArray, lat);
+        Map<PathId, List<Path>> expected = new HashMap<PathId, List<Path>>();
+        for (int i = 1; i <= 6; i++) {
+            for (int j = 1; j <= 6; j++) {
+                expected.put(new PathId(DatapathId.of(i), DatapathId.of(j)),
+                        routingManager.getPathsFast(DatapathId.of(i), DatapathId.of(j), k));
+            }
+        }
+
+        /*
+         * Same paths when computed in the background; pairs requested before
+         * the background computation reaches them are computed on demand.
+         */
+        TopologyManager.parallelPathComputation = true;
+        try {
+            topologyManager.clearCurrentTopology();
+            configureTopology(linkArray, lat);
+            for (int i = 1; i <= 6; i++) {
+                for (int j = 1; j <= 6; j++) {
+                    List<Path> paths = routingManager.getPathsFast(DatapathId.of(i), DatapathId.of(j), k);
+                    assertEquals(expected.get(new PathId(DatapathId.of(i), DatapathId.of(j))), paths);
+                }
+            }
+            assertTrue(routingManager.getPathsFast(DatapathId.of(1), DatapathId.of(7), k).isEmpty());
+        } finally {
+            TopologyManager.parallelPathComputation = false;
+        }
+    }
+
+    @Test
+    public void testIncrementalPathComputation() throws Exception {
+        DatapathId one = DatapathId.of(1);
+        DatapathId two = DatapathId.of(2);
+        DatapathId three = DatapathId.of(3);
+        int [][] linkArray = {
+                {1, 1, 2, 1, DIRECT_LINK},
+                {1, 2, 4, 1, DIRECT_LINK},
+                {2, 2, 3, 1, DIRECT_LINK},
+                {3, 3, 5, 2, DIRECT_LINK},
+                {3, 4, 6, 2, DIRECT_LINK},
+                {4, 2, 2, 3, DIRECT_LINK},
+                {4, 3, 3, 2, DIRECT_LINK},
+                {4, 4, 5, 1, DIRECT_LINK},
+                {5, 3, 6, 1, DIRECT_LINK},
+        };
+        int [] lat = {3,2,4,2,1,1,2,3,2};
+        int k = topologyManager.getMaxPathsToCompute();
+        topologyManager.setPathMetric(LATENCY);
+
+        /* topology with and without the link 5 -> 6, each computed from scratch */
+        configureTopology(Arrays.copyOf(linkArray, linkArray.length - 1), lat);
+        TopologyInstance withoutLink = topologyManager.getCurrentInstance();
+        topologyManager.clearCurrentTopology();
+        configureTopology(linkArray, lat);
+        TopologyInstance withLink = topologyManager.getCurrentInstance();
+
+        /* removing the link keeps the paths which did not use it */
+        topologyManager.removeLink(DatapathId.of(5), OFPort.of(3), DatapathId.of(6), OFPort.of(1));
+        topologyManager.createNewInstance();
+        TopologyInstance removed = topologyManager.getCurrentInstance();
+        assertSame(withLink.getPathsFast(one, two, k), removed.getPathsFast(one, two, k));
+        verifyPathLatencies(withoutLink, removed, k);
+
+        /* adding it back keeps the paths of pairs which cannot reach it */
+        topologyManager.addOrUpdateLink(DatapathId.of(5), OFPort.of(3), DatapathId.of(6), OFPort.of(1), U64.of(2),
+                ILinkDiscovery.LinkType.DIRECT_LINK);
+        topologyManager.createNewInstance();
+        TopologyInstance added = topologyManager.getCurrentInstance();
+        assertSame(removed.getPathsFast(one, three, k), added.getPathsFast(one, three, k));
+        verifyPathLatencies(withLink, added, k);
+    }
+
+    @Test
+    public void testLinkCostUpdate() throws Exception {
+        int [][] linkArray = {
+                {1, 1, 2, 1, DIRECT_LINK},
+                {1, 2, 4, 1, DIRECT_LINK},
+                {2, 2, 3, 1, DIRECT_LINK},
+                {3, 3, 5, 2, DIRECT_LINK},
+                {3, 4, 6, 2, DIRECT_LINK},
+                {4, 2, 2, 3, DIRECT_LINK},
+                {4, 3, 3, 2, DIRECT_LINK},
+                {4, 4, 5, 1, DIRECT_LINK},
+                {5, 3, 6, 1, DIRECT_LINK},
+        };
+        int [] lat = {3,2,4,2,1,1,2,3,2};
+        int k = topologyManager.getMaxPathsToCompute();
+
+        /*
+         * utilization first opposed to the latencies, then proportional to them, so the
+         * cheapest paths are the ones of the lowest latency (ties broken by hop count)
+         */
+        double [] before = new double[lat.length];
+        double [] after = new double[lat.length];
+        for (int i = 0; i < lat.length; i++) {
+            before[i] = (5 - lat[i]) / 10.0;
+            after[i] = lat[i] / 10.0;
+        }
+        PortStatisticsSnapshot beforeStats = utilizationSnapshot(1, linkArray, before);
+        PortStatisticsSnapshot afterStats = utilizationSnapshot(2, linkArray, after);
+
+        IStatisticsService statisticsService = EasyMock.createNiceMock(IStatisticsService.class);
+        EasyMock.expect(statisticsService.getPortStatisticsSnapshot()).andReturn(beforeStats).once();
+        EasyMock.expect(statisticsService.getPortStatisticsSnapshot()).andReturn(afterStats).anyTimes();
+        EasyMock.replay(statisticsService);
+        TopologyManager.statisticsService = statisticsService;
+        try {
+            topologyManager.setPathMetric(UTILIZATION);
+            configureTopology(linkArray, lat);
+            TopologyInstance updated = topologyManager.getCurrentInstance();
+            long version = updated.getLinkCostVersion();
+
+            /* the cached paths are put in order of the new costs, as if computed with them */
+            assertTrue(updated.updateLinkCosts(afterStats, 0.2));
+            assertEquals(version + 1, updated.getLinkCostVersion());
+            topologyManager.clearCurrentTopology();
+            configureTopology(linkArray, lat);
+            verifyPathLatencies(topologyManager.getCurrentInstance(), updated, k);
+
+            /* changes within the threshold leave the costs alone */
+            double [] slightly = after.clone();
+            slightly[0] += 0.01;
+            assertFalse(updated.updateLinkCosts(utilizationSnapshot(3, linkArray, slightly), 0.2));
+            assertEquals(version + 1, updated.getLinkCostVersion());
+        } finally {
+            TopologyManager.statisticsService = null;
+        }
+    }
+
+    @Test
+    public void testUtilizationCost() throws Exception {
+        int [][] linkArray = {
+                {1, 1, 2, 1, DIRECT_LINK},
+                {2, 2, 3, 1, DIRECT_LINK},
+                {3, 2, 4, 1, DIRECT_LINK},
+        };
+        int [] lat = {1,1,1};
+        double [] utilization = {0, 0.5, 1};
+
+        IStatisticsService statisticsService = EasyMock.createNiceMock(IStatisticsService.class);
+        EasyMock.expect(statisticsService.getPortStatisticsSnapshot())
+                .andReturn(utilizationSnapshot(1, linkArray, utilization)).anyTimes();
+        EasyMock.replay(statisticsService);
+        TopologyManager.statisticsService = statisticsService;
+        try {
+            topologyManager.setPathMetric(UTILIZATION);
+            configureTopology(linkArray, lat);
+            Map<Link, Integer> costs = topologyManager.getCurrentInstance().initLinkCostMap();
+
+            /* an idle link is the cheapest, a saturated one the costliest */
+            assertEquals(Integer.valueOf(1), costFrom(costs, DatapathId.of(1)));
+            assertEquals(Integer.valueOf(5001), costFrom(costs, DatapathId.of(2)));
+            assertEquals(Integer.valueOf(TopologyInstance.MAX_LINK_WEIGHT), costFrom(costs, DatapathId.of(3)));
+        } finally {
+            TopologyManager.statisticsService = null;
+        }
+    }
+
+    private Integer costFrom(Map<Link, Integer> costs, DatapathId src) {
+        for (Map.Entry<Link, Integer> e : costs.entrySet()) {
+            if (e.getKey().getSrc().equals(src)) {
+                return e.getValue();
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Port statistics under which the source port of every link of 1 Gbps sends at the given utilization.
+     */
+    private PortStatisticsSnapshot utilizationSnapshot(long version, int [][] linkArray, double [] utilization) {
+        Map<NodePortTuple, SwitchPortBandwidth> bandwidth = new HashMap<NodePortTuple, SwitchPortBandwidth>();
+        U64 speedKbps = U64.of(1000000);
+        for (int i = 0; i < linkArray.length; i++) {
+            DatapathId sw = DatapathId.of(linkArray[i][0]);
+            OFPort port = OFPort.of(linkArray[i][1]);
+            U64 bpsTx = U64.of(Math.round(utilization[i] * 1000000000L));
+            bandwidth.put(new NodePortTuple(sw, port),
+                    SwitchPortBandwidth.of(sw, port, speedKbps, U64.ZERO, bpsTx, U64.ZERO, U64.ZERO));
+        }
+        return new PortStatisticsSnapshot(version, 0, bandwidth, Collections.<NodePortTuple>emptySet());
+    }
+
+    /*
+     * Paths of equal cost may be found in any order, so only compare their latencies.
+     */
+    private void verifyPathLatencies(TopologyInstance expected, TopologyInstance actual, int k) {
+        for (int i = 1; i <= 6; i++) {
+            for (int j = 1; j <= 6; j++) {
+                List<Path> e = expected.getPathsFast(DatapathId.of(i), DatapathId.of(j), k);
+                List<Path> a = actual.getPathsFast(DatapathId.of(i), DatapathId.of(j), k);
+                assertEquals(e.size(), a.size());
+                for (int n = 0; n < e.size(); n++) {
+                    assertEquals(e.get(n).getLatency(), a.get(n).getLatency());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package pl.sszwaczyk.path.calculator;
+
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.linkdiscovery.Link;
+import net.floodlightcontroller.routing.Path;
+import net.floodlightcontroller.routing.PathId;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+import pl.sszwaczyk.security.SecurityDimension;
+import pl.sszwaczyk.security.properties.ISecurityPropertiesService;
+import pl.sszwaczyk.security.properties.SecurityPropertiesStore;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+
+public class PathPropertiesCalculatorTest {
+
+    private static final float DELTA = 1e-6f;
+    private static final DatapathId S1 = DatapathId.of(1);
+    private static final DatapathId S2 = DatapathId.of(2);
+    private static final DatapathId S3 = DatapathId.of(3);
+
+    private SecurityPropertiesStore store;
+    private ISecurityPropertiesService securityPropertiesService;
+
+    @Before
+    public void setUp() {
+        store = new SecurityPropertiesStore();
+        securityPropertiesService = createMock(ISecurityPropertiesService.class);
+        expect(securityPropertiesService.getSecurityPropertiesSnapshot()).andAnswer(() -> store.getSnapshot()).anyTimes();
+        replay(securityPropertiesService);
+    }
+
+    @Test
+    public void testUnknownElementsSkipped() {
+        /* s2 and s2 -> s3 are unknown */
+        store.setTrust(S1, 0.9f);
+        store.setTrust(S3, 0.8f);
+        store.setLink(link(S1, 1, S2, 1), 0.5f, 0.6f, 0.7f);
+
+        PathPropertiesCalculator multiplication = new MultiplicationPathPropertiesCalculator(securityPropertiesService);
+        assertProperties(multiplication.calculatePathProperties(hostToHost()), 0.5f, 0.6f, 0.7f, 0.72f);
+        assertProperties(multiplication.calculatePathProperties(switchToSwitch()), 0.5f, 0.6f, 0.7f, 0.72f);
+
+        PathPropertiesCalculator minimum = new MinPathPropertiesCalculator(securityPropertiesService);
+        assertProperties(minimum.calculatePathProperties(hostToHost()), 0.5f, 0.6f, 0.7f, 0.8f);
+        assertProperties(minimum.calculatePathProperties(switchToSwitch()), 0.5f, 0.6f, 0.7f, 0.8f);
+    }
+
+    @Test
+    public void testRemovedElementsSkipped() {
+        store.setTrust(S1, 0.9f);
+        store.setTrust(S2, 0.5f);
+        store.setTrust(S3, 0.8f);
+        store.setLink(link(S1, 1, S2, 1), 0.5f, 0.6f, 0.7f);
+        store.setLink(link(S2, 2, S3, 1), 0.5f, 0.5f, 0.5f);
+        store.removeSwitch(S2);
+        store.removeLink(link(S1, 1, S2, 1));
+
+        PathPropertiesCalculator multiplication = new MultiplicationPathPropertiesCalculator(securityPropertiesService);
+        assertProperties(multiplication.calculatePathProperties(hostToHost()), 0.5f, 0.5f, 0.5f, 0.72f);
+    }
+
+    @Test
+    public void testAllUnknown() {
+        PathPropertiesCalculator multiplication = new MultiplicationPathPropertiesCalculator(securityPropertiesService);
+        assertProperties(multiplication.calculatePathProperties(hostToHost()), 1f, 1f, 1f, 1f);
+        assertEquals(0.5f, multiplication.aggregateKnown(0.5f, Float.NaN), DELTA);
+        assertEquals(0.25f, multiplication.aggregateKnown(0.5f, 0.5f), DELTA);
+    }
+
+    /* s1 -> s2 -> s3 starting and ending with host ports */
+    private static Path hostToHost() {
+        return new Path(new PathId(S1, S3), Arrays.asList(npt(S1, 10), npt(S1, 1), npt(S2, 1), npt(S2, 2),
+                npt(S3, 1), npt(S3, 10)));
+    }
+
+    /* s1 -> s2 -> s3 with inter-switch ports only */
+    private static Path switchToSwitch() {
+        return new Path(new PathId(S1, S3), Arrays.asList(npt(S1, 1), npt(S2, 1), npt(S2, 2), npt(S3, 1)));
+    }
+
+    private static void assertProperties(Map<SecurityDimension, Float> properties, float c, float i, float a, float t) {
+        assertEquals(c, properties.get(SecurityDimension.CONFIDENTIALITY), DELTA);
+        assertEquals(i, properties.get(SecurityDimension.INTEGRITY), DELTA);
+        assertEquals(a, properties.get(SecurityDimension.AVAILABILITY), DELTA);
+        assertEquals(t, properties.get(SecurityDimension.TRUST), DELTA);
+    }
+
+    private static Link link(DatapathId src, int srcPort, DatapathId dst, int dstPort) {
+        return new Link(src, OFPort.of(srcPort), dst, OFPort.of(dstPort), U64.ZERO);
+    }
+
+    private static NodePortTuple npt(DatapathId dpid, int port) {
+        return new NodePortTuple(dpid, OFPort.of(port));
+    }
+}
@@ -0,0 +1,195 @@
+package pl.sszwaczyk.routing.solver;
+
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
+import net.floodlightcontroller.linkdiscovery.Link;
+import net.floodlightcontroller.linkdiscovery.internal.LinkInfo;
+import net.floodlightcontroller.routing.IRoutingService;
+import net.floodlightcontroller.statistics.IStatisticsService;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+import pl.sszwaczyk.path.PathPropertiesService;
+import pl.sszwaczyk.security.SecurityDimension;
+import pl.sszwaczyk.security.dtsp.DTSP;
+import pl.sszwaczyk.security.dtsp.IDTSPService;
+import pl.sszwaczyk.security.properties.ISecurityPropertiesService;
+import pl.sszwaczyk.security.properties.SecurityPropertiesStore;
+import pl.sszwaczyk.security.risk.RiskCalculationService;
+import pl.sszwaczyk.service.Service;
+import pl.sszwaczyk.uneven.IUnevenService;
+import pl.sszwaczyk.uneven.UnevenMetric;
+import pl.sszwaczyk.uneven.UnevenModel;
+import pl.sszwaczyk.user.User;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Topology used by the tests, host ports are port 10 of switch 1 and 4:
+ *
+ *      s2 (secure)
+ *     /  \
+ *   s1 -- s4      s1 -- s4 is a direct insecure link
+ *     \  /
+ *      s3 (unknown properties of s3 and s1 -- s3)
+ */
+public class ConstrainedPathSolverTest {
+
+    private static final DatapathId S1 = DatapathId.of(1);
+    private static final DatapathId S2 = DatapathId.of(2);
+    private static final DatapathId S3 = DatapathId.of(3);
+    private static final DatapathId S4 = DatapathId.of(4);
+    private static final OFPort HOST_PORT = OFPort.of(10);
+
+    private Map<Link, LinkInfo> links;
+    private SecurityPropertiesStore store;
+    private Service service;
+    private DTSP dtsp;
+    private ConstrainedPathSolver solver;
+
+    @Before
+    public void setUp() throws Exception {
+        links = new HashMap<>();
+        store = new SecurityPropertiesStore();
+        for(DatapathId sw: Arrays.asList(S1, S2, S4)) {
+            store.setTrust(sw, 0.99f);
+        }
+
+        service = new Service();
+        service.setId("s");
+        service.setBandwidth(1000d);
+        dtsp = DTSP.builder()
+                .service(service)
+                .requirements(dimensions(0.9f))
+                .consequences(dimensions(1f))
+                .acceptableRiskIncrease(dimensions(50f))
+                .build();
+
+        FloodlightModuleContext fmc = new FloodlightModuleContext();
+        ISecurityPropertiesService securityPropertiesService = createMock(ISecurityPropertiesService.class);
+        expect(securityPropertiesService.getSecurityPropertiesSnapshot()).andAnswer(() -> store.getSnapshot()).anyTimes();
+        fmc.addService(ISecurityPropertiesService.class, securityPropertiesService);
+
+        RiskCalculationService riskService = new RiskCalculationService();
+        fmc.addConfigParam(riskService, "calculator", "log");
+        riskService.init(fmc);
+        PathPropertiesService pathPropertiesService = new PathPropertiesService();
+        fmc.addConfigParam(pathPropertiesService, "path-properties-calculator", "multiplication");
+        pathPropertiesService.init(fmc);
+
+        IRoutingService routingService = createMock(IRoutingService.class);
+        expect(routingService.getPathMetric()).andReturn(IRoutingService.PATH_METRIC.HOPCOUNT).anyTimes();
+        ILinkDiscoveryService linkService = createMock(ILinkDiscoveryService.class);
+        expect(linkService.getLinks()).andReturn(links).anyTimes();
+        IDTSPService dtspService = createMock(IDTSPService.class);
+        expect(dtspService.getDTSPForService(service)).andAnswer(() -> dtsp).anyTimes();
+        /* no statistics means enough bandwidth everywhere */
+        IStatisticsService statisticsService = createNiceMock(IStatisticsService.class);
+        IUnevenService unevenService = createMock(IUnevenService.class);
+        expect(unevenService.getUnevenModel()).andAnswer(() -> UnevenModel.of(Collections.emptyMap())).anyTimes();
+        replay(securityPropertiesService, routingService, linkService, dtspService, statisticsService, unevenService);
+
+        solver = ConstrainedPathSolver.builder()
+                .routingService(routingService)
+                .linkService(linkService)
+                .securityPropertiesService(securityPropertiesService)
+                .riskService(riskService)
+                .dtspService(dtspService)
+                .pathPropertiesService(pathPropertiesService)
+                .statisticsService(statisticsService)
+                .unevenService(unevenService)
+                .unevenMetric(UnevenMetric.GAP)
+                .build();
+    }
+
+    @Test
+    public void testAvoidsShorterInsecurePath() {
+        addLink(S1, 2, S4, 2, 0.5f);
+        addLink(S1, 1, S2, 1, 0.99f);
+        addLink(S2, 2, S4, 1, 0.99f);
+
+        Decision decision = solve();
+        assertTrue(decision.isSolved());
+        assertEquals(SolveRegion.RAR_BF, decision.getRegion());
+        assertEquals(Arrays.asList(npt(S1, 10), npt(S1, 1), npt(S2, 1), npt(S2, 2), npt(S4, 1), npt(S4, 10)),
+                decision.getPath().getPath());
+        assertEquals(2, decision.getPathLength());
+    }
+
+    @Test
+    public void testAboveAcceptableRisk() {
+        addLink(S1, 2, S4, 2, 0.5f);
+        addLink(S1, 1, S2, 1, 0.99f);
+        addLink(S2, 2, S4, 1, 0.99f);
+        /* secure path is above acceptable, but below max risks */
+        dtsp.setRequirements(dimensions(0.99f));
+        dtsp.setAcceptableRiskIncrease(dimensions(1000f));
+
+        Decision decision = solve();
+        assertTrue(decision.isSolved());
+        assertEquals(SolveRegion.RAR_RF, decision.getRegion());
+        assertEquals(2, decision.getPathLength());
+        assertEquals(S2, decision.getPath().getPath().get(2).getNodeId());
+    }
+
+    @Test
+    public void testUnknownPropertiesNotPruned() {
+        addLink(S1, 2, S4, 2, 0.5f);
+        /* neither s3 nor s1 -- s3 have properties */
+        links.put(new Link(S1, OFPort.of(3), S3, OFPort.of(1), U64.ZERO), null);
+        links.put(new Link(S3, OFPort.of(1), S1, OFPort.of(3), U64.ZERO), null);
+        addLink(S3, 2, S4, 3, 0.99f);
+
+        Decision decision = solve();
+        assertTrue(decision.isSolved());
+        assertEquals(Arrays.asList(npt(S1, 10), npt(S1, 3), npt(S3, 1), npt(S3, 2), npt(S4, 3), npt(S4, 10)),
+                decision.getPath().getPath());
+    }
+
+    @Test
+    public void testNoFeasiblePath() {
+        addLink(S1, 2, S4, 2, 0.5f);
+
+        Decision decision = solve();
+        assertFalse(decision.isSolved());
+        assertEquals(Reason.CANNOT_FULFILL_DTSP, decision.getReason());
+        assertNull(decision.getPath());
+        assertTrue(decision.getSearchEffort().getPrunedRisk() > 0);
+    }
+
+    private Decision solve() {
+        return solver.solve(new User(), service, S1, HOST_PORT, S4, HOST_PORT);
+    }
+
+    /* link in both directions with the same C, I and A */
+    private void addLink(DatapathId src, int srcPort, DatapathId dst, int dstPort, float property) {
+        Link link = new Link(src, OFPort.of(srcPort), dst, OFPort.of(dstPort), U64.ZERO);
+        Link reverse = new Link(dst, OFPort.of(dstPort), src, OFPort.of(srcPort), U64.ZERO);
+        for(Link l: Arrays.asList(link, reverse)) {
+            links.put(l, null);
+            store.setLink(l, property, property, property);
+        }
+    }
+
+    private static NodePortTuple npt(DatapathId dpid, int port) {
+        return new NodePortTuple(dpid, OFPort.of(port));
+    }
+
+    private static Map<SecurityDimension, Float> dimensions(float value) {
+        Map<SecurityDimension, Float> map = new EnumMap<>(SecurityDimension.class);
+        for(SecurityDimension dimension: SecurityDimension.values()) {
+            map.put(dimension, value);
+        }
+        return map;
+    }
+}
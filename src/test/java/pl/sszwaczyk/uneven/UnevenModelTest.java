@@ -0,0 +1,161 @@
+package pl.sszwaczyk.uneven;
+
+import net.floodlightcontroller.core.types.NodePortTuple;
+import net.floodlightcontroller.statistics.SwitchPortBandwidth;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class UnevenModelTest {
+
+    private static final double DELTA = 1e-9;
+    private static final long BANDWIDTH = 3000000; //b/s
+    private static final UnevenMetric[] METRICS = {
+            UnevenMetric.GAP, UnevenMetric.VARIANCE, UnevenMetric.VARIATION_COEFFICIENT
+    };
+
+    @Test
+    public void testUneven() {
+        Map<NodePortTuple, SwitchPortBandwidth> bandwidth = new HashMap<>();
+        put(bandwidth, 1, 1, 10000, 2000000);
+        put(bandwidth, 1, 2, 10000, 7500000);
+        put(bandwidth, 1, OFPort.LOCAL.getPortNumber(), 10000, 9000000);
+        put(bandwidth, 2, 1, 100000, 12000000);
+        put(bandwidth, 2, 2, 100000, 0);
+        put(bandwidth, 3, 1, 1000, 900000);
+        put(bandwidth, 3, 2, 0, 5000000); /* unknown speed */
+
+        UnevenModel model = UnevenModel.of(bandwidth);
+        for(UnevenMetric metric: METRICS) {
+            assertEquals(bruteForce(metric, bandwidth), model.getUneven(metric), DELTA);
+        }
+
+        /* repeated, LOCAL and unknown ports do not change the prediction */
+        List<NodePortTuple> path = Arrays.asList(npt(1, 2), npt(2, 1), npt(2, 1), npt(3, 1),
+                npt(1, OFPort.LOCAL.getPortNumber()), npt(4, 1));
+        for(UnevenMetric metric: METRICS) {
+            assertEquals(bruteForce(metric, added(bandwidth, path)), model.getUnevenIfAdded(metric, path, BANDWIDTH), DELTA);
+        }
+
+        /* queries do not affect each other */
+        List<NodePortTuple> other = Collections.singletonList(npt(2, 2));
+        for(UnevenMetric metric: METRICS) {
+            assertEquals(bruteForce(metric, added(bandwidth, other)), model.getUnevenIfAdded(metric, other, BANDWIDTH), DELTA);
+            assertEquals(bruteForce(metric, added(bandwidth, other)), model.copy().getUnevenIfAdded(metric, other, BANDWIDTH), DELTA);
+        }
+    }
+
+    @Test
+    public void testOnlyLocalPorts() {
+        Map<NodePortTuple, SwitchPortBandwidth> bandwidth = new HashMap<>();
+        put(bandwidth, 1, OFPort.LOCAL.getPortNumber(), 10000, 2000000);
+        put(bandwidth, 2, OFPort.LOCAL.getPortNumber(), 10000, 4000000);
+
+        UnevenModel model = UnevenModel.of(bandwidth);
+        List<NodePortTuple> path = Collections.singletonList(npt(1, OFPort.LOCAL.getPortNumber()));
+        for(UnevenMetric metric: METRICS) {
+            assertEquals(bruteForce(metric, bandwidth), model.getUneven(metric), DELTA);
+            assertEquals(bruteForce(metric, bandwidth), model.getUnevenIfAdded(metric, path, BANDWIDTH), DELTA);
+        }
+    }
+
+    @Test
+    public void testSinglePort() {
+        Map<NodePortTuple, SwitchPortBandwidth> bandwidth = new HashMap<>();
+        put(bandwidth, 1, 1, 10000, 2000000);
+
+        UnevenModel model = UnevenModel.of(bandwidth);
+        List<NodePortTuple> path = Collections.singletonList(npt(1, 1));
+        for(UnevenMetric metric: METRICS) {
+            assertEquals(bruteForce(metric, bandwidth), model.getUneven(metric), DELTA);
+            assertEquals(bruteForce(metric, added(bandwidth, path)), model.getUnevenIfAdded(metric, path, BANDWIDTH), DELTA);
+        }
+        assertEquals(0d, model.getUneven(UnevenMetric.VARIANCE), DELTA);
+    }
+
+    @Test
+    public void testNoPorts() {
+        UnevenModel model = UnevenModel.of(Collections.<NodePortTuple, SwitchPortBandwidth>emptyMap());
+        for(UnevenMetric metric: METRICS) {
+            assertEquals(bruteForce(metric, Collections.<NodePortTuple, SwitchPortBandwidth>emptyMap()),
+                    model.getUneven(metric), DELTA);
+        }
+        assertEquals(0d, model.getUneven(UnevenMetric.GAP), DELTA);
+    }
+
+    /* copy of the bandwidth map with BANDWIDTH added to Tx of the given ports */
+    private static Map<NodePortTuple, SwitchPortBandwidth> added(Map<NodePortTuple, SwitchPortBandwidth> bandwidth,
+                                                                 List<NodePortTuple> ports) {
+        Map<NodePortTuple, SwitchPortBandwidth> copy = new HashMap<>(bandwidth);
+        for(NodePortTuple npt: new LinkedHashSet<>(ports)) {
+            SwitchPortBandwidth b = copy.get(npt);
+            if(b != null) {
+                copy.put(npt, SwitchPortBandwidth.of(b.getSwitchId(), b.getSwitchPort(), b.getLinkSpeedBitsPerSec(),
+                        b.getBitsPerSecondRx(), b.getBitsPerSecondTx().add(U64.of(BANDWIDTH)), U64.ZERO, U64.ZERO));
+            }
+        }
+        return copy;
+    }
+
+    /* the metrics computed directly over Tx utilization of all ports but LOCAL and CONTROLLER */
+    private static double bruteForce(UnevenMetric metric, Map<NodePortTuple, SwitchPortBandwidth> bandwidth) {
+        List<Double> utilization = new ArrayList<>();
+        for(SwitchPortBandwidth b: bandwidth.values()) {
+            if(!OFPort.LOCAL.equals(b.getSwitchPort()) && !OFPort.CONTROLLER.equals(b.getSwitchPort())) {
+                utilization.add(b.getTxUtilization());
+            }
+        }
+        int n = utilization.size();
+        double mean = 0;
+        for(double u: utilization) {
+            mean += u;
+        }
+        mean = n == 0 ? Double.NaN : mean / n;
+        double squares = 0;
+        for(double u: utilization) {
+            squares += (u - mean) * (u - mean);
+        }
+        double variance = n == 0 ? Double.NaN : n == 1 ? 0d : squares / (n - 1);
+
+        switch (metric) {
+            case GAP:
+                if(bandwidth.isEmpty()) {
+                    return 0d;
+                }
+                double min = 1;
+                double max = 0;
+                for(double u: utilization) {
+                    min = Math.min(min, u);
+                    max = Math.max(max, u);
+                }
+                return max - min;
+            case VARIANCE:
+                return variance;
+            case VARIATION_COEFFICIENT:
+                return Math.sqrt(variance) / mean;
+            default:
+                return 0d;
+        }
+    }
+
+    private static NodePortTuple npt(long dpid, int port) {
+        return new NodePortTuple(DatapathId.of(dpid), OFPort.of(port));
+    }
+
+    /* speed in kb/s, tx in b/s */
+    private static void put(Map<NodePortTuple, SwitchPortBandwidth> bandwidth, long dpid, int port, long speed, long tx) {
+        bandwidth.put(npt(dpid, port), SwitchPortBandwidth.of(DatapathId.of(dpid), OFPort.of(port),
+                U64.of(speed), U64.ZERO, U64.of(tx), U64.ZERO, U64.ZERO));
+    }
+}